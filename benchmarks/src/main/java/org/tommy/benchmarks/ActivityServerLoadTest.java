@@ -0,0 +1,120 @@
+package org.tommy.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.ActivityServer;
+import org.tommy.ActivityService;
+import org.tommy.GItHubAPI;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local load test of {@link ActivityServer} against a stub of the events API.
+ * <p>
+ * The stub answers every user with the 30-event page fixture after a fixed delay, standing in for
+ * GitHub's latency. Concurrent clients on virtual threads request the activity of users drawn from a small
+ * pool, so many requests for the same user overlap and are coalesced into one upstream fetch. Reports
+ * throughput, client-side latency percentiles and how many upstream fetches the requests cost.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar org.tommy.benchmarks.ActivityServerLoadTest
+ * [requests] [clients] [users] [upstreamMillis]}.
+ */
+public class ActivityServerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int upstreamMillis = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        byte[] page = EventFixtures.load("events-30.json").getBytes(StandardCharsets.UTF_8);
+        AtomicInteger upstreamRequests = new AtomicInteger();
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/users/", exchange -> {
+            upstreamRequests.incrementAndGet();
+            try {
+                Thread.sleep(upstreamMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(page);
+            }
+        });
+        upstream.start();
+
+        String template = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/users/%s/events";
+        GItHubAPI api = new GItHubAPI(HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build(),
+                Duration.ofSeconds(10), template, null, null);
+        try (ActivityServer server = new ActivityServer(new ActivityService(api), new InetSocketAddress("127.0.0.1", 0))) {
+            server.start();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+            String base = "http://127.0.0.1:" + server.getPort() + "/users/user";
+
+            // Warm-up: one request per user, then the measured run
+            for(int user = 0; user < users; user++) send(client, base + user + "/activity");
+            upstreamRequests.set(0);
+            ActivityServer.ServerStats before = server.getStats();
+
+            long[] latencies = new long[requests];
+            AtomicInteger next = new AtomicInteger();
+            AtomicLong failures = new AtomicLong();
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for(int c = 0; c < clients; c++){
+                    executor.submit(() -> {
+                        for(int i; (i = next.getAndIncrement()) < requests; ){
+                            String uri = base + ThreadLocalRandom.current().nextInt(users) + "/activity"
+                                    + (i % 2 == 0 ? "" : "?format=json");
+                            long t = System.nanoTime();
+                            if(send(client, uri) != 200) failures.incrementAndGet();
+                            latencies[i] = System.nanoTime() - t;
+                        }
+                        return null;
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            ActivityServer.ServerStats after = server.getStats();
+            System.out.printf("%d requests from %d clients over %d users, upstream delay %d ms%n",
+                    requests, clients, users, upstreamMillis);
+            System.out.printf("%.0f requests/s, p50 %.1f ms, p99 %.1f ms, %d failed%n", requests * 1e9 / elapsed,
+                    latencies[requests / 2] / 1e6, latencies[(int) (requests * 0.99)] / 1e6, failures.get());
+            System.out.printf("%d upstream fetches (%.1f requests per fetch), %d coalesced%n", upstreamRequests.get(),
+                    (double) requests / Math.max(1, upstreamRequests.get()),
+                    after.coalescedRequests() - before.coalescedRequests());
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    private static int send(HttpClient client, String uri){
+        try {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(uri)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            return response.statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tommy.ArchiveIngester;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GH Archive ingestion over generated {@code .json.gz} hour files, filtering for one login.
+ * The files are written to a temporary directory in setup; divide the compressed size printed
+ * in setup by the score to get MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveIngestBenchmark {
+
+    @Param({"4"})
+    public int files;
+
+    @Param({"16"})
+    public int megabytesPerFile;
+
+    private List<Path> archives;
+    private ArchiveIngester ingester;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("gharchive-bench");
+        archives = new ArrayList<>();
+        long compressed = 0;
+        for (int i = 0; i < files; i++) {
+            Path file = directory.resolve("2025-06-30-" + i + ".json.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 1 << 16)) {
+                out.write(EventFixtures.archiveSlice(megabytesPerFile << 20, i).getBytes(StandardCharsets.UTF_8));
+            }
+            compressed += Files.size(file);
+            archives.add(file);
+        }
+        System.out.printf("%n%d files, %.1f MB compressed%n", files, compressed / 1e6);
+        ingester = new ArchiveIngester(List.of("user7"), files);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Path file : archives) Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ArchiveIngester.ArchiveSummary ingest() throws IOException {
+        return ingester.ingest(archives, new StringBuilder());
+    }
+}
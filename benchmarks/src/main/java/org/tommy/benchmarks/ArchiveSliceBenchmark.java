@@ -0,0 +1,46 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end parse, decode and format over a multi-megabyte slice of events, shaped like a
+ * GH Archive hourly dump. The slice is generated in setup rather than checked in; use
+ * {@code -p megabytes=...} to change its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveSliceBenchmark {
+
+    @Param({"16"})
+    public int megabytes;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private String[] lines;
+    private JsonDataHandler handler;
+    private GitHubEventActivityFormatter formatter;
+
+    @Setup
+    public void setUp(){
+        lines = EventFixtures.archiveSlice(megabytes << 20, 42).split("\n");
+        handler = new JsonDataHandler(lazy);
+        formatter = new GitHubEventActivityFormatter();
+    }
+
+    @Benchmark
+    public void parseAndFormat(Blackhole blackhole){
+        for (String line : lines) {
+            handler.streamJsonData(line).forEach(reader -> blackhole.consume(formatter.formatEvent(reader)));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the regular JMH command line and always adds
+ * the GC profiler (allocation rate per operation) and a JSON result file, {@code target/jmh-result.json}
+ * unless {@code -rff} says otherwise, so runs can be compared across commits without leaving results in the
+ * source tree.
+ */
+public class BenchmarkRunner {
+
+    private static final Path DEFAULT_RESULT = Path.of("target", "jmh-result.json");
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON);
+        if (commandLine.getResult().hasValue()) {
+            options.result(commandLine.getResult().get());
+        } else {
+            Files.createDirectories(DEFAULT_RESULT.getParent());
+            options.result(DEFAULT_RESULT.toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
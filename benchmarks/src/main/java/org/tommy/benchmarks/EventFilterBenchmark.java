@@ -0,0 +1,66 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tommy.EventFilter;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.GitHubEventType;
+import org.tommy.event.GitHubEvent;
+import org.tommy.event.GitHubEventDecoder;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects the pushes to a few repositories (about 4% of the events) from a lazily parsed page and formats them,
+ * with an {@link EventFilter} that only reads each event's type, creation time and repository, against decoding
+ * every event first and selecting on the typed records. Parsing is part of both, since the filter is about
+ * which subtrees the lazy parser never has to build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventFilterBenchmark {
+
+    @Param({"300"})
+    public int events;
+
+    private String json;
+    private final JsonDataHandler jsonDataHandler = new JsonDataHandler(true);
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+    private final GitHubEventDecoder decoder = new GitHubEventDecoder();
+    private final EventFilter filter = new EventFilter(List.of(GitHubEventType.PUSH_EVENT), List.of("org1*"), null, null);
+    private final StringBuilder out = new StringBuilder(1 << 12);
+
+    @Setup
+    public void setUp(){
+        json = EventFixtures.load("events-" + events + ".json");
+    }
+
+    @Benchmark
+    public int filterThenFormat() throws IOException {
+        out.setLength(0);
+        for(JsonReader event : jsonDataHandler.streamJsonData(json).filter(filter).toList()){
+            formatter.appendEvent(event, out);
+            out.append('\n');
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    public int decodeThenFilter() throws IOException {
+        out.setLength(0);
+        for(JsonReader event : jsonDataHandler.streamJsonData(json).toList()){
+            GitHubEvent decoded = decoder.decode(event);
+            if(decoded.type() != GitHubEventType.PUSH_EVENT || !decoded.repo().startsWith("org1")) continue;
+            formatter.appendEvent(decoded, out);
+            out.append('\n');
+        }
+        return out.length();
+    }
+}
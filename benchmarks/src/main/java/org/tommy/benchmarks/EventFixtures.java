@@ -0,0 +1,288 @@
+package org.tommy.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Deterministic, realistic GitHub event payloads for the benchmarks.
+ * <p>
+ * Events mirror the shape of the events API: the usual actor/repo envelope plus the large payload
+ * subtrees that the formatter never reads (commit lists, pull request and issue bodies, forkee repositories).
+ * The 30/100/300 event pages are checked in under {@code fixtures/}; run {@link #main(String[])} to
+ * regenerate them. The multi-megabyte archive slice is generated on demand with the same generator.
+ */
+public final class EventFixtures {
+
+    private static final String[] TYPES = {
+            "PushEvent", "PushEvent", "PushEvent", "PushEvent", "PullRequestEvent", "PullRequestEvent",
+            "IssueCommentEvent", "IssueCommentEvent", "IssuesEvent", "CreateEvent", "CreateEvent", "WatchEvent",
+            "WatchEvent", "ForkEvent", "DeleteEvent", "PullRequestReviewEvent", "PullRequestReviewCommentEvent",
+            "ReleaseEvent", "GollumEvent", "MemberEvent", "PublicEvent", "CommitCommentEvent", "SponsorshipEvent"
+    };
+
+    private static final String[] WORDS = {
+            "fix", "parser", "memory", "leak", "add", "support", "for", "streaming", "update", "docs", "refactor",
+            "cache", "the", "reader", "remove", "unused", "code", "improve", "error", "handling", "in", "client"
+    };
+
+    private static final Instant START = Instant.parse("2025-06-30T23:59:59Z");
+
+    private EventFixtures(){}
+
+    /**
+     * Loads a checked-in page fixture, e.g. {@code events-100.json}.
+     */
+    public static String load(String name){
+        try (InputStream in = EventFixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IllegalArgumentException("Fixture not found: " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates a JSON array of {@code count} events, newest first, as the events API returns them.
+     */
+    public static String page(int count, long seed){
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(count * 4096);
+        json.append("[\n");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(",\n");
+            appendEvent(json, random, i, null);
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    /**
+     * Generates newline-delimited events (one compact event per line, like a GH Archive hourly dump)
+     * until at least {@code minBytes} characters have been written.
+     */
+    public static String archiveSlice(int minBytes, long seed){
+        Random random = new Random(seed);
+        StringBuilder ndjson = new StringBuilder(minBytes + 8192);
+        for (int i = 0; ndjson.length() < minBytes; i++) {
+            appendEvent(ndjson, random, i, null);
+            ndjson.append('\n');
+        }
+        return ndjson.toString();
+    }
+
+    /**
+     * Appends one event. A null {@code type} picks a type at random with a realistic mix.
+     */
+    public static void appendEvent(StringBuilder json, Random random, int index, String type){
+        if (type == null) type = TYPES[random.nextInt(TYPES.length)];
+        String login = "user" + random.nextInt(500);
+        String repo = "org" + random.nextInt(50) + "/project-" + random.nextInt(200);
+        json.append("{\"id\":\"").append(40_000_000_000L + index).append("\",\"type\":\"").append(type).append('"');
+        json.append(",\"actor\":");
+        appendUser(json, random, login, false);
+        json.append(",\"repo\":{\"id\":").append(100_000 + random.nextInt(900_000))
+                .append(",\"name\":\"").append(repo).append("\",\"url\":\"https://api.github.com/repos/")
+                .append(repo).append("\"}");
+        json.append(",\"payload\":");
+        appendPayload(json, random, type, repo);
+        json.append(",\"public\":true,\"created_at\":\"").append(START.minusSeconds(index * 37L)).append("\"}");
+    }
+
+    private static void appendPayload(StringBuilder json, Random random, String type, String repo){
+        switch (type) {
+            case "PushEvent" -> {
+                int commits = 1 + random.nextInt(20);
+                json.append("{\"repository_id\":").append(random.nextInt(1_000_000))
+                        .append(",\"push_id\":").append(20_000_000_000L + random.nextInt(1_000_000))
+                        .append(",\"size\":").append(commits).append(",\"distinct_size\":").append(commits)
+                        .append(",\"ref\":\"refs/heads/main\",\"head\":\"").append(sha(random))
+                        .append("\",\"before\":\"").append(sha(random)).append("\",\"commits\":[");
+                for (int i = 0; i < commits; i++) {
+                    if (i > 0) json.append(',');
+                    String sha = sha(random);
+                    json.append("{\"sha\":\"").append(sha).append("\",\"author\":{\"email\":\"dev")
+                            .append(random.nextInt(100)).append("@example.com\",\"name\":\"Developer ")
+                            .append(random.nextInt(100)).append("\"},\"message\":\"");
+                    appendText(json, random, 6 + random.nextInt(20));
+                    json.append("\",\"distinct\":true,\"url\":\"https://api.github.com/repos/").append(repo)
+                            .append("/commits/").append(sha).append("\"}");
+                }
+                json.append("]}");
+            }
+            case "PullRequestEvent", "PullRequestReviewEvent", "PullRequestReviewCommentEvent" -> {
+                json.append("{\"action\":\"").append(type.equals("PullRequestEvent") ? pick(random, "opened", "closed", "reopened") : "created")
+                        .append("\",\"number\":").append(1 + random.nextInt(5000));
+                if (type.equals("PullRequestReviewEvent")) {
+                    json.append(",\"review\":{\"id\":").append(random.nextInt(1_000_000)).append(",\"state\":\"")
+                            .append(pick(random, "approved", "commented", "changes_requested")).append("\",\"body\":\"");
+                    appendText(json, random, 30);
+                    json.append("\"}");
+                }
+                if (type.equals("PullRequestReviewCommentEvent")) {
+                    json.append(",\"comment\":{\"id\":").append(random.nextInt(1_000_000)).append(",\"body\":\"");
+                    appendText(json, random, 40);
+                    json.append("\",\"path\":\"src/main/java/App.java\",\"line\":").append(random.nextInt(400)).append('}');
+                    if (random.nextBoolean()) json.append(",\"changes\":{\"body\":{\"from\":\"old\"}}");
+                }
+                json.append(",\"pull_request\":");
+                appendPullRequest(json, random, repo);
+                json.append('}');
+            }
+            case "IssueCommentEvent", "IssuesEvent" -> {
+                json.append("{\"action\":\"").append(type.equals("IssuesEvent") ? pick(random, "opened", "closed") : "created")
+                        .append("\",\"issue\":");
+                appendIssue(json, random, repo, random.nextInt(3) == 0);
+                if (type.equals("IssueCommentEvent")) {
+                    json.append(",\"comment\":{\"id\":").append(random.nextInt(1_000_000)).append(",\"user\":");
+                    appendUser(json, random, "user" + random.nextInt(500), true);
+                    json.append(",\"body\":\"");
+                    appendText(json, random, 60 + random.nextInt(120));
+                    json.append("\"}");
+                }
+                json.append('}');
+            }
+            case "CreateEvent", "DeleteEvent" -> {
+                boolean repository = type.equals("CreateEvent") && random.nextInt(4) == 0;
+                json.append("{\"ref\":").append(repository ? "null" : "\"feature-" + random.nextInt(1000) + "\"")
+                        .append(",\"ref_type\":\"").append(repository ? "repository" : pick(random, "branch", "tag"))
+                        .append("\",\"master_branch\":\"main\",\"description\":\"");
+                appendText(json, random, 8);
+                json.append("\",\"pusher_type\":\"user\"}");
+            }
+            case "WatchEvent" -> json.append("{\"action\":\"started\"}");
+            case "ForkEvent" -> {
+                json.append("{\"forkee\":");
+                appendRepository(json, random, "user" + random.nextInt(500) + "/" + repo.substring(repo.indexOf('/') + 1));
+                json.append('}');
+            }
+            case "ReleaseEvent" -> {
+                json.append("{\"action\":\"published\",\"release\":{\"id\":").append(random.nextInt(1_000_000))
+                        .append(",\"tag_name\":\"v1.").append(random.nextInt(30)).append("\",\"name\":\"Release 1.")
+                        .append(random.nextInt(30)).append("\",\"body\":\"");
+                appendText(json, random, 150);
+                json.append("\",\"author\":");
+                appendUser(json, random, "user" + random.nextInt(500), true);
+                json.append("}}");
+            }
+            case "GollumEvent" -> {
+                json.append("{\"pages\":[");
+                int pages = 1 + random.nextInt(3);
+                for (int i = 0; i < pages; i++) {
+                    if (i > 0) json.append(',');
+                    json.append("{\"page_name\":\"Page-").append(random.nextInt(100)).append("\",\"title\":\"Page\",\"action\":\"")
+                            .append(pick(random, "created", "edited")).append("\",\"sha\":\"").append(sha(random)).append("\"}");
+                }
+                json.append("]}");
+            }
+            case "MemberEvent" -> {
+                json.append("{\"action\":\"added\",\"member\":");
+                appendUser(json, random, "user" + random.nextInt(500), true);
+                json.append('}');
+            }
+            case "CommitCommentEvent" -> {
+                json.append("{\"comment\":{\"id\":").append(random.nextInt(1_000_000)).append(",\"commit_id\":\"")
+                        .append(sha(random)).append("\",\"body\":\"");
+                appendText(json, random, 40);
+                json.append("\"}}");
+            }
+            case "SponsorshipEvent" -> {
+                json.append("{\"action\":\"created\",\"sponsorable\":");
+                appendUser(json, random, "user" + random.nextInt(500), true);
+                json.append('}');
+            }
+            default -> json.append("{}");
+        }
+    }
+
+    private static void appendPullRequest(StringBuilder json, Random random, String repo){
+        json.append("{\"id\":").append(random.nextInt(1_000_000_000)).append(",\"number\":").append(1 + random.nextInt(5000))
+                .append(",\"state\":\"open\",\"title\":\"");
+        appendText(json, random, 6);
+        json.append("\",\"user\":");
+        appendUser(json, random, "user" + random.nextInt(500), true);
+        json.append(",\"body\":\"");
+        appendText(json, random, 120 + random.nextInt(200));
+        json.append("\",\"labels\":[],\"head\":{\"ref\":\"feature\",\"sha\":\"").append(sha(random)).append("\",\"repo\":");
+        appendRepository(json, random, repo);
+        json.append("},\"base\":{\"ref\":\"main\",\"sha\":\"").append(sha(random)).append("\",\"repo\":");
+        appendRepository(json, random, repo);
+        json.append("},\"merged\":false,\"comments\":").append(random.nextInt(20))
+                .append(",\"additions\":").append(random.nextInt(2000)).append(",\"deletions\":").append(random.nextInt(800))
+                .append(",\"changed_files\":").append(random.nextInt(40)).append('}');
+    }
+
+    private static void appendIssue(StringBuilder json, Random random, String repo, boolean pullRequest){
+        int number = 1 + random.nextInt(5000);
+        json.append("{\"url\":\"https://api.github.com/repos/").append(repo).append("/issues/").append(number)
+                .append("\",\"id\":").append(random.nextInt(1_000_000_000)).append(",\"number\":").append(number)
+                .append(",\"title\":\"");
+        appendText(json, random, 8);
+        json.append("\",\"user\":");
+        appendUser(json, random, "user" + random.nextInt(500), true);
+        json.append(",\"labels\":[{\"name\":\"bug\",\"color\":\"d73a4a\"}],\"state\":\"open\",\"comments\":")
+                .append(random.nextInt(30));
+        if (pullRequest) {
+            json.append(",\"pull_request\":{\"url\":\"https://api.github.com/repos/").append(repo).append("/pulls/")
+                    .append(number).append("\"}");
+        }
+        json.append(",\"body\":\"");
+        appendText(json, random, 80 + random.nextInt(200));
+        json.append("\"}");
+    }
+
+    private static void appendRepository(StringBuilder json, Random random, String fullName){
+        json.append("{\"id\":").append(random.nextInt(1_000_000_000)).append(",\"name\":\"")
+                .append(fullName.substring(fullName.indexOf('/') + 1)).append("\",\"full_name\":\"").append(fullName)
+                .append("\",\"private\":false,\"owner\":");
+        appendUser(json, random, fullName.substring(0, fullName.indexOf('/')), true);
+        json.append(",\"description\":\"");
+        appendText(json, random, 12);
+        json.append("\",\"fork\":false,\"url\":\"https://api.github.com/repos/").append(fullName)
+                .append("\",\"stargazers_count\":").append(random.nextInt(10_000))
+                .append(",\"language\":\"Java\",\"default_branch\":\"main\"}");
+    }
+
+    private static void appendUser(StringBuilder json, Random random, String login, boolean full){
+        int id = 1000 + random.nextInt(10_000_000);
+        json.append("{\"id\":").append(id).append(",\"login\":\"").append(login).append('"');
+        if (!full) json.append(",\"display_login\":\"").append(login).append('"');
+        json.append(",\"gravatar_id\":\"\",\"url\":\"https://api.github.com/users/").append(login)
+                .append("\",\"avatar_url\":\"https://avatars.githubusercontent.com/u/").append(id).append("?\"");
+        if (full) {
+            json.append(",\"html_url\":\"https://github.com/").append(login)
+                    .append("\",\"type\":\"User\",\"site_admin\":false");
+        }
+        json.append('}');
+    }
+
+    private static void appendText(StringBuilder json, Random random, int words){
+        for (int i = 0; i < words; i++) {
+            if (i > 0) json.append(i % 13 == 0 ? "\\n" : " ");
+            json.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    private static String sha(Random random){
+        return String.format("%016x%016x%08x", random.nextLong(), random.nextLong(), random.nextInt());
+    }
+
+    private static String pick(Random random, String... values){
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Regenerates the checked-in page fixtures into the given resources directory.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "src/main/resources/fixtures");
+        Files.createDirectories(directory);
+        for (int count : new int[]{30, 100, 300}) {
+            Files.writeString(directory.resolve("events-" + count + ".json"), page(count, count));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats a parsed page of events into activity lines. Parsing happens once in setup so only
+ * decoding and formatting are measured; lazy trees would memoize on the first invocation, so
+ * the parse-inclusive lazy path is covered by {@link ArchiveSliceBenchmark} instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FormatBenchmark {
+
+    @Param({"30", "100", "300"})
+    public int events;
+
+    private List<JsonReader> readers;
+    private GitHubEventActivityFormatter formatter;
+
+    @Setup
+    public void setUp(){
+        readers = new JsonDataHandler().streamJsonData(EventFixtures.load("events-" + events + ".json")).toList();
+        formatter = new GitHubEventActivityFormatter();
+        out = new StringBuilder(events * 128);
+    }
+
+    private StringBuilder out;
+
+    @Benchmark
+    public List<String> formatEvents(){
+        return formatter.formatEvents(readers);
+    }
+
+    @Benchmark
+    public int formatEventsToAppendable() throws IOException {
+        out.setLength(0);
+        formatter.formatEvents(readers, out);
+        return out.length();
+    }
+}
@@ -0,0 +1,55 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key lookups over already parsed events: a dotted string path (compiled through the path cache
+ * on every call) against a {@link JsonPath} compiled once up front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LookupBenchmark {
+
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath PULL_REQUEST_NUMBER = JsonPath.compile("payload.pull_request.number");
+
+    private List<JsonReader> readers;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp(){
+        readers = (List<JsonReader>) new JsonDataHandler().extractJsonData(EventFixtures.load("events-100.json"));
+    }
+
+    private JsonReader nextReader(){
+        JsonReader reader = readers.get(next);
+        next = next + 1 == readers.size() ? 0 : next + 1;
+        return reader;
+    }
+
+    @Benchmark
+    public void stringPath(Blackhole blackhole){
+        JsonReader reader = nextReader();
+        blackhole.consume(reader.<Object>getValueForKey("repo.name"));
+        blackhole.consume(reader.<Object>getValueForKey("payload.pull_request.number"));
+    }
+
+    @Benchmark
+    public void compiledPath(Blackhole blackhole){
+        JsonReader reader = nextReader();
+        blackhole.consume(reader.<Object>getValueForKey(REPO_NAME));
+        blackhole.consume(reader.<Object>getValueForKey(PULL_REQUEST_NUMBER));
+    }
+}
@@ -0,0 +1,59 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.parser.JsonParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a page of events into a JSON tree, eagerly and lazily, and through {@link JsonDataHandler}
+ * (the path the CLI takes). Page sizes match the 30/100/300 events of one to three API pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark {
+
+    @Param({"30", "100", "300"})
+    public int events;
+
+    private String json;
+    private JsonParser eagerParser;
+    private JsonParser lazyParser;
+    private JsonDataHandler handler;
+    private JsonDataHandler lazyHandler;
+
+    @Setup
+    public void setUp(){
+        json = EventFixtures.load("events-" + events + ".json");
+        eagerParser = new JsonParser();
+        lazyParser = new JsonParser(true);
+        handler = new JsonDataHandler();
+        lazyHandler = new JsonDataHandler(true);
+    }
+
+    @Benchmark
+    public Object parseEager(){
+        return eagerParser.parseJson(json);
+    }
+
+    @Benchmark
+    public Object parseLazy(){
+        return lazyParser.parseJson(json);
+    }
+
+    @Benchmark
+    public Object extractJsonData(){
+        return handler.extractJsonData(json);
+    }
+
+    @Benchmark
+    public void streamJsonDataLazy(Blackhole blackhole){
+        lazyHandler.streamJsonData(json).forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,80 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+import org.tommy.sink.ActivitySink;
+import org.tommy.sink.BufferedChannelWriter;
+import org.tommy.sink.SinkFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a parsed page of events to a channel that discards the bytes, as text lines or as records of each
+ * structured format, so only the formatting and encoding cost is measured. As in {@link FormatBenchmark},
+ * parsing happens once in setup. Each operation returns the bytes it wrote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SinkBenchmark {
+
+    @Param({"300"})
+    public int events;
+
+    @Param({"text", "ndjson", "csv", "binary"})
+    public String format;
+
+    private List<JsonReader> readers;
+    private GitHubEventActivityFormatter formatter;
+    private BufferedChannelWriter out;
+    private ActivitySink sink;
+
+    // Counts and drops everything written to it
+    private static final class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source){
+            int count = source.remaining();
+            source.position(source.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen(){
+            return true;
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    @Setup
+    public void setUp(){
+        readers = new JsonDataHandler().streamJsonData(EventFixtures.load("events-" + events + ".json")).toList();
+        formatter = new GitHubEventActivityFormatter();
+        out = new BufferedChannelWriter(new DiscardingChannel());
+        sink = format.equals("text") ? null : SinkFormat.valueOf(format.toUpperCase()).newSink(out);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        long before = out.getBytesWritten();
+        if(sink == null){
+            formatter.formatEvents(readers, out);
+            out.flush();
+        } else {
+            for(JsonReader reader : readers) sink.write("octocat", reader);
+            sink.flush();
+        }
+        return out.getBytesWritten() - before;
+    }
+}
@@ -0,0 +1,70 @@
+package org.tommy.benchmarks;
+
+import org.tommy.parser.JsonParser;
+import org.tommy.parser.SymbolTable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reports the retained heap of 100k parsed events with and without a {@link SymbolTable}.
+ * <p>
+ * Events are generated and parsed in pages of 100, like API responses, and every parsed tree is kept,
+ * as a caller that holds events for aggregation or caching would. Each configuration runs on a clean
+ * heap and is measured as used heap after a full GC, minus the same figure before parsing.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar org.tommy.benchmarks.SymbolTableHeapReport [events]}.
+ */
+public class SymbolTableHeapReport {
+
+    private static final int PAGE = 100;
+
+    private enum Symbols { NONE, KEYS, KEYS_AND_VALUES }
+
+    public static void main(String[] args){
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.out.printf("%-6s %-16s %12s %12s %10s%n", "mode", "symbols", "retained MB", "bytes/event", "parse ms");
+        for(boolean lazy : new boolean[]{false, true}){
+            for(Symbols symbols : Symbols.values()){
+                measure(events, lazy, symbols);
+            }
+        }
+    }
+
+    private static void measure(int events, boolean lazy, Symbols symbols){
+        JsonParser parser = switch (symbols){
+            case NONE -> new JsonParser(lazy, null, false);
+            case KEYS -> new JsonParser(lazy, new SymbolTable(), false);
+            case KEYS_AND_VALUES -> new JsonParser(lazy, new SymbolTable(), true);
+        };
+        long before = usedAfterGc();
+        List<Object> retained = new ArrayList<>(events / PAGE + 1);
+        Random random = new Random(42);
+        long parseNanos = 0;
+        for(int start = 0; start < events; start += PAGE){
+            StringBuilder page = new StringBuilder(PAGE * 4096).append('[');
+            for(int i = start; i < Math.min(events, start + PAGE); i++){
+                if(i > start) page.append(',');
+                EventFixtures.appendEvent(page, random, i, null);
+            }
+            String json = page.append(']').toString();
+            long t = System.nanoTime();
+            retained.add(parser.parseJson(json));
+            parseNanos += System.nanoTime() - t;
+        }
+        long after = usedAfterGc();
+        System.out.printf("%-6s %-16s %12.1f %12d %10d%n", lazy ? "lazy" : "eager", symbols.name().toLowerCase(),
+                (after - before) / 1e6, (after - before) / events, parseNanos / 1_000_000);
+        // Keeps the trees reachable until they have been measured
+        if(retained.size() != (events + PAGE - 1) / PAGE) throw new AssertionError();
+    }
+
+    private static long usedAfterGc(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for(int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,75 @@
+package org.tommy.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.tommy.UserNameIngester;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Loads a users file of a million lines, with 10% case-insensitive duplicates and 1% invalid names, through
+ * {@link UserNameIngester}, against reading all lines into Strings and checking them with the regular
+ * expressions the validator used to run, deduplicating with a HashSet of lower-cased names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class UserNameIngestBenchmark {
+
+    private static final Pattern VALID = Pattern.compile("^[a-zA-Z0-9-]+$");
+    private static final Pattern CONSECUTIVE_HYPHENS = Pattern.compile("--");
+
+    @Param({"1000000"})
+    public int lines;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder users = new StringBuilder();
+        for(int i = 0; i < lines; i++){
+            if(i % 100 == 99) users.append("not_valid-").append(i);
+            else if(i % 10 == 9) users.append("Dev-").append(i - 9).append("-Octo");
+            else users.append("dev-").append(i).append("-octo");
+            users.append('\n');
+        }
+        file = Files.createTempFile("users", ".txt");
+        Files.writeString(file, users);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<String> ingest(){
+        UserNameIngester ingester = new UserNameIngester();
+        ingester.read(file);
+        return ingester.getUserNames();
+    }
+
+    @Benchmark
+    public List<String> readAllLinesWithRegex() throws IOException {
+        List<String> userNames = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for(String line : Files.readAllLines(file)){
+            String userName = line.trim();
+            if(userName.isEmpty() || userName.length() > 39 || userName.startsWith("-") || userName.endsWith("-")) continue;
+            if(!VALID.matcher(userName).matches() || CONSECUTIVE_HYPHENS.matcher(userName).find()) continue;
+            if(seen.add(userName.toLowerCase(Locale.ROOT))) userNames.add(userName);
+        }
+        return userNames;
+    }
+}
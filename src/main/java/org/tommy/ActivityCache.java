@@ -0,0 +1,278 @@
+package org.tommy;
+
+import org.tommy.model.JsonReader;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory cache of users' parsed events and formatted activity lines, used by {@link ActivityService}.
+ * <p>
+ * Entries expire after a fixed time to live, and the cache is bounded by the estimated size of its entries
+ * rather than by their number: parsed events are charged by {@link JsonReader#estimateSize()}, lines by
+ * their length. To make room, the least recently used entries are evicted, but only if the new entry has
+ * been looked up more often than each of them (TinyLFU-style admission); otherwise the new entry is not
+ * admitted, so a burst of one-off lookups cannot flush the popular users out. Lookup frequencies are kept
+ * in a small count-min sketch of saturating counters that is halved periodically, so they follow changes
+ * in popularity.
+ * <p>
+ * Instances are safe to share between threads. Only share one between services with the same paging options,
+ * since entries are keyed by username alone.
+ */
+public class ActivityCache {
+
+    /**
+     * What an entry keeps.
+     */
+    public enum Contents {
+        /** Parsed events: every lookup can be served, but lines are formatted again on each hit. */
+        EVENTS,
+        /** Formatted lines: the cheapest hits, but lookups that need the events fetch them again. */
+        LINES,
+        /** Both: the largest entries, and every lookup is served. */
+        BOTH
+    }
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    // Map entry, key and bookkeeping of one cached user
+    private static final long ENTRY_OVERHEAD = 160;
+
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final Contents contents;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch(1024);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long rejections;
+
+    public ActivityCache(){
+        this(DEFAULT_TTL, DEFAULT_MAX_BYTES, Contents.BOTH);
+    }
+
+    /**
+     * @param ttl      how long an entry is served after it was stored
+     * @param maxBytes upper bound on the estimated size of all entries
+     * @param contents what the entries keep
+     */
+    public ActivityCache(Duration ttl, long maxBytes, Contents contents){
+        if(ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("ttl must be positive");
+        if(maxBytes < 1) throw new IllegalArgumentException("maxBytes must be at least 1");
+        this.ttlNanos = ttl.toNanos();
+        this.maxBytes = maxBytes;
+        this.contents = contents;
+    }
+
+    public boolean keepsEvents(){
+        return contents != Contents.LINES;
+    }
+
+    public boolean keepsLines(){
+        return contents != Contents.EVENTS;
+    }
+
+    /**
+     * Returns the user's cached activity. Every call counts towards the user's lookup frequency.
+     *
+     * @param userName GitHub username, in any case
+     * @return the cached activity, or null if there is none or it has expired
+     */
+    public synchronized CachedActivity get(String userName){
+        String key = key(userName);
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if(entry != null && isExpired(entry, System.nanoTime())){
+            entries.remove(key);
+            bytes -= entry.bytes;
+            expirations++;
+            entry = null;
+        }
+        if(entry == null){
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.activity;
+    }
+
+    /**
+     * Stores the user's activity, replacing any previous entry, if it is admitted. A rejected value leaves the
+     * previous entry in place. Only the parts selected by the cache's {@link Contents} are kept.
+     *
+     * @param userName GitHub username, in any case
+     * @param events   the user's parsed events, or null
+     * @param lines    the user's formatted activity lines, or null
+     * @return true if the entry was stored
+     */
+    public synchronized boolean put(String userName, List<JsonReader> events, List<String> lines){
+        CachedActivity activity = new CachedActivity(keepsEvents() && events != null ? List.copyOf(events) : null,
+                keepsLines() && lines != null ? List.copyOf(lines) : null);
+        if(activity.events() == null && activity.lines() == null) return false;
+        String key = key(userName);
+        long size = estimateSize(activity);
+        if(size > maxBytes){
+            rejections++;
+            return false;
+        }
+        long now = System.nanoTime();
+        // The previous entry's room counts as free, but it is only dropped once the new value is admitted
+        Entry previous = entries.get(key);
+        long replaced = previous == null ? 0 : previous.bytes;
+        if(bytes - replaced + size > maxBytes && !makeRoom(key, size - replaced, sketch.frequency(key), now)){
+            rejections++;
+            return false;
+        }
+        if(entries.remove(key) != null) bytes -= replaced;
+        entries.put(key, new Entry(activity, size, now + ttlNanos));
+        bytes += size;
+        return true;
+    }
+
+    // Evicts least recently used entries other than the candidate's own until size more bytes fit, unless one of
+    // the live ones is looked up at least as often as the candidate; expired entries are always dropped
+    private boolean makeRoom(String candidate, long size, int candidateFrequency, long now){
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        for(Map.Entry<String, Entry> eldest : entries.entrySet()){
+            if(bytes - freed + size <= maxBytes) break;
+            if(eldest.getKey().equals(candidate)) continue;
+            if(!isExpired(eldest.getValue(), now) && sketch.frequency(eldest.getKey()) >= candidateFrequency){
+                return false;
+            }
+            victims.add(eldest.getKey());
+            freed += eldest.getValue().bytes;
+        }
+        for(String victim : victims){
+            Entry entry = entries.remove(victim);
+            bytes -= entry.bytes;
+            if(isExpired(entry, now)) expirations++;
+            else evictions++;
+        }
+        return true;
+    }
+
+    public synchronized CacheStats getStats(){
+        return new CacheStats(hits, misses, evictions, expirations, rejections, entries.size(), bytes);
+    }
+
+    private static boolean isExpired(Entry entry, long now){
+        return entry.expiresAtNanos - now <= 0;
+    }
+
+    private static String key(String userName){
+        return userName.toLowerCase(Locale.ROOT);
+    }
+
+    private static long estimateSize(CachedActivity activity){
+        long size = ENTRY_OVERHEAD;
+        if(activity.events() != null){
+            size += 16 + 8L * activity.events().size();
+            for(JsonReader event : activity.events()) size += 32 + event.estimateSize();
+        }
+        if(activity.lines() != null){
+            size += 16 + 8L * activity.lines().size();
+            for(String line : activity.lines()) size += 40 + line.length();
+        }
+        return size;
+    }
+
+    /**
+     * A user's cached activity. Lists are unmodifiable and in API order.
+     *
+     * @param events parsed events, or null if the cache does not keep them
+     * @param lines  formatted activity lines, or null if the cache does not keep them
+     */
+    public record CachedActivity(List<JsonReader> events, List<String> lines) {}
+
+    private record Entry(CachedActivity activity, long bytes, long expiresAtNanos) {}
+
+    /**
+     * Counters since the cache was created.
+     *
+     * @param hits        lookups served from the cache
+     * @param misses      lookups that found no live entry
+     * @param evictions   live entries evicted to make room
+     * @param expirations entries dropped after their time to live
+     * @param rejections  entries not admitted, being too large or looked up less often than the ones they would evict
+     * @param entries     entries currently cached
+     * @param bytes       estimated size of the current entries
+     */
+    public record CacheStats(long hits, long misses, long evictions, long expirations, long rejections,
+                             int entries, long bytes) {
+
+        public double hitRate(){
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Activity cache: %d hits, %d misses (%.1f%% hit rate), %d evicted, %d expired, "
+                            + "%d rejected, %d entries, %.1f KB",
+                    hits, misses, hitRate() * 100, evictions, expirations, rejections, entries, bytes / 1024.0);
+        }
+    }
+
+    // Count-min sketch of 4-bit saturating counters, four rows; all counters are halved every 10 x width additions
+    private static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97CB3127, 0xC2B2AE35, 0x85EBCA6B, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int width){
+            this.width = width;
+            this.counters = new byte[DEPTH * width];
+            this.sampleSize = 10 * width;
+        }
+
+        private void increment(String key){
+            int hash = key.hashCode();
+            boolean added = false;
+            for(int row = 0; row < DEPTH; row++){
+                int index = index(hash, row);
+                if(counters[index] < MAX_COUNT){
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if(added && ++additions >= sampleSize) halve();
+        }
+
+        private int frequency(String key){
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for(int row = 0; row < DEPTH; row++){
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row){
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+            h ^= h >>> 16;
+            return row * width + (h & (width - 1));
+        }
+
+        private void halve(){
+            for(int i = 0; i < counters.length; i++) counters[i] >>= 1;
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.tommy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.model.JsonPath;
+import org.tommy.sink.NdjsonActivitySink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves user activity over HTTP, so that tools can look it up without starting a JVM per user.
+ * <p>
+ * {@code GET /users/{name}/activity} answers with one formatted activity line per event as
+ * {@code text/plain}, or with {@code application/json} when asked for by {@code ?format=json} or the
+ * {@code Accept} header. Usernames are checked with {@link GitHubUserNameValidator} before anything is
+ * fetched. Requests are handled on virtual threads, and concurrent requests for the same user share a
+ * single upstream fetch and parse: the first one loads the activity, the others wait for its result, so a
+ * burst of lookups for one user costs one GitHub request.
+ * <p>
+ * If the service has {@link PipelineMetrics}, {@code GET /stats} answers with their JSON snapshot, for
+ * monitoring to scrape.
+ */
+public class ActivityServer implements Closeable {
+
+    private static final String PREFIX = "/users/";
+    private static final String SUFFIX = "/activity";
+    private static final String STATS_PATH = "/stats";
+
+    private static final JsonPath ID = JsonPath.compile("id");
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    private final ActivityService activityService;
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Loads in progress, by lower-cased username; removed as soon as they complete
+    private final ConcurrentMap<String, CompletableFuture<Activity>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder upstreamFetches = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    /**
+     * Binds the server; call {@link #start()} to accept requests.
+     *
+     * @param activityService service that fetches and parses a user's events
+     * @param address         address to listen on; port 0 picks a free port
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public ActivityServer(ActivityService activityService, InetSocketAddress address){
+        this.activityService = activityService;
+        try {
+            this.server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not listen on " + address, e);
+        }
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this::handle);
+        PipelineMetrics metrics = activityService.getMetrics();
+        if(metrics != null) server.createContext(STATS_PATH, exchange -> handleStats(exchange, metrics));
+    }
+
+    public void start(){
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    public ServerStats getStats(){
+        return new ServerStats(requests.sum(), upstreamFetches.sum(), cacheHits.sum(), coalescedRequests.sum());
+    }
+
+    /**
+     * Stops accepting requests and interrupts the ones in progress.
+     */
+    @Override
+    public void close(){
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.increment();
+            String path = exchange.getRequestURI().getPath();
+            if(!path.startsWith(PREFIX) || !path.endsWith(SUFFIX) || path.length() <= PREFIX.length() + SUFFIX.length()){
+                send(exchange, 404, "text/plain", "Not found: " + path + "\n");
+                return;
+            }
+            if(!exchange.getRequestMethod().equals("GET")){
+                exchange.getResponseHeaders().add("Allow", "GET");
+                send(exchange, 405, "text/plain", "Method not allowed\n");
+                return;
+            }
+            Boolean json = wantsJson(exchange);
+            if(json == null){
+                send(exchange, 400, "text/plain", "Unknown format; use format=text or format=json\n");
+                return;
+            }
+            String userName = path.substring(PREFIX.length(), path.length() - SUFFIX.length());
+            if(!GitHubUserNameValidator.isValidUserName(userName)){
+                sendError(exchange, 400, json, "Invalid GitHub username: " + userName);
+                return;
+            }
+            Activity activity;
+            try {
+                activity = load(userName);
+            } catch (GitHubUserNotFoundException e) {
+                sendError(exchange, 404, json, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                sendError(exchange, 502, json, String.valueOf(e.getMessage()));
+                return;
+            }
+            if(json) send(exchange, 200, "application/json", activity.json());
+            else send(exchange, 200, "text/plain; charset=utf-8", activity.text());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void handleStats(HttpExchange exchange, PipelineMetrics metrics) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if(!path.equals(STATS_PATH)){
+                send(exchange, 404, "text/plain", "Not found: " + path + "\n");
+            } else if(!exchange.getRequestMethod().equals("GET")){
+                exchange.getResponseHeaders().add("Allow", "GET");
+                send(exchange, 405, "text/plain", "Method not allowed\n");
+            } else {
+                send(exchange, 200, "application/json", metrics.snapshot().toJson() + "\n");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // TRUE for JSON, FALSE for text, null for an unknown format parameter
+    private static Boolean wantsJson(HttpExchange exchange){
+        String query = exchange.getRequestURI().getQuery();
+        if(query != null){
+            for(String parameter : query.split("&")){
+                if(parameter.equals("format=json")) return Boolean.TRUE;
+                if(parameter.equals("format=text")) return Boolean.FALSE;
+                if(parameter.startsWith("format=")) return null;
+            }
+        }
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains("application/json");
+    }
+
+    // Single flight: only the first of concurrent requests for a user fetches, the others share its outcome.
+    // GitHub usernames are case-insensitive, so the lower-cased name is both the key and the name fetched
+    private Activity load(String userName){
+        String key = userName.toLowerCase(Locale.ROOT);
+        CompletableFuture<Activity> created = new CompletableFuture<>();
+        CompletableFuture<Activity> existing = inFlight.putIfAbsent(key, created);
+        if(existing != null){
+            coalescedRequests.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if(e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+        try {
+            Activity activity = fetch(key);
+            created.complete(activity);
+            return activity;
+        } catch (RuntimeException | Error e) {
+            // Waiting requests must be released whatever happens
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    // Renders both representations in one pass, so waiting requests can be answered in either
+    private Activity fetch(String userName){
+        StringBuilder text = new StringBuilder();
+        StringBuilder json = new StringBuilder();
+        json.append("{\"user\":");
+        appendJsonString(json, userName);
+        json.append(",\"events\":[");
+        int[] events = {0};
+        boolean fetched = activityService.forEachEvent(userName, event -> {
+            String line = formatter.formatEvent(event);
+            text.append(line).append('\n');
+            if(events[0]++ > 0) json.append(',');
+            json.append("{\"id\":");
+            appendJsonString(json, event.getValueForKey(ID));
+            json.append(",\"type\":");
+            appendJsonString(json, event.getValueForKey(TYPE));
+            json.append(",\"repo\":");
+            appendJsonString(json, event.getValueForKey(REPO_NAME));
+            json.append(",\"created_at\":");
+            appendJsonString(json, event.getValueForKey(CREATED_AT));
+            json.append(",\"activity\":");
+            appendJsonString(json, line);
+            json.append('}');
+        });
+        json.append("]}\n");
+        if(fetched) upstreamFetches.increment();
+        else cacheHits.increment();
+        return new Activity(text.toString().getBytes(StandardCharsets.UTF_8), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, boolean json, String message) throws IOException {
+        if(!json){
+            send(exchange, status, "text/plain; charset=utf-8", message + "\n");
+            return;
+        }
+        StringBuilder body = new StringBuilder("{\"error\":");
+        appendJsonString(body, message);
+        send(exchange, status, "application/json", body.append("}\n").toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        send(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if(body.length == 0) return;
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Appends value as a JSON string literal, or null, escaped as in NDJSON records
+    private static void appendJsonString(StringBuilder out, String value){
+        try {
+            NdjsonActivitySink.appendJsonString(out, value);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw", e);
+        }
+    }
+
+    // A user's activity, rendered once per load
+    private record Activity(byte[] text, byte[] json) {}
+
+    /**
+     * Request counters since the server started.
+     *
+     * @param requests          HTTP requests received
+     * @param upstreamFetches   loads fetched from GitHub
+     * @param cacheHits         loads served from the service's {@link ActivityCache}
+     * @param coalescedRequests requests answered by another request's load
+     */
+    public record ServerStats(long requests, long upstreamFetches, long cacheHits, long coalescedRequests) {
+
+        @Override
+        public String toString(){
+            return String.format("%d requests, %d upstream fetches, %d cache hits, %d coalesced", requests,
+                    upstreamFetches, cacheHits, coalescedRequests);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package org.tommy;
+
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+import org.tommy.store.EventStore;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs the fetch, parse and format pipeline for a single GitHub user.
+ * <p>
+ * By default only the first page of events is fetched, as GitHub returns it. When constructed with
+ * paging options it uses a {@link PaginatedEventFetcher} instead. Given an {@link EventStore}, every event
+ * written by {@link #writeActivity} is also appended to it. Given an {@link ActivityCache}, users looked up
+ * again within its time to live are served from the cache instead of running the pipeline again.
+ * Every fetched event first goes through an {@link EventFilter}, by default one that only skips event types the
+ * formatter does not know; the events it drops are neither formatted, stored nor cached.
+ * Each lookup by {@link #writeActivity}, {@link #forEachEvent} or {@link #getActivity} is timed as a
+ * {@link PipelineMetrics} run, added to the API client's metrics if it has any.
+ * Instances are stateless apart from their collaborators and can be shared between threads.
+ */
+public class ActivityService {
+
+    private final GItHubAPI gItHubAPI;
+    private final JsonDataHandler jsonDataHandler = new JsonDataHandler(true);
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+    private final PaginatedEventFetcher paginatedFetcher;
+    private final int maxPages;
+    private final int limit;
+    private final Instant since;
+    private final EventStore eventStore;
+    private final ActivityCache cache;
+    private final EventFilter filter;
+
+    public ActivityService(){
+        this(new GItHubAPI());
+    }
+
+    public ActivityService(GItHubAPI gItHubAPI){
+        this(gItHubAPI, (EventStore) null);
+    }
+
+    /**
+     * @param gItHubAPI  API client
+     * @param eventStore store that fetched events are appended to, or null
+     */
+    public ActivityService(GItHubAPI gItHubAPI, EventStore eventStore){
+        this(gItHubAPI, eventStore, null);
+    }
+
+    /**
+     * @param gItHubAPI  API client
+     * @param eventStore store that fetched events are appended to, or null
+     * @param cache      cache of users' parsed events and lines, or null
+     */
+    public ActivityService(GItHubAPI gItHubAPI, EventStore eventStore, ActivityCache cache){
+        this(gItHubAPI, eventStore, cache, new EventFilter());
+    }
+
+    /**
+     * @param gItHubAPI  API client
+     * @param eventStore store that fetched events are appended to, or null
+     * @param cache      cache of users' parsed events and lines, or null
+     * @param filter     events to keep
+     */
+    public ActivityService(GItHubAPI gItHubAPI, EventStore eventStore, ActivityCache cache, EventFilter filter){
+        this.gItHubAPI = gItHubAPI;
+        this.paginatedFetcher = null;
+        this.maxPages = 1;
+        this.limit = 0;
+        this.since = null;
+        this.eventStore = eventStore;
+        this.cache = cache;
+        this.filter = filter;
+    }
+
+    /**
+     * @param gItHubAPI API client
+     * @param maxPages  pages of {@value PaginatedEventFetcher#PER_PAGE} events to fetch, at most {@value PaginatedEventFetcher#MAX_PAGES}
+     * @param limit     maximum number of events per user, or 0 for no limit
+     * @param since     only include events created at or after this instant, or null for all
+     */
+    public ActivityService(GItHubAPI gItHubAPI, int maxPages, int limit, Instant since){
+        this(gItHubAPI, maxPages, limit, since, null);
+    }
+
+    /**
+     * @param eventStore store that fetched events are appended to, or null
+     * @see #ActivityService(GItHubAPI, int, int, Instant)
+     */
+    public ActivityService(GItHubAPI gItHubAPI, int maxPages, int limit, Instant since, EventStore eventStore){
+        this(gItHubAPI, maxPages, limit, since, eventStore, null);
+    }
+
+    /**
+     * @param eventStore store that fetched events are appended to, or null
+     * @param cache      cache of users' parsed events and lines, or null
+     * @see #ActivityService(GItHubAPI, int, int, Instant)
+     */
+    public ActivityService(GItHubAPI gItHubAPI, int maxPages, int limit, Instant since, EventStore eventStore,
+                           ActivityCache cache){
+        this(gItHubAPI, maxPages, limit, since, eventStore, cache, new EventFilter());
+    }
+
+    /**
+     * @param limit  maximum number of events per user, counting only those {@code filter} keeps if it has any
+     *               criteria; or 0 for no limit
+     * @param filter events to keep
+     * @see #ActivityService(GItHubAPI, int, int, Instant, EventStore, ActivityCache)
+     */
+    public ActivityService(GItHubAPI gItHubAPI, int maxPages, int limit, Instant since, EventStore eventStore,
+                           ActivityCache cache, EventFilter filter){
+        this.gItHubAPI = gItHubAPI;
+        this.paginatedFetcher = new PaginatedEventFetcher(gItHubAPI);
+        this.maxPages = maxPages;
+        this.limit = limit;
+        this.since = since;
+        this.eventStore = eventStore;
+        this.cache = cache;
+        this.filter = filter;
+    }
+
+    /**
+     * Fetches the user's events and returns a lazily formatted stream of activity lines.
+     * Each event is parsed and formatted only when the stream reaches it.
+     * Close the stream if it is not consumed to the end.
+     *
+     * @param userName GitHub username
+     * @return ordered stream of formatted activity lines
+     * @throws RuntimeException if the user does not exist, the request fails, or the response is malformed
+     */
+    public Stream<String> streamActivity(String userName){
+        return streamEvents(userName).map(formatter::formatEvent);
+    }
+
+    /**
+     * Fetches the user's events and writes one activity line per event to {@code out}, each followed
+     * by a line separator. Events are formatted straight into {@code out} as they are parsed; without paging,
+     * they are parsed as the response body arrives (see {@link GItHubAPI#streamGitHubEvents}).
+     *
+     * @param userName GitHub username
+     * @param out      destination of the activity lines; pass a buffered writer when writing to a stream
+     * @throws IOException if writing to {@code out} fails
+     * @throws RuntimeException if the user does not exist, the request fails, or the response is malformed
+     */
+    public void writeActivity(String userName, Appendable out) throws IOException {
+        writeActivity(userName, out, null);
+    }
+
+    /**
+     * Like {@link #writeActivity(String, Appendable)}, and also folds every event into {@code aggregate}
+     * as it is formatted.
+     *
+     * @param aggregate summary to add the user's events to, or null for none
+     */
+    public void writeActivity(String userName, Appendable out, ActivityAggregate aggregate) throws IOException {
+        String lineSeparator = System.lineSeparator();
+        ActivityCache.CachedActivity cached = cache == null ? null : cache.get(userName);
+        // Cached lines can be written as they are, unless the events are needed for the summary
+        if(cached != null && cached.lines() != null && aggregate == null){
+            for(String line : cached.lines()) out.append(line).append(lineSeparator);
+            return;
+        }
+        try {
+            forEachEvent(userName, cached, (event, line) -> {
+                try {
+                    if(line != null) out.append(line);
+                    else formatter.appendEvent(event, out);
+                    if(aggregate != null) aggregate.add(event);
+                    out.append(lineSeparator);
+                } catch (IOException e) {
+                    throw new OutputFailure(e);
+                }
+            });
+        } catch (OutputFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Fetches the user's events and hands each one to {@code consumer}, in API order, then appends it to the
+     * event store if there is one. Without paging, events are handed over as the response body arrives.
+     * Events served from the cache are handed over from memory and not appended again.
+     *
+     * @param userName GitHub username
+     * @param consumer receives each parsed event on the calling thread
+     * @return true if the events were fetched from GitHub, false if they were served from the cache
+     * @throws RuntimeException if the user does not exist, the request fails, the response is malformed,
+     *                          or the consumer throws
+     */
+    public boolean forEachEvent(String userName, Consumer<JsonReader> consumer){
+        ActivityCache.CachedActivity cached = cache == null ? null : cache.get(userName);
+        return forEachEvent(userName, cached, (event, line) -> consumer.accept(event));
+    }
+
+    /**
+     * @return the filter fetched events go through, with its counts
+     */
+    public EventFilter getFilter(){
+        return filter;
+    }
+
+    /**
+     * @return the metrics lookups are added to, those of the API client; or null
+     */
+    public PipelineMetrics getMetrics(){
+        return gItHubAPI.getMetrics();
+    }
+
+    // Times the lookup as a pipeline run around serveOrFetch
+    private boolean forEachEvent(String userName, ActivityCache.CachedActivity cached,
+                                 BiConsumer<JsonReader, String> consumer){
+        try (var _ = PipelineMetrics.start(getMetrics(), userName)) {
+            return serveOrFetch(userName, cached, (event, line) -> {
+                PipelineMetrics.countEvent();
+                consumer.accept(event, line);
+            });
+        }
+    }
+
+    // Serves the events from the cache lookup if it has them, otherwise fetches them and offers them to the cache.
+    // The consumer also gets each event's formatted line when it is at hand, or null. Returns true if it fetched.
+    private boolean serveOrFetch(String userName, ActivityCache.CachedActivity cached,
+                                 BiConsumer<JsonReader, String> consumer){
+        if(cached != null && cached.events() != null){
+            List<JsonReader> events = cached.events();
+            List<String> lines = cached.lines();
+            for(int i = 0; i < events.size(); i++) consumer.accept(events.get(i), lines == null ? null : lines.get(i));
+            return false;
+        }
+        if(cache == null){
+            fetchEach(userName, event -> consumer.accept(event, null));
+            return true;
+        }
+        List<JsonReader> events = cache.keepsEvents() ? new ArrayList<>() : null;
+        List<String> lines = cache.keepsLines() ? new ArrayList<>() : null;
+        fetchEach(userName, event -> {
+            String line = null;
+            if(lines != null) lines.add(line = formatter.formatEvent(event));
+            if(events != null) events.add(event);
+            consumer.accept(event, line);
+        });
+        cache.put(userName, events, lines);
+        return true;
+    }
+
+    private void fetchEach(String userName, Consumer<JsonReader> consumer){
+        Consumer<JsonReader> sink = eventStore == null ? consumer : consumer.andThen(this::appendToStore);
+        if(paginatedFetcher == null){
+            // Each event is handled as soon as it has arrived, while the rest of the body is still in flight
+            gItHubAPI.streamGitHubEvents(userName, event -> {
+                if(filter.test(event)) sink.accept(event);
+            });
+            return;
+        }
+        try (Stream<JsonReader> events = fetchEvents(userName)) {
+            events.forEach(sink);
+        }
+    }
+
+    // Store writes belong to none of the timed stages
+    private void appendToStore(JsonReader event){
+        Stage previous = PipelineMetrics.enter(null);
+        try {
+            eventStore.append(event);
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
+    }
+
+    /**
+     * Fetches the user's events and returns them as a lazily parsed stream.
+     * Close the stream if it is not consumed to the end. Events held by the cache are streamed from memory,
+     * but fetched events are not added to it, since the stream may not be consumed to the end.
+     *
+     * @param userName GitHub username
+     * @return ordered stream of parsed events
+     * @throws RuntimeException if the user does not exist, the request fails, or the response is malformed
+     */
+    public Stream<JsonReader> streamEvents(String userName){
+        ActivityCache.CachedActivity cached = cache == null ? null : cache.get(userName);
+        if(cached != null && cached.events() != null) return cached.events().stream();
+        return fetchEvents(userName);
+    }
+
+    // With criteria, the limit counts the events kept; otherwise it counts all events, so that a limit within the
+    // first page still spares fetching the others
+    private Stream<JsonReader> fetchEvents(String userName){
+        if(paginatedFetcher != null){
+            if(!filter.isEmpty()) return paginatedFetcher.streamEvents(userName, maxPages, limit, since, filter);
+            return paginatedFetcher.streamEvents(userName, maxPages, limit, since).filter(filter);
+        }
+        return jsonDataHandler.streamJsonData(gItHubAPI.getGitHubEvents(userName)).filter(filter);
+    }
+
+    /**
+     * Fetches and formats all of the user's activity lines.
+     *
+     * @param userName GitHub username
+     * @return formatted activity lines, in API order
+     * @throws RuntimeException if the user does not exist, the request fails, or the response is malformed
+     */
+    public List<String> getActivity(String userName){
+        if(cache != null){
+            ActivityCache.CachedActivity cached = cache.get(userName);
+            if(cached != null && cached.lines() != null) return cached.lines();
+            List<String> lines = new ArrayList<>();
+            forEachEvent(userName, cached, (event, line) -> lines.add(line != null ? line : formatter.formatEvent(event)));
+            return lines;
+        }
+        try (var _ = PipelineMetrics.start(getMetrics(), userName);
+             Stream<String> activity = streamActivity(userName)) {
+            return activity.peek(line -> PipelineMetrics.countEvent()).toList();
+        }
+    }
+
+    // Carries a write failure of the caller's Appendable out of the event consumer
+    private static final class OutputFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private OutputFailure(IOException cause){
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause(){
+            return (IOException) super.getCause();
+        }
+    }
+}
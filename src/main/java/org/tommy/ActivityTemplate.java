@@ -0,0 +1,154 @@
+package org.tommy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A precompiled activity line for one event record type.
+ * <p>
+ * The pattern is split once into literal segments around its {@code {}} holes, and each hole is bound
+ * to an accessor of the record. Writing a line then only appends the segments and field values to the
+ * target {@link Appendable}: no format string is parsed and no intermediate strings are built.
+ * Output matches {@link String#format} with {@code %s}, {@code %S} and {@code %d}, including
+ * {@code "null"} for missing fields.
+ *
+ * @param <T> the event record type the holes read from
+ */
+final class ActivityTemplate<T> {
+
+    private static final String HOLE = "{}";
+
+    private final String[] literals;
+    private final List<Hole<T>> holes;
+
+    private ActivityTemplate(String[] literals, List<Hole<T>> holes){
+        this.literals = literals;
+        this.holes = holes;
+    }
+
+    /**
+     * Compiles a pattern such as {@code "Pushed {} commits to {}"}.
+     *
+     * @param pattern line with one {@code {}} per hole
+     * @param holes   values for the holes, in order
+     * @throws IllegalArgumentException if the number of holes does not match the pattern
+     */
+    @SafeVarargs
+    static <T> ActivityTemplate<T> of(String pattern, Hole<T>... holes){
+        String[] literals = new String[holes.length + 1];
+        // Copied element by element: passing the generic varargs array on is what @SafeVarargs rules out
+        List<Hole<T>> boundHoles = new ArrayList<>(holes.length);
+        int start = 0;
+        for(int i = 0; i < holes.length; i++){
+            boundHoles.add(holes[i]);
+            int end = pattern.indexOf(HOLE, start);
+            if(end < 0) throw new IllegalArgumentException("Pattern has fewer than " + holes.length + " holes: " + pattern);
+            literals[i] = pattern.substring(start, end);
+            start = end + HOLE.length();
+        }
+        if(pattern.indexOf(HOLE, start) >= 0){
+            throw new IllegalArgumentException("Pattern has more than " + holes.length + " holes: " + pattern);
+        }
+        literals[holes.length] = pattern.substring(start);
+        return new ActivityTemplate<>(literals, List.copyOf(boundHoles));
+    }
+
+    /** A hole that writes a text field as is, like {@code %s}. */
+    static <T> Hole<T> text(Function<T, ? extends CharSequence> value){
+        return (event, out) -> appendText(out, value.apply(event));
+    }
+
+    /** A hole that writes at most {@code maxLength} characters of a text field. */
+    static <T> Hole<T> prefix(Function<T, ? extends CharSequence> value, int maxLength){
+        return (event, out) -> {
+            CharSequence text = value.apply(event);
+            if(text == null || text.length() <= maxLength){
+                appendText(out, text);
+            } else {
+                out.append(text, 0, maxLength);
+            }
+        };
+    }
+
+    /** A hole that writes a text field in upper case, like {@code %S}. */
+    static <T> Hole<T> upperCase(Function<T, ? extends CharSequence> value){
+        return (event, out) -> appendUpperCase(out, value.apply(event));
+    }
+
+    /** A hole that writes a whole number, like {@code %d}. */
+    static <T> Hole<T> number(ToLongFunction<T> value){
+        return (event, out) -> appendLong(out, value.applyAsLong(event));
+    }
+
+    /**
+     * Appends the line for {@code event} without a line terminator.
+     */
+    void appendTo(Appendable out, T event) throws IOException {
+        for(int i = 0; i < holes.size(); i++){
+            out.append(literals[i]);
+            holes.get(i).appendTo(event, out);
+        }
+        out.append(literals[holes.size()]);
+    }
+
+    @FunctionalInterface
+    interface Hole<T> {
+        void appendTo(T event, Appendable out) throws IOException;
+    }
+
+    static void appendText(Appendable out, CharSequence text) throws IOException {
+        out.append(text == null ? "null" : text);
+    }
+
+    // Same result as %S: ASCII is upper-cased in place, anything else (or a locale with special
+    // casing rules) falls back to String.toUpperCase with the default format locale
+    private static void appendUpperCase(Appendable out, CharSequence text) throws IOException {
+        if(text == null){
+            out.append("NULL");
+            return;
+        }
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        if(!isAsciiSafe(text, locale)){
+            out.append(text.toString().toUpperCase(locale));
+            return;
+        }
+        for(int i = 0; i < text.length(); i++){
+            char ch = text.charAt(i);
+            out.append(ch >= 'a' && ch <= 'z' ? (char) (ch - ('a' - 'A')) : ch);
+        }
+    }
+
+    private static boolean isAsciiSafe(CharSequence text, Locale locale){
+        String language = locale.getLanguage();
+        if(language.equals("tr") || language.equals("az") || language.equals("lt")) return false;
+        for(int i = 0; i < text.length(); i++){
+            if(text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    // Appends the decimal digits without going through Long.toString for the common case
+    static void appendLong(Appendable out, long value) throws IOException {
+        if(out instanceof StringBuilder builder){
+            builder.append(value);
+            return;
+        }
+        if(value == Long.MIN_VALUE){
+            out.append(Long.toString(value));
+            return;
+        }
+        if(value < 0){
+            out.append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while(divisor <= value / 10) divisor *= 10;
+        for(; divisor > 0; divisor /= 10){
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.tommy;
+
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+import org.tommy.store.EventStore;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Watches a set of users for as long as it runs and writes only their new activity.
+ * <p>
+ * Each user has a {@link HighWaterMark}: the id and creation time of the newest event seen so far. Polls ask
+ * for a small page of events, conditionally on that page's last ETag, so a user without new activity costs a
+ * {@code 304} and no parsing at all. Otherwise events are parsed as they arrive, newest first, only until the
+ * first one at or below the mark; the rest of the response is then abandoned (see
+ * {@link GItHubAPI#pollGitHubEvents}). Only when a whole page is new are the following pages fetched, up to
+ * GitHub's 300 events, so the work per poll follows the amount of new activity rather than the page size.
+ * <p>
+ * New events are written as one block per user, oldest first, leaving out those an {@link EventFilter} drops;
+ * the high-water mark moves past them all the same. The first poll of a user sets its mark and
+ * writes the page it fetched, like {@code tail -f}. Each user is polled again after GitHub's
+ * {@code X-Poll-Interval}, or after the minimum interval if that is longer.
+ * Instances are not thread-safe; poll them from one thread.
+ */
+public class ActivityWatcher {
+
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(60);
+
+    private static final int MAX_EVENTS = PaginatedEventFetcher.MAX_PAGES * PaginatedEventFetcher.PER_PAGE;
+
+    private static final JsonPath ID = JsonPath.compile("id");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    private final GItHubAPI gItHubAPI;
+    private final Appendable out;
+    private final int pageSize;
+    private final Duration minPollInterval;
+    private final EventStore eventStore;
+    private final EventFilter eventFilter;
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+    private final Map<String, UserState> users = new HashMap<>();
+
+    public ActivityWatcher(GItHubAPI gItHubAPI, Appendable out){
+        this(gItHubAPI, out, DEFAULT_PAGE_SIZE, DEFAULT_POLL_INTERVAL, null);
+    }
+
+    /**
+     * @param gItHubAPI       API client
+     * @param out             destination of the new activity lines
+     * @param pageSize        events per poll request, between 1 and {@value PaginatedEventFetcher#PER_PAGE}
+     * @param minPollInterval shortest time between two polls of the same user
+     * @param eventStore      store that new events are appended to, or null
+     */
+    public ActivityWatcher(GItHubAPI gItHubAPI, Appendable out, int pageSize, Duration minPollInterval,
+                           EventStore eventStore){
+        this(gItHubAPI, out, pageSize, minPollInterval, eventStore, new EventFilter());
+    }
+
+    /**
+     * @param eventFilter new events to write and store
+     * @see #ActivityWatcher(GItHubAPI, Appendable, int, Duration, EventStore)
+     */
+    public ActivityWatcher(GItHubAPI gItHubAPI, Appendable out, int pageSize, Duration minPollInterval,
+                           EventStore eventStore, EventFilter eventFilter){
+        if(pageSize < 1 || pageSize > PaginatedEventFetcher.PER_PAGE){
+            throw new IllegalArgumentException("pageSize must be between 1 and " + PaginatedEventFetcher.PER_PAGE);
+        }
+        this.gItHubAPI = gItHubAPI;
+        this.out = out;
+        this.pageSize = pageSize;
+        this.minPollInterval = minPollInterval;
+        this.eventStore = eventStore;
+        this.eventFilter = eventFilter;
+    }
+
+    /**
+     * Polls the users round-robin by due time, each as often as its poll interval allows, until interrupted.
+     * A failed poll is reported in the user's block and retried after the minimum interval.
+     * {@code out} is flushed after every poll that wrote something, if it is {@link Flushable}.
+     *
+     * @param userNames usernames to watch
+     * @throws IOException if writing to {@code out} fails
+     * @throws InterruptedException when the watching thread is interrupted
+     */
+    public void run(List<String> userNames) throws IOException, InterruptedException {
+        long[] nextPollNanos = new long[userNames.size()];
+        long start = System.nanoTime();
+        for(int i = 0; i < nextPollNanos.length; i++) nextPollNanos[i] = start;
+        while(!userNames.isEmpty()){
+            int next = 0;
+            for(int i = 1; i < nextPollNanos.length; i++){
+                if(nextPollNanos[i] - nextPollNanos[next] < 0) next = i;
+            }
+            long waitNanos = nextPollNanos[next] - System.nanoTime();
+            if(waitNanos > 0) Thread.sleep(Duration.ofNanos(waitNanos));
+            else if(Thread.interrupted()) throw new InterruptedException();
+            String userName = userNames.get(next);
+            Duration interval;
+            boolean wrote;
+            try {
+                PollResult result = poll(userName);
+                interval = result.pollInterval();
+                wrote = result.newEvents() > 0;
+            } catch (RuntimeException e) {
+                out.append("== ").append(userName).append(" ==").append(System.lineSeparator())
+                        .append("Error: ").append(e.getMessage()).append(System.lineSeparator());
+                interval = minPollInterval;
+                wrote = true;
+            }
+            if(wrote && out instanceof Flushable flushable) flushable.flush();
+            nextPollNanos[next] = System.nanoTime() + interval.toNanos();
+        }
+    }
+
+    /**
+     * Polls one user once and writes its new events, if any.
+     *
+     * @param userName GitHub username
+     * @return what the poll cost and found
+     * @throws IOException if writing to {@code out} fails
+     * @throws RuntimeException if the user does not exist, the request fails, or the response is malformed
+     */
+    public PollResult poll(String userName) throws IOException {
+        try (var _ = PipelineMetrics.start(gItHubAPI.getMetrics(), userName)) {
+            return pollPages(userName);
+        }
+    }
+
+    private PollResult pollPages(String userName) throws IOException {
+        UserState state = users.computeIfAbsent(userName, key -> new UserState());
+        Delta delta = new Delta(state.mark);
+        int requests = 0;
+        long wireBytes = 0;
+        boolean notModified = false;
+        // Saved with the mark once the events are written, so a failed later page leaves page 1 to fetch again
+        String etag = state.etag;
+        Duration pollInterval = minPollInterval;
+        for(int page = 1; ; page++){
+            int before = delta.parsed;
+            GitHubResponse response = gItHubAPI.pollGitHubEvents(userName, page, pageSize,
+                    page == 1 ? state.etag : null, delta);
+            requests++;
+            wireBytes += response.stats().wireBytes();
+            if(page == 1){
+                long seconds = response.headers().firstValueAsLong("X-Poll-Interval").orElse(0);
+                if(seconds > pollInterval.toSeconds()) pollInterval = Duration.ofSeconds(seconds);
+                if(response.notModified()){
+                    notModified = true;
+                    break;
+                }
+                etag = response.headers().firstValue("ETag").orElse(null);
+            }
+            // The first poll only takes one page; later ones page on while everything is new
+            if(state.mark == null || delta.reachedMark || delta.isFull() || delta.parsed - before < pageSize
+                    || page * pageSize >= MAX_EVENTS) break;
+        }
+
+        List<JsonReader> events = delta.events;
+        if(!events.isEmpty()){
+            String lineSeparator = System.lineSeparator();
+            boolean header = false;
+            for(int i = events.size() - 1; i >= 0; i--){
+                JsonReader event = events.get(i);
+                if(!eventFilter.test(event)) continue;
+                if(!header){
+                    out.append("== ").append(userName).append(" ==").append(lineSeparator);
+                    header = true;
+                }
+                PipelineMetrics.countEvent();
+                formatter.appendEvent(event, out);
+                if(eventStore != null) eventStore.append(event);
+                out.append(lineSeparator);
+            }
+            state.mark = new HighWaterMark(delta.newestId, events.get(0).getValueForKey(CREATED_AT));
+        }
+        state.etag = etag;
+        return new PollResult(userName, events.size(), delta.parsed, requests, notModified, wireBytes, pollInterval);
+    }
+
+    /**
+     * @return the user's high-water mark, or null if no event of theirs has been seen yet
+     */
+    public HighWaterMark getHighWaterMark(String userName){
+        UserState state = users.get(userName);
+        return state == null ? null : state.mark;
+    }
+
+    /**
+     * Newest event seen for a user.
+     *
+     * @param id        event id; ids grow over time
+     * @param createdAt the event's {@code created_at}
+     */
+    public record HighWaterMark(long id, String createdAt) {}
+
+    /**
+     * Outcome of one poll of one user.
+     *
+     * @param userName     polled user
+     * @param newEvents    events above the high-water mark; those the filter kept were written
+     * @param parsedEvents events parsed, including the already-seen one that ended the poll
+     * @param requests     requests sent; more than one when a whole page was new
+     * @param notModified  true if GitHub answered 304, i.e. nothing changed
+     * @param wireBytes    body bytes received over the network
+     * @param pollInterval time until the user should be polled again
+     */
+    public record PollResult(String userName, int newEvents, int parsedEvents, int requests, boolean notModified,
+                             long wireBytes, Duration pollInterval) {
+
+        @Override
+        public String toString(){
+            return String.format("%s: %s, %d events parsed in %d requests, %d bytes on the wire, next poll in %d s",
+                    userName, notModified ? "not modified" : newEvents + " new events", parsedEvents, requests,
+                    wireBytes, pollInterval.toSeconds());
+        }
+    }
+
+    private static final class UserState {
+        private HighWaterMark mark;
+        private String etag;
+    }
+
+    // Collects the events of one poll, newest first, and stops the response at the first already-seen one
+    private static final class Delta implements Predicate<JsonReader> {
+
+        private final HighWaterMark mark;
+        private final List<JsonReader> events = new ArrayList<>();
+        private long newestId;
+        // Lowest id collected so far: when new events shift the pages, later pages repeat some events
+        private long lowestId = Long.MAX_VALUE;
+        private int parsed;
+        private boolean reachedMark;
+
+        private Delta(HighWaterMark mark){
+            this.mark = mark;
+        }
+
+        @Override
+        public boolean test(JsonReader event){
+            parsed++;
+            long id = eventId(event);
+            if(mark != null && id <= mark.id()){
+                reachedMark = true;
+                return false;
+            }
+            if(id < lowestId){
+                if(events.isEmpty()) newestId = id;
+                lowestId = id;
+                events.add(event);
+            }
+            return !isFull();
+        }
+
+        private boolean isFull(){
+            return events.size() >= MAX_EVENTS;
+        }
+
+        private static long eventId(JsonReader event){
+            String id = event.getValueForKey(ID);
+            try {
+                return Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Expected a numeric event id but found: " + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.tommy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Byte-level prefilter that tells whether a compact JSON event line may belong to one of a set of users.
+ * <p>
+ * A line matches if it contains {@code "login":"<name>"} for one of the names, compared ASCII
+ * case-insensitively as GitHub logins are. The match is not tied to the actor object, so lines that
+ * mention a user elsewhere (e.g. as a pull request author) pass too; callers check {@code actor.login}
+ * after parsing. No line that has the user as its actor is rejected, as long as the JSON is compact
+ * (no whitespace around the colon), which GH Archive files are.
+ */
+final class ActorLoginFilter {
+
+    private static final byte[] LOGIN_KEY = "\"login\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    // Lower-cased login bytes, bucketed by first byte so each key occurrence is compared to few names
+    private final byte[][][] loginsByFirstByte = new byte[128][][];
+
+    ActorLoginFilter(Collection<String> logins){
+        for (String login : logins) {
+            byte[] bytes = login.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length == 0 || bytes[0] < 0) continue;
+            byte[][] bucket = loginsByFirstByte[bytes[0]];
+            byte[][] grown = bucket == null ? new byte[1][] : Arrays.copyOf(bucket, bucket.length + 1);
+            grown[grown.length - 1] = bytes;
+            loginsByFirstByte[bytes[0]] = grown;
+        }
+    }
+
+    /**
+     * @return true if {@code line[from, to)} contains a login key followed by one of the names
+     */
+    boolean mayMatch(byte[] line, int from, int to){
+        int last = to - LOGIN_KEY.length;
+        for (int i = indexOfKey(line, from, last); i >= 0; i = indexOfKey(line, i + 1, last)) {
+            int value = i + LOGIN_KEY.length;
+            if (value >= to || line[value] < 0) continue;
+            byte[][] bucket = loginsByFirstByte[toLower(line[value])];
+            if (bucket == null) continue;
+            for (byte[] login : bucket) {
+                if (matchesAt(line, value, to, login)) return true;
+            }
+        }
+        return false;
+    }
+
+    // Scans for the key's first byte ('"') and checks the rest in place; returns -1 if there is none
+    private static int indexOfKey(byte[] line, int from, int last){
+        for (int i = from; i <= last; i++) {
+            if (line[i] != '"') continue;
+            int k = 1;
+            while (k < LOGIN_KEY.length && line[i + k] == LOGIN_KEY[k]) k++;
+            if (k == LOGIN_KEY.length) return i;
+        }
+        return -1;
+    }
+
+    private static boolean matchesAt(byte[] line, int start, int to, byte[] login){
+        int end = start + login.length;
+        if (end >= to || line[end] != '"') return false;
+        for (int k = 0; k < login.length; k++) {
+            if (toLower(line[start + k]) != login[k]) return false;
+        }
+        return true;
+    }
+
+    private static byte toLower(byte b){
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+}
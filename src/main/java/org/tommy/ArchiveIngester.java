@@ -0,0 +1,312 @@
+package org.tommy;
+
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Formats the activity of a set of users from local GH Archive hourly dumps
+ * ({@code .json.gz} files with one event per line, in the events API shape).
+ * <p>
+ * Each file is decompressed through a buffered {@link GZIPInputStream} into a reusable byte buffer
+ * and split into lines in place. A line is only decoded and parsed once an {@link ActorLoginFilter}
+ * has found one of the logins in its bytes; its {@code actor.login} is then checked on the lazily
+ * parsed event before it is formatted. Files are processed in parallel, one per worker thread, and
+ * their lines are written in the order the files were given: each worker hands its file's lines over
+ * in chunks of about 16K characters through a queue of four,
+ * and waits while that queue is full, so the output held in memory is bounded by the concurrency
+ * rather than by the size of a file. The user's events then go through an
+ * {@link EventFilter}: those it filters out are dropped, and event types the formatter does not
+ * know are skipped and counted. A summary of the matching events can be collected as well, from one
+ * partial {@link ActivityAggregate} per file.
+ */
+public class ArchiveIngester {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int INFLATER_BUFFER_SIZE = 64 * 1024;
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNKS_PER_FILE = 4;
+    // Ends a file's chunks, whether it was read to the end or failed
+    private static final String END_OF_FILE = "";
+    private static final JsonPath ACTOR_LOGIN = JsonPath.compile("actor.login");
+
+    private final ActorLoginFilter filter;
+    private final Set<String> logins = new HashSet<>();
+    private final int concurrency;
+    private final int bufferSize;
+    private final EventFilter eventFilter;
+    private final JsonDataHandler jsonDataHandler = new JsonDataHandler(true);
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+
+    public ArchiveIngester(Collection<String> logins, int concurrency){
+        this(logins, concurrency, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param logins      users whose events are formatted (matched case-insensitively)
+     * @param concurrency number of files processed at once
+     * @param bufferSize  initial size of each worker's line buffer; it grows to fit longer lines
+     */
+    public ArchiveIngester(Collection<String> logins, int concurrency, int bufferSize){
+        this(logins, concurrency, bufferSize, new EventFilter());
+    }
+
+    /**
+     * @param eventFilter events of the users to keep
+     * @see #ArchiveIngester(Collection, int, int)
+     */
+    public ArchiveIngester(Collection<String> logins, int concurrency, int bufferSize, EventFilter eventFilter){
+        if(logins.isEmpty()) throw new IllegalArgumentException("At least one login is required");
+        if(concurrency < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        if(bufferSize < 1) throw new IllegalArgumentException("bufferSize must be at least 1");
+        this.filter = new ActorLoginFilter(logins);
+        for(String login : logins) this.logins.add(login.toLowerCase(Locale.ROOT));
+        this.concurrency = concurrency;
+        this.bufferSize = bufferSize;
+        this.eventFilter = eventFilter;
+    }
+
+    /**
+     * Processes the files and writes one activity line per matching event to {@code out}, each followed
+     * by a line separator, file by file in the given order. Blocks until every file is done.
+     *
+     * @param files gzip-compressed NDJSON files
+     * @param out   destination of the activity lines
+     * @return byte, line and throughput counts of the run
+     * @throws IOException if writing to {@code out} fails
+     * @throws UncheckedIOException if a file cannot be read or is not valid gzip
+     * @throws RuntimeException if a matching line is not valid JSON
+     */
+    public ArchiveSummary ingest(List<Path> files, Appendable out) throws IOException {
+        return ingest(files, out, null);
+    }
+
+    /**
+     * Like {@link #ingest(List, Appendable)}, and also adds every matching event, including those of
+     * unsupported types, to {@code aggregate}.
+     *
+     * @param aggregate summary to add the matching events to, or null for none
+     */
+    public ArchiveSummary ingest(List<Path> files, Appendable out, ActivityAggregate aggregate) throws IOException {
+        long start = System.nanoTime();
+        List<Future<FileResult>> results = new ArrayList<>(files.size());
+        List<BlockingQueue<String>> chunks = new ArrayList<>(files.size());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, files.size())));
+        try {
+            // Files start in order, so the one being written is always running or done, and never waits on a later one
+            for(Path file : files){
+                BlockingQueue<String> fileChunks = new ArrayBlockingQueue<>(CHUNKS_PER_FILE);
+                chunks.add(fileChunks);
+                results.add(executor.submit(() -> ingestFile(file, aggregate != null, fileChunks)));
+            }
+            long compressed = 0, decompressed = 0, lines = 0, matched = 0, skipped = 0;
+            for(int i = 0; i < files.size(); i++){
+                for(String chunk = take(chunks.get(i)); !chunk.isEmpty(); chunk = take(chunks.get(i))){
+                    out.append(chunk);
+                }
+                FileResult result = join(results.get(i));
+                if(aggregate != null) aggregate.merge(result.aggregate());
+                compressed += result.compressedBytes();
+                decompressed += result.decompressedBytes();
+                lines += result.lines();
+                matched += result.matched();
+                skipped += result.skipped();
+            }
+            return new ArchiveSummary(files.size(), compressed, decompressed, lines, matched, skipped,
+                    System.nanoTime() - start);
+        } finally {
+            // After a failure, later workers may wait on full queues that are no longer drained: interrupt them first
+            executor.shutdownNow();
+            executor.close();
+        }
+    }
+
+    private static String take(BlockingQueue<String> chunks){
+        try {
+            return chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static FileResult join(Future<FileResult> future){
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private FileResult ingestFile(Path file, boolean aggregate, BlockingQueue<String> chunks)
+            throws InterruptedException {
+        try {
+            FileResult result = scanFile(file, new LineScanner(file, aggregate ? new ActivityAggregate() : null, chunks));
+            chunks.put(END_OF_FILE);
+            return result;
+        } catch (Throwable e) {
+            // The run fails with this file, so its queued lines are dropped to make room for the end
+            chunks.clear();
+            chunks.offer(END_OF_FILE);
+            throw e;
+        }
+    }
+
+    private FileResult scanFile(Path file, LineScanner scanner) throws InterruptedException {
+        long compressedBytes;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file), INFLATER_BUFFER_SIZE)) {
+            compressedBytes = Files.size(file);
+            byte[] buffer = new byte[bufferSize];
+            int length = 0;
+            int n;
+            while((n = in.read(buffer, length, buffer.length - length)) >= 0){
+                scanner.decompressed += n;
+                length += n;
+                // Only the new bytes can hold a newline; what is before them is an unfinished line
+                int consumed = scanner.scanLines(buffer, length - n, length);
+                // Keep the unfinished last line at the front; grow only if a single line fills the buffer
+                System.arraycopy(buffer, consumed, buffer, 0, length - consumed);
+                length -= consumed;
+                if(length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            if(length > 0) scanner.scanLine(buffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archive " + file, e);
+        }
+        scanner.handOver();
+        return new FileResult(scanner.aggregate, compressedBytes, scanner.decompressed,
+                scanner.lines, scanner.matched, scanner.skipped);
+    }
+
+    /**
+     * Per-file line splitting and matching state.
+     */
+    private final class LineScanner {
+
+        private final Path file;
+        private final ActivityAggregate aggregate;
+        private final BlockingQueue<String> chunks;
+        private final StringBuilder activity = new StringBuilder(CHUNK_SIZE);
+        private final String lineSeparator = System.lineSeparator();
+        private long decompressed;
+        private long lines;
+        private long matched;
+        private long skipped;
+
+        LineScanner(Path file, ActivityAggregate aggregate, BlockingQueue<String> chunks){
+            this.file = file;
+            this.aggregate = aggregate;
+            this.chunks = chunks;
+        }
+
+        // Handles every complete line in buffer[0, length), looking for line ends from searchFrom on,
+        // and returns the offset after the last complete line
+        int scanLines(byte[] buffer, int searchFrom, int length) throws InterruptedException {
+            int lineStart = 0;
+            for(int i = searchFrom; i < length; i++){
+                if(buffer[i] != '\n') continue;
+                scanLine(buffer, lineStart, i);
+                lineStart = i + 1;
+            }
+            return lineStart;
+        }
+
+        void scanLine(byte[] buffer, int from, int to) throws InterruptedException {
+            if(to > from && buffer[to - 1] == '\r') to--;
+            if(to == from) return;
+            lines++;
+            if(!filter.mayMatch(buffer, from, to)) return;
+            JsonReader event;
+            try {
+                event = jsonDataHandler.readElementAt(new String(buffer, from, to - from, StandardCharsets.UTF_8), 0);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Malformed event on line " + lines + " of " + file + ": " + e.getMessage(), e);
+            }
+            String login = event.getValueForKey(ACTOR_LOGIN);
+            if(!isWanted(login)) return;
+            EventFilter.Outcome outcome = eventFilter.check(event);
+            if(outcome == EventFilter.Outcome.FILTERED) return;
+            if(aggregate != null) aggregate.add(event);
+            if(outcome == EventFilter.Outcome.UNKNOWN_TYPE){
+                skipped++;
+                return;
+            }
+            try {
+                formatter.appendEvent(event, activity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            activity.append(lineSeparator);
+            matched++;
+            if(activity.length() >= CHUNK_SIZE) handOver();
+        }
+
+        // Queues the lines formatted so far for writing, waiting while the file's queue is full
+        void handOver() throws InterruptedException {
+            if(activity.isEmpty()) return;
+            chunks.put(activity.toString());
+            activity.setLength(0);
+        }
+
+        private boolean isWanted(String login){
+            return login != null && logins.contains(login.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private record FileResult(ActivityAggregate aggregate, long compressedBytes,
+                              long decompressedBytes, long lines, long matched, long skipped) {}
+
+    /**
+     * Outcome of an archive run.
+     *
+     * @param files             number of files processed
+     * @param compressedBytes   total size of the files on disk
+     * @param decompressedBytes total size of the decompressed NDJSON
+     * @param lines             number of event lines read
+     * @param matched           number of events by the requested users that were formatted
+     * @param skipped           number of events by the requested users with a type the formatter does not support
+     * @param elapsedNanos      wall-clock duration of the run
+     */
+    public record ArchiveSummary(int files, long compressedBytes, long decompressedBytes, long lines, long matched,
+                                 long skipped, long elapsedNanos) {
+
+        public double compressedMegabytesPerSecond(){
+            return elapsedNanos == 0 ? 0 : compressedBytes / 1e6 * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Read %d files (%.1f MB compressed, %.1f MB decompressed, %d events) in %.2f s: "
+                            + "%.1f MB/s compressed, %d matching events, %d skipped",
+                    files, compressedBytes / 1e6, decompressedBytes / 1e6, lines, elapsedNanos / 1e9,
+                    compressedMegabytesPerSecond(), matched, skipped);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.tommy;
+
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.sink.ActivityRecord;
+import org.tommy.sink.ActivitySink;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches and formats activity for many users concurrently on virtual threads.
+ * <p>
+ * At most {@code concurrency} users are in flight at once. A failure for one user (invalid name,
+ * unknown user, HTTP or parse error) is reported in that user's output block and does not affect
+ * the others. Each user's lines are printed together, in completion order.
+ * <p>
+ * When given an {@link ActivityAggregate}, each user's events are counted into a partial aggregate of
+ * their own, which is merged into the shared one once the user has succeeded.
+ * <p>
+ * When given an {@link ActivitySink}, each user's events are written to it as records instead of lines, again
+ * together and in completion order, while failures go to a separate error stream.
+ */
+public class BatchActivityRunner {
+
+    private final ActivityService activityService;
+    private final int concurrency;
+    private final PrintStream out;
+    private final ActivitySink sink;
+    private final ActivityAggregate aggregate;
+
+    public BatchActivityRunner(ActivityService activityService, int concurrency, PrintStream out){
+        this(activityService, concurrency, out, null);
+    }
+
+    /**
+     * @param aggregate summary to add every successful user's events to, or null for none
+     */
+    public BatchActivityRunner(ActivityService activityService, int concurrency, PrintStream out,
+                               ActivityAggregate aggregate){
+        this(activityService, concurrency, out, null, aggregate);
+    }
+
+    /**
+     * @param sink      sink every successful user's events are written to; the caller flushes and closes it
+     * @param errors    stream the failures are reported on, one block per failed user
+     * @param aggregate summary to add every successful user's events to, or null for none
+     */
+    public BatchActivityRunner(ActivityService activityService, int concurrency, ActivitySink sink, PrintStream errors,
+                               ActivityAggregate aggregate){
+        this(activityService, concurrency, errors, sink, aggregate);
+    }
+
+    private BatchActivityRunner(ActivityService activityService, int concurrency, PrintStream out, ActivitySink sink,
+                                ActivityAggregate aggregate){
+        if(concurrency < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        this.activityService = activityService;
+        this.concurrency = concurrency;
+        this.out = out;
+        this.sink = sink;
+        this.aggregate = aggregate;
+    }
+
+    /**
+     * Processes every username and blocks until all of them are done.
+     *
+     * @param userNames usernames to process; duplicates are processed again
+     * @return throughput and latency summary of the run
+     */
+    public BatchSummary run(List<String> userNames){
+        Semaphore permits = new Semaphore(concurrency);
+        long[] latencies = new long[userNames.size()];
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(int i = 0; i < userNames.size(); i++){
+                int index = i;
+                String userName = userNames.get(i);
+                // Acquiring before submitting keeps the number of live threads bounded too
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        long userStart = System.nanoTime();
+                        if(!processUser(userName)) failed.incrementAndGet();
+                        latencies[index] = System.nanoTime() - userStart;
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new BatchSummary(userNames.size(), failed.get(), elapsed,
+                percentile(latencies, 50), percentile(latencies, 99));
+    }
+
+    private boolean processUser(String userName){
+        if(sink != null) return writeUser(userName);
+        StringBuilder block = new StringBuilder();
+        block.append("== ").append(userName).append(" ==").append(System.lineSeparator());
+        boolean succeeded;
+        try {
+            if(!GitHubUserNameValidator.isValidUserName(userName)){
+                throw new IllegalArgumentException("Invalid GitHub username");
+            }
+            // A user that fails halfway is left out of the summary rather than counted in part
+            ActivityAggregate partial = aggregate == null ? null : new ActivityAggregate();
+            activityService.writeActivity(userName, block, partial);
+            if(partial != null){
+                synchronized (aggregate) {
+                    aggregate.merge(partial);
+                }
+            }
+            succeeded = true;
+        } catch (RuntimeException | IOException e) {
+            block.append("Error: ").append(e.getMessage()).append(System.lineSeparator());
+            succeeded = false;
+        }
+        synchronized (out) {
+            out.print(block);
+        }
+        return succeeded;
+    }
+
+    // Collects the user's records, so that a user failing halfway writes none of them to the sink
+    private boolean writeUser(String userName){
+        try {
+            if(!GitHubUserNameValidator.isValidUserName(userName)){
+                throw new IllegalArgumentException("Invalid GitHub username");
+            }
+            ActivityAggregate partial = aggregate == null ? null : new ActivityAggregate();
+            List<ActivityRecord> records = new ArrayList<>();
+            activityService.forEachEvent(userName, event -> {
+                records.add(ActivityRecord.of(userName, event));
+                if(partial != null) partial.add(event);
+            });
+            synchronized (sink) {
+                for(ActivityRecord record : records) sink.write(record);
+            }
+            if(partial != null){
+                synchronized (aggregate) {
+                    aggregate.merge(partial);
+                }
+            }
+            return true;
+        } catch (RuntimeException | IOException e) {
+            String lineSeparator = System.lineSeparator();
+            synchronized (out) {
+                out.print("== " + userName + " ==" + lineSeparator + "Error: " + e.getMessage() + lineSeparator);
+            }
+            return false;
+        }
+    }
+
+    // Nearest-rank percentile over sorted values
+    private static long percentile(long[] sorted, int percentile){
+        if(sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Outcome of a batch run.
+     *
+     * @param users         number of usernames processed
+     * @param failed        number of usernames that produced an error
+     * @param elapsedNanos  wall-clock duration of the run
+     * @param p50Nanos      median per-user latency
+     * @param p99Nanos      99th percentile per-user latency
+     */
+    public record BatchSummary(int users, int failed, long elapsedNanos, long p50Nanos, long p99Nanos) {
+
+        public double usersPerSecond(){
+            return elapsedNanos == 0 ? 0 : users * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Processed %d users (%d failed) in %.2f s: %.1f users/s, p50 %.1f ms, p99 %.1f ms",
+                    users, failed, elapsedNanos / 1e9, usersPerSecond(), p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+    }
+}
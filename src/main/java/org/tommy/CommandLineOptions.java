@@ -0,0 +1,374 @@
+package org.tommy;
+
+import org.tommy.sink.SinkFormat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsed command-line options for {@link GitHubUserActivity}.
+ *
+ * Usage:
+ *   GitHubUserActivity <username>
+ *   GitHubUserActivity [--concurrency N] [--users-file FILE] <username>...
+ *   GitHubUserActivity --archive FILE [--archive FILE]... [--concurrency N] <username>...
+ *   GitHubUserActivity --store DIR --history [--since INSTANT] [--until INSTANT] <username>
+ *   GitHubUserActivity --watch [--users-file FILE] <username>...
+ *   GitHubUserActivity --serve PORT
+ *
+ * Common options:
+ *   --cache-dir DIR      keep an ETag cache of responses in DIR and send conditional requests
+ *   --cache-max-mb N     size bound of the ETag cache in megabytes (default 64)
+ *   --pages N            fetch up to N pages of 100 events (at most 3), prefetching pages concurrently
+ *   --limit N            stop after N events per user
+ *   --since INSTANT      stop at the first event created before INSTANT, e.g. 2025-01-31T00:00:00Z
+ *   --until INSTANT      leave out events created at or after INSTANT
+ *   --type T[,T...]      only events of these types, e.g. PushEvent,IssuesEvent; may be repeated
+ *   --repo PATTERN       only events in repositories matching PATTERN, e.g. tommy/app or tommy/*,
+ *                        ignoring case; may be repeated
+ *   --summary            after the activity, print counts per event type, repository, actor and hour
+ *   --store DIR          append every fetched event to the local event store in DIR
+ *   --memory-cache-ttl S keep users' parsed events and lines in memory for S seconds and serve repeated
+ *                        lookups (e.g. server requests) from there
+ *   --memory-cache-mb N  size bound of the in-memory cache in megabytes (default 32)
+ *   --stats              time the fetch, parse and format stages and print a summary at the end;
+ *                        in server mode, serve it as JSON on GET /stats instead
+ *   --stats-json FILE    also write the summary as JSON to FILE (implies --stats)
+ *   --format F           write the activity as text (the default), ndjson, csv or binary records
+ *   --out FILE           write the activity to FILE instead of standard output
+ *
+ * Any of --pages, --limit or --since switches to paginated fetching.
+ *
+ * Every mode passes events through an {@link EventFilter} built from --type, --repo, --since and --until, which
+ * looks at an event's type, repository and creation time only; the events it filters out are never formatted,
+ * stored or summarised. Events of types the formatter does not know are skipped, and the counts are reported
+ * on standard error. With a filter, --limit counts the events it keeps.
+ *
+ * More than one username, or a users file, selects batch mode. The usernames of batch and watch mode are
+ * validated and deduplicated ignoring case first, and the ones dropped are reported, see {@link UserNameIngester}.
+ *
+ * --format and --out apply to single-user and batch mode only. With a format other than text, each event is
+ * written as one record, see {@link org.tommy.sink.ActivitySink}; reports such as --summary then go to
+ * standard error unless the records go to a file.
+ *
+ * --archive reads local GH Archive dumps (.json.gz, one event per line) instead of calling the API,
+ * and prints the activity of the given usernames found in them.
+ *
+ * --history prints the user's events from the store instead of calling the API, optionally limited to
+ * those created in [--since, --until).
+ *
+ * --watch keeps polling the users and prints only their new events, see {@link ActivityWatcher}.
+ *
+ * --serve answers GET /users/{name}/activity over HTTP on PORT until stopped, see {@link ActivityServer}.
+ */
+public class CommandLineOptions {
+
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    private final List<String> userNames = new ArrayList<>();
+    private Path usersFile;
+    private final List<Path> archiveFiles = new ArrayList<>();
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private Path cacheDir;
+    private long cacheMaxBytes = ConditionalRequestCache.DEFAULT_MAX_BYTES;
+    private int pages;
+    private int limit;
+    private Instant since;
+    private boolean summary;
+    private Path storeDir;
+    private boolean history;
+    private Instant until;
+    private boolean watch;
+    private int servePort = -1;
+    private boolean memoryCache;
+    private Duration memoryCacheTtl = ActivityCache.DEFAULT_TTL;
+    private long memoryCacheMaxBytes = ActivityCache.DEFAULT_MAX_BYTES;
+    private boolean stats;
+    private Path statsJsonFile;
+    private SinkFormat format;
+    private Path outFile;
+    private final List<GitHubEventType> types = new ArrayList<>();
+    private final List<String> repoPatterns = new ArrayList<>();
+
+    private CommandLineOptions(){}
+
+    /**
+     * Parses the raw arguments.
+     *
+     * @param args command-line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException if an option is unknown, is missing its value, or has an invalid value
+     */
+    public static CommandLineOptions parse(String[] args){
+        CommandLineOptions options = new CommandLineOptions();
+        for(int i = 0; i < args.length; i++){
+            String arg = args[i];
+            switch (arg){
+                case "--users-file" -> options.usersFile = Path.of(value(args, ++i, arg));
+                case "--archive" -> options.archiveFiles.add(Path.of(value(args, ++i, arg)));
+                case "--concurrency" -> {
+                    options.concurrency = intValue(args, ++i, arg);
+                    if(options.concurrency < 1){
+                        throw new IllegalArgumentException("--concurrency must be at least 1");
+                    }
+                }
+                case "--cache-dir" -> options.cacheDir = Path.of(value(args, ++i, arg));
+                case "--cache-max-mb" -> {
+                    int megabytes = intValue(args, ++i, arg);
+                    if(megabytes < 1){
+                        throw new IllegalArgumentException("--cache-max-mb must be at least 1");
+                    }
+                    options.cacheMaxBytes = megabytes * 1024L * 1024L;
+                }
+                case "--pages" -> {
+                    options.pages = intValue(args, ++i, arg);
+                    if(options.pages < 1 || options.pages > PaginatedEventFetcher.MAX_PAGES){
+                        throw new IllegalArgumentException("--pages must be between 1 and " + PaginatedEventFetcher.MAX_PAGES);
+                    }
+                }
+                case "--limit" -> {
+                    options.limit = intValue(args, ++i, arg);
+                    if(options.limit < 1){
+                        throw new IllegalArgumentException("--limit must be at least 1");
+                    }
+                }
+                case "--since" -> options.since = instantValue(args, ++i, arg);
+                case "--summary" -> options.summary = true;
+                case "--store" -> options.storeDir = Path.of(value(args, ++i, arg));
+                case "--history" -> options.history = true;
+                case "--until" -> options.until = instantValue(args, ++i, arg);
+                case "--watch" -> options.watch = true;
+                case "--memory-cache-ttl" -> {
+                    int seconds = intValue(args, ++i, arg);
+                    if(seconds < 1){
+                        throw new IllegalArgumentException("--memory-cache-ttl must be at least 1");
+                    }
+                    options.memoryCacheTtl = Duration.ofSeconds(seconds);
+                    options.memoryCache = true;
+                }
+                case "--memory-cache-mb" -> {
+                    int megabytes = intValue(args, ++i, arg);
+                    if(megabytes < 1){
+                        throw new IllegalArgumentException("--memory-cache-mb must be at least 1");
+                    }
+                    options.memoryCacheMaxBytes = megabytes * 1024L * 1024L;
+                    options.memoryCache = true;
+                }
+                case "--stats" -> options.stats = true;
+                case "--stats-json" -> {
+                    options.statsJsonFile = Path.of(value(args, ++i, arg));
+                    options.stats = true;
+                }
+                case "--format" -> options.format = formatValue(args, ++i, arg);
+                case "--out" -> options.outFile = Path.of(value(args, ++i, arg));
+                case "--type" -> {
+                    for(String type : value(args, ++i, arg).split(",")) options.types.add(typeValue(type.trim(), arg));
+                }
+                case "--repo" -> {
+                    String pattern = value(args, ++i, arg);
+                    if(pattern.isEmpty()){
+                        throw new IllegalArgumentException("--repo must not be empty");
+                    }
+                    options.repoPatterns.add(pattern);
+                }
+                case "--serve" -> {
+                    options.servePort = intValue(args, ++i, arg);
+                    if(options.servePort < 0 || options.servePort > 65535){
+                        throw new IllegalArgumentException("--serve must be a port between 0 and 65535");
+                    }
+                }
+                default -> {
+                    if(arg.startsWith("--")){
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    options.userNames.add(arg);
+                }
+            }
+        }
+        if(options.since != null && options.until != null && !options.until.isAfter(options.since)){
+            throw new IllegalArgumentException("--until must be after --since");
+        }
+        if(options.history && options.storeDir == null){
+            throw new IllegalArgumentException("--history requires --store");
+        }
+        if((options.format != null || options.outFile != null)
+                && (options.history || options.isArchive() || options.watch || options.isServe())){
+            throw new IllegalArgumentException("--format and --out only apply to single-user and batch mode");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int index, String option){
+        if(index >= args.length){
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int intValue(String[] args, int index, String option){
+        String value = value(args, index, option);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static Instant instantValue(String[] args, int index, String option){
+        String value = value(args, index, option);
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid instant for " + option + " (expected e.g. 2025-01-31T00:00:00Z): " + value);
+        }
+    }
+
+    // Text is the default and has no sink format
+    private static SinkFormat formatValue(String[] args, int index, String option){
+        String value = value(args, index, option);
+        if(value.equals("text")) return null;
+        SinkFormat format = SinkFormat.fromLabel(value);
+        if(format == null){
+            throw new IllegalArgumentException("Invalid format for " + option + " (expected text, ndjson, csv or binary): " + value);
+        }
+        return format;
+    }
+
+    private static GitHubEventType typeValue(String value, String option){
+        GitHubEventType type = GitHubEventType.fromEventType(value);
+        if(type == null){
+            throw new IllegalArgumentException("Unknown event type for " + option + " (expected e.g. PushEvent): " + value);
+        }
+        return type;
+    }
+
+    public boolean isBatch(){
+        return usersFile != null || userNames.size() > 1;
+    }
+
+    public boolean isArchive(){
+        return !archiveFiles.isEmpty();
+    }
+
+    public List<Path> getArchiveFiles(){
+        return archiveFiles;
+    }
+
+    public List<String> getUserNames(){
+        return userNames;
+    }
+
+    public Path getUsersFile(){
+        return usersFile;
+    }
+
+    public int getConcurrency(){
+        return concurrency;
+    }
+
+    public boolean isPaginated(){
+        return pages > 0 || limit > 0 || since != null;
+    }
+
+    // Defaults to all pages when only --limit or --since was given
+    public int getPages(){
+        return pages > 0 ? pages : PaginatedEventFetcher.MAX_PAGES;
+    }
+
+    public int getLimit(){
+        return limit;
+    }
+
+    public Instant getSince(){
+        return since;
+    }
+
+    public boolean isSummary(){
+        return summary;
+    }
+
+    public Path getStoreDir(){
+        return storeDir;
+    }
+
+    public boolean isHistory(){
+        return history;
+    }
+
+    public Instant getUntil(){
+        return until;
+    }
+
+    public boolean isWatch(){
+        return watch;
+    }
+
+    // Either memory cache option enables the cache
+    public boolean isMemoryCache(){
+        return memoryCache;
+    }
+
+    public Duration getMemoryCacheTtl(){
+        return memoryCacheTtl;
+    }
+
+    public long getMemoryCacheMaxBytes(){
+        return memoryCacheMaxBytes;
+    }
+
+    public boolean isStats(){
+        return stats;
+    }
+
+    // Null unless --stats-json was given
+    public Path getStatsJsonFile(){
+        return statsJsonFile;
+    }
+
+    // Null for text
+    public SinkFormat getFormat(){
+        return format;
+    }
+
+    // Null unless --out was given
+    public Path getOutFile(){
+        return outFile;
+    }
+
+    // Empty unless --type was given
+    public List<GitHubEventType> getTypes(){
+        return types;
+    }
+
+    // Empty unless --repo was given
+    public List<String> getRepoPatterns(){
+        return repoPatterns;
+    }
+
+    /**
+     * @return a new filter of the events selected by --type, --repo, --since and --until
+     */
+    public EventFilter newEventFilter(){
+        return new EventFilter(types, repoPatterns, since, until);
+    }
+
+    public boolean isServe(){
+        return servePort >= 0;
+    }
+
+    public int getServePort(){
+        return servePort;
+    }
+
+    public Path getCacheDir(){
+        return cacheDir;
+    }
+
+    public long getCacheMaxBytes(){
+        return cacheMaxBytes;
+    }
+}
@@ -0,0 +1,220 @@
+package org.tommy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * On-disk cache of GitHub responses for conditional requests.
+ * <p>
+ * For each URL it keeps the {@code ETag}, {@code Last-Modified} and body of the last 200 response,
+ * so {@link GItHubAPI} can send {@code If-None-Match} / {@code If-Modified-Since} and serve the cached
+ * body when GitHub answers {@code 304 Not Modified} (which does not count against the rate limit).
+ * <p>
+ * Entries are stored one file per URL, named by the SHA-256 of the URL. The total size of the
+ * directory is bounded; when it is exceeded the least recently used entries are evicted.
+ * The cache only saves requests: an entry that cannot be written (disk full, permissions) is counted, see
+ * {@link #getWriteFailures()}, and the response it came with is still used.
+ * Instances are safe to share between threads.
+ */
+public class ConditionalRequestCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final String SUFFIX = ".cache";
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final long maxBytes;
+    private long totalBytes;
+    private long writeFailures;
+    private IOException lastWriteFailure;
+
+    /**
+     * A cached response.
+     *
+     * @param etag         the ETag header value, or null
+     * @param lastModified the Last-Modified header value, or null
+     * @param body         the response body
+     */
+    public record Entry(String etag, String lastModified, String body) {}
+
+    /**
+     * @param directory directory holding the cache files; created if missing
+     * @param maxBytes  upper bound on the total size of the cache files
+     * @throws UncheckedIOException if the directory cannot be created or read
+     */
+    public ConditionalRequestCache(Path directory, long maxBytes){
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+            for(Path file : cacheFiles()){
+                totalBytes += Files.size(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the cached entry for the URI, or null if there is none or it cannot be read.
+     */
+    public Entry lookup(URI uri){
+        Path file = fileFor(uri);
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                if(in.readInt() != FORMAT_VERSION || !in.readUTF().equals(uri.toString())) return null;
+                String etag = emptyToNull(in.readUTF());
+                String lastModified = emptyToNull(in.readUTF());
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                // Touch the file so eviction sees it as recently used
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                return new Entry(etag, lastModified, new String(body, StandardCharsets.UTF_8));
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // A corrupt or concurrently replaced entry is treated as a miss
+            return null;
+        }
+    }
+
+    /**
+     * Stores (or replaces) the entry for the URI and evicts old entries if the size bound is exceeded.
+     * Entries without an ETag or Last-Modified value are not worth caching and are ignored.
+     *
+     * @return false if the entry could not be written; the failure is counted instead of thrown
+     */
+    public boolean store(URI uri, Entry entry){
+        if(entry.etag() == null && entry.lastModified() == null) return true;
+        byte[] body = entry.body().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(uri.toString());
+            out.writeUTF(entry.etag() == null ? "" : entry.etag());
+            out.writeUTF(entry.lastModified() == null ? "" : entry.lastModified());
+            out.writeInt(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            // Only a URL too long for writeUTF gets here
+            return countWriteFailure(new IOException("Could not write cache entry for " + uri, e));
+        }
+        Path file = fileFor(uri);
+        synchronized (this) {
+            Path temp = null;
+            try {
+                long previous = Files.exists(file) ? Files.size(file) : 0;
+                // Write to a temporary file first so readers never see a partial entry
+                temp = Files.createTempFile(directory, "entry", ".tmp");
+                Files.write(temp, bytes.toByteArray());
+                try {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                temp = null;
+                totalBytes += bytes.size() - previous;
+                if(totalBytes > maxBytes) evict(file);
+                return true;
+            } catch (IOException e) {
+                deleteQuietly(temp);
+                return countWriteFailure(new IOException("Could not write cache entry for " + uri, e));
+            }
+        }
+    }
+
+    private synchronized boolean countWriteFailure(IOException failure){
+        writeFailures++;
+        lastWriteFailure = failure;
+        return false;
+    }
+
+    private static void deleteQuietly(Path file){
+        if(file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Left for the next write to the directory to fail on, or for the user to remove
+        }
+    }
+
+    // Deletes least recently used entries (never the one just written) until the cache fits again
+    private void evict(Path keep) throws IOException {
+        record CacheFile(Path path, FileTime lastUsed, long size) {}
+        List<CacheFile> files = new ArrayList<>();
+        for(Path file : cacheFiles()){
+            files.add(new CacheFile(file, Files.getLastModifiedTime(file), Files.size(file)));
+        }
+        files.sort(Comparator.comparing(CacheFile::lastUsed));
+        for(CacheFile file : files){
+            if(totalBytes <= maxBytes) break;
+            if(file.path().equals(keep)) continue;
+            if(Files.deleteIfExists(file.path())) totalBytes -= file.size();
+        }
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private Path fileFor(URI uri){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest) + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String emptyToNull(String value){
+        return value.isEmpty() ? null : value;
+    }
+
+    public Path getDirectory(){
+        return directory;
+    }
+
+    public synchronized long getTotalBytes(){
+        return totalBytes;
+    }
+
+    /**
+     * @return the number of entries that could not be written
+     */
+    public synchronized long getWriteFailures(){
+        return writeFailures;
+    }
+
+    /**
+     * @return why the last entry that could not be written failed, or null if none has
+     */
+    public synchronized IOException getLastWriteFailure(){
+        return lastWriteFailure;
+    }
+}
@@ -0,0 +1,252 @@
+package org.tommy;
+
+import org.tommy.event.GitHubEvent;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Selects events by type, repository name pattern and {@code created_at} window, and sorts out event types the
+ * formatter does not know.
+ * <p>
+ * An event is classified from its top-level {@code type} and {@code created_at} and its {@code repo.name} only.
+ * With the lazy parser (see {@link org.tommy.model.JsonDataHandler#JsonDataHandler(boolean)}), its payload is
+ * therefore never built unless the event is kept and formatted. The cheapest checks come first: the type, then
+ * the creation time, compared as text while it has GitHub's {@code 2025-01-31T12:00:00Z} shape, then the
+ * repository.
+ * <p>
+ * Events of a type that is not a {@link GitHubEventType} are skipped rather than failing the lookup they are
+ * part of; when a set of types was requested they are simply not among them. Every classification is counted,
+ * see {@link #getCounts()}. Instances can be shared between threads.
+ */
+public class EventFilter implements Predicate<JsonReader> {
+
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    /**
+     * How an event was classified.
+     */
+    public enum Outcome {
+        MATCHED,
+        FILTERED,
+        UNKNOWN_TYPE
+    }
+
+    private final Set<GitHubEventType> types;
+    private final List<RepoPattern> repoPatterns;
+    private final Instant since;
+    private final Instant until;
+    // The bounds in created_at's own format, rounded up to whole seconds, as created_at has no fraction
+    private final String sinceText;
+    private final String untilText;
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder unknownTypes = new LongAdder();
+
+    /**
+     * Creates a filter that keeps every event of a known type.
+     */
+    public EventFilter(){
+        this(null, null, null, null);
+    }
+
+    /**
+     * @param types        event types to keep, or null or empty for all known types
+     * @param repoPatterns repository names to keep, such as {@code tommy/app}, {@code tommy/*} or {@code *-docs},
+     *                     where {@code *} stands for any run of characters and case is ignored; null or empty for all
+     * @param since        keep only events created at or after this instant, or null for no lower bound
+     * @param until        keep only events created before this instant, or null for no upper bound
+     * @throws IllegalArgumentException if {@code until} is not after {@code since}, or a pattern is empty
+     */
+    public EventFilter(Collection<GitHubEventType> types, Collection<String> repoPatterns, Instant since, Instant until){
+        if(since != null && until != null && !until.isAfter(since)){
+            throw new IllegalArgumentException("until must be after since");
+        }
+        this.types = types == null || types.isEmpty() ? null : EnumSet.copyOf(types);
+        this.repoPatterns = repoPatterns == null ? List.of() : repoPatterns.stream().map(RepoPattern::new).toList();
+        this.since = since;
+        this.until = until;
+        this.sinceText = since == null ? null : toCreatedAt(since);
+        this.untilText = until == null ? null : toCreatedAt(until);
+    }
+
+    /**
+     * @return true if the filter only sorts out unknown event types
+     */
+    public boolean isEmpty(){
+        return types == null && repoPatterns.isEmpty() && since == null && until == null;
+    }
+
+    /**
+     * @return true if the event is of a known type and matches every criterion; counted as {@link #check} does
+     */
+    @Override
+    public boolean test(JsonReader event){
+        return check(event) == Outcome.MATCHED;
+    }
+
+    /**
+     * Classifies an event and counts it.
+     *
+     * @param event parsed GitHub event
+     * @return {@link Outcome#FILTERED} if it fails a criterion, otherwise {@link Outcome#UNKNOWN_TYPE} if its type
+     *         is not a {@link GitHubEventType}, otherwise {@link Outcome#MATCHED}
+     */
+    public Outcome check(JsonReader event){
+        return count(classify(event));
+    }
+
+    /**
+     * Classifies an event that was decoded already, e.g. one read back from an
+     * {@link org.tommy.store.EventStore}, and counts it. Decoded events are always of a known type.
+     *
+     * @param event     decoded event
+     * @param createdAt its creation time
+     * @return {@link Outcome#FILTERED} if it fails a criterion, otherwise {@link Outcome#MATCHED}
+     */
+    public Outcome check(GitHubEvent event, Instant createdAt){
+        boolean matches = (types == null || types.contains(event.type()))
+                && (since == null || !createdAt.isBefore(since)) && (until == null || createdAt.isBefore(until))
+                && (repoPatterns.isEmpty() || matchesRepo(event.repo()));
+        return count(matches ? Outcome.MATCHED : Outcome.FILTERED);
+    }
+
+    private Outcome count(Outcome outcome){
+        switch (outcome){
+            case MATCHED -> matched.increment();
+            case FILTERED -> filtered.increment();
+            case UNKNOWN_TYPE -> unknownTypes.increment();
+        }
+        return outcome;
+    }
+
+    private Outcome classify(JsonReader event){
+        GitHubEventType type = GitHubEventType.fromEventType(event.getValueForKey(TYPE));
+        if(types != null && !types.contains(type)) return Outcome.FILTERED;
+        if((sinceText != null || untilText != null) && !inWindow(event.getValueForKey(CREATED_AT))){
+            return Outcome.FILTERED;
+        }
+        if(!repoPatterns.isEmpty() && !matchesRepo(event.getValueForKey(REPO_NAME))) return Outcome.FILTERED;
+        return type == null ? Outcome.UNKNOWN_TYPE : Outcome.MATCHED;
+    }
+
+    // Timestamps of one fixed-width UTC format sort as text, so GitHub's are compared without parsing them
+    private boolean inWindow(String createdAt){
+        if(createdAt == null) return false;
+        if(createdAt.length() != 20 || createdAt.charAt(10) != 'T' || createdAt.charAt(19) != 'Z'){
+            try {
+                Instant instant = Instant.parse(createdAt);
+                return (since == null || !instant.isBefore(since)) && (until == null || instant.isBefore(until));
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return (sinceText == null || createdAt.compareTo(sinceText) >= 0)
+                && (untilText == null || createdAt.compareTo(untilText) < 0);
+    }
+
+    private boolean matchesRepo(String repoName){
+        if(repoName == null) return false;
+        for(RepoPattern pattern : repoPatterns){
+            if(pattern.matches(repoName)) return true;
+        }
+        return false;
+    }
+
+    private static String toCreatedAt(Instant instant){
+        Instant seconds = instant.truncatedTo(ChronoUnit.SECONDS);
+        if(seconds.isBefore(instant)) seconds = seconds.plusSeconds(1);
+        // Instant.toString always prints the seconds, and no fraction once there is none
+        return seconds.toString();
+    }
+
+    /**
+     * @return the events classified so far
+     */
+    public Counts getCounts(){
+        return new Counts(matched.sum(), filtered.sum(), unknownTypes.sum());
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder description = new StringBuilder("EventFilter[");
+        if(types != null) description.append("types=").append(types.stream().map(GitHubEventType::getEventType).toList()).append(' ');
+        if(!repoPatterns.isEmpty()) description.append("repos=").append(repoPatterns).append(' ');
+        if(since != null) description.append("since=").append(since).append(' ');
+        if(until != null) description.append("until=").append(until).append(' ');
+        if(description.charAt(description.length() - 1) == ' ') description.setLength(description.length() - 1);
+        return description.append(']').toString();
+    }
+
+    // A glob over repository names, with '*' as the only wildcard, matched ignoring case without a regex
+    private static final class RepoPattern {
+        private final String pattern;
+        private final String[] parts;
+
+        RepoPattern(String pattern){
+            if(pattern.isEmpty()) throw new IllegalArgumentException("Repository pattern must not be empty");
+            this.pattern = pattern;
+            this.parts = pattern.split("\\*", -1);
+        }
+
+        boolean matches(String name){
+            String first = parts[0];
+            if(parts.length == 1) return name.equalsIgnoreCase(first);
+            String last = parts[parts.length - 1];
+            if(name.length() < first.length() + last.length()
+                    || !name.regionMatches(true, 0, first, 0, first.length())
+                    || !name.regionMatches(true, name.length() - last.length(), last, 0, last.length())){
+                return false;
+            }
+            // The parts between the wildcards are found left to right, each at its first place that fits
+            int from = first.length();
+            int end = name.length() - last.length();
+            for(int i = 1; i < parts.length - 1; i++){
+                String part = parts[i];
+                int at = indexOfIgnoreCase(name, part, from, end);
+                if(at < 0) return false;
+                from = at + part.length();
+            }
+            return true;
+        }
+
+        private static int indexOfIgnoreCase(String name, String part, int from, int end){
+            for(int i = from; i + part.length() <= end; i++){
+                if(name.regionMatches(true, i, part, 0, part.length())) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString(){
+            return pattern;
+        }
+    }
+
+    /**
+     * Events classified by a filter.
+     *
+     * @param matched      events kept
+     * @param filtered     events that failed a criterion
+     * @param unknownTypes events that matched the criteria but whose type is not a {@link GitHubEventType}
+     */
+    public record Counts(long matched, long filtered, long unknownTypes) {
+
+        @Override
+        public String toString(){
+            return String.format("Kept %d events: %d filtered out, %d of unknown types skipped",
+                    matched, filtered, unknownTypes);
+        }
+    }
+}
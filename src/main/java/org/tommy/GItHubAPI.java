@@ -1,16 +1,48 @@
 package org.tommy;
 
+import org.tommy.model.JsonDataHandler;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+import org.tommy.model.JsonReader;
+import org.tommy.parser.JsonElementFramer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Utility class to interact with GitHub's public REST API.
  * <p>
  * Specifically, it fetches public events for a given GitHub username using the endpoint:
  * https://api.github.com/users/{username}/events
+ * <p>
+ * Each instance holds one long-lived {@link HttpClient} (HTTP/2 with keep-alive connection reuse),
+ * so create it once and share it; it is safe to use from many threads. Responses are requested
+ * gzip-compressed and decompressed as they are read; {@link #streamGitHubEvents(String, Consumer)}
+ * also parses them as they are read. With a {@link ConditionalRequestCache},
+ * requests are sent conditionally and {@code 304 Not Modified} answers are served from the cache.
+ * Requests go through a {@link RateLimitScheduler}, which paces them against GitHub's rate limit
+ * and retries throttled, 5xx and failed attempts. {@link #pollGitHubEvents} serves long-running watchers,
+ * which track their own ETags and stop reading a response at the first event they have already seen.
+ * Time spent on requests is charged to the {@link Stage#FETCH} stage and framing to {@link Stage#PARSE};
+ * given {@link PipelineMetrics}, every response is also counted there.
  */
 
 public class GItHubAPI {
@@ -18,6 +50,123 @@ public class GItHubAPI {
     // GitHub API endpoint template for fetching a user's public activity events
     public static final String GITHUB_EVENT_API = "https://api.github.com/users/%s/events";
 
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    // Executor shared by all default-configured clients; virtual threads keep blocking I/O cheap
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+
+    // Streamed events are parsed lazily, so payload subtrees no one reads are skipped
+    private static final JsonDataHandler STREAMING_HANDLER = new JsonDataHandler(true);
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final String eventApiTemplate;
+    private final ConditionalRequestCache cache;
+    private final RateLimitScheduler scheduler;
+    private final PipelineMetrics metrics;
+
+    public GItHubAPI(){
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, SHARED_EXECUTOR);
+    }
+
+    /**
+     * @param cache conditional request cache, or null to always fetch full responses
+     */
+    public GItHubAPI(ConditionalRequestCache cache){
+        this(cache, null);
+    }
+
+    /**
+     * @param cache   conditional request cache, or null to always fetch full responses
+     * @param metrics metrics that responses are counted in, also used by the services built on this client; or null
+     */
+    public GItHubAPI(ConditionalRequestCache cache, PipelineMetrics metrics){
+        this(newHttpClient(DEFAULT_CONNECT_TIMEOUT, SHARED_EXECUTOR), DEFAULT_REQUEST_TIMEOUT, GITHUB_EVENT_API, cache,
+                new RateLimitScheduler(), metrics);
+    }
+
+    /**
+     * @param connectTimeout timeout for establishing a connection
+     * @param requestTimeout timeout for each request, until the response headers arrive
+     * @param executor       executor for the client's asynchronous work
+     */
+    public GItHubAPI(Duration connectTimeout, Duration requestTimeout, Executor executor){
+        this(newHttpClient(connectTimeout, executor), requestTimeout);
+    }
+
+    /**
+     * @param httpClient     client to send requests with
+     * @param requestTimeout timeout for each request, until the response headers arrive
+     */
+    public GItHubAPI(HttpClient httpClient, Duration requestTimeout){
+        this(httpClient, requestTimeout, GITHUB_EVENT_API);
+    }
+
+    /**
+     * @param httpClient       client to send requests with
+     * @param requestTimeout   timeout for each request, until the response headers arrive
+     * @param eventApiTemplate events endpoint with a %s placeholder for the username, e.g. for a local stub server
+     */
+    public GItHubAPI(HttpClient httpClient, Duration requestTimeout, String eventApiTemplate){
+        this(httpClient, requestTimeout, eventApiTemplate, null);
+    }
+
+    /**
+     * @param httpClient       client to send requests with
+     * @param requestTimeout   timeout for each request, until the response headers arrive
+     * @param eventApiTemplate events endpoint with a %s placeholder for the username
+     * @param cache            conditional request cache, or null to always fetch full responses
+     */
+    public GItHubAPI(HttpClient httpClient, Duration requestTimeout, String eventApiTemplate,
+                     ConditionalRequestCache cache){
+        this(httpClient, requestTimeout, eventApiTemplate, cache, new RateLimitScheduler());
+    }
+
+    /**
+     * @param httpClient       client to send requests with
+     * @param requestTimeout   timeout for each request, until the response headers arrive
+     * @param eventApiTemplate events endpoint with a %s placeholder for the username
+     * @param cache            conditional request cache, or null to always fetch full responses
+     * @param scheduler        request pacing and retry policy, or null to send every request exactly once
+     */
+    public GItHubAPI(HttpClient httpClient, Duration requestTimeout, String eventApiTemplate,
+                     ConditionalRequestCache cache, RateLimitScheduler scheduler){
+        this(httpClient, requestTimeout, eventApiTemplate, cache, scheduler, null);
+    }
+
+    /**
+     * @param metrics metrics that responses are counted in, also used by the services built on this client; or null
+     * @see #GItHubAPI(HttpClient, Duration, String, ConditionalRequestCache, RateLimitScheduler)
+     */
+    public GItHubAPI(HttpClient httpClient, Duration requestTimeout, String eventApiTemplate,
+                     ConditionalRequestCache cache, RateLimitScheduler scheduler, PipelineMetrics metrics){
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.eventApiTemplate = eventApiTemplate;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics this client counts responses in, or null
+     */
+    public PipelineMetrics getMetrics(){
+        return metrics;
+    }
+
+    private static HttpClient newHttpClient(Duration connectTimeout, Executor executor){
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
     /**
      * Fetches recent public events for the specified GitHub username.
      *
@@ -26,26 +175,250 @@ public class GItHubAPI {
      * @throws RuntimeException if the user is not found, response is invalid, or network fails
      */
     public String getGitHubEvents(String userName){
-        HttpClient httpClient = HttpClient.newHttpClient();
+        return checkSuccess(userName, fetchGitHubEvents(userName)).body();
+    }
 
-        HttpRequest httpRequest = HttpRequest.newBuilder()
-                .uri(URI.create(String.format(GITHUB_EVENT_API,userName)))
-                .GET()
-                .build();
+    /**
+     * Returns the response if it is a 200, otherwise throws the same errors as {@link #getGitHubEvents(String)}.
+     *
+     * @param userName GitHub username the response was fetched for
+     * @param response response to check
+     * @return the response itself
+     * @throws GitHubUserNotFoundException if the user is not found
+     * @throws RuntimeException if the status is not 200
+     */
+    public GitHubResponse checkSuccess(String userName, GitHubResponse response){
+        int statusCode = response.statusCode();
+        String responseBody = response.body();
+
+        if (statusCode == 404 && responseBody.contains("\"message\":\"Not Found\"")) {
+            throw new GitHubUserNotFoundException(userName);
+        } else if ((statusCode == 403 || statusCode == 429)
+                && response.headers().firstValueAsLong("X-RateLimit-Remaining").orElse(-1) == 0) {
+            String reset = response.headers().firstValue("X-RateLimit-Reset")
+                    .map(epochSeconds -> " until " + Instant.ofEpochSecond(Long.parseLong(epochSeconds)))
+                    .orElse("");
+            throw new RuntimeException("GitHub API rate limit exceeded" + reset + ".");
+        } else if (statusCode != 200) {
+            throw new RuntimeException("Failed with status " + statusCode + ": " + responseBody);
+        }
+        return response;
+    }
+
+    /**
+     * Fetches the events endpoint for the specified username and returns the raw response,
+     * whatever its status, together with its byte and time breakdown.
+     *
+     * @param userName GitHub username for which to retrieve event activity
+     * @return the response with its decoded body and {@link GitHubResponse.FetchStats}
+     * @throws RuntimeException if the network fails or the request is interrupted
+     */
+    public GitHubResponse fetchGitHubEvents(String userName){
+        return send(URI.create(String.format(eventApiTemplate, userName)));
+    }
+
+    /**
+     * Fetches one page of the events endpoint and returns the raw response, whatever its status.
+     *
+     * @param userName GitHub username for which to retrieve event activity
+     * @param page     1-based page number
+     * @param perPage  number of events per page (GitHub allows at most 100)
+     * @return the response with its decoded body and {@link GitHubResponse.FetchStats}
+     * @throws RuntimeException if the network fails or the request is interrupted
+     */
+    public GitHubResponse fetchGitHubEventsPage(String userName, int page, int perPage){
+        return send(URI.create(String.format(eventApiTemplate, userName) + "?per_page=" + perPage + "&page=" + page));
+    }
+
+    /**
+     * Fetches recent public events for the specified GitHub username and hands each event to
+     * {@code consumer} as soon as it has arrived, while the rest of the body is still being received.
+     * Events are framed from the (decompressed) UTF-8 bytes by a {@link JsonElementFramer} and parsed lazily.
+     * Responses served from the {@link ConditionalRequestCache} are parsed from the cached body.
+     *
+     * @param userName GitHub username for which to retrieve event activity
+     * @param consumer receives each event in API order, on the calling thread
+     * @return the byte and time breakdown of the request
+     * @throws RuntimeException if the user is not found, the response is invalid, the network fails,
+     *                          or the consumer throws; events received before the failure have been consumed
+     */
+    public GitHubResponse.FetchStats streamGitHubEvents(String userName, Consumer<JsonReader> consumer){
+        GitHubResponse response = send(URI.create(String.format(eventApiTemplate, userName)), event -> {
+            consumer.accept(event);
+            return true;
+        });
+        return checkSuccess(userName, response).stats();
+    }
+
+    /**
+     * Polls one page of the user's events for new activity. The request is conditional on {@code etag} alone,
+     * bypassing the {@link ConditionalRequestCache}, so an unchanged page costs a {@code 304} and no parsing.
+     * Otherwise events are handed to {@code consumer} as they arrive until it returns false; the rest of the
+     * body is then neither parsed nor read from the network.
+     *
+     * @param userName GitHub username for which to retrieve event activity
+     * @param page     1-based page number
+     * @param perPage  number of events per page (GitHub allows at most 100)
+     * @param etag     ETag of the previous response for the same page, or null for an unconditional request
+     * @param consumer receives each event in API order (newest first), on the calling thread; returns false to stop
+     * @return the response with an empty body: status 200, or 304 with {@code notModified} set. Its headers
+     *         carry the new {@code ETag} and GitHub's {@code X-Poll-Interval}
+     * @throws RuntimeException if the user is not found, the response is invalid, the network fails,
+     *                          or the consumer throws
+     */
+    public GitHubResponse pollGitHubEvents(String userName, int page, int perPage, String etag,
+                                           Predicate<JsonReader> consumer){
+        URI uri = URI.create(String.format(eventApiTemplate, userName) + "?per_page=" + perPage + "&page=" + page);
+        HttpRequest.Builder requestBuilder = newRequestBuilder(uri);
+        if (etag != null) requestBuilder.header("If-None-Match", etag);
+        GitHubResponse response = send(requestBuilder.build(), null, false, consumer);
+        return response.notModified() ? response : checkSuccess(userName, response);
+    }
+
+    private GitHubResponse send(URI uri){
+        return send(uri, null);
+    }
+
+    // With a consumer, 200 bodies are framed into events as they arrive instead of being returned
+    private GitHubResponse send(URI uri, Predicate<JsonReader> consumer){
+        HttpRequest.Builder requestBuilder = newRequestBuilder(uri);
+        ConditionalRequestCache.Entry cached = cache == null ? null : cache.lookup(uri);
+        if (cached != null) {
+            if (cached.etag() != null) requestBuilder.header("If-None-Match", cached.etag());
+            if (cached.lastModified() != null) requestBuilder.header("If-Modified-Since", cached.lastModified());
+        }
+        return send(requestBuilder.build(), cached, cache != null, consumer);
+    }
+
+    private HttpRequest.Builder newRequestBuilder(URI uri){
+        return HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/vnd.github+json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+    }
+
+    private GitHubResponse send(HttpRequest httpRequest, ConditionalRequestCache.Entry cached, boolean store,
+                                Predicate<JsonReader> consumer){
+        // Waiting for the rate limit counts as fetching too
+        Stage previous = PipelineMetrics.enter(Stage.FETCH);
         try {
-            HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-            int statusCode = response.statusCode();
-            String responseBody = response.body();
-
-            if (statusCode == 404 && responseBody.contains("\"message\":\"Not Found\"")) {
-                throw new RuntimeException("User '" + userName + "' does not exist on GitHub.");
-            } else if (statusCode != 200) {
-                throw new RuntimeException("Failed with status " + statusCode + ": " + responseBody);
-            }
-            return responseBody;
-        } catch (IOException | InterruptedException e) {
+            if (scheduler == null) return exchange(httpRequest, cached, store, consumer);
+            return scheduler.execute(() -> exchange(httpRequest, cached, store, consumer));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
+    }
+
+    // store: whether a complete 200 body goes into the conditional request cache
+    private GitHubResponse exchange(HttpRequest httpRequest, ConditionalRequestCache.Entry cached, boolean store,
+                                    Predicate<JsonReader> consumer) throws IOException, InterruptedException {
+        URI uri = httpRequest.uri();
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        long timeToHeaders = System.nanoTime() - start;
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (response.statusCode() == 200 && consumer != null) {
+            return streamEvents(response, gzip, start, timeToHeaders, store, consumer);
+        }
+        byte[] body;
+        CountingInputStream wire = new CountingInputStream(response.body());
+        try (InputStream in = gzip ? new GZIPInputStream(wire, 8192) : wire) {
+            body = in.readAllBytes();
+        }
+        GitHubResponse.FetchStats stats = new GitHubResponse.FetchStats(uri, wire.count, body.length, gzip,
+                timeToHeaders, System.nanoTime() - start);
+        if (metrics != null) metrics.addResponse(wire.count, body.length);
+        if (response.statusCode() == 304 && cached != null) {
+            if (consumer != null) {
+                for (JsonReader event : (Iterable<JsonReader>) STREAMING_HANDLER.streamJsonData(cached.body())::iterator) {
+                    if (!consumer.test(event)) break;
+                }
+            }
+            return new GitHubResponse(200, response.headers(), cached.body(), stats, true);
+        }
+        if (response.statusCode() == 304) {
+            // A conditional request of the caller's own, such as a poll: nothing to serve
+            return new GitHubResponse(304, response.headers(), "", stats, true);
+        }
+        String responseBody = new String(body, StandardCharsets.UTF_8);
+        if (response.statusCode() == 200 && store) {
+            store(uri, response.headers(), responseBody);
+        }
+        return new GitHubResponse(response.statusCode(), response.headers(), responseBody, stats, false);
+    }
+
+    // Feeds the body to a framer chunk by chunk; the returned response has an empty body.
+    // Once the consumer stops the framer, the body stream is closed without reading the rest.
+    private GitHubResponse streamEvents(HttpResponse<InputStream> response, boolean gzip, long start,
+                                        long timeToHeaders, boolean store, Predicate<JsonReader> consumer){
+        JsonElementFramer framer = STREAMING_HANDLER.newElementFramerWhile(consumer);
+        // Only kept when the body has to be stored in the conditional request cache
+        ByteArrayOutputStream copy = store ? new ByteArrayOutputStream() : null;
+        byte[] buffer = new byte[STREAM_CHUNK_SIZE];
+        long bodyBytes = 0;
+        CountingInputStream wire = new CountingInputStream(response.body());
+        try (InputStream in = gzip ? new GZIPInputStream(wire, 8192) : wire) {
+            int n;
+            while (!framer.isStopped() && (n = in.read(buffer)) >= 0) {
+                // Events completed by the chunk are parsed and consumed before the next one is read
+                PipelineMetrics.enter(Stage.PARSE);
+                framer.feed(ByteBuffer.wrap(buffer, 0, n));
+                PipelineMetrics.enter(Stage.FETCH);
+                if (copy != null) copy.write(buffer, 0, n);
+                bodyBytes += n;
+            }
+        } catch (IOException e) {
+            // Not retried: the events received so far have already been consumed
+            throw new UncheckedIOException("Event stream failed after " + framer.getElementCount() + " events", e);
+        }
+        PipelineMetrics.enter(Stage.PARSE);
+        framer.finish();
+        PipelineMetrics.enter(Stage.FETCH);
+        URI uri = response.request().uri();
+        // A stopped body is incomplete and must not be cached
+        if (copy != null && !framer.isStopped()) {
+            store(uri, response.headers(), copy.toString(StandardCharsets.UTF_8));
+        }
+        GitHubResponse.FetchStats stats = new GitHubResponse.FetchStats(uri, wire.count, bodyBytes, gzip,
+                timeToHeaders, System.nanoTime() - start);
+        if (metrics != null) metrics.addResponse(wire.count, bodyBytes);
+        return new GitHubResponse(200, response.headers(), "", stats, false);
+    }
+
+    private void store(URI uri, HttpHeaders headers, String body){
+        cache.store(uri, new ConditionalRequestCache.Entry(headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null), body));
+    }
+
+    // Counts the bytes read from the network, before any decompression
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in){
+            super(in);
         }
 
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
     }
 }
@@ -1,21 +1,85 @@
 package org.tommy;
 
+import org.tommy.event.GitHubEvent;
+import org.tommy.event.GitHubEvent.*;
+import org.tommy.event.GitHubEventDecoder;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
 import org.tommy.model.JsonReader;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+
+import static org.tommy.ActivityTemplate.*;
 
 /**
  * Formats GitHub event data into human-readable strings.
  * <p>
  * This class maps different event types from the GitHub API
  * into string representations suitable for display.
- * Each supported event type has a corresponding formatter method.
+ * Events are first bound to typed {@link GitHubEvent} records by {@link GitHubEventDecoder},
+ * and each supported record type has a precompiled {@link ActivityTemplate} that writes its line
+ * straight into an {@link Appendable}. The {@code String} methods are thin wrappers over that path.
+ * Decoding and formatting {@link JsonReader} events are charged to the {@link Stage#FORMAT} stage of the
+ * calling thread's {@link PipelineMetrics} run.
  */
 
 public class GitHubEventActivityFormatter {
 
+    private static final ActivityTemplate<MemberEventRecord> MEMBER = ActivityTemplate.of(
+            "Added {} as a collaborator to {}", text(MemberEventRecord::member), text(MemberEventRecord::repo));
+    private static final ActivityTemplate<ForkEventRecord> FORK = ActivityTemplate.of(
+            "Forked {} -> {}", text(ForkEventRecord::forkee), text(ForkEventRecord::repo));
+    private static final ActivityTemplate<CommitCommentEventRecord> COMMIT_COMMENT = ActivityTemplate.of(
+            "Commented on commit {} in {}", prefix(CommitCommentEventRecord::commitId, 6),
+            text(CommitCommentEventRecord::repo));
+    private static final ActivityTemplate<IssueCommentEventRecord> ISSUE_COMMENT = ActivityTemplate.of(
+            "{} a comment on {} #{} in {}", text(IssueCommentEventRecord::action),
+            text(e -> e.pullRequest() ? "pull request" : "issue"), number(IssueCommentEventRecord::number),
+            text(IssueCommentEventRecord::repo));
+    private static final ActivityTemplate<PublicEventRecord> PUBLIC = ActivityTemplate.of(
+            "Made {} public", upperCase(PublicEventRecord::repo));
+    private static final ActivityTemplate<PullRequestReviewEventRecord> PULL_REQUEST_REVIEW = ActivityTemplate.of(
+            "{} on PR {} in {}", text(PullRequestReviewEventRecord::state),
+            number(PullRequestReviewEventRecord::number), text(PullRequestReviewEventRecord::repo));
+    private static final ActivityTemplate<PullRequestReviewCommentEventRecord> PULL_REQUEST_REVIEW_COMMENT =
+            ActivityTemplate.of("{} on PR {} in {}", text(e -> e.edited() ? "Edited" : "Added"),
+                    number(PullRequestReviewCommentEventRecord::number), text(PullRequestReviewCommentEventRecord::repo));
+    private static final ActivityTemplate<PushEventRecord> PUSH = ActivityTemplate.of(
+            "Pushed {} commits to {}", number(PushEventRecord::distinctSize), text(PushEventRecord::repo));
+    private static final ActivityTemplate<ReleaseEventRecord> RELEASE = ActivityTemplate.of(
+            "{} a release {} in {}", text(ReleaseEventRecord::action), text(ReleaseEventRecord::release),
+            text(ReleaseEventRecord::repo));
+    private static final ActivityTemplate<SponsorshipEventRecord> SPONSORSHIP_TIER_CHANGE = ActivityTemplate.of(
+            "requested a tier change for sponsorship to sponsorable {}", text(SponsorshipEventRecord::sponsorable));
+    private static final ActivityTemplate<SponsorshipEventRecord> SPONSORSHIP = ActivityTemplate.of(
+            "{} a sponsorship for {}", text(SponsorshipEventRecord::action), text(SponsorshipEventRecord::sponsorable));
+    private static final ActivityTemplate<WatchEventRecord> WATCH = ActivityTemplate.of(
+            "starred {}", text(WatchEventRecord::repo));
+    private static final ActivityTemplate<DeleteEventRecord> DELETE = ActivityTemplate.of(
+            "Deleted {} {} from {}", text(DeleteEventRecord::refType), text(DeleteEventRecord::ref),
+            text(DeleteEventRecord::repo));
+    // ref is null when a repository (rather than a branch or tag) was created
+    private static final ActivityTemplate<CreateEventRecord> CREATE_REPOSITORY = ActivityTemplate.of(
+            "Created {} {}", text(CreateEventRecord::refType), text(CreateEventRecord::repo));
+    private static final ActivityTemplate<CreateEventRecord> CREATE = ActivityTemplate.of(
+            "Created {} {} in {}", text(CreateEventRecord::refType), upperCase(CreateEventRecord::ref),
+            text(CreateEventRecord::repo));
+    private static final ActivityTemplate<IssuesEventRecord> ISSUES = ActivityTemplate.of(
+            "{} issue #{} '{}' in {}", text(IssuesEventRecord::action), number(IssuesEventRecord::number),
+            text(IssuesEventRecord::title), text(IssuesEventRecord::repo));
+    // The repository is appended after each page line by the Gollum formatter
+    private static final ActivityTemplate<WikiPage> WIKI_PAGE = ActivityTemplate.of(
+            "{} wiki page \"{}\" in ", text(WikiPage::action), text(WikiPage::pageName));
+    private static final ActivityTemplate<PullRequestEventRecord> PULL_REQUEST = ActivityTemplate.of(
+            "{} pull request #{} '{}' in {}", text(PullRequestEventRecord::action),
+            number(PullRequestEventRecord::number), text(PullRequestEventRecord::title),
+            text(PullRequestEventRecord::repo));
+
+    private final GitHubEventDecoder decoder = new GitHubEventDecoder();
+
     /**
      * Accepts a list of {@link JsonReader} representing GitHub event data and formats each
      * event into a user-friendly string based on the event type.
@@ -28,174 +92,114 @@ public class GitHubEventActivityFormatter {
     public List<String> formatEvents(List<JsonReader> jsonDataList){
         List<String> formattedEvents = new ArrayList<>();
         for(JsonReader jsonData: jsonDataList){
-            String type = jsonData.getValueForKey("type");
-            switch (type){
-                case "IssueCommentEvent" ->
-                    formattedEvents.add(issueCommentEventFormatter(jsonData));
-                case "CommitCommentEvent" ->
-                    formattedEvents.add(commitCommentEventFormatter(jsonData));
-                case "ForkEvent" ->
-                    formattedEvents.add(forkEventFormatter(jsonData));
-                case "MemberEvent" ->
-                    formattedEvents.add(memberEventFormatter(jsonData));
-                case "PublicEvent" ->
-                    formattedEvents.add(publicEventFormatter(jsonData));
-                case "PullRequestReviewEvent" ->
-                    formattedEvents.add(pullRequestReviewEventFormatter(jsonData));
-                case "PullRequestReviewCommentEvent" ->
-                    formattedEvents.add(pullRequestReviewCommentEventFormatter(jsonData));
-                case "PushEvent" ->
-                    formattedEvents.add(pushEventFormatter(jsonData));
-                case "ReleaseEvent" ->
-                    formattedEvents.add(releaseEventFormatter(jsonData));
-                case "SponsorshipEvent" ->
-                    formattedEvents.add(sponsorshipEventFormatter(jsonData));
-                case "WatchEvent" ->
-                    formattedEvents.add(watchEventFormatter(jsonData));
-                case "DeleteEvent" ->
-                    formattedEvents.add(deleteEventFormatted(jsonData));
-                case "CreateEvent" ->
-                    formattedEvents.add(createEventFormatter(jsonData));
-                case "IssuesEvent" ->
-                    formattedEvents.add(issuesEventFormatter(jsonData));
-                case "GollumEvent" ->
-                    formattedEvents.add(gollumEventFormatter(jsonData));
-                case "PullRequestEvent" ->
-                    formattedEvents.add(pullRequestEventFormatter(jsonData));
-                default ->
-                    throw new IllegalArgumentException("Unsupported GitHub event type: " + type);
-
-
-            }
+            formattedEvents.add(formatEvent(jsonData));
         }
         return formattedEvents;
     }
 
-    // Individual formatter methods for supported event types.
-    // Each method below extracts relevant fields and returns a descriptive string.
-
-    private String memberEventFormatter(JsonReader readerData){
-        String member = readerData.getValueForKey("payload.member.login");
-        String repo = readerData.getValueForKey("repo.name");
-        return String.format("Added %s as a collaborator to %s", member, repo);
-    }
-
-    private String forkEventFormatter(JsonReader readerData) {
-        String source = readerData.getValueForKey("payload.forkee.full_name");
-        String destination = readerData.getValueForKey("repo.name");
-        return String.format("Forked %s -> %s",source,destination);
-    }
-
-    private String commitCommentEventFormatter(JsonReader readerData) {
-        String commitId =  readerData.getValueForKey("payload.comment.commitId");
-        commitId = commitId.substring(0,6);
-        String repo = readerData.getValueForKey("repo.name");
-        return String.format("Commented on commit %s in %s", commitId, repo);
-    }
-
-    private String issueCommentEventFormatter(JsonReader readerData){
-        long issueNumber = readerData.getValueForKey("payload.issue.number");
-        String repo = readerData.getValueForKey("repo.name");
-        Map<String, Object> issueData= readerData.getValueForKey("payload.issue");
-        String ref = "issue";
-        String action = readerData.getValueForKey("payload.action");
-        if(issueData.containsKey("pull_request")){
-            ref = "pull request";
+    /**
+     * Formats a single GitHub event into a user-friendly string based on the event type.
+     * Used by the streaming path so each event can be printed as soon as it is parsed.
+     *
+     * @param jsonData Parsed GitHub event data
+     * @return The formatted event description
+     * @throws IllegalArgumentException if an unsupported event type is encountered
+     */
+    public String formatEvent(JsonReader jsonData){
+        Stage previous = PipelineMetrics.enter(Stage.FORMAT);
+        try {
+            return formatEvent(decoder.decode(jsonData));
+        } finally {
+            PipelineMetrics.enter(previous);
         }
-        return String.format("%s a comment on %s #%d in %s", action,ref, issueNumber, repo);
-    }
-
-    private String publicEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        return String.format("Made %S public",repo);
-    }
-
-    private String pullRequestReviewEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        String action = readerData.getValueForKey("payload.review.state");
-        long prId = readerData.getValueForKey("payload.pull_request.number");
-        return String.format("%s on PR %d in %s",action, prId, repo);
-    }
-
-    private String pullRequestReviewCommentEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        Map<String, Object> payload = readerData.getValueForKey("payload");
-        String action = "Added";
-        long prId = readerData.getValueForKey("payload.pull_request.number");
-        if(payload.containsKey("changes")) action = "Edited";
-        return String.format("%s on PR %d in %s",action, prId, repo);
-    }
-
-    private String pushEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        long commits = readerData.getValueForKey("payload.distinct_size");
-        return String.format("Pushed %d commits to %s", commits, repo);
-    }
-
-    private String releaseEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        String action = readerData.getValueForKey("payload.action");
-        String release = readerData.getValueForKey("payload.release.name");
-        return String.format("%s a release %s in %s", action, release, repo);
     }
 
-    private String sponsorshipEventFormatter(JsonReader readerData){
-        String action = readerData.getValueForKey("payload.action");
-        String sponsorable = readerData.getValueForKey("payload.sponsorable.login");
-        if(action.equals("pending_tier_change")){
-            return String.format("requested a tier change for sponsorship to sponsorable %s", sponsorable);
+    /**
+     * Formats a typed GitHub event record into a user-friendly string.
+     *
+     * @param event Decoded GitHub event
+     * @return The formatted event description
+     */
+    public String formatEvent(GitHubEvent event){
+        StringBuilder line = new StringBuilder(64);
+        try {
+            appendEvent(event, line);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
         }
-        return String.format("%s a sponsorship for %s", action, sponsorable);
-    }
-
-    private String watchEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        return String.format("starred %s", repo);
-    }
-
-    private String deleteEventFormatted(JsonReader readerData){
-        String ref_type = readerData.getValueForKey("payload.ref_type");
-        String ref = readerData.getValueForKey("payload.ref");
-        String repo = readerData.getValueForKey("repo.name");
-        return String.format("Deleted %s %s from %s", ref_type, ref, repo);
+        return line.toString();
     }
 
-    private String createEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        String ref = readerData.getValueForKey("payload.ref");
-        String ref_type = readerData.getValueForKey("payload.ref_type");
-        if(ref == null)
-            return String.format("Created %s %s", ref_type, repo);
-        return String.format("Created %s %S in %s", ref_type, ref, repo);
+    /**
+     * Writes each event's description followed by a line separator to {@code out}, in list order.
+     * Nothing is buffered here, so pass a buffered writer when writing to a stream.
+     *
+     * @param jsonDataList List of parsed GitHub event data
+     * @param out          Destination of the formatted lines
+     * @throws IOException if writing to {@code out} fails
+     * @throws IllegalArgumentException if an unsupported event type is encountered
+     */
+    public void formatEvents(List<JsonReader> jsonDataList, Appendable out) throws IOException {
+        for(JsonReader jsonData: jsonDataList){
+            appendEvent(jsonData, out);
+            out.append(System.lineSeparator());
+        }
     }
 
-    private String issuesEventFormatter(JsonReader readerData){
-        String repo = readerData.getValueForKey("repo.name");
-        String action = readerData.getValueForKey("payload.action");
-        long issueNumber = readerData.getValueForKey("payload.issue.number");
-        String issue = readerData.getValueForKey("payload.issue.title");
-        return String.format("%s issue #%d '%s' in %s", action, issueNumber, issue, repo);
+    /**
+     * Appends a single event's description, without a line separator, to {@code out}.
+     *
+     * @param jsonData Parsed GitHub event data
+     * @param out      Destination of the formatted description
+     * @throws IOException if writing to {@code out} fails
+     * @throws IllegalArgumentException if an unsupported event type is encountered
+     */
+    public void appendEvent(JsonReader jsonData, Appendable out) throws IOException {
+        Stage previous = PipelineMetrics.enter(Stage.FORMAT);
+        try {
+            appendEvent(decoder.decode(jsonData), out);
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
     }
 
-    private String gollumEventFormatter(JsonReader readerData) {
-        String repo = readerData.getValueForKey("repo.name");
-        List<Map<String, Object>> pages = readerData.getValueForKey("payload.pages");
-        List<String> pageEvents = new ArrayList<>();
-
-        for (Map<String, Object> page : pages) {
-            String action = (String) page.get("action");
-            String pageName = (String) page.get("page_name");
-            pageEvents.add(String.format("%s wiki page \"%s\" in %s", action, pageName, repo));
+    /**
+     * Appends a typed event's description, without a line separator, to {@code out}.
+     *
+     * @param event Decoded GitHub event
+     * @param out   Destination of the formatted description
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void appendEvent(GitHubEvent event, Appendable out) throws IOException {
+        switch (event){
+            case IssueCommentEventRecord e -> ISSUE_COMMENT.appendTo(out, e);
+            case CommitCommentEventRecord e -> COMMIT_COMMENT.appendTo(out, e);
+            case ForkEventRecord e -> FORK.appendTo(out, e);
+            case MemberEventRecord e -> MEMBER.appendTo(out, e);
+            case PublicEventRecord e -> PUBLIC.appendTo(out, e);
+            case PullRequestReviewEventRecord e -> PULL_REQUEST_REVIEW.appendTo(out, e);
+            case PullRequestReviewCommentEventRecord e -> PULL_REQUEST_REVIEW_COMMENT.appendTo(out, e);
+            case PushEventRecord e -> PUSH.appendTo(out, e);
+            case ReleaseEventRecord e -> RELEASE.appendTo(out, e);
+            case SponsorshipEventRecord e -> ("pending_tier_change".equals(e.action())
+                    ? SPONSORSHIP_TIER_CHANGE : SPONSORSHIP).appendTo(out, e);
+            case WatchEventRecord e -> WATCH.appendTo(out, e);
+            case DeleteEventRecord e -> DELETE.appendTo(out, e);
+            case CreateEventRecord e -> (e.ref() == null ? CREATE_REPOSITORY : CREATE).appendTo(out, e);
+            case IssuesEventRecord e -> ISSUES.appendTo(out, e);
+            case GollumEventRecord e -> appendGollumEvent(e, out);
+            case PullRequestEventRecord e -> PULL_REQUEST.appendTo(out, e);
         }
-
-        return String.join("\n", pageEvents);
     }
 
-    private String pullRequestEventFormatter(JsonReader readerData) {
-        String repo = readerData.getValueForKey("repo.name");
-        String action = readerData.getValueForKey("payload.action");
-        long prNumber = readerData.getValueForKey("payload.pull_request.number");
-        String title = readerData.getValueForKey("payload.pull_request.title");
-        return String.format("%s pull request #%d '%s' in %s", action, prNumber, title, repo);
+    // A Gollum event lists one line per wiki page, all in the same repository
+    private void appendGollumEvent(GollumEventRecord event, Appendable out) throws IOException {
+        List<WikiPage> pages = event.pages();
+        for(int i = 0; i < pages.size(); i++){
+            if(i > 0) out.append('\n');
+            WIKI_PAGE.appendTo(out, pages.get(i));
+            appendText(out, event.repo());
+        }
     }
 }
@@ -4,10 +4,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 
-// NOTE: Currently unused. This enum can be utilized in the future if we implement an Event class
-// to represent GitHub activities in a structured form.
-
-
 /**
  * Enum representing supported GitHub event types, each associated with:
  * - Its actual GitHub event type string (as received from the GitHub API)
@@ -0,0 +1,38 @@
+package org.tommy;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+
+/**
+ * A raw response from the GitHub REST API, with the decoded body and per-request diagnostics.
+ *
+ * @param statusCode HTTP status code
+ * @param headers    response headers
+ * @param body       response body, decompressed and decoded as UTF-8
+ * @param stats      byte and time breakdown of the request
+ * @param notModified true if GitHub answered 304 Not Modified. If the body was served from the
+ *                    {@link ConditionalRequestCache} the status code is then reported as 200, otherwise
+ *                    (e.g. for {@link GItHubAPI#pollGitHubEvents polls}) as 304 with an empty body
+ */
+public record GitHubResponse(int statusCode, HttpHeaders headers, String body, FetchStats stats, boolean notModified) {
+
+    /**
+     * Byte and time breakdown of a single request.
+     *
+     * @param uri               requested URI
+     * @param wireBytes         body bytes received over the network (compressed size if gzip was used)
+     * @param bodyBytes         body bytes after decompression
+     * @param gzip              whether the body was gzip-compressed
+     * @param timeToHeadersNanos time from sending the request until the response headers arrived
+     * @param totalNanos        time from sending the request until the body was fully read
+     */
+    public record FetchStats(URI uri, long wireBytes, long bodyBytes, boolean gzip,
+                             long timeToHeadersNanos, long totalNanos) {
+
+        @Override
+        public String toString(){
+            return String.format("%s: %d bytes on the wire, %d bytes decoded%s, headers after %.1f ms, total %.1f ms",
+                    uri, wireBytes, bodyBytes, gzip ? " (gzip)" : "", timeToHeadersNanos / 1e6, totalNanos / 1e6);
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package org.tommy;
 
-import org.tommy.model.JsonReader;
-import org.tommy.model.JsonDataHandler;
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.sink.ActivitySink;
+import org.tommy.sink.BufferedChannelWriter;
+import org.tommy.store.EventStore;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -11,44 +24,383 @@ import java.util.List;
  *
  * It validates the username, makes an API call to fetch public events,
  * parses the returned JSON, and formats the activity output.
+ * Given several usernames (or a file of usernames) it runs in batch mode, see {@link BatchActivityRunner}.
+ * Given GH Archive files it reads the activity from them instead, see {@link ArchiveIngester}.
+ * With a store directory, fetched events are also kept in an {@link EventStore}, and history mode
+ * prints a user's stored events without calling the API.
+ * Watch mode keeps polling the given users and prints their new events, see {@link ActivityWatcher}.
+ * Server mode answers activity lookups over HTTP, see {@link ActivityServer}.
+ * With --stats, the fetch, parse and format stages are timed by {@link PipelineMetrics} and summarised at the end.
+ * With --format, single-user and batch mode write machine-readable records to an {@link ActivitySink} instead of lines.
+ * Every mode only shows the events an {@link EventFilter} keeps, and reports what it left out on standard error.
  */
 
 public class GitHubUserActivity {
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final String INVALID_USERNAME_MESSAGE = """
+            Please provide a valid username
+            Github username may only contain alphanumeric characters or hyphens.
+            Github username cannot have multiple consecutive hyphens.
+            Github username cannot begin or end with a hyphen.
+            """;
+
     /**
      * Retrieves GitHub activity for the given username, validates it, fetches events from the GitHub API,
      * parses the events into structured JSON objects, formats them, and prints them to the console.
      *
-     * @param args Command-line arguments; expects the first argument to be a valid GitHub username.
+     * @param args Command-line arguments; expects a valid GitHub username, or several usernames and options
+     *             for batch mode (see {@link CommandLineOptions}).
      */
-    @SuppressWarnings("unchecked")
     public void getGitHubUserActivity(String[] args){
-        if(args.length==0 || !GitHubUserNameValidator.isValidUserName(args[0])){
-            String message = """
-                    Please provide a valid username
-                    Github username may only contain alphanumeric characters or hyphens.
-                    Github username cannot have multiple consecutive hyphens.
-                    Github username cannot begin or end with a hyphen.
-                    """;
-            System.out.println(message);
-            System.exit(1);
-        }
-        String userName = args[0];
-        GItHubAPI gItHubAPI = new GItHubAPI();
-        try{
-            String json = gItHubAPI.getGitHubEvents(userName);
-            JsonDataHandler jsonDataHandler = new JsonDataHandler();
-            List<JsonReader> jsonReaderList =  (List<JsonReader>)jsonDataHandler.extractJsonData(json);
-            GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
-            List<String> list = formatter.formatEvents(jsonReaderList);
-            list.forEach(System.out::println);
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if(options.isHistory()){
+            runHistory(options);
+            return;
+        }
+        if(options.isArchive()){
+            runArchive(options);
+            return;
+        }
+        if(options.isWatch()){
+            runWatch(options);
+            return;
+        }
+        if(options.isServe()){
+            runServer(options);
+            return;
+        }
+        if(options.getFormat() != null){
+            runSink(options);
+            return;
+        }
+        if(options.isBatch()){
+            runBatch(options);
+            return;
+        }
+        List<String> userNames = options.getUserNames();
+        if(userNames.isEmpty() || !GitHubUserNameValidator.isValidUserName(userNames.get(0))){
+            System.out.println(INVALID_USERNAME_MESSAGE);
+            System.exit(1);
+        }
+        String userName = userNames.get(0);
+        ActivityAggregate aggregate = options.isSummary() ? new ActivityAggregate() : null;
+        boolean failed = false;
+        Writer out = null;
+        try (EventStore eventStore = openStore(options)) {
+            out = openTextOutput(options);
+            ActivityService activityService = createActivityService(options, eventStore);
+            activityService.writeActivity(userName, out, aggregate);
+            if(aggregate != null) aggregate.report(out, ActivityAggregate.DEFAULT_REPORT_TOP);
+            if(options.getOutFile() != null) out.close();
+            else out.flush();
+            reportFilter(activityService.getFilter());
+            reportStats(options, activityService.getMetrics(), System.out);
+        } catch (RuntimeException | IOException e) {
+            if(out != null) flushQuietly(out);
+            System.out.println(e.getMessage());
+            failed = true;
+        }
+        // Exits only once the store is closed, so the events fetched so far are kept
+        if(failed) System.exit(1);
+
+
+    }
+
+    // Lines are formatted straight into one buffer instead of flushing System.out per line
+    private static Writer openTextOutput(CommandLineOptions options){
+        Path file = options.getOutFile();
+        if(file == null) return new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), OUTPUT_BUFFER_SIZE);
+        try {
+            return Files.newBufferedWriter(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open output file " + file, e);
+        }
+    }
 
+    private static void flushQuietly(Writer out){
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+            // Reporting the original error matters more than the lines that could not be written
+        }
+    }
+
+    private void runArchive(CommandLineOptions options){
+        List<String> userNames = options.getUserNames();
+        if(userNames.isEmpty() || !userNames.stream().allMatch(GitHubUserNameValidator::isValidUserName)){
+            System.out.println(INVALID_USERNAME_MESSAGE);
+            System.exit(1);
+        }
+        EventFilter filter = options.newEventFilter();
+        ArchiveIngester ingester = new ArchiveIngester(userNames, options.getConcurrency(),
+                ArchiveIngester.DEFAULT_BUFFER_SIZE, filter);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), OUTPUT_BUFFER_SIZE);
+        ActivityAggregate aggregate = options.isSummary() ? new ActivityAggregate() : null;
+        try {
+            ArchiveIngester.ArchiveSummary summary = ingester.ingest(options.getArchiveFiles(), out, aggregate);
+            if(aggregate != null) aggregate.report(out, ActivityAggregate.DEFAULT_REPORT_TOP);
+            out.flush();
+            System.out.println(summary);
+            reportFilter(filter);
+        } catch (RuntimeException | IOException e) {
+            flushQuietly(out);
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void runHistory(CommandLineOptions options){
+        List<String> userNames = options.getUserNames();
+        if(userNames.size() != 1 || !GitHubUserNameValidator.isValidUserName(userNames.get(0))){
+            System.out.println(INVALID_USERNAME_MESSAGE);
+            System.exit(1);
+        }
+        GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+        EventFilter filter = options.newEventFilter();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), OUTPUT_BUFFER_SIZE);
+        boolean failed = false;
+        try (EventStore eventStore = openStore(options)) {
+            String lineSeparator = System.lineSeparator();
+            for(EventStore.StoredEvent event : eventStore.query(userNames.get(0), options.getSince(), options.getUntil())){
+                if(filter.check(event.event(), event.createdAt()) != EventFilter.Outcome.MATCHED) continue;
+                formatter.appendEvent(event.event(), out);
+                out.append(lineSeparator);
+            }
+            out.flush();
+            reportFilter(filter);
+        } catch (RuntimeException | IOException e) {
+            flushQuietly(out);
+            System.out.println(e.getMessage());
+            failed = true;
+        }
+        if(failed) System.exit(1);
+    }
+
+    // Returns null when no store was requested
+    private static EventStore openStore(CommandLineOptions options){
+        if(options.getStoreDir() == null) return null;
+        EventStore eventStore = new EventStore(options.getStoreDir());
+        if(!eventStore.getRecovery().isClean()) System.err.println(eventStore.getRecovery());
+        return eventStore;
+    }
+
+    private void runWatch(CommandLineOptions options){
+        List<String> userNames = readUserNames(options);
+        if(userNames.isEmpty()){
+            System.out.println(INVALID_USERNAME_MESSAGE);
+            System.exit(1);
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), OUTPUT_BUFFER_SIZE);
+        boolean failed = false;
+        try (EventStore eventStore = openStore(options)) {
+            GItHubAPI gItHubAPI = createGitHubAPI(options);
+            // Watching only ends when the process is stopped
+            if(gItHubAPI.getMetrics() != null){
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> reportStatsQuietly(options, gItHubAPI.getMetrics())));
+            }
+            EventFilter filter = options.newEventFilter();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> reportFilter(filter)));
+            ActivityWatcher watcher = new ActivityWatcher(gItHubAPI, out, ActivityWatcher.DEFAULT_PAGE_SIZE,
+                    ActivityWatcher.DEFAULT_POLL_INTERVAL, eventStore, filter);
+            watcher.run(userNames);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | IOException e) {
+            flushQuietly(out);
+            System.out.println(e.getMessage());
+            failed = true;
+        }
+        if(failed) System.exit(1);
+    }
+
+    // Returns once the server is listening; it keeps the JVM alive until the process is stopped
+    private void runServer(CommandLineOptions options){
+        EventStore eventStore = openStore(options);
+        ActivityService activityService;
+        ActivityServer server;
+        try {
+            activityService = createActivityService(options, eventStore);
+            server = new ActivityServer(activityService, new InetSocketAddress(options.getServePort()));
         } catch (RuntimeException e) {
+            if(eventStore != null) eventStore.close();
             System.out.println(e.getMessage());
             System.exit(1);
+            return;
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if(eventStore != null) eventStore.close();
+            reportFilter(activityService.getFilter());
+            reportStatsQuietly(options, activityService.getMetrics());
+        }));
+        server.start();
+        System.out.println("Serving activity on http://localhost:" + server.getPort() + "/users/{name}/activity");
+        if(activityService.getMetrics() != null){
+            System.out.println("Serving stats on http://localhost:" + server.getPort() + "/stats");
+        }
+    }
 
+    // The valid usernames given as arguments, followed by those of the users file, without duplicates;
+    // the names dropped are reported on standard error
+    private static List<String> readUserNames(CommandLineOptions options){
+        UserNameIngester ingester = new UserNameIngester();
+        List<String> arguments = options.getUserNames();
+        for(int i = 0; i < arguments.size(); i++) ingester.add(arguments.get(i), "argument " + (i + 1));
+        if(options.getUsersFile() != null) ingester.read(options.getUsersFile());
+        UserNameIngester.Report report = ingester.getReport();
+        if(report.duplicates() > 0 || report.rejected() > 0) System.err.println(report);
+        return ingester.getUserNames();
+    }
+
+    private void runBatch(CommandLineOptions options){
+        List<String> userNames = readUserNames(options);
+        ActivityAggregate aggregate = options.isSummary() ? new ActivityAggregate() : null;
+        ActivityCache cache = createActivityCache(options);
+        Path file = options.getOutFile();
+        PrintStream out = System.out;
+        boolean failed = false;
+        try {
+            if(file != null) out = openTextStream(file);
+            try (EventStore eventStore = openStore(options)) {
+                ActivityService activityService = createActivityService(options, eventStore, cache);
+                BatchActivityRunner runner = new BatchActivityRunner(activityService, options.getConcurrency(), out, aggregate);
+                BatchActivityRunner.BatchSummary summary = runner.run(userNames);
+                if(aggregate != null) System.out.print(aggregate);
+                System.out.println(summary);
+                reportFilter(activityService.getFilter());
+                if(cache != null) System.out.println(cache.getStats());
+                reportStats(options, activityService.getMetrics(), System.out);
+            }
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+            failed = true;
+        } finally {
+            if(out != System.out) out.close();
+        }
+        if(failed) System.exit(1);
+        // A PrintStream keeps write failures to itself until asked
+        if(out.checkError()){
+            System.out.println("Could not write output file " + file);
+            System.exit(1);
+        }
+    }
+
+    private static PrintStream openTextStream(Path file){
+        try {
+            return new PrintStream(new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE), false,
+                    System.out.charset());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open output file " + file, e);
+        }
+    }
+
+    // Every user goes through the batch runner, which writes their records to the sink and failures to standard error
+    private void runSink(CommandLineOptions options){
+        List<String> userNames = readUserNames(options);
+        if(!options.isBatch() && userNames.isEmpty()){
+            System.out.println(INVALID_USERNAME_MESSAGE);
+            System.exit(1);
+        }
+        // Records on standard output leave it to them, so reports go to standard error
+        PrintStream report = options.getOutFile() == null ? System.err : System.out;
+        ActivityAggregate aggregate = options.isSummary() ? new ActivityAggregate() : null;
+        ActivityCache cache = createActivityCache(options);
+        BatchActivityRunner.BatchSummary summary;
+        PipelineMetrics metrics;
+        EventFilter filter;
+        try (EventStore eventStore = openStore(options); ActivitySink sink = openSink(options)) {
+            ActivityService activityService = createActivityService(options, eventStore, cache);
+            metrics = activityService.getMetrics();
+            filter = activityService.getFilter();
+            summary = new BatchActivityRunner(activityService, options.getConcurrency(), sink, System.err, aggregate)
+                    .run(userNames);
+        } catch (RuntimeException | IOException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if(aggregate != null) report.print(aggregate);
+        if(options.isBatch()) report.println(summary);
+        reportFilter(filter);
+        if(cache != null) report.println(cache.getStats());
+        reportStats(options, metrics, report);
+        if(!options.isBatch() && summary.failed() > 0) System.exit(1);
+    }
+
+    private static ActivitySink openSink(CommandLineOptions options){
+        if(options.getOutFile() != null) return options.getFormat().newSink(BufferedChannelWriter.open(options.getOutFile()));
+        System.out.flush();
+        return options.getFormat().newSink(BufferedChannelWriter.standardOutput());
+    }
+
+    // Reports on standard error what the filter left out, if anything
+    private static void reportFilter(EventFilter filter){
+        EventFilter.Counts counts = filter.getCounts();
+        if(counts.filtered() > 0 || counts.unknownTypes() > 0) System.err.println(counts);
+    }
+
+    // Prints the pipeline summary and writes it to the --stats-json file, if any; does nothing without --stats
+    private static void reportStats(CommandLineOptions options, PipelineMetrics metrics, PrintStream report){
+        if(metrics == null) return;
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        report.println(snapshot);
+        Path file = options.getStatsJsonFile();
+        if(file == null) return;
+        try {
+            Files.writeString(file, snapshot.toJson() + System.lineSeparator());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write stats file " + file, e);
+        }
+    }
+
+    // For shutdown hooks, which have no one to pass a failure to
+    private static void reportStatsQuietly(CommandLineOptions options, PipelineMetrics metrics){
+        try {
+            reportStats(options, metrics, System.out);
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private ActivityService createActivityService(CommandLineOptions options, EventStore eventStore){
+        return createActivityService(options, eventStore, createActivityCache(options));
+    }
+
+    private ActivityService createActivityService(CommandLineOptions options, EventStore eventStore, ActivityCache cache){
+        GItHubAPI gItHubAPI = createGitHubAPI(options);
+        EventFilter filter = options.newEventFilter();
+        if(!options.isPaginated()) return new ActivityService(gItHubAPI, eventStore, cache, filter);
+        return new ActivityService(gItHubAPI, options.getPages(), options.getLimit(), options.getSince(), eventStore,
+                cache, filter);
+    }
+
+    // Returns null unless a memory cache option was given
+    private static ActivityCache createActivityCache(CommandLineOptions options){
+        if(!options.isMemoryCache()) return null;
+        return new ActivityCache(options.getMemoryCacheTtl(), options.getMemoryCacheMaxBytes(), ActivityCache.Contents.BOTH);
+    }
 
+    private GItHubAPI createGitHubAPI(CommandLineOptions options){
+        PipelineMetrics metrics = options.isStats() ? new PipelineMetrics() : null;
+        if(options.getCacheDir() == null) return new GItHubAPI(null, metrics);
+        ConditionalRequestCache cache = new ConditionalRequestCache(options.getCacheDir(), options.getCacheMaxBytes());
+        // Lookups go on without the entries that could not be written, so they are only reported at the end
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if(cache.getWriteFailures() > 0){
+                System.err.println("Could not write " + cache.getWriteFailures() + " ETag cache entries, last: "
+                        + cache.getLastWriteFailure().getMessage() + ": " + cache.getLastWriteFailure().getCause());
+            }
+        }));
+        return new GItHubAPI(cache, metrics);
     }
 
     public static void main(String[] args) {
@@ -1,8 +1,5 @@
 package org.tommy;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 
 /**
  * Utility class for validating GitHub usernames.
@@ -13,14 +10,34 @@ import java.util.regex.Pattern;
  * - Cannot begin or end with a hyphen
  * - Must be between 1 and 39 characters long
  *
+ * Names are checked in a single pass over their characters, without regular expressions or allocation,
+ * so that files of millions of usernames can be validated cheaply (see {@link UserNameIngester}).
  */
 public class GitHubUserNameValidator {
 
-    // Pattern allowing only alphanumeric characters and hyphen
-    private static final Pattern validPattern = Pattern.compile("^[a-zA-Z0-9-]+$");
+    public static final int MAX_LENGTH = 39;
+
+    /**
+     * Why a username is not valid, in the order the rules are checked.
+     */
+    public enum Violation {
+        EMPTY("is empty"),
+        TOO_LONG("is longer than " + MAX_LENGTH + " characters"),
+        INVALID_CHARACTER("contains a character other than a letter, digit or hyphen"),
+        LEADING_OR_TRAILING_HYPHEN("begins or ends with a hyphen"),
+        CONSECUTIVE_HYPHENS("contains consecutive hyphens");
+
+        private final String description;
+
+        Violation(String description){
+            this.description = description;
+        }
 
-    // Pattern that detects two or more consecutive hyphens
-    private static final Pattern invalidPattern = Pattern.compile("(--)");
+        // Completes a sentence about the name, e.g. "'a--b' contains consecutive hyphens"
+        public String getDescription(){
+            return description;
+        }
+    }
 
     /**
      * Validates a GitHub username based on GitHub's public username rules.
@@ -29,14 +46,35 @@ public class GitHubUserNameValidator {
      * @return true if the username is valid according to GitHub rules; false otherwise.
      */
     public static boolean isValidUserName(String userName){
-        int userNameLength = userName.length();
-        if(userNameLength>39 || userNameLength<1) return false;
-        if(userName.startsWith("-") || userName.endsWith("-")) return false;
-        Matcher matcher = validPattern.matcher(userName);
-        if(!matcher.matches()) return false;
-        matcher = invalidPattern.matcher(userName);
-        if(matcher.matches()) return false;
-        return true;
+        return check(userName) == null;
+    }
+
+    /**
+     * Checks a username against GitHub's public username rules and says which one it breaks first.
+     *
+     * @param userName the username to check; any character sequence, e.g. a view over the bytes of a file
+     * @return the first rule broken, or null if the username is valid
+     */
+    public static Violation check(CharSequence userName){
+        int length = userName.length();
+        if(length == 0) return Violation.EMPTY;
+        if(length > MAX_LENGTH) return Violation.TOO_LONG;
+        boolean previousHyphen = false;
+        boolean consecutiveHyphens = false;
+        for(int i = 0; i < length; i++){
+            char ch = userName.charAt(i);
+            if(ch == '-'){
+                consecutiveHyphens |= previousHyphen;
+                previousHyphen = true;
+            } else if(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9'){
+                previousHyphen = false;
+            } else {
+                return Violation.INVALID_CHARACTER;
+            }
+        }
+        if(userName.charAt(0) == '-' || previousHyphen) return Violation.LEADING_OR_TRAILING_HYPHEN;
+        if(consecutiveHyphens) return Violation.CONSECUTIVE_HYPHENS;
+        return null;
     }
 
 
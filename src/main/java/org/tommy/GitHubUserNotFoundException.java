@@ -0,0 +1,13 @@
+package org.tommy;
+
+/**
+ * Thrown when GitHub answers {@code 404 Not Found} for a user's events, i.e. the user does not exist.
+ */
+public class GitHubUserNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public GitHubUserNotFoundException(String userName){
+        super("User '" + userName + "' does not exist on GitHub.");
+    }
+}
@@ -0,0 +1,64 @@
+package org.tommy;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses GitHub's pagination {@code Link} header, e.g.
+ * {@code <https://api.github.com/user/1/events?page=2>; rel="next", <https://api.github.com/user/1/events?page=3>; rel="last"}.
+ */
+public class LinkHeader {
+
+    private final Map<String, URI> links;
+
+    private LinkHeader(Map<String, URI> links){
+        this.links = links;
+    }
+
+    /**
+     * Parses the Link header of a response. A missing or malformed header yields no links.
+     */
+    public static LinkHeader of(HttpHeaders headers){
+        Map<String, URI> links = new HashMap<>();
+        for(String header : headers.allValues("Link")){
+            for(String part : header.split(",")){
+                int open = part.indexOf('<');
+                int close = part.indexOf('>', open + 1);
+                int relIndex = part.indexOf("rel=\"", close + 1);
+                if(open < 0 || close < 0 || relIndex < 0) continue;
+                int relEnd = part.indexOf('"', relIndex + 5);
+                if(relEnd < 0) continue;
+                try {
+                    links.put(part.substring(relIndex + 5, relEnd), URI.create(part.substring(open + 1, close)));
+                } catch (IllegalArgumentException e) {
+                    // Ignore links that are not valid URIs
+                }
+            }
+        }
+        return new LinkHeader(links);
+    }
+
+    public URI get(String rel){
+        return links.get(rel);
+    }
+
+    /**
+     * Returns the page number of the rel="last" link, or {@code defaultPage} if there is none.
+     */
+    public int lastPage(int defaultPage){
+        URI last = links.get("last");
+        if(last == null || last.getRawQuery() == null) return defaultPage;
+        for(String parameter : last.getRawQuery().split("&")){
+            if(parameter.startsWith("page=")){
+                try {
+                    return Integer.parseInt(parameter.substring(5));
+                } catch (NumberFormatException e) {
+                    return defaultPage;
+                }
+            }
+        }
+        return defaultPage;
+    }
+}
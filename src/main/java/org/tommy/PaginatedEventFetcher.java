@@ -0,0 +1,152 @@
+package org.tommy;
+
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Fetches several pages of a user's events and streams them as one ordered sequence.
+ * <p>
+ * The first page is fetched on its own to read the {@code Link} header; the remaining pages, up to
+ * {@link #MAX_PAGES} (GitHub serves at most 300 events per user), are then fetched concurrently while
+ * the first page is being consumed. Events are parsed lazily page by page in API order (newest first).
+ * <p>
+ * With a {@code created_at} cutoff, no page is requested once a page before it reaches back past the cutoff:
+ * the second page is only requested if the first page's oldest event is not older than the cutoff, and each
+ * further page only once the one before it has arrived and passed the same check. Pages are then fetched one
+ * after the other, still ahead of the consumer, instead of spending requests and rate limit on pages that
+ * would be thrown away.
+ * <p>
+ * The returned stream should be closed when the caller stops early; closing it cancels any page
+ * downloads that are still in flight.
+ */
+public class PaginatedEventFetcher {
+
+    public static final int MAX_PAGES = 3;
+    public static final int PER_PAGE = 100;
+
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    // Virtual threads are cheap enough to use one per page download
+    private static final ExecutorService PAGE_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final GItHubAPI gItHubAPI;
+    private final JsonDataHandler jsonDataHandler = new JsonDataHandler(true);
+
+    public PaginatedEventFetcher(GItHubAPI gItHubAPI){
+        this.gItHubAPI = gItHubAPI;
+    }
+
+    /**
+     * Streams up to {@code maxPages} pages of the user's events in order.
+     *
+     * @param userName GitHub username
+     * @param maxPages maximum number of pages to fetch, between 1 and {@link #MAX_PAGES}
+     * @param limit    maximum number of events to return, or 0 for no limit
+     * @param cutoff   stop at the first event created before this instant, or null for no cutoff
+     * @return ordered stream of events; close it to cancel outstanding page downloads
+     * @throws RuntimeException if the first page cannot be fetched; later page failures surface while streaming
+     */
+    public Stream<JsonReader> streamEvents(String userName, int maxPages, int limit, Instant cutoff){
+        return streamEvents(userName, maxPages, limit, cutoff, null);
+    }
+
+    /**
+     * Like {@link #streamEvents(String, int, int, Instant)}, but only streams the events {@code filter} accepts.
+     * The cutoff still applies to every event, and the limit to the events accepted.
+     *
+     * @param filter events to stream, or null for all
+     */
+    public Stream<JsonReader> streamEvents(String userName, int maxPages, int limit, Instant cutoff,
+                                           Predicate<JsonReader> filter){
+        if(maxPages < 1 || maxPages > MAX_PAGES){
+            throw new IllegalArgumentException("maxPages must be between 1 and " + MAX_PAGES);
+        }
+        GitHubResponse firstPage = gItHubAPI.checkSuccess(userName, gItHubAPI.fetchGitHubEventsPage(userName, 1, PER_PAGE));
+        int lastPage = Math.min(maxPages, LinkHeader.of(firstPage.headers()).lastPage(1));
+        // When the first page alone can satisfy the limit there is nothing to prefetch; with a filter it may not
+        if(limit > 0 && limit <= PER_PAGE && filter == null) lastPage = 1;
+
+        // Completes with null for a page that is not requested because the cutoff was passed before it
+        List<Future<GitHubResponse>> pending = new ArrayList<>();
+        if(cutoff == null){
+            for(int page = 2; page <= lastPage; page++){
+                int pageNumber = page;
+                pending.add(PAGE_EXECUTOR.submit(() -> fetchPage(userName, pageNumber)));
+            }
+        } else if(lastPage > 1 && !reachesPast(firstPage, cutoff)){
+            CompletableFuture<GitHubResponse> next =
+                    CompletableFuture.supplyAsync(() -> fetchPage(userName, 2), PAGE_EXECUTOR);
+            pending.add(next);
+            for(int page = 3; page <= lastPage; page++){
+                int pageNumber = page;
+                next = next.thenApplyAsync(previous -> previous == null || reachesPast(previous, cutoff) ? null
+                        : fetchPage(userName, pageNumber), PAGE_EXECUTOR);
+                pending.add(next);
+            }
+        }
+
+        Stream<JsonReader> events = Stream.concat(
+                jsonDataHandler.streamJsonData(firstPage.body()),
+                pending.stream().flatMap(page -> {
+                    GitHubResponse response = await(page);
+                    return response == null ? Stream.empty() : jsonDataHandler.streamJsonData(response.body());
+                }));
+        if(cutoff != null){
+            events = events.takeWhile(event -> !createdBefore(event, cutoff));
+        }
+        if(filter != null){
+            events = events.filter(filter);
+        }
+        if(limit > 0){
+            events = events.limit(limit);
+        }
+        return events.onClose(() -> pending.forEach(page -> page.cancel(true)));
+    }
+
+    private GitHubResponse fetchPage(String userName, int page){
+        return gItHubAPI.checkSuccess(userName, gItHubAPI.fetchGitHubEventsPage(userName, page, PER_PAGE));
+    }
+
+    // True if the page's last, oldest event was created before the cutoff, or the page is empty
+    private boolean reachesPast(GitHubResponse page, Instant cutoff){
+        try (Stream<JsonReader> events = jsonDataHandler.streamJsonData(page.body())) {
+            JsonReader oldest = events.reduce((newer, older) -> older).orElse(null);
+            return oldest == null || createdBefore(oldest, cutoff);
+        }
+    }
+
+    // Waiting for a prefetched page is what the lookup spends on fetching it
+    private static GitHubResponse await(Future<GitHubResponse> page){
+        Stage previous = PipelineMetrics.enter(Stage.FETCH);
+        try {
+            return page.get();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
+    }
+
+    private static boolean createdBefore(JsonReader event, Instant cutoff){
+        String createdAt = event.getValueForKey(CREATED_AT);
+        return createdAt != null && Instant.parse(createdAt).isBefore(cutoff);
+    }
+}
@@ -0,0 +1,183 @@
+package org.tommy;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces and retries requests to the GitHub API.
+ * <p>
+ * Outgoing requests take a permit from a token bucket. The bucket's refill rate adapts to the
+ * {@code X-RateLimit-Remaining} and {@code X-RateLimit-Reset} headers of each response, so a large
+ * batch spreads its remaining quota over the time left in the window instead of running into the
+ * limit. There is no lower bound on that rate: 60 requests an hour is paced at one a minute, and no
+ * permit waits past the reset.
+ * <p>
+ * When the quota is exhausted, or GitHub answers 403/429 with {@code Retry-After}, all requests wait
+ * until the indicated time, and pacing starts over at the maximum rate in the new window. 5xx
+ * responses and network errors are retried with jittered exponential backoff.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public class RateLimitScheduler {
+
+    public static final double DEFAULT_MAX_REQUESTS_PER_SECOND = 20;
+    public static final int DEFAULT_BURST = 10;
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(500);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+
+    /**
+     * A single HTTP exchange that the scheduler may run several times.
+     */
+    @FunctionalInterface
+    public interface Request {
+        GitHubResponse send() throws IOException, InterruptedException;
+    }
+
+    private final double maxRatePerNano;
+    private final int burst;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+
+    // Token bucket state; tokens may go negative while requests hold reservations
+    private double tokens;
+    private double ratePerNano;
+    private long lastRefillNanos;
+
+    public RateLimitScheduler(){
+        this(DEFAULT_MAX_REQUESTS_PER_SECOND, DEFAULT_BURST, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * @param maxRequestsPerSecond upper bound on the pacing rate
+     * @param burst                number of requests that may be sent back to back
+     * @param maxAttempts          attempts per request, including the first one
+     * @param baseBackoff          backoff before the first retry; doubles on each further retry
+     * @param maxBackoff           upper bound on a single backoff
+     */
+    public RateLimitScheduler(double maxRequestsPerSecond, int burst, int maxAttempts,
+                              Duration baseBackoff, Duration maxBackoff){
+        if(maxRequestsPerSecond <= 0 || burst < 1 || maxAttempts < 1){
+            throw new IllegalArgumentException("rate, burst and attempts must be positive");
+        }
+        this.maxRatePerNano = maxRequestsPerSecond / 1e9;
+        this.burst = burst;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.tokens = burst;
+        this.ratePerNano = maxRatePerNano;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Sends the request once a permit is available, retrying throttled, 5xx and failed attempts.
+     *
+     * @param request the exchange to run
+     * @return the first successful response, or the last response once attempts are exhausted
+     * @throws IOException if the last attempt failed with a network error
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public GitHubResponse execute(Request request) throws IOException, InterruptedException {
+        for(int attempt = 1; ; attempt++){
+            sleepNanos(reserve());
+            GitHubResponse response;
+            try {
+                response = request.send();
+            } catch (IOException e) {
+                if(attempt >= maxAttempts) throw e;
+                sleepNanos(backoffNanos(attempt));
+                continue;
+            }
+            HttpHeaders headers = response.headers();
+            long retryAfterNanos = observe(headers);
+            int status = response.statusCode();
+            boolean throttled = (status == 403 || status == 429) && retryAfterNanos >= 0;
+            boolean serverError = status >= 500;
+            if((!throttled && !serverError) || attempt >= maxAttempts){
+                return response;
+            }
+            // Throttled requests wait out the window (already recorded by observe), server errors back off
+            if(serverError) sleepNanos(backoffNanos(attempt));
+        }
+    }
+
+    /**
+     * Takes one permit and returns how long the caller must wait before using it.
+     */
+    synchronized long reserve(){
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        long wait = Math.max(0, lastRefillNanos - now);
+        if(tokens < 0) wait += (long) (-tokens / ratePerNano);
+        return wait;
+    }
+
+    private void refill(long now){
+        if(now > lastRefillNanos){
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * ratePerNano);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Updates pacing from the rate-limit headers of a response.
+     *
+     * @return nanoseconds until requests may resume if the response says the quota is exhausted
+     *         or carries Retry-After, otherwise -1
+     */
+    synchronized long observe(HttpHeaders headers){
+        long now = System.nanoTime();
+        long retryAfterSeconds = headers.firstValueAsLong("Retry-After").orElse(-1);
+        long remaining = headers.firstValueAsLong("X-RateLimit-Remaining").orElse(-1);
+        long resetEpochSeconds = headers.firstValueAsLong("X-RateLimit-Reset").orElse(-1);
+        long untilReset = resetEpochSeconds < 0 ? -1
+                : Math.max(0, TimeUnit.MILLISECONDS.toNanos(resetEpochSeconds * 1000 - System.currentTimeMillis()));
+
+        long blockNanos = -1;
+        if(retryAfterSeconds >= 0){
+            blockNanos = TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+        } else if(remaining == 0){
+            // Allow a little slack for clock skew between us and GitHub; without a reset time, back off
+            blockNanos = untilReset >= 0 ? untilReset + TimeUnit.SECONDS.toNanos(1) : maxBackoffNanos;
+        }
+        if(blockNanos >= 0){
+            refill(now);
+            tokens = Math.min(tokens, 0);
+            lastRefillNanos = Math.max(lastRefillNanos, now + blockNanos);
+            // The next window's quota is unknown until its first response, so the stale rate must not pace it
+            ratePerNano = maxRatePerNano;
+            return blockNanos;
+        }
+        if(remaining > 0 && untilReset > 0){
+            // One permit per untilReset / remaining, so the last one is due by the reset at the latest
+            ratePerNano = Math.min(maxRatePerNano, remaining / (double) untilReset);
+        } else if(remaining > 0){
+            // The window has reset already
+            ratePerNano = maxRatePerNano;
+        }
+        return -1;
+    }
+
+    // Full jitter: a random delay between 0 and the exponential bound for this attempt
+    private long backoffNanos(int attempt){
+        long bound = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 30));
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        if(nanos > 0) TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+
+    /**
+     * Current pacing rate in requests per second.
+     */
+    public synchronized double getRequestsPerSecond(){
+        return ratePerNano * 1e9;
+    }
+}
@@ -0,0 +1,252 @@
+package org.tommy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the usernames of a batch job from the command line and from users files of any size, validating
+ * them and dropping duplicates.
+ * <p>
+ * Files are read through one reused buffer and scanned for line breaks byte by byte. Each line, trimmed of
+ * surrounding whitespace, is checked through a reused view over the buffered bytes with
+ * {@link GitHubUserNameValidator#check(CharSequence)}, and looked up in a {@link UserNameSet}, so a rejected
+ * or duplicate line allocates nothing; only the names kept become Strings, straight from the buffer. Blank
+ * lines are skipped.
+ * <p>
+ * Duplicates are compared ignoring case, and the first spelling is kept. Rejected names are counted per
+ * {@link GitHubUserNameValidator.Violation}, and the first {@link #MAX_REPORTED_REJECTIONS} are kept with
+ * their line for the report.
+ * <p>
+ * Not thread-safe.
+ */
+public class UserNameIngester {
+
+    public static final int MAX_REPORTED_REJECTIONS = 100;
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final byte[] buffer;
+    private final UserNameSet seen = new UserNameSet();
+    private final List<String> userNames = new ArrayList<>();
+    private final long[] rejectedByViolation = new long[GitHubUserNameValidator.Violation.values().length];
+    private final List<Rejection> rejections = new ArrayList<>();
+    private final ByteView view = new ByteView();
+    private long names;
+    private long rejected;
+    private long duplicates;
+
+    public UserNameIngester(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize bytes of a file read at a time; lines longer than this are rejected as too long
+     */
+    public UserNameIngester(int bufferSize){
+        if(bufferSize < 1) throw new IllegalArgumentException("bufferSize must be at least 1");
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Adds one username, e.g. given on the command line; surrounding whitespace is not trimmed.
+     *
+     * @param userName username to add
+     * @param source   where it came from, for the report, e.g. {@code "argument 2"}
+     */
+    public void add(String userName, String source){
+        names++;
+        GitHubUserNameValidator.Violation violation = GitHubUserNameValidator.check(userName);
+        if(violation != null){
+            if(countRejection(violation)) rejections.add(new Rejection(source, userName, violation));
+        } else if(seen.add(userName)){
+            userNames.add(userName);
+        } else {
+            duplicates++;
+        }
+    }
+
+    /**
+     * Adds every non-blank line of a users file.
+     *
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public void read(Path file){
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer target = ByteBuffer.wrap(buffer);
+            long line = 1;
+            boolean skipping = false;
+            boolean endOfFile = false;
+            while(!endOfFile){
+                endOfFile = channel.read(target) < 0;
+                int limit = target.position();
+                int start = 0;
+                for(int i = 0; i < limit; i++){
+                    if(buffer[i] != '\n') continue;
+                    if(skipping) skipping = false;
+                    else addLine(start, i, file, line);
+                    line++;
+                    start = i + 1;
+                }
+                if(endOfFile){
+                    if(!skipping && start < limit) addLine(start, limit, file, line);
+                } else if(start == 0 && limit == buffer.length){
+                    // No line break in a full buffer: the line cannot be a username, so it is rejected and the
+                    // rest of it skipped
+                    if(!skipping){
+                        names++;
+                        if(countRejection(GitHubUserNameValidator.Violation.TOO_LONG)){
+                            rejections.add(new Rejection(file + ":" + line, decode(0, Math.min(limit, 64)) + "...",
+                                    GitHubUserNameValidator.Violation.TOO_LONG));
+                        }
+                        skipping = true;
+                    }
+                    start = limit;
+                }
+                // The partial line at the end moves to the front, to be completed by the next read
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                target.position(limit - start);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read users file " + file, e);
+        }
+    }
+
+    private void addLine(int start, int end, Path file, long line){
+        while(start < end && isWhitespace(buffer[start])) start++;
+        while(end > start && isWhitespace(buffer[end - 1])) end--;
+        if(start == end) return;
+        names++;
+        view.set(start, end);
+        GitHubUserNameValidator.Violation violation = GitHubUserNameValidator.check(view);
+        if(violation != null){
+            if(countRejection(violation)) rejections.add(new Rejection(file + ":" + line, view.toString(), violation));
+        } else if(seen.add(view)){
+            // Valid names are ASCII, which Latin-1 decodes by copying
+            userNames.add(new String(buffer, start, end - start, StandardCharsets.ISO_8859_1));
+        } else {
+            duplicates++;
+        }
+    }
+
+    // Returns whether the rejection is among those reported; only those are decoded and kept
+    private boolean countRejection(GitHubUserNameValidator.Violation violation){
+        rejected++;
+        rejectedByViolation[violation.ordinal()]++;
+        return rejections.size() < MAX_REPORTED_REJECTIONS;
+    }
+
+    private static boolean isWhitespace(byte b){
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private String decode(int start, int end){
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the valid usernames added so far, without duplicates, in the order they were first added
+     */
+    public List<String> getUserNames(){
+        return Collections.unmodifiableList(userNames);
+    }
+
+    /**
+     * @return what was added so far and what was dropped
+     */
+    public Report getReport(){
+        Map<GitHubUserNameValidator.Violation, Long> byViolation = new EnumMap<>(GitHubUserNameValidator.Violation.class);
+        for(GitHubUserNameValidator.Violation violation : GitHubUserNameValidator.Violation.values()){
+            long count = rejectedByViolation[violation.ordinal()];
+            if(count > 0) byViolation.put(violation, count);
+        }
+        return new Report(names, userNames.size(), duplicates, rejected, Collections.unmodifiableMap(byViolation),
+                List.copyOf(rejections));
+    }
+
+    // A reusable view onto one line in the buffer, so that a line can be validated without decoding it
+    private final class ByteView implements CharSequence {
+        private int start;
+        private int end;
+
+        void set(int start, int end){
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length(){
+            return end - start;
+        }
+
+        // Bytes above 0x7F become characters the validator rejects
+        @Override
+        public char charAt(int index){
+            return (char) (buffer[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to){
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString(){
+            return decode(start, end);
+        }
+    }
+
+    /**
+     * A username that was not valid.
+     *
+     * @param source    where it came from, e.g. {@code users.txt:12} or {@code argument 2}
+     * @param userName  the rejected name, as given
+     * @param violation the first rule it breaks
+     */
+    public record Rejection(String source, String userName, GitHubUserNameValidator.Violation violation) {
+
+        @Override
+        public String toString(){
+            return source + ": '" + userName + "' " + violation.getDescription();
+        }
+    }
+
+    /**
+     * Outcome of the ingestion.
+     *
+     * @param names       non-blank names added
+     * @param accepted    valid names kept
+     * @param duplicates  valid names dropped as duplicates of a name kept
+     * @param rejected    names that were not valid
+     * @param byViolation rejected names per rule broken
+     * @param rejections  the first {@link #MAX_REPORTED_REJECTIONS} rejected names
+     */
+    public record Report(long names, long accepted, long duplicates, long rejected,
+                         Map<GitHubUserNameValidator.Violation, Long> byViolation, List<Rejection> rejections) {
+
+        @Override
+        public String toString(){
+            StringBuilder report = new StringBuilder(String.format(
+                    "Read %d usernames: %d accepted, %d duplicates dropped, %d rejected", names, accepted, duplicates, rejected));
+            for(Map.Entry<GitHubUserNameValidator.Violation, Long> entry : byViolation.entrySet()){
+                report.append(System.lineSeparator()).append("  ").append(entry.getValue())
+                        .append(' ').append(entry.getKey().getDescription());
+            }
+            for(Rejection rejection : rejections){
+                report.append(System.lineSeparator()).append("  ").append(rejection);
+            }
+            if(rejected > rejections.size()){
+                report.append(System.lineSeparator()).append("  ... and ").append(rejected - rejections.size()).append(" more");
+            }
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.tommy;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of valid usernames, compared ignoring case as GitHub compares them.
+ * <p>
+ * Valid names are short and ASCII, so each one is kept lower-cased as a length byte followed by its bytes in
+ * one growing byte array, and the open-addressing table only holds each entry's offset and hash. A name costs
+ * its length plus one byte, and at most 16 bytes of table, instead of a String and a node in a HashSet.
+ * Looking up a name that is already present allocates nothing. Not thread-safe.
+ */
+final class UserNameSet {
+
+    private byte[] names = new byte[8192];
+    private int namesLength;
+    // Offset + 1 of each entry in names, 0 for an empty slot
+    private int[] offsets = new int[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+
+    /**
+     * @param name a valid username, see {@link GitHubUserNameValidator#check(CharSequence)}
+     * @return true if no name equal to it ignoring case was in the set
+     */
+    boolean add(CharSequence name){
+        int hash = hash(name);
+        int mask = offsets.length - 1;
+        int i = hash & mask;
+        for(int offset; (offset = offsets[i]) != 0; i = (i + 1) & mask){
+            if(hashes[i] == hash && equalsIgnoreCase(offset - 1, name)) return false;
+        }
+        offsets[i] = append(name) + 1;
+        hashes[i] = hash;
+        if(++size * 2 > offsets.length) resize();
+        return true;
+    }
+
+    int size(){
+        return size;
+    }
+
+    private int append(CharSequence name){
+        int length = name.length();
+        if(namesLength + length + 1 > names.length){
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + length + 1));
+        }
+        int offset = namesLength;
+        names[namesLength++] = (byte) length;
+        for(int i = 0; i < length; i++) names[namesLength++] = (byte) toLowerCase(name.charAt(i));
+        return offset;
+    }
+
+    private boolean equalsIgnoreCase(int offset, CharSequence name){
+        int length = name.length();
+        if(names[offset] != length) return false;
+        for(int i = 0; i < length; i++){
+            if(names[offset + 1 + i] != toLowerCase(name.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private void resize(){
+        int[] oldOffsets = offsets;
+        int[] oldHashes = hashes;
+        offsets = new int[oldOffsets.length * 2];
+        hashes = new int[oldHashes.length * 2];
+        int mask = offsets.length - 1;
+        for(int j = 0; j < oldOffsets.length; j++){
+            if(oldOffsets[j] == 0) continue;
+            int i = oldHashes[j] & mask;
+            while(offsets[i] != 0) i = (i + 1) & mask;
+            offsets[i] = oldOffsets[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+    // Spread before masking, since names often share prefixes and suffixes
+    private static int hash(CharSequence name){
+        int h = 0;
+        for(int i = 0; i < name.length(); i++) h = 31 * h + toLowerCase(name.charAt(i));
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static char toLowerCase(char ch){
+        return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+}
@@ -0,0 +1,223 @@
+package org.tommy.aggregate;
+
+import org.tommy.GitHubEventType;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Running summary of a stream of GitHub events: counts per event type, repository, actor and hour
+ * of day (UTC), commits pushed ({@code payload.distinct_size}) and pull requests opened or merged.
+ * <p>
+ * Events are folded in one at a time with {@link #add(JsonReader)} and are not retained, so memory
+ * grows only with the number of distinct repositories and actors. Type and hour counts are
+ * {@code long[]} indexed by {@link GitHubEventType#ordinal()} and hour; repository and actor counts
+ * are {@link StringLongMap}s. Only the fields above are read, so lazily parsed events are never
+ * materialised beyond them.
+ * <p>
+ * Not thread-safe. For parallel runs, keep one partial aggregate per worker and combine them with
+ * {@link #merge(ActivityAggregate)}; merging is associative and commutative, so the result does not
+ * depend on how the events were split.
+ */
+public final class ActivityAggregate {
+
+    public static final int DEFAULT_REPORT_TOP = 10;
+
+    private static final GitHubEventType[] TYPES = GitHubEventType.values();
+
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath ACTOR_LOGIN = JsonPath.compile("actor.login");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+    private static final JsonPath PAYLOAD_ACTION = JsonPath.compile("payload.action");
+    private static final JsonPath PAYLOAD_DISTINCT_SIZE = JsonPath.compile("payload.distinct_size");
+    private static final JsonPath PAYLOAD_PULL_REQUEST_MERGED = JsonPath.compile("payload.pull_request.merged");
+
+    private final long[] eventsByType = new long[TYPES.length];
+    private final long[] eventsByHour = new long[24];
+    private final StringLongMap eventsByRepo = new StringLongMap();
+    private final StringLongMap eventsByActor = new StringLongMap();
+    private long events;
+    private long unsupportedTypes;
+    private long commitsPushed;
+    private long pullRequestsOpened;
+    private long pullRequestsMerged;
+
+    /**
+     * Counts one event. Events of types the formatter does not support still count towards the
+     * repository, actor and hour totals, and are tallied as unsupported rather than by type.
+     */
+    public void add(JsonReader event){
+        events++;
+        GitHubEventType type = GitHubEventType.fromEventType(event.getValueForKey(TYPE));
+        if(type == null){
+            unsupportedTypes++;
+        }else{
+            eventsByType[type.ordinal()]++;
+            switch (type){
+                case PUSH_EVENT -> commitsPushed += longValue(event.getValueForKey(PAYLOAD_DISTINCT_SIZE));
+                case PULL_REQUEST_EVENT -> {
+                    String action = event.getValueForKey(PAYLOAD_ACTION);
+                    if("opened".equals(action)) pullRequestsOpened++;
+                    else if("closed".equals(action) && Boolean.TRUE.equals(event.getValueForKey(PAYLOAD_PULL_REQUEST_MERGED))) pullRequestsMerged++;
+                }
+                default -> {}
+            }
+        }
+        String repo = event.getValueForKey(REPO_NAME);
+        if(repo != null) eventsByRepo.add(repo, 1);
+        String actor = event.getValueForKey(ACTOR_LOGIN);
+        if(actor != null) eventsByActor.add(actor, 1);
+        int hour = hourOf(event.getValueForKey(CREATED_AT));
+        if(hour >= 0) eventsByHour[hour]++;
+    }
+
+    /**
+     * Adds every count of {@code other} to this aggregate. {@code other} is left unchanged.
+     */
+    public void merge(ActivityAggregate other){
+        for(int i = 0; i < eventsByType.length; i++) eventsByType[i] += other.eventsByType[i];
+        for(int i = 0; i < eventsByHour.length; i++) eventsByHour[i] += other.eventsByHour[i];
+        eventsByRepo.addAll(other.eventsByRepo);
+        eventsByActor.addAll(other.eventsByActor);
+        events += other.events;
+        unsupportedTypes += other.unsupportedTypes;
+        commitsPushed += other.commitsPushed;
+        pullRequestsOpened += other.pullRequestsOpened;
+        pullRequestsMerged += other.pullRequestsMerged;
+    }
+
+    // Reads the hour out of an ISO-8601 UTC timestamp such as 2025-01-31T15:04:05Z without parsing it;
+    // returns -1 if it is missing or not in that shape
+    private static int hourOf(String createdAt){
+        if(createdAt == null || createdAt.length() < 13 || createdAt.charAt(10) != 'T') return -1;
+        int tens = createdAt.charAt(11) - '0';
+        int ones = createdAt.charAt(12) - '0';
+        if(tens < 0 || tens > 2 || ones < 0 || ones > 9) return -1;
+        int hour = tens * 10 + ones;
+        return hour < 24 ? hour : -1;
+    }
+
+    private static long longValue(Object value){
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    public long events(){
+        return events;
+    }
+
+    public long events(GitHubEventType type){
+        return eventsByType[type.ordinal()];
+    }
+
+    public long unsupportedTypes(){
+        return unsupportedTypes;
+    }
+
+    /**
+     * @param hour hour of day in UTC, 0 to 23
+     */
+    public long eventsInHour(int hour){
+        return eventsByHour[hour];
+    }
+
+    public long eventsInRepo(String repo){
+        return eventsByRepo.get(repo);
+    }
+
+    public long eventsByActor(String login){
+        return eventsByActor.get(login);
+    }
+
+    public int repos(){
+        return eventsByRepo.size();
+    }
+
+    public int actors(){
+        return eventsByActor.size();
+    }
+
+    public long commitsPushed(){
+        return commitsPushed;
+    }
+
+    public long pullRequestsOpened(){
+        return pullRequestsOpened;
+    }
+
+    public long pullRequestsMerged(){
+        return pullRequestsMerged;
+    }
+
+    public List<StringLongMap.Entry> topRepos(int n){
+        return eventsByRepo.top(n);
+    }
+
+    public List<StringLongMap.Entry> topActors(int n){
+        return eventsByActor.top(n);
+    }
+
+    /**
+     * Writes a compact, multi-line report: totals, non-zero type and hour counts, and the {@code top}
+     * busiest repositories and actors. Every line is followed by a line separator.
+     *
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void report(Appendable out, int top) throws IOException {
+        String lineSeparator = System.lineSeparator();
+        out.append("Events: ").append(Long.toString(events));
+        if(unsupportedTypes > 0) out.append(" (").append(Long.toString(unsupportedTypes)).append(" of unsupported types)");
+        out.append(lineSeparator);
+
+        out.append("By type:");
+        String separator = " ";
+        for(GitHubEventType type : TYPES){
+            long count = eventsByType[type.ordinal()];
+            if(count == 0) continue;
+            out.append(separator).append(type.getEventType()).append(' ').append(Long.toString(count));
+            separator = ", ";
+        }
+        out.append(lineSeparator);
+
+        out.append("By hour (UTC):");
+        separator = " ";
+        for(int hour = 0; hour < eventsByHour.length; hour++){
+            if(eventsByHour[hour] == 0) continue;
+            out.append(separator).append(hour < 10 ? "0" : "").append(Integer.toString(hour))
+                    .append("h ").append(Long.toString(eventsByHour[hour]));
+            separator = ", ";
+        }
+        out.append(lineSeparator);
+
+        out.append("Commits pushed: ").append(Long.toString(commitsPushed)).append(lineSeparator);
+        out.append("Pull requests: ").append(Long.toString(pullRequestsOpened)).append(" opened, ")
+                .append(Long.toString(pullRequestsMerged)).append(" merged").append(lineSeparator);
+        appendTop(out, "Top repositories", eventsByRepo, repos(), top, lineSeparator);
+        appendTop(out, "Top actors", eventsByActor, actors(), top, lineSeparator);
+    }
+
+    private static void appendTop(Appendable out, String label, StringLongMap counts, int distinct, int top,
+                                  String lineSeparator) throws IOException {
+        out.append(label).append(" (").append(Integer.toString(distinct)).append(" distinct):");
+        String separator = " ";
+        for(StringLongMap.Entry entry : counts.top(top)){
+            out.append(separator).append(entry.key()).append(' ').append(Long.toString(entry.count()));
+            separator = ", ";
+        }
+        out.append(lineSeparator);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder report = new StringBuilder();
+        try {
+            report(report, DEFAULT_REPORT_TOP);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return report.toString();
+    }
+}
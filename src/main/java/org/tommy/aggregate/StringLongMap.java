@@ -0,0 +1,149 @@
+package org.tommy.aggregate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An open-addressing hash map from {@code String} to a primitive {@code long} count.
+ * <p>
+ * Keys and counts live in two parallel arrays probed linearly, so adding to an existing key neither
+ * boxes nor allocates an entry; the only allocation is doubling the arrays when the table is more
+ * than half full. {@link String#hashCode()} is cached by the string itself and is spread before
+ * masking, since repository and login names often share long prefixes.
+ * <p>
+ * Not thread-safe: keep one map per thread and combine them with {@link #addAll(StringLongMap)}.
+ */
+public final class StringLongMap {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private String[] keys;
+    private long[] values;
+    private int size;
+
+    public StringLongMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedKeys number of keys to size the table for without resizing
+     */
+    public StringLongMap(int expectedKeys){
+        if(expectedKeys < 0) throw new IllegalArgumentException("expectedKeys must not be negative");
+        int capacity = Integer.highestOneBit(Math.max(2, expectedKeys) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * Adds {@code delta} to the count of {@code key}, inserting it with that count if it is absent.
+     *
+     * @throws NullPointerException if key is null
+     */
+    public void add(String key, long delta){
+        int mask = keys.length - 1;
+        int i = spread(key.hashCode()) & mask;
+        String k;
+        while((k = keys[i]) != null){
+            if(k.equals(key)){
+                values[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = delta;
+        if(++size * 2 > keys.length) resize();
+    }
+
+    /**
+     * @return the count of {@code key}, or 0 if it was never added
+     */
+    public long get(String key){
+        int mask = keys.length - 1;
+        int i = spread(key.hashCode()) & mask;
+        String k;
+        while((k = keys[i]) != null){
+            if(k.equals(key)) return values[i];
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Adds every count of {@code other} to this map.
+     */
+    public void addAll(StringLongMap other){
+        String[] otherKeys = other.keys;
+        long[] otherValues = other.values;
+        for(int i = 0; i < otherKeys.length; i++){
+            if(otherKeys[i] != null) add(otherKeys[i], otherValues[i]);
+        }
+    }
+
+    /**
+     * Calls {@code action} for every key and count, in no particular order.
+     */
+    public void forEach(ObjLongConsumer<String> action){
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != null) action.accept(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the {@code n} keys with the highest counts, highest first; ties are ordered by key.
+     * Selection keeps a heap of {@code n} entries rather than sorting the whole map.
+     */
+    public List<Entry> top(int n){
+        if(n <= 0) return List.of();
+        Comparator<Entry> order = Comparator.comparingLong(Entry::count).thenComparing(Entry::key, Comparator.reverseOrder());
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.min(n, size) + 1, order);
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] == null) continue;
+            Entry entry = new Entry(keys[i], values[i]);
+            if(heap.size() < n){
+                heap.add(entry);
+            }else if(order.compare(heap.peek(), entry) < 0){
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Entry> top = new ArrayList<>(heap);
+        top.sort(order.reversed());
+        return top;
+    }
+
+    private void resize(){
+        String[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for(int j = 0; j < oldKeys.length; j++){
+            String key = oldKeys[j];
+            if(key == null) continue;
+            int i = spread(key.hashCode()) & mask;
+            while(keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+
+    // Fibonacci hashing: multiplies by 2^32 / phi so the high bits of the hash reach the masked low bits
+    private static int spread(int hash){
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * A key and its count.
+     */
+    public record Entry(String key, long count) {}
+}
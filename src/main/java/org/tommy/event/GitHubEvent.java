@@ -0,0 +1,88 @@
+package org.tommy.event;
+
+import org.tommy.GitHubEventType;
+
+import java.util.List;
+
+/**
+ * A GitHub event bound to a compact, typed record.
+ * <p>
+ * Each record holds only the fields needed to describe its event type, so once an event has been
+ * decoded by {@link GitHubEventDecoder} the generic parsed JSON tree can be discarded.
+ */
+public sealed interface GitHubEvent {
+
+    GitHubEventType type();
+
+    /**
+     * @return the name of the repository the event happened in, or null for events outside a repository
+     */
+    default String repo() { return null; }
+
+    record CommitCommentEventRecord(String commitId, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.COMMIT_COMMENT_EVENT; }
+    }
+
+    record ForkEventRecord(String forkee, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.FORK_EVENT; }
+    }
+
+    record MemberEventRecord(String member, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.MEMBER_EVENT; }
+    }
+
+    record PublicEventRecord(String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.PUBLIC_EVENT; }
+    }
+
+    record PullRequestReviewEventRecord(String state, long number, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.PULL_REQUEST_REVIEW_EVENT; }
+    }
+
+    record PullRequestReviewCommentEventRecord(boolean edited, long number, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.PULL_REQUEST_REVIEW_COMMENT_EVENT; }
+    }
+
+    record PushEventRecord(String repo, long distinctSize) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.PUSH_EVENT; }
+    }
+
+    record ReleaseEventRecord(String action, String release, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.RELEASE_EVENT; }
+    }
+
+    record SponsorshipEventRecord(String action, String sponsorable) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.SPONSOR_EVENT; }
+    }
+
+    record WatchEventRecord(String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.WATCH_EVENT; }
+    }
+
+    record IssueCommentEventRecord(String action, boolean pullRequest, long number, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.ISSUE_COMMENT_EVENT; }
+    }
+
+    record DeleteEventRecord(String refType, String ref, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.DELETE_EVENT; }
+    }
+
+    // ref is null when a repository (rather than a branch or tag) was created
+    record CreateEventRecord(String refType, String ref, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.CREATE_EVENT; }
+    }
+
+    record IssuesEventRecord(String action, long number, String title, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.ISSUES_EVENT; }
+    }
+
+    record GollumEventRecord(String repo, List<WikiPage> pages) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.GOLLUM_EVENT; }
+    }
+
+    record WikiPage(String action, String pageName) {}
+
+    record PullRequestEventRecord(String action, long number, String title, String repo) implements GitHubEvent {
+        public GitHubEventType type() { return GitHubEventType.PULL_REQUEST_EVENT; }
+    }
+}
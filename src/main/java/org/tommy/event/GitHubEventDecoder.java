@@ -0,0 +1,114 @@
+package org.tommy.event;
+
+import org.tommy.GitHubEventType;
+import org.tommy.event.GitHubEvent.*;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds parsed GitHub events into typed {@link GitHubEvent} records.
+ * <p>
+ * The event's "type" is read first and resolved with {@link GitHubEventType#fromEventType(String)};
+ * only the fields that event type needs are then read from the parsed data.
+ */
+public class GitHubEventDecoder {
+
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath PAYLOAD_ACTION = JsonPath.compile("payload.action");
+    private static final JsonPath PAYLOAD_CHANGES = JsonPath.compile("payload.changes");
+    private static final JsonPath PAYLOAD_COMMENT_COMMIT_ID = JsonPath.compile("payload.comment.commit_id");
+    private static final JsonPath PAYLOAD_DISTINCT_SIZE = JsonPath.compile("payload.distinct_size");
+    private static final JsonPath PAYLOAD_FORKEE_FULL_NAME = JsonPath.compile("payload.forkee.full_name");
+    private static final JsonPath PAYLOAD_ISSUE_NUMBER = JsonPath.compile("payload.issue.number");
+    private static final JsonPath PAYLOAD_ISSUE_PULL_REQUEST = JsonPath.compile("payload.issue.pull_request");
+    private static final JsonPath PAYLOAD_ISSUE_TITLE = JsonPath.compile("payload.issue.title");
+    private static final JsonPath PAYLOAD_MEMBER_LOGIN = JsonPath.compile("payload.member.login");
+    private static final JsonPath PAYLOAD_PAGES = JsonPath.compile("payload.pages");
+    private static final JsonPath PAYLOAD_PULL_REQUEST_NUMBER = JsonPath.compile("payload.pull_request.number");
+    private static final JsonPath PAYLOAD_PULL_REQUEST_TITLE = JsonPath.compile("payload.pull_request.title");
+    private static final JsonPath PAYLOAD_REF = JsonPath.compile("payload.ref");
+    private static final JsonPath PAYLOAD_REF_TYPE = JsonPath.compile("payload.ref_type");
+    private static final JsonPath PAYLOAD_RELEASE_NAME = JsonPath.compile("payload.release.name");
+    private static final JsonPath PAYLOAD_REVIEW_STATE = JsonPath.compile("payload.review.state");
+    private static final JsonPath PAYLOAD_SPONSORABLE_LOGIN = JsonPath.compile("payload.sponsorable.login");
+
+    /**
+     * Decodes a parsed GitHub event into its typed record.
+     *
+     * @param reader Parsed GitHub event data
+     * @return The typed event record
+     * @throws IllegalArgumentException if an unsupported event type is encountered
+     */
+    public GitHubEvent decode(JsonReader reader){
+        String typeName = reader.getValueForKey(TYPE);
+        GitHubEventType type = GitHubEventType.fromEventType(typeName);
+        if(type == null){
+            throw new IllegalArgumentException("Unsupported GitHub event type: " + typeName);
+        }
+        String repo = reader.getValueForKey(REPO_NAME);
+        return switch (type){
+            case COMMIT_COMMENT_EVENT ->
+                new CommitCommentEventRecord(reader.getValueForKey(PAYLOAD_COMMENT_COMMIT_ID), repo);
+            case FORK_EVENT ->
+                new ForkEventRecord(reader.getValueForKey(PAYLOAD_FORKEE_FULL_NAME), repo);
+            case MEMBER_EVENT ->
+                new MemberEventRecord(reader.getValueForKey(PAYLOAD_MEMBER_LOGIN), repo);
+            case PUBLIC_EVENT ->
+                new PublicEventRecord(repo);
+            case PULL_REQUEST_REVIEW_EVENT ->
+                new PullRequestReviewEventRecord(reader.getValueForKey(PAYLOAD_REVIEW_STATE),
+                        longValue(reader, PAYLOAD_PULL_REQUEST_NUMBER), repo);
+            case PULL_REQUEST_REVIEW_COMMENT_EVENT ->
+                new PullRequestReviewCommentEventRecord(reader.getValueForKey(PAYLOAD_CHANGES) != null,
+                        longValue(reader, PAYLOAD_PULL_REQUEST_NUMBER), repo);
+            case PUSH_EVENT ->
+                new PushEventRecord(repo, longValue(reader, PAYLOAD_DISTINCT_SIZE));
+            case RELEASE_EVENT ->
+                new ReleaseEventRecord(reader.getValueForKey(PAYLOAD_ACTION),
+                        reader.getValueForKey(PAYLOAD_RELEASE_NAME), repo);
+            case SPONSOR_EVENT ->
+                new SponsorshipEventRecord(reader.getValueForKey(PAYLOAD_ACTION),
+                        reader.getValueForKey(PAYLOAD_SPONSORABLE_LOGIN));
+            case WATCH_EVENT ->
+                new WatchEventRecord(repo);
+            case ISSUE_COMMENT_EVENT ->
+                new IssueCommentEventRecord(reader.getValueForKey(PAYLOAD_ACTION),
+                        reader.getValueForKey(PAYLOAD_ISSUE_PULL_REQUEST) != null,
+                        longValue(reader, PAYLOAD_ISSUE_NUMBER), repo);
+            case DELETE_EVENT ->
+                new DeleteEventRecord(reader.getValueForKey(PAYLOAD_REF_TYPE), reader.getValueForKey(PAYLOAD_REF), repo);
+            case CREATE_EVENT ->
+                new CreateEventRecord(reader.getValueForKey(PAYLOAD_REF_TYPE), reader.getValueForKey(PAYLOAD_REF), repo);
+            case ISSUES_EVENT ->
+                new IssuesEventRecord(reader.getValueForKey(PAYLOAD_ACTION), longValue(reader, PAYLOAD_ISSUE_NUMBER),
+                        reader.getValueForKey(PAYLOAD_ISSUE_TITLE), repo);
+            case GOLLUM_EVENT ->
+                new GollumEventRecord(repo, wikiPages(reader));
+            case PULL_REQUEST_EVENT ->
+                new PullRequestEventRecord(reader.getValueForKey(PAYLOAD_ACTION),
+                        longValue(reader, PAYLOAD_PULL_REQUEST_NUMBER),
+                        reader.getValueForKey(PAYLOAD_PULL_REQUEST_TITLE), repo);
+        };
+    }
+
+    private List<WikiPage> wikiPages(JsonReader reader){
+        List<Map<String, Object>> pages = reader.getValueForKey(PAYLOAD_PAGES);
+        if(pages == null) return List.of();
+        List<WikiPage> wikiPages = new ArrayList<>(pages.size());
+        for(Map<String, Object> page : pages){
+            wikiPages.add(new WikiPage((String) page.get("action"), (String) page.get("page_name")));
+        }
+        return wikiPages;
+    }
+
+    // Missing numeric fields are bound as 0 rather than failing the whole event
+    private static long longValue(JsonReader reader, JsonPath path){
+        Object value = reader.getValueForKey(path);
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
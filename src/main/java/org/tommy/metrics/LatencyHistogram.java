@@ -0,0 +1,86 @@
+package org.tommy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative durations in nanoseconds.
+ * <p>
+ * Buckets are log-linear: every power of two is split into eight sub-buckets, so a recorded value is
+ * reported with at most 12.5% error, using a fixed 4 KB of counters for the whole range of a long.
+ * Values below eight are kept exactly.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos duration to record; negative values are recorded as 0
+     */
+    public void record(long nanos){
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long count(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) count += counts.get(i);
+        return count;
+    }
+
+    public long sum(){
+        return sum.sum();
+    }
+
+    public long max(){
+        return max.get();
+    }
+
+    /**
+     * Returns the value at the given quantile: the upper end of the bucket holding it, capped at the maximum.
+     *
+     * @param quantile between 0 and 1, e.g. 0.99
+     * @return the value at the quantile, or 0 if nothing was recorded
+     */
+    public long percentile(double quantile){
+        if(quantile < 0 || quantile > 1) throw new IllegalArgumentException("quantile must be between 0 and 1");
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) count += snapshot[i] = counts.get(i);
+        if(count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= rank) return Math.min(upperBound(i), max());
+        }
+        return max();
+    }
+
+    // Values 0-7 have a bucket each; above that, the top three bits after the highest one pick the sub-bucket
+    private static int index(long value){
+        if(value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBound(int index){
+        if(index < SUB_BUCKETS) return index;
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
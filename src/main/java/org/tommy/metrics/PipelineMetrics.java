@@ -0,0 +1,300 @@
+package org.tommy.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time of the fetch, parse and format pipeline goes, per {@link Stage}.
+ * <p>
+ * A lookup of one user's activity is timed by a {@link Run} bound to the thread doing it. The pipeline code
+ * marks where it switches stages with {@link #enter(Stage)}; the run charges the wall time and the bytes the
+ * thread allocated since the previous switch to the stage that was active. Stages are therefore disjoint even
+ * when they interleave, as they do when events are parsed and formatted while the response body is still
+ * arriving. When a run ends, each stage it entered adds its total to that stage's {@link LatencyHistogram},
+ * so the histograms hold one sample per lookup.
+ * <p>
+ * Every uninterrupted stretch of a stage is also reported as a {@code org.tommy.PipelineStage} JFR event,
+ * whether or not there is a metrics instance, as long as a recording has the event enabled.
+ * <p>
+ * Allocation is read from the {@link com.sun.management.ThreadMXBean}, which does not measure virtual
+ * threads; lookups run on them (batch and server mode) are counted without allocation.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public class PipelineMetrics {
+
+    private static final ThreadLocal<Run> CURRENT = new ThreadLocal<>();
+    // Runs open on any thread; while there are none, stage switches return without a thread-local lookup
+    private static final AtomicInteger OPEN_RUNS = new AtomicInteger();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+    private static final int STAGES = Stage.values().length;
+
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final LongAdder[] allocated = new LongAdder[STAGES];
+    private final LongAdder[] allocationSamples = new LongAdder[STAGES];
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder bodyBytes = new LongAdder();
+
+    public PipelineMetrics(){
+        for(Stage stage : Stage.values()){
+            latencies.put(stage, new LatencyHistogram());
+            allocated[stage.ordinal()] = new LongAdder();
+            allocationSamples[stage.ordinal()] = new LongAdder();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean(){
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean allocation && allocation.isThreadAllocatedMemorySupported()){
+            return allocation;
+        }
+        return null;
+    }
+
+    /**
+     * Starts timing a lookup on the calling thread. Returns null, which try-with-resources accepts, if the
+     * thread is already inside a run (the outer one keeps timing), or if there is neither a metrics instance
+     * nor a JFR recording of stage events, so nothing needs timing.
+     *
+     * @param metrics  metrics the lookup is added to when the run is closed, or null for JFR events only
+     * @param userName user whose activity is looked up, for the JFR events
+     * @return the run, to close when the lookup is done; or null
+     */
+    public static Run start(PipelineMetrics metrics, String userName){
+        if(CURRENT.get() != null) return null;
+        if(metrics == null && !new StageEvent().isEnabled()) return null;
+        Run run = new Run(metrics, userName);
+        CURRENT.set(run);
+        OPEN_RUNS.incrementAndGet();
+        return run;
+    }
+
+    /**
+     * Switches the calling thread's run to {@code stage}; does nothing outside a run. Callers restore the
+     * returned stage when they are done, so that nested stages hand the time back:
+     * <pre>{@code
+     * Stage previous = PipelineMetrics.enter(Stage.PARSE);
+     * try { ... } finally { PipelineMetrics.enter(previous); }
+     * }</pre>
+     *
+     * @param stage stage the following work belongs to, or null for work that belongs to no stage
+     * @return the stage that was active, or null
+     */
+    public static Stage enter(Stage stage){
+        if(OPEN_RUNS.get() == 0) return null;
+        Run run = CURRENT.get();
+        return run == null ? null : run.enter(stage);
+    }
+
+    /**
+     * Counts one event handled by the calling thread's run; does nothing outside a run.
+     */
+    public static void countEvent(){
+        if(OPEN_RUNS.get() == 0) return;
+        Run run = CURRENT.get();
+        if(run != null) run.events++;
+    }
+
+    /**
+     * Counts one response received, whether or not it was inside a run.
+     *
+     * @param wireBytes body bytes received over the network
+     * @param bodyBytes body bytes after decompression
+     */
+    public void addResponse(long wireBytes, long bodyBytes){
+        requests.increment();
+        this.wireBytes.add(wireBytes);
+        this.bodyBytes.add(bodyBytes);
+    }
+
+    private void add(Run run){
+        lookups.increment();
+        events.add(run.events);
+        for(Stage stage : Stage.values()){
+            int i = stage.ordinal();
+            if(!run.entered[i]) continue;
+            latencies.get(stage).record(run.nanos[i]);
+            if(run.allocationMeasured){
+                allocated[i].add(run.allocated[i]);
+                allocationSamples[i].increment();
+            }
+        }
+    }
+
+    public LatencyHistogram getLatency(Stage stage){
+        return latencies.get(stage);
+    }
+
+    public Snapshot snapshot(){
+        Map<Stage, StageStats> stages = new EnumMap<>(Stage.class);
+        for(Stage stage : Stage.values()){
+            LatencyHistogram latency = latencies.get(stage);
+            stages.put(stage, new StageStats(latency.count(), latency.sum(), latency.percentile(0.5),
+                    latency.percentile(0.9), latency.percentile(0.99), latency.max(),
+                    allocated[stage.ordinal()].sum(), allocationSamples[stage.ordinal()].sum()));
+        }
+        return new Snapshot(lookups.sum(), requests.sum(), events.sum(), wireBytes.sum(), bodyBytes.sum(),
+                Collections.unmodifiableMap(stages));
+    }
+
+    private static long allocatedBytes(){
+        return ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Times one lookup on the thread that started it; see {@link #start(PipelineMetrics, String)}.
+     */
+    public static final class Run implements AutoCloseable {
+
+        private final PipelineMetrics metrics;
+        private final String userName;
+        private final long[] nanos = new long[STAGES];
+        private final long[] allocated = new long[STAGES];
+        private final boolean[] entered = new boolean[STAGES];
+        private boolean allocationMeasured = true;
+        private long events;
+
+        private Stage current;
+        private long markNanos;
+        private long markAllocated;
+        private StageEvent event;
+
+        private Run(PipelineMetrics metrics, String userName){
+            this.metrics = metrics;
+            this.userName = userName;
+        }
+
+        private Stage enter(Stage stage){
+            Stage previous = current;
+            if(stage == previous) return previous;
+            long now = System.nanoTime();
+            long allocatedNow = allocatedBytes();
+            if(previous != null){
+                int i = previous.ordinal();
+                long allocatedDelta = allocatedNow < 0 || markAllocated < 0 ? -1 : allocatedNow - markAllocated;
+                nanos[i] += now - markNanos;
+                entered[i] = true;
+                if(allocatedDelta < 0) allocationMeasured = false;
+                else allocated[i] += allocatedDelta;
+                if(event != null){
+                    event.end();
+                    event.allocated = allocatedDelta;
+                    event.commit();
+                    event = null;
+                }
+            }
+            current = stage;
+            markNanos = now;
+            markAllocated = allocatedNow;
+            if(stage != null){
+                StageEvent next = new StageEvent();
+                if(next.isEnabled()){
+                    next.stage = stage.label();
+                    next.user = userName;
+                    next.begin();
+                    event = next;
+                }
+            }
+            return previous;
+        }
+
+        /**
+         * Ends the run and adds it to the metrics.
+         */
+        @Override
+        public void close(){
+            enter(null);
+            CURRENT.remove();
+            OPEN_RUNS.decrementAndGet();
+            if(metrics != null) metrics.add(this);
+        }
+    }
+
+    /**
+     * Totals of one stage since the metrics were created. Durations are in nanoseconds, and the percentiles
+     * are over lookups, each contributing the total time it spent in the stage.
+     *
+     * @param samples           lookups that entered the stage
+     * @param totalNanos        time spent in the stage over all lookups
+     * @param allocatedBytes    bytes allocated in the stage, over the lookups where allocation was measured
+     * @param allocationSamples lookups where allocation was measured
+     */
+    public record StageStats(long samples, long totalNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos,
+                             long allocatedBytes, long allocationSamples) {
+
+        public long allocatedBytesPerLookup(){
+            return allocationSamples == 0 ? 0 : allocatedBytes / allocationSamples;
+        }
+
+        @Override
+        public String toString(){
+            String allocation = allocationSamples == 0 ? "allocation not measured"
+                    : String.format("%.1f KB allocated per lookup", allocatedBytesPerLookup() / 1024.0);
+            return String.format("%d lookups, total %.1f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms, %s",
+                    samples, totalNanos / 1e6, p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, allocation);
+        }
+    }
+
+    /**
+     * Counters and per-stage totals since the metrics were created.
+     *
+     * @param lookups   runs completed
+     * @param requests  responses received, including pages prefetched outside of runs
+     * @param events    events handled by runs
+     * @param wireBytes body bytes received over the network (compressed size if gzip was used)
+     * @param bodyBytes body bytes after decompression
+     * @param stages    totals per stage, for every stage
+     */
+    public record Snapshot(long lookups, long requests, long events, long wireBytes, long bodyBytes,
+                           Map<Stage, StageStats> stages) {
+
+        /**
+         * @return the snapshot as one JSON object, with durations in nanoseconds and sizes in bytes
+         */
+        public String toJson(){
+            StringBuilder json = new StringBuilder();
+            json.append("{\"lookups\":").append(lookups)
+                    .append(",\"requests\":").append(requests)
+                    .append(",\"events\":").append(events)
+                    .append(",\"wire_bytes\":").append(wireBytes)
+                    .append(",\"body_bytes\":").append(bodyBytes)
+                    .append(",\"stages\":{");
+            String separator = "";
+            for(Map.Entry<Stage, StageStats> entry : stages.entrySet()){
+                StageStats stats = entry.getValue();
+                json.append(separator).append('"').append(entry.getKey().label()).append("\":{")
+                        .append("\"samples\":").append(stats.samples())
+                        .append(",\"total_nanos\":").append(stats.totalNanos())
+                        .append(",\"p50_nanos\":").append(stats.p50Nanos())
+                        .append(",\"p90_nanos\":").append(stats.p90Nanos())
+                        .append(",\"p99_nanos\":").append(stats.p99Nanos())
+                        .append(",\"max_nanos\":").append(stats.maxNanos())
+                        .append(",\"allocated_bytes\":").append(stats.allocatedBytes())
+                        .append(",\"allocation_samples\":").append(stats.allocationSamples())
+                        .append('}');
+                separator = ",";
+            }
+            return json.append("}}").toString();
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder summary = new StringBuilder(String.format(
+                    "Pipeline: %d lookups, %d requests, %d events, %.1f KB on the wire, %.1f KB decoded",
+                    lookups, requests, events, wireBytes / 1024.0, bodyBytes / 1024.0));
+            for(Map.Entry<Stage, StageStats> entry : stages.entrySet()){
+                summary.append(System.lineSeparator())
+                        .append(String.format("  %-6s %s", entry.getKey().label(), entry.getValue()));
+            }
+            return summary.toString();
+        }
+    }
+}
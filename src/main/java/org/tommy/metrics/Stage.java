@@ -0,0 +1,22 @@
+package org.tommy.metrics;
+
+import java.util.Locale;
+
+/**
+ * A stage of the fetch, parse and format pipeline that {@link PipelineMetrics} times separately.
+ */
+public enum Stage {
+    /** Sending requests and receiving (and decompressing) response bodies. */
+    FETCH,
+    /** Framing and parsing events out of response bodies, including nested values parsed lazily on first access. */
+    PARSE,
+    /** Turning events into activity lines. */
+    FORMAT;
+
+    /**
+     * @return the lower-case name used in reports and JSON, e.g. {@code "fetch"}
+     */
+    public String label(){
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,33 @@
+package org.tommy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one uninterrupted stretch of a pipeline stage on one thread. A lookup produces a
+ * sequence of these, e.g. fetch, parse, format, parse, format..., so a recording's thread view shows how
+ * its time splits between the stages.
+ */
+@Name("org.tommy.PipelineStage")
+@Label("Pipeline Stage")
+@Category({"GitHubUserActivity", "Pipeline"})
+@Description("An uninterrupted stretch of the fetch, parse or format stage of a user's activity lookup")
+@StackTrace(false)
+final class StageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("User")
+    String user;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread during the stretch, or -1 if not measured")
+    @DataAmount
+    long allocated;
+}
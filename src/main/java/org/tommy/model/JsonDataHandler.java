@@ -1,10 +1,21 @@
 package org.tommy.model;
 
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+import org.tommy.parser.JsonElementFramer;
 import org.tommy.parser.JsonParser;
+import org.tommy.parser.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A utility class to handle raw JSON strings and convert them into structured
@@ -13,13 +24,34 @@ import java.util.Map;
  * Internally uses a custom {@link JsonParser} to parse the input JSON string
  * and convert it to either a list of objects (if the JSON is an array)
  * or a single object (if it's a single JSON object).
+ * Parsing is charged to the {@link Stage#PARSE} stage of the calling thread's {@link PipelineMetrics} run.
  */
 
 public class JsonDataHandler {
 
-    private final JsonParser jsonParser = new JsonParser();
+    private final JsonParser jsonParser;
 
-    public JsonDataHandler(){}
+    public JsonDataHandler(){
+        this(false);
+    }
+
+    /**
+     * @param lazy if true, nested values are only parsed when a {@link JsonReader} walks into them,
+     *             so subtrees no caller reads are skipped instead of built (see {@link JsonParser#JsonParser(boolean)})
+     */
+    public JsonDataHandler(boolean lazy){
+        this.jsonParser = new JsonParser(lazy);
+    }
+
+    /**
+     * @param lazy         see {@link #JsonDataHandler(boolean)}
+     * @param symbols      table that keys (and, with {@code internValues}, short string values) are shared through;
+     *                     null to copy every string (see {@link JsonParser#JsonParser(boolean, SymbolTable, boolean)})
+     * @param internValues if true, short string values are shared as well as keys
+     */
+    public JsonDataHandler(boolean lazy, SymbolTable symbols, boolean internValues){
+        this.jsonParser = new JsonParser(lazy, symbols, internValues);
+    }
 
     /**
      * Parses a raw JSON string and returns structured {@link JsonReader} instances.
@@ -34,15 +66,105 @@ public class JsonDataHandler {
      */
     @SuppressWarnings("unchecked")
     public Object extractJsonData(String s){
-        Object data = jsonParser.parseJson(s);
-        if(data instanceof List<?>){
-            List<JsonReader> jsonReaderList = new ArrayList<>();
-            List<?> listData = (List<?>)data;
-            for(Object obj: listData){
-                jsonReaderList.add(JsonReader.of((Map<String,Object>) obj));
+        Stage previous = PipelineMetrics.enter(Stage.PARSE);
+        try {
+            Object data = jsonParser.parseJson(s);
+            if(data instanceof List<?>){
+                List<JsonReader> jsonReaderList = new ArrayList<>();
+                List<?> listData = (List<?>)data;
+                for(Object obj: listData){
+                    jsonReaderList.add(JsonReader.of((Map<String,Object>) obj));
+                }
+                return jsonReaderList;
+            }
+            return JsonReader.of((Map<String, Object>) data);
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
+    }
+
+    /**
+     * Parses a raw JSON string lazily and streams one {@link JsonReader} per top-level event.
+     * <p>
+     * Unlike {@link #extractJsonData(String)}, elements of a top-level array are parsed only as the
+     * stream is consumed, so at most one event tree is alive at a time. A single JSON object
+     * yields a one-element stream.
+     *
+     * @param s Raw JSON string
+     * @return A sequential, ordered stream of {@code JsonReader}s
+     * @throws RuntimeException while the stream is consumed, if parsing fails or an element is not an object
+     */
+    public Stream<JsonReader> streamJsonData(String s){
+        Iterator<Object> elements = jsonParser.parseJsonElements(s);
+        Iterator<JsonReader> readers = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                Stage previous = PipelineMetrics.enter(Stage.PARSE);
+                try {
+                    return elements.hasNext();
+                } finally {
+                    PipelineMetrics.enter(previous);
+                }
+            }
+
+            @Override
+            public JsonReader next() {
+                Stage previous = PipelineMetrics.enter(Stage.PARSE);
+                try {
+                    return toReader(elements.next());
+                } finally {
+                    PipelineMetrics.enter(previous);
+                }
             }
-            return jsonReaderList;
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(readers, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Parses the element starting at an offset, such as one line of newline-delimited JSON.
+     * Safe to call from several threads on the same input.
+     *
+     * @param s      Raw JSON string
+     * @param offset start offset of the element
+     * @return A {@code JsonReader} over the element
+     * @throws RuntimeException if parsing fails or the element is not an object
+     */
+    public JsonReader readElementAt(String s, int offset){
+        return toReader(jsonParser.parseElementAt(s, offset));
+    }
+
+    /**
+     * Creates a framer that parses a top-level array incrementally from UTF-8 byte chunks and hands
+     * each event to {@code consumer} as soon as it is complete (see {@link JsonElementFramer}).
+     *
+     * @param consumer receives one {@code JsonReader} per event, in input order
+     * @return a new framer; feed it the body chunks and call {@link JsonElementFramer#finish()} at the end
+     */
+    public JsonElementFramer newElementFramer(Consumer<JsonReader> consumer){
+        return new JsonElementFramer(jsonParser, element -> consumer.accept(toReader(element)));
+    }
+
+    /**
+     * Like {@link #newElementFramer(Consumer)}, but the framer {@link JsonElementFramer#stop() stops} as soon as
+     * {@code consumer} returns false, so the events after that one are never parsed.
+     *
+     * @param consumer receives one {@code JsonReader} per event, in input order; returns false to stop
+     * @return a new framer; feed it the body chunks until it is stopped or the body ends
+     */
+    public JsonElementFramer newElementFramerWhile(Predicate<JsonReader> consumer){
+        JsonElementFramer[] framer = new JsonElementFramer[1];
+        framer[0] = new JsonElementFramer(jsonParser, element -> {
+            if(!consumer.test(toReader(element))) framer[0].stop();
+        });
+        return framer[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonReader toReader(Object element){
+        if(!(element instanceof Map<?,?>)){
+            throw new RuntimeException("Expected a JSON object but found: " + element);
         }
-        return JsonReader.of((Map<String, Object>) data);
+        return JsonReader.of((Map<String, Object>) element);
     }
 }
@@ -0,0 +1,110 @@
+package org.tommy.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pre-compiled key path into a parsed JSON structure, such as "payload.pull_request.number"
+ * or "payload.pages[0].page_name".
+ * <p>
+ * The path is split into its segments and list indices once, so that {@link JsonReader#getValueForKey(JsonPath)}
+ * can walk the structure without any regex, splitting or allocation. Paths compiled through
+ * {@link #compile(String)} are cached per path string, so hot callers can either keep a constant
+ * or simply compile on every call.
+ */
+public final class JsonPath {
+
+    // Upper bound on cached paths; paths beyond it are still compiled, just not retained
+    private static final int MAX_CACHED_PATHS = 4096;
+
+    private static final ConcurrentMap<String, JsonPath> CACHE = new ConcurrentHashMap<>();
+
+    private final String path;
+
+    // Map key for each segment
+    private final String[] keys;
+
+    // List index for each segment, or -1 when the segment is a plain key
+    private final int[] indices;
+
+    private JsonPath(String path, String[] segments){
+        this.path = path;
+        this.keys = new String[segments.length];
+        this.indices = new int[segments.length];
+        for(int i = 0; i < segments.length; i++){
+            String segment = segments[i];
+            int bracketIndex = segment.indexOf('[');
+            if(bracketIndex > 0 && segment.endsWith("]")){
+                keys[i] = segment.substring(0, bracketIndex);
+                indices[i] = Integer.parseInt(segment.substring(bracketIndex + 1, segment.length() - 1));
+            }else{
+                keys[i] = segment;
+                indices[i] = -1;
+            }
+        }
+    }
+
+    /**
+     * Returns the compiled form of a dot-delimited path, compiling and caching it on first use.
+     *
+     * @param path the key path, e.g. "payload.issue.number" or "students[1].name"
+     * @return the compiled path
+     * @throws NumberFormatException if a list index is not a number
+     */
+    public static JsonPath compile(String path){
+        JsonPath compiled = CACHE.get(path);
+        if(compiled != null) return compiled;
+        compiled = new JsonPath(path, splitOnDots(path));
+        if(CACHE.size() < MAX_CACHED_PATHS){
+            JsonPath existing = CACHE.putIfAbsent(path, compiled);
+            if(existing != null) return existing;
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles a path using a custom delimiter regex. These paths are not cached.
+     *
+     * @param path the key path
+     * @param delimiter regex separating the segments
+     * @return the compiled path
+     */
+    public static JsonPath compile(String path, String delimiter){
+        return new JsonPath(path, path.split(delimiter));
+    }
+
+    private static String[] splitOnDots(String path){
+        int count = 1;
+        for(int i = 0; i < path.length(); i++){
+            if(path.charAt(i) == '.') count++;
+        }
+        String[] segments = new String[count];
+        int start = 0;
+        int segment = 0;
+        for(int i = 0; i < path.length(); i++){
+            if(path.charAt(i) == '.'){
+                segments[segment++] = path.substring(start, i);
+                start = i + 1;
+            }
+        }
+        segments[segment] = path.substring(start);
+        return segments;
+    }
+
+    int size(){
+        return keys.length;
+    }
+
+    String key(int segment){
+        return keys[segment];
+    }
+
+    int index(int segment){
+        return indices[segment];
+    }
+
+    @Override
+    public String toString(){
+        return path;
+    }
+}
@@ -1,5 +1,7 @@
 package org.tommy.model;
 
+import org.tommy.parser.JsonParser;
+
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +14,8 @@ import java.util.Map;
  */
 public class JsonReader {
 
+    private static final String DEFAULT_DELIMITER = "\\.";
+
     // Parsed JSON data stored as a nested map
     private Map<String, Object> data;
 
@@ -29,52 +33,54 @@ public class JsonReader {
     }
 
     public static JsonReader of(Map<String, Object> data){
-        return of(data, "\\.");
+        return of(data, DEFAULT_DELIMITER);
     }
 
     /**
-     * Retrieves a value from the nested map structure using a delimited key path.
-     * Example: getValueForKey("payload.issue.number") will drill down through the
+     * Estimates the heap retained by the underlying data without parsing any lazy members,
+     * see {@link JsonParser#estimateSize(Object)}.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateSize(){
+        return JsonParser.estimateSize(data);
+    }
+
+    /**
+     * Retrieves a value from the nested map structure using a compiled key path.
+     * Example: getValueForKey(JsonPath.compile("payload.issue.number")) will drill down through the
      * 'payload' map, then 'issue', and return the value associated with 'number'.
+     * A segment like "pages[2]" reads the list stored under 'pages' and takes its element at index 2.
      *
-     * @param keys the list of keys
-     * @return the corresponding value (or null if path is invalid)
+     * @param path the compiled key path
+     * @return the corresponding value (or null if path is invalid or an index is out of bounds)
      * @param <T> expected return type
      */
     @SuppressWarnings("unchecked")
-    private  <T> T getValueForNestedKeys(String... keys){
+    public <T> T getValueForKey(JsonPath path){
         Object value = data;
-        for(String key : keys){
-            if(isKeyList(key)){
-                value = fetchValueFromList(key, ((Map<String, List< ? extends Object>>) value));
-            }else if(value instanceof Map){
-                value = ((Map<String, Object>)value).get(key);
-            }else break;
+        for(int i = 0; i < path.size(); i++){
+            if(!(value instanceof Map<?, ?> map)) return null;
+            value = map.get(path.key(i));
+            int index = path.index(i);
+            if(index >= 0){
+                if(!(value instanceof List<?> list) || index >= list.size()) return null;
+                value = list.get(index);
+            }
         }
         return (T)value;
     }
 
-
     /**
-     * Retrieves a value from a list inside a nested JSON structure using a key of the form:
-     * "payload.issues[3]" where "payload.issues" refers to a list and "[3]" is the index.
+     * Retrieves a value from the nested map structure using a delimited key path.
+     * The path is compiled once and cached, see {@link JsonPath#compile(String)}.
      *
-     * @param key the full key string, e.g., "payload.issues[3]"
-     * @return the object at the specified list index, or null if path is invalid or out of bounds
+     * @param key the delimited key path, e.g. "payload.issue.number"
+     * @return the corresponding value (or null if path is invalid)
+     * @param <T> expected return type
      */
-    private Object fetchValueFromList(String key, Map<String, List<? extends Object>> data) {
-        int bracketIndex = key.indexOf("[");
-        int elementNo = Integer.parseInt(key.substring(bracketIndex+1,key.length()-1));
-        String actualKey = key.substring(0,bracketIndex);
-        return data.get(actualKey).get(elementNo);
-    }
-
-    private boolean isKeyList(String key) {
-        return key.indexOf("[") > 0 && key.endsWith("]");
-    }
-
     public <T> T getValueForKey(String key){
-        String[] keys = key.split(delimiter);
-        return getValueForNestedKeys(keys);
+        JsonPath path = DEFAULT_DELIMITER.equals(delimiter) ? JsonPath.compile(key) : JsonPath.compile(key, delimiter);
+        return getValueForKey(path);
     }
 }
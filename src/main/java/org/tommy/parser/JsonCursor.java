@@ -0,0 +1,123 @@
+package org.tommy.parser;
+
+/**
+ * Read position over raw JSON input, shared by {@link JsonParser} and its lazy views.
+ * <p>
+ * Besides the basic token helpers it can skip over a complete value without building it,
+ * which is what lets lazy parsing record a value's offset and move on.
+ */
+final class JsonCursor {
+
+    final String input;
+    int pos;
+
+    JsonCursor(String input){
+        this(input, 0);
+    }
+
+    JsonCursor(String input, int pos){
+        this.input = input;
+        this.pos = pos;
+    }
+
+    void skipWhitespace(){
+        while (pos < input.length()) {
+            char ch = input.charAt(pos);
+            if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') return;
+            pos++;
+        }
+    }
+
+    // Returns the current character, or 0 at end of input
+    char peek(){
+        return pos < input.length() ? input.charAt(pos) : 0;
+    }
+
+    boolean consume(char expected){
+        if (peek() == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    void expect(char expected){
+        if (!consume(expected)) throw error("Expected '" + expected + "'");
+    }
+
+    void expectLiteral(String literal){
+        if (!input.startsWith(literal, pos)) throw error("Expected '" + literal + "'");
+        pos += literal.length();
+    }
+
+    /**
+     * Advances past the value starting at the cursor without materializing it.
+     * Only bracket nesting and string boundaries are checked; the skipped content is
+     * fully validated when (and if) it is parsed later.
+     */
+    void skipValue(){
+        skipWhitespace();
+        char ch = peek();
+        if (ch == '"') {
+            skipString();
+        } else if (ch == '{' || ch == '[') {
+            skipContainer();
+        } else if (ch == 0) {
+            throw error("Unexpected end of input");
+        } else {
+            // Number or literal: runs until the next structural character or whitespace
+            int start = pos;
+            while (pos < input.length()) {
+                char c = input.charAt(pos);
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') break;
+                pos++;
+            }
+            if (pos == start) throw error("Unrecognized JSON value");
+        }
+    }
+
+    // Skips a quoted string, cursor must be on the opening quote
+    void skipString(){
+        int i = pos + 1;
+        while (i < input.length()) {
+            char ch = input.charAt(i);
+            if (ch == '"') {
+                pos = i + 1;
+                return;
+            }
+            i += ch == '\\' ? 2 : 1;
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipContainer(){
+        int start = pos;
+        int depth = 0;
+        int i = pos;
+        while (i < input.length()) {
+            char ch = input.charAt(i);
+            if (ch == '"') {
+                pos = i;
+                skipString();
+                i = pos;
+                continue;
+            }
+            if (ch == '{' || ch == '[') {
+                depth++;
+            } else if (ch == '}' || ch == ']') {
+                if (--depth == 0) {
+                    pos = i + 1;
+                    return;
+                }
+            }
+            i++;
+        }
+        pos = start;
+        throw error("Unterminated object or array");
+    }
+
+    RuntimeException error(String message){
+        int end = Math.min(input.length(), pos + 20);
+        return new RuntimeException(message + " at position " + pos + ": " + input.substring(pos, end));
+    }
+}
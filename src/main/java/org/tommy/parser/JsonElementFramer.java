@@ -0,0 +1,199 @@
+package org.tommy.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Incremental framer for a top-level JSON array arriving as UTF-8 byte chunks, e.g. straight from the network.
+ * <p>
+ * Bytes are scanned as they are {@link #feed(ByteBuffer) fed}, tracking only string, escape and bracket
+ * state. As soon as an element's closing bracket arrives, that element alone is decoded and parsed with
+ * the given {@link JsonParser} and handed to the sink, so parsing overlaps with the transfer of the rest
+ * of the body and only one element's bytes are buffered at a time. Structural bytes are all ASCII and
+ * never occur inside a UTF-8 multi-byte sequence, so chunk boundaries may fall anywhere, even in the
+ * middle of a character.
+ * <p>
+ * Elements must be objects or arrays. A single top-level object is framed as a one-element array.
+ * Instances are not thread-safe; feed them from one thread at a time.
+ */
+public final class JsonElementFramer {
+
+    private enum State { BEFORE_VALUE, BEFORE_ELEMENT, IN_ELEMENT, AFTER_ELEMENT, DONE }
+
+    private final JsonParser parser;
+    private final Consumer<Object> sink;
+
+    private State state = State.BEFORE_VALUE;
+    private boolean topLevelArray;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int elements;
+    private long position;
+    private boolean stopped;
+
+    // Bytes of the current element that arrived in earlier chunks
+    private byte[] pending = new byte[8192];
+    private int pendingLength;
+
+    /**
+     * @param parser parses each completed element
+     * @param sink   receives each parsed element, in input order, on the feeding thread
+     */
+    public JsonElementFramer(JsonParser parser, Consumer<Object> sink){
+        this.parser = parser;
+        this.sink = sink;
+    }
+
+    /**
+     * Scans the remaining bytes of {@code chunk}, emitting every element completed by them.
+     * The buffer's position is advanced to its limit.
+     *
+     * @throws RuntimeException if the bytes are not a well-formed sequence of elements, or if the sink throws
+     */
+    public void feed(ByteBuffer chunk){
+        int start = chunk.position();
+        int limit = chunk.limit();
+        if (stopped) {
+            position += limit - start;
+            chunk.position(limit);
+            return;
+        }
+        // Start of the current element within this chunk, or -1 if it began in an earlier chunk
+        int elementStart = state == State.IN_ELEMENT ? -1 : start;
+        for (int i = start; i < limit; i++) {
+            byte b = chunk.get(i);
+            switch (state) {
+                case IN_ELEMENT -> {
+                    if (inString) {
+                        if (escaped) escaped = false;
+                        else if (b == '\\') escaped = true;
+                        else if (b == '"') inString = false;
+                    } else if (b == '"') {
+                        inString = true;
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                    } else if ((b == '}' || b == ']') && --depth == 0) {
+                        emit(chunk, elementStart, i + 1);
+                        state = topLevelArray ? State.AFTER_ELEMENT : State.DONE;
+                        if (stopped) {
+                            // The rest of the chunk is neither scanned nor parsed
+                            position += limit - start;
+                            chunk.position(limit);
+                            return;
+                        }
+                    }
+                }
+                case BEFORE_VALUE -> {
+                    if (isWhitespace(b)) continue;
+                    if (b == '[') {
+                        topLevelArray = true;
+                        state = State.BEFORE_ELEMENT;
+                    } else if (b == '{') {
+                        elementStart = startElement(i);
+                    } else {
+                        throw error("Expected '[' or '{'", i - start);
+                    }
+                }
+                case BEFORE_ELEMENT -> {
+                    if (isWhitespace(b)) continue;
+                    if (b == '{' || b == '[') {
+                        elementStart = startElement(i);
+                    } else if (b == ']' && elements == 0) {
+                        state = State.DONE;
+                    } else {
+                        throw error("Expected a JSON object or array element", i - start);
+                    }
+                }
+                case AFTER_ELEMENT -> {
+                    if (isWhitespace(b)) continue;
+                    if (b == ',') state = State.BEFORE_ELEMENT;
+                    else if (b == ']') state = State.DONE;
+                    else throw error("Expected ',' or ']'", i - start);
+                }
+                case DONE -> {
+                    if (!isWhitespace(b)) throw error("Unexpected trailing content", i - start);
+                }
+            }
+        }
+        if (state == State.IN_ELEMENT) {
+            append(chunk, elementStart < 0 ? start : elementStart, limit);
+        }
+        position += limit - start;
+        chunk.position(limit);
+    }
+
+    /**
+     * Checks that the input ended after a complete top-level value.
+     *
+     * @throws RuntimeException if the input was empty or ended inside the array or an element,
+     *                          unless the framer was {@link #stop() stopped}
+     */
+    public void finish(){
+        if (state != State.DONE && !stopped) throw new RuntimeException("Unexpected end of input at byte " + position);
+    }
+
+    /**
+     * Stops framing: the rest of the input is ignored, without being scanned or parsed. Typically called
+     * from the sink once it has seen the element it was looking for.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    /**
+     * @return true if {@link #stop()} has been called
+     */
+    public boolean isStopped(){
+        return stopped;
+    }
+
+    /**
+     * @return the number of elements emitted so far
+     */
+    public int getElementCount(){
+        return elements;
+    }
+
+    private int startElement(int index){
+        state = State.IN_ELEMENT;
+        depth = 1;
+        inString = false;
+        escaped = false;
+        pendingLength = 0;
+        return index;
+    }
+
+    private void emit(ByteBuffer chunk, int elementStart, int end){
+        String json;
+        if (elementStart >= 0 && chunk.hasArray()) {
+            // Whole element in this chunk: decode it in place
+            json = new String(chunk.array(), chunk.arrayOffset() + elementStart, end - elementStart, StandardCharsets.UTF_8);
+        } else {
+            append(chunk, elementStart < 0 ? chunk.position() : elementStart, end);
+            json = new String(pending, 0, pendingLength, StandardCharsets.UTF_8);
+        }
+        pendingLength = 0;
+        elements++;
+        sink.accept(parser.parseJson(json));
+    }
+
+    private void append(ByteBuffer chunk, int from, int to){
+        int length = to - from;
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        chunk.get(from, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private RuntimeException error(String message, int offsetInChunk){
+        return new RuntimeException(message + " at byte " + (position + offsetInChunk));
+    }
+
+    private static boolean isWhitespace(byte b){
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
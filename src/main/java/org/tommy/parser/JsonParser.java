@@ -1,5 +1,8 @@
 package org.tommy.parser;
 
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+
 import java.util.*;
 
 
@@ -9,146 +12,379 @@ import java.util.*;
  * Supported types:
  * - JSON objects (mapped to Map<String, Object>)
  * - JSON arrays (mapped to List<Object>)
- * - Strings
+ * - Strings (including escape sequences such as \n, \" and \\uXXXX)
  * - Booleans
- * - Numbers (integers and floating point)
+ * - Numbers (integers as Long, floating point as Double)
  * - null
  *
- * Note: This is a lightweight implementation and does not support all edge cases
- * of the full JSON specification (e.g., unicode escapes, number precision limits).
+ * The parser is a single-pass recursive-descent parser: it walks the input once by index
+ * and never copies intermediate substrings of nested values.
+ *
+ * In lazy mode, objects and arrays are returned as read-only views that only record where each
+ * member starts; a member is parsed the first time it is read, and subtrees that are never read
+ * (for example payload.commits of a PushEvent) are skipped over without being built. Lazy views
+ * keep a reference to the input string until they are discarded.
+ *
+ * Object keys are shared through a {@link SymbolTable}, so the handful of key names that every event
+ * repeats are not copied again for each event; short string values can be shared the same way.
  */
 
 public class JsonParser {
 
+    private final boolean lazy;
+    private final SymbolTable symbols;
+    private final boolean internValues;
+
+    public JsonParser(){
+        this(false);
+    }
+
+    /**
+     * Creates a parser that shares object keys through its own {@link SymbolTable}.
+     *
+     * @param lazy if true, objects and arrays are parsed on first access instead of up front
+     */
+    public JsonParser(boolean lazy){
+        this(lazy, new SymbolTable(), false);
+    }
+
+    /**
+     * @param lazy         if true, objects and arrays are parsed on first access instead of up front
+     * @param symbols      table that object keys are shared through, possibly with other parsers; null to copy every key
+     * @param internValues if true, string values no longer than the table's maximum length are shared too.
+     *                     Worth it when many retained events repeat the same logins, repository names and actions
+     */
+    public JsonParser(boolean lazy, SymbolTable symbols, boolean internValues){
+        if (internValues && symbols == null) throw new IllegalArgumentException("Interning values requires a symbol table");
+        this.lazy = lazy;
+        this.symbols = symbols;
+        this.internValues = internValues;
+    }
 
     /**
      * Entry point to parse a JSON string into corresponding Java objects.
      *
      * @param s the raw JSON string
      * @return a Java object (Map, List, String, Number, Boolean, or null)
+     * @throws RuntimeException if the input is not valid JSON
      */
     public Object parseJson(String s){
-        return parseValue(s);
+        JsonCursor cursor = new JsonCursor(s);
+        Object value = parseValue(cursor);
+        cursor.skipWhitespace();
+        if (cursor.pos < s.length()) {
+            throw cursor.error("Unexpected trailing content");
+        }
+        return value;
     }
 
     /**
-     * Parses a JSON object string into a Map.
-     * Example input: {"key": "value", "num": 42}
+     * Lazily parses the elements of a top-level JSON array, one element per {@link Iterator#next()} call.
+     * Only the element being returned is materialized, so callers can process large arrays
+     * without holding the whole parsed tree. If the input is not an array, the iterator yields
+     * the single parsed value.
+     *
+     * @param s the raw JSON string
+     * @return an iterator over the top-level elements
+     * @throws RuntimeException from {@code next()} if the input is not valid JSON
      */
-    private Object parseObject(String s){
-        s = s.trim();
-        if (!s.endsWith("}")) throw new RuntimeException("Invalid JSON object: " + s);
+    public Iterator<Object> parseJsonElements(String s){
+        JsonCursor cursor = new JsonCursor(s);
+        cursor.skipWhitespace();
+        if (cursor.peek() != '[') {
+            return Collections.singletonList(parseJson(s)).iterator();
+        }
+        return new ArrayElementIterator(cursor);
+    }
 
-        Map<String, Object> map = new LinkedHashMap<>();
-        String body = s.substring(1, s.length() - 1).trim();
-        if (body.isEmpty()) return map;
-        String trimmed = s.substring(1,s.length()-1);
-        List<String> pairs = splitJsonPairs(trimmed);
-        for(String pair: pairs){
-            int colonIndex = pair.indexOf(':');
-            if (colonIndex == -1) {
-                throw new IllegalArgumentException("Invalid key-value pair: " + pair);
+    /**
+     * Parses the single element starting at an offset, such as one line of newline-delimited JSON.
+     *
+     * @param s      the raw JSON string
+     * @param offset start offset of the element
+     * @return a Java object (Map, List, String, Number, Boolean, or null)
+     * @throws RuntimeException if the element is not valid JSON
+     */
+    public Object parseElementAt(String s, int offset){
+        return parseValueAt(s, offset);
+    }
+
+    /**
+     * Estimates the heap retained by a parsed value, in bytes, e.g. to bound a cache of parsed events.
+     * Eager trees are walked. A lazy object or array is charged twice the input it spans, to cover both
+     * its share of the input and the members memoized when they are read, and is not parsed any further.
+     * Strings are assumed to be stored one byte per character.
+     *
+     * @param value a value returned by this parser, or null
+     * @return the estimated size; shared keys and input strings are counted for every value holding them
+     */
+    public static long estimateSize(Object value){
+        return switch (value){
+            case null -> 0;
+            case LazyJsonObject object -> 48 + 16L * object.size() + 2L * object.sourceLength();
+            case LazyJsonArray array -> 48 + 12L * array.size() + 2L * array.sourceLength();
+            case String string -> 40 + string.length();
+            case Map<?, ?> map -> {
+                long size = 48 + 32L * map.size();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+                }
+                yield size;
             }
-            String key = pair.substring(0,colonIndex).trim();
-            if(key.startsWith("\"") && key.endsWith("\"")){
-                key=key.substring(1,key.length()-1);
+            case List<?> list -> {
+                long size = 40 + 8L * list.size();
+                for (Object element : list) size += estimateSize(element);
+                yield size;
             }
-            String valueStr = pair.substring(colonIndex+1);
-            Object value = parseValue(valueStr);
-            map.put(key,value);
+            default -> 16;
+        };
+    }
+
+    /**
+     * Parses the single value starting at the given offset. Used by lazy views to materialize a member.
+     * The work is charged to {@link Stage#PARSE}, also when a member is first read while formatting.
+     */
+    Object parseValueAt(String s, int pos){
+        Stage previous = PipelineMetrics.enter(Stage.PARSE);
+        try {
+            return parseValue(new JsonCursor(s, pos));
+        } finally {
+            PipelineMetrics.enter(previous);
         }
+    }
+
+    /**
+     * Parses a JSON object starting at the cursor into a Map.
+     * Example input: {"key": "value", "num": 42}
+     */
+    private Map<String, Object> parseObject(JsonCursor c){
+        c.expect('{');
+        Map<String, Object> map = new LinkedHashMap<>();
+        c.skipWhitespace();
+        if (c.consume('}')) return map;
+        do {
+            c.skipWhitespace();
+            if (c.peek() != '"') throw c.error("Expected object key");
+            String key = parseKey(c);
+            c.skipWhitespace();
+            c.expect(':');
+            map.put(key, parseValue(c));
+            c.skipWhitespace();
+        } while (c.consume(','));
+        c.expect('}');
         return map;
     }
 
     /**
-     * Parses a JSON array string into a List.
+     * Parses a JSON array starting at the cursor into a List.
      * Example input: [1, "two", true]
      */
-    private Object parseArray(String s){
-        s = s.trim();
+    private List<Object> parseArray(JsonCursor c){
+        c.expect('[');
         List<Object> list = new ArrayList<>();
-        String trimmed = s.substring(1,s.length()-1);
-        List<String> items = splitJsonArray(trimmed);
-        for(String item: items){
-            list.add(parseValue(item));
-        }
+        c.skipWhitespace();
+        if (c.consume(']')) return list;
+        do {
+            list.add(parseValue(c));
+            c.skipWhitespace();
+        } while (c.consume(','));
+        c.expect(']');
         return list;
     }
 
     /**
-     * Splits the key-value pairs inside a JSON object, correctly handling
-     * commas inside strings or nested objects/arrays.
+     * Parses an object key, shared through the symbol table if there is one.
      */
-    private List<String> splitJsonPairs(String s){
-        return splitJsonArray(s);
+    String parseKey(JsonCursor c){
+        return parseString(c, symbols);
     }
 
     /**
-     * Splits the elements of a JSON array (or JSON object key-value pairs).
-     * Correctly handles nesting and quoted commas using a level counter and
-     * string flag.
+     * Parses a quoted JSON string, decoding escape sequences.
+     * Strings without escapes are returned as a single substring of the input, or as the equal string
+     * already in {@code symbols} when one is given.
      */
-    private List<String> splitJsonArray(String s){
-        s= s.trim();
-        List<String> result = new ArrayList<>();
-        int level = 0;
-        StringBuilder current = new StringBuilder();
-        boolean inString = false;
-        for(int i=0; i < s.length(); i++){
-            char c = s.charAt(i);
-
-            // If inside a string we have to ignore ','s and brackets '{', '}', '[', ']'
-            if (c == '"' && (i == 0 || s.charAt(i - 1) != '\\')) {
-                inString = !inString;
+    private String parseString(JsonCursor c, SymbolTable symbols){
+        c.expect('"');
+        String s = c.input;
+        int start = c.pos;
+        int i = start;
+        while (i < s.length()) {
+            char ch = s.charAt(i);
+            if (ch == '"') {
+                c.pos = i + 1;
+                return symbols != null ? symbols.intern(s, start, i) : s.substring(start, i);
             }
-
-            if (c == ',' && level == 0 && !inString) {
-                result.add(current.toString().trim());
-                current.setLength(0);
-            } else {
-                if (!inString) {
-                    if (c == '{' || c == '[') level++;
-                    if (c == '}' || c == ']') level--;
+            if (ch == '\\') break;
+            i++;
+        }
+        // Slow path: the string contains escapes
+        StringBuilder sb = new StringBuilder(i - start + 16);
+        sb.append(s, start, i);
+        while (i < s.length()) {
+            char ch = s.charAt(i++);
+            if (ch == '"') {
+                c.pos = i;
+                return sb.toString();
+            }
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (i >= s.length()) break;
+            char esc = s.charAt(i++);
+            switch (esc) {
+                case '"', '\\', '/' -> sb.append(esc);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (i + 4 > s.length()) {
+                        c.pos = i;
+                        throw c.error("Truncated unicode escape");
+                    }
+                    int code = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int digit = Character.digit(s.charAt(i + k), 16);
+                        if (digit < 0) {
+                            c.pos = i;
+                            throw c.error("Invalid unicode escape");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    i += 4;
+                    sb.append((char) code);
+                }
+                default -> {
+                    c.pos = i - 1;
+                    throw c.error("Invalid escape character '" + esc + "'");
                 }
-                current.append(c);
             }
+        }
+        c.pos = start;
+        throw c.error("Unterminated string");
+    }
+
+    /**
+     * Parses a JSON number. Integers become Long, anything with a fraction or exponent becomes Double.
+     */
+    private Object parseNumber(JsonCursor c){
+        String s = c.input;
+        int start = c.pos;
+        int i = start;
+        boolean floating = false;
+        if (i < s.length() && s.charAt(i) == '-') i++;
+        int digitsStart = i;
+        while (i < s.length() && isDigit(s.charAt(i))) i++;
+        if (i == digitsStart) throw c.error("Invalid number");
+        if (i < s.length() && s.charAt(i) == '.') {
+            floating = true;
+            int fractionStart = ++i;
+            while (i < s.length() && isDigit(s.charAt(i))) i++;
+            if (i == fractionStart) throw c.error("Invalid number");
+        }
+        if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            floating = true;
+            i++;
+            if (i < s.length() && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+            int exponentStart = i;
+            while (i < s.length() && isDigit(s.charAt(i))) i++;
+            if (i == exponentStart) throw c.error("Invalid number");
+        }
+        c.pos = i;
+        try {
+            if (floating) return Double.parseDouble(s.substring(start, i));
+            if (i - start <= 18) return parseSmallLong(s, start, i);
+            return Long.parseLong(s, start, i, 10);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number: " + s.substring(start, i));
+        }
+    }
 
+    // Fast path for integers that cannot overflow a long (at most 18 digits)
+    private static long parseSmallLong(String s, int start, int end){
+        boolean negative = s.charAt(start) == '-';
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
         }
-        if(!current.isEmpty()) result.add(current.toString().trim());
-        return result;
+        return negative ? -value : value;
     }
 
+    private static boolean isDigit(char ch){
+        return ch >= '0' && ch <= '9';
+    }
 
     /**
-     * Determines the type of the value based on its syntax and delegates to appropriate parser.
+     * Determines the type of the value from its first character and delegates to the appropriate parser.
      */
-    private Object parseValue(String s) {
-        s = s.trim();
-        if (s.startsWith("{")) {
-            return parseObject(s);
-        } else if (s.startsWith("[")) {
-            return parseArray(s);
-        } else if (s.startsWith("\"")) {
-            return s.substring(1, s.length() - 1);
-        } else if (s.equals("null")) {
-            return null;
-        } else if (s.equals("true") || s.equals("false")) {
-            return Boolean.parseBoolean(s);
-        } else if (s.matches("-?\\d+(\\.\\d+)?([Ee][+-]?\\d+)?")) {
-
-            try {
-                if (s.contains(".") || s.contains("e") || s.contains("E")) {
-                    return Double.parseDouble(s);
-                } else {
-                    return Long.parseLong(s);
+    Object parseValue(JsonCursor c) {
+        c.skipWhitespace();
+        char ch = c.peek();
+        switch (ch) {
+            case '{':
+                return lazy ? new LazyJsonObject(this, c) : parseObject(c);
+            case '[':
+                return lazy ? new LazyJsonArray(this, c) : parseArray(c);
+            case '"':
+                return parseString(c, internValues ? symbols : null);
+            case 't':
+                c.expectLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                c.expectLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                c.expectLiteral("null");
+                return null;
+            default:
+                if (ch == '-' || isDigit(ch)) return parseNumber(c);
+                throw c.error("Unrecognized JSON value");
+        }
+    }
+
+    /**
+     * Walks a top-level array element by element. The cursor always rests either just after
+     * the opening bracket or just after the previously returned element.
+     */
+    private final class ArrayElementIterator implements Iterator<Object> {
+        private final JsonCursor cursor;
+        private boolean first = true;
+        private boolean positioned;
+        private boolean done;
+
+        private ArrayElementIterator(JsonCursor cursor){
+            this.cursor = cursor;
+            cursor.expect('[');
+        }
+
+        @Override
+        public boolean hasNext(){
+            if (done) return false;
+            if (positioned) return true;
+            cursor.skipWhitespace();
+            if (cursor.consume(']')) {
+                cursor.skipWhitespace();
+                if (cursor.pos < cursor.input.length()) {
+                    throw cursor.error("Unexpected trailing content");
                 }
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("Invalid number: " + s);
+                done = true;
+                return false;
             }
-        } else {
-            throw new RuntimeException("Unrecognized JSON value: " + s);
+            if (!first) cursor.expect(',');
+            positioned = true;
+            return true;
         }
-    }
 
+        @Override
+        public Object next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            first = false;
+            positioned = false;
+            return parseValue(cursor);
+        }
+    }
 
 }
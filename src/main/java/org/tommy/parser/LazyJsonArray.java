@@ -0,0 +1,78 @@
+package org.tommy.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@code List} view over a JSON array that is parsed on demand.
+ * <p>
+ * Construction only records where each element starts; an element is parsed the first time
+ * it is read and then memoized. See {@link LazyJsonObject} for the same scheme applied to objects,
+ * and for how views are shared between threads.
+ */
+final class LazyJsonArray extends AbstractList<Object> implements RandomAccess {
+
+    private static final Object UNPARSED = new Object();
+    private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final JsonParser parser;
+    private final String input;
+    // Span of this value in the input, for size estimates
+    private final int start;
+    private final int end;
+    private final int[] elementStarts;
+    // Read and written through ELEMENTS only
+    private final Object[] elements;
+    private final int size;
+
+    LazyJsonArray(JsonParser parser, JsonCursor c){
+        this.parser = parser;
+        this.input = c.input;
+        this.start = c.pos;
+        int[] elementStarts = new int[8];
+        int size = 0;
+        c.expect('[');
+        c.skipWhitespace();
+        if (!c.consume(']')) {
+            do {
+                c.skipWhitespace();
+                if (size == elementStarts.length) elementStarts = Arrays.copyOf(elementStarts, size * 2);
+                elementStarts[size++] = c.pos;
+                c.skipValue();
+                c.skipWhitespace();
+            } while (c.consume(','));
+            c.expect(']');
+        }
+        this.end = c.pos;
+        Object[] elements = new Object[size];
+        Arrays.fill(elements, UNPARSED);
+        this.elementStarts = elementStarts;
+        this.elements = elements;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of input characters this value spans
+     */
+    int sourceLength(){
+        return end - start;
+    }
+
+    @Override
+    public Object get(int index){
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        Object element = ELEMENTS.getAcquire(elements, index);
+        if (element != UNPARSED) return element;
+        element = parser.parseValueAt(input, elementStarts[index]);
+        Object witness = ELEMENTS.compareAndExchange(elements, index, UNPARSED, element);
+        return witness == UNPARSED ? element : witness;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+}
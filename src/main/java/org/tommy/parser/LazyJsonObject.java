@@ -0,0 +1,152 @@
+package org.tommy.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map} view over a JSON object that is parsed on demand.
+ * <p>
+ * Construction scans only this object's own level: each key is decoded and the offset of its
+ * value recorded, while the value itself is skipped. A value is parsed the first time it is read
+ * and then memoized; nested objects and arrays become lazy views themselves.
+ * <p>
+ * Views are shared between threads, e.g. when cached events are served to concurrent lookups. Keys and
+ * offsets are fixed once constructed, and a parsed value is published with a compare-and-exchange, so
+ * concurrent first reads may both parse a member but all readers get the same, fully built value.
+ */
+final class LazyJsonObject extends AbstractMap<String, Object> {
+
+    // Marks a member whose value has not been parsed yet
+    private static final Object UNPARSED = new Object();
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final JsonParser parser;
+    private final String input;
+    // Span of this value in the input, for size estimates
+    private final int start;
+    private final int end;
+    private final String[] keys;
+    private final int[] valueStarts;
+    // Read and written through VALUES only
+    private final Object[] values;
+    private final int size;
+
+    LazyJsonObject(JsonParser parser, JsonCursor c){
+        this.parser = parser;
+        this.input = c.input;
+        this.start = c.pos;
+        String[] keys = new String[8];
+        int[] valueStarts = new int[8];
+        int size = 0;
+        c.expect('{');
+        c.skipWhitespace();
+        if (!c.consume('}')) {
+            do {
+                c.skipWhitespace();
+                if (c.peek() != '"') throw c.error("Expected object key");
+                String key = parser.parseKey(c);
+                c.skipWhitespace();
+                c.expect(':');
+                c.skipWhitespace();
+                // Like a LinkedHashMap, a repeated key keeps its first position but takes the last value
+                int index = indexOf(keys, size, key);
+                if (index < 0) {
+                    if (size == keys.length) {
+                        keys = Arrays.copyOf(keys, size * 2);
+                        valueStarts = Arrays.copyOf(valueStarts, size * 2);
+                    }
+                    keys[size] = key;
+                    index = size++;
+                }
+                valueStarts[index] = c.pos;
+                c.skipValue();
+                c.skipWhitespace();
+            } while (c.consume(','));
+            c.expect('}');
+        }
+        this.end = c.pos;
+        Object[] values = new Object[size];
+        Arrays.fill(values, UNPARSED);
+        this.keys = keys;
+        this.valueStarts = valueStarts;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of input characters this value spans
+     */
+    int sourceLength(){
+        return end - start;
+    }
+
+    private static int indexOf(String[] keys, int size, Object key){
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(Object key){
+        return indexOf(keys, size, key);
+    }
+
+    private Object valueAt(int index){
+        Object value = VALUES.getAcquire(values, index);
+        if (value != UNPARSED) return value;
+        value = parser.parseValueAt(input, valueStarts[index]);
+        Object witness = VALUES.compareAndExchange(values, index, UNPARSED, value);
+        return witness == UNPARSED ? value : witness;
+    }
+
+    @Override
+    public Object get(Object key){
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key){
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet(){
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next >= size) throw new NoSuchElementException();
+                        int index = next++;
+                        return new SimpleImmutableEntry<>(keys[index], valueAt(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
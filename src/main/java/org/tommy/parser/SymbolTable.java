@@ -0,0 +1,76 @@
+package org.tommy.parser;
+
+/**
+ * Bounded table of canonical strings, so that a key or short value repeated across many parsed
+ * events (such as {@code "type"}, {@code "login"} or {@code "PushEvent"}) is held in memory once
+ * instead of once per event.
+ * <p>
+ * The table is a fixed power-of-two array indexed by the string's hash, with one string per slot.
+ * A lookup decodes nothing: it hashes the characters in place and compares them with the slot's
+ * string, returning that string on a match. On a miss the new string replaces whatever the slot held,
+ * so the table never grows and a stream of one-off values (ids, timestamps) only costs evictions.
+ * Strings longer than {@code maxLength} are never stored.
+ * <p>
+ * One table can be shared by parsers on any number of threads without locking. Slots are read and
+ * written racily, which is benign: strings are immutable and safely published, so a reader sees
+ * either the old or the new canonical string and falls back to a fresh copy at worst.
+ */
+public final class SymbolTable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final String[] symbols;
+    private final int mask;
+    private final int maxLength;
+
+    public SymbolTable(){
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity  number of slots, rounded up to a power of two
+     * @param maxLength longest string that is stored
+     */
+    public SymbolTable(int capacity, int maxLength){
+        if(capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        if(maxLength < 0) throw new IllegalArgumentException("maxLength must not be negative");
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) size <<= 1;
+        this.symbols = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    public int getMaxLength(){
+        return maxLength;
+    }
+
+    /**
+     * Returns the canonical string equal to {@code s.substring(start, end)}, storing it if the slot
+     * does not already hold it.
+     */
+    String intern(String s, int start, int end){
+        int length = end - start;
+        if(length > maxLength) return s.substring(start, end);
+        int hash = 0;
+        for(int i = start; i < end; i++) hash = 31 * hash + s.charAt(i);
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String symbol = symbols[slot];
+        if(symbol != null && symbol.length() == length && symbol.regionMatches(0, s, start, length)) return symbol;
+        symbol = s.substring(start, end);
+        symbols[slot] = symbol;
+        return symbol;
+    }
+
+    /**
+     * @return the number of occupied slots, for sizing
+     */
+    public int size(){
+        int size = 0;
+        for(String symbol : symbols){
+            if(symbol != null) size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,73 @@
+package org.tommy.sink;
+
+import org.tommy.GitHubEventType;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+/**
+ * The fields of one event that {@link ActivitySink}s write, as found in the API response.
+ *
+ * @param user      user whose activity the event belongs to
+ * @param id        event id, a numeric string
+ * @param type      event type as sent by GitHub, e.g. {@code "PushEvent"}, also for types not in {@link GitHubEventType}
+ * @param repo      full name of the repository, e.g. {@code "octocat/hello-world"}
+ * @param action    payload action, e.g. {@code "opened"}; null for event types without one
+ * @param ref       payload ref, e.g. {@code "refs/heads/main"}; null for event types without one
+ * @param number    issue or pull request number; 0 for events without one
+ * @param createdAt creation time, e.g. {@code "2025-01-31T12:00:00Z"}
+ */
+public record ActivityRecord(String user, String id, String type, String repo, String action, String ref,
+                             long number, String createdAt) {
+
+    private static final JsonPath ID = JsonPath.compile("id");
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath REPO_NAME = JsonPath.compile("repo.name");
+    private static final JsonPath PAYLOAD_ACTION = JsonPath.compile("payload.action");
+    private static final JsonPath PAYLOAD_REF = JsonPath.compile("payload.ref");
+    private static final JsonPath PAYLOAD_NUMBER = JsonPath.compile("payload.number");
+    private static final JsonPath PAYLOAD_ISSUE_NUMBER = JsonPath.compile("payload.issue.number");
+    private static final JsonPath PAYLOAD_PULL_REQUEST_NUMBER = JsonPath.compile("payload.pull_request.number");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    /**
+     * Reads the record's fields from a parsed event. Only those paths are parsed out of a lazy event, and the
+     * time it takes counts as the {@link Stage#FORMAT} stage.
+     *
+     * @param user  user whose activity the event belongs to
+     * @param event parsed event from the API or the cache
+     * @return the record
+     */
+    public static ActivityRecord of(String user, JsonReader event){
+        Stage previous = PipelineMetrics.enter(Stage.FORMAT);
+        try {
+            long number = numberValue(event, PAYLOAD_NUMBER);
+            if(number == 0) number = numberValue(event, PAYLOAD_ISSUE_NUMBER);
+            if(number == 0) number = numberValue(event, PAYLOAD_PULL_REQUEST_NUMBER);
+            return new ActivityRecord(user, stringValue(event, ID), stringValue(event, TYPE),
+                    stringValue(event, REPO_NAME), stringValue(event, PAYLOAD_ACTION), stringValue(event, PAYLOAD_REF),
+                    number, stringValue(event, CREATED_AT));
+        } finally {
+            PipelineMetrics.enter(previous);
+        }
+    }
+
+    /**
+     * @return the event type, or null if GitHub sent a type {@link GitHubEventType} does not know
+     */
+    public GitHubEventType eventType(){
+        return GitHubEventType.fromEventType(type);
+    }
+
+    // Numbers (as some events have for their id) are written in decimal
+    private static String stringValue(JsonReader event, JsonPath path){
+        Object value = event.getValueForKey(path);
+        return value == null ? null : value.toString();
+    }
+
+    private static long numberValue(JsonReader event, JsonPath path){
+        Object value = event.getValueForKey(path);
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
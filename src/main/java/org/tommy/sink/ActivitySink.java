@@ -0,0 +1,27 @@
+package org.tommy.sink;
+
+import org.tommy.model.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of machine-readable activity: each event is written as one {@link ActivityRecord}, in a format
+ * chosen with {@link SinkFormat}.
+ * <p>
+ * Sinks buffer their output; records are only guaranteed to have reached the destination once the sink has
+ * been flushed or closed. Sinks are not thread-safe.
+ */
+public interface ActivitySink extends Closeable {
+
+    void write(ActivityRecord record) throws IOException;
+
+    /**
+     * Writes one parsed event, reading only the fields of an {@link ActivityRecord} from it.
+     */
+    default void write(String userName, JsonReader event) throws IOException {
+        write(ActivityRecord.of(userName, event));
+    }
+
+    void flush() throws IOException;
+}
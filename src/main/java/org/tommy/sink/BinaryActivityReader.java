@@ -0,0 +1,139 @@
+package org.tommy.sink;
+
+import org.tommy.GitHubEventType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Reads back the records written by a {@link BinaryActivitySink}, one at a time.
+ * <p>
+ * Not thread-safe.
+ */
+public class BinaryActivityReader implements Closeable {
+
+    private static final GitHubEventType[] TYPES = GitHubEventType.values();
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BufferedChannelWriter.DEFAULT_BUFFER_SIZE).flip();
+    private boolean endOfInput;
+    private boolean headerRead;
+
+    /**
+     * @param channel channel to read from; closed when the reader is closed
+     */
+    public BinaryActivityReader(ReadableByteChannel channel){
+        this.channel = channel;
+    }
+
+    /**
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static BinaryActivityReader open(Path file){
+        try {
+            return new BinaryActivityReader(FileChannel.open(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open binary activity file " + file, e);
+        }
+    }
+
+    /**
+     * @return the next record, or null at the end of the input
+     * @throws IOException           if reading fails
+     * @throws IllegalStateException if the input is not binary activity, or ends in the middle of a record
+     */
+    public ActivityRecord read() throws IOException {
+        if(!headerRead) readHeader();
+        fill(10);
+        if(!buffer.hasRemaining()) return null;
+        long length = getVarLong();
+        if(length > Integer.MAX_VALUE - 10) throw new IllegalStateException("Corrupt binary activity: record of " + length + " bytes");
+        fill((int) length);
+        if(buffer.remaining() < length) throw new IllegalStateException("Binary activity ends in the middle of a record");
+        int end = buffer.position() + (int) length;
+
+        String user = getString();
+        int typeCode = buffer.get() & 0xFF;
+        String type;
+        if(typeCode == 0) type = getString();
+        else if(typeCode <= TYPES.length) type = TYPES[typeCode - 1].getEventType();
+        else throw new IllegalStateException("Corrupt binary activity: unknown type " + typeCode);
+        long id = getVarLong();
+        String idText = id == 0 ? getString() : Long.toString(id - 1);
+        String repo = getString();
+        String action = getString();
+        String ref = getString();
+        long number = getVarLong();
+        long createdAt = getVarLong();
+        String createdAtText = createdAt == 0 ? getString() : Instant.ofEpochSecond(createdAt - 1).toString();
+        if(buffer.position() > end) throw new IllegalStateException("Corrupt binary activity: record overruns its length");
+        // Skips fields added by later versions
+        buffer.position(end);
+        return new ActivityRecord(user, idText, type, repo, action, ref, number, createdAtText);
+    }
+
+    private void readHeader() throws IOException {
+        fill(BinaryActivitySink.MAGIC.length + 1);
+        byte[] magic = new byte[BinaryActivitySink.MAGIC.length];
+        if(buffer.remaining() < magic.length + 1) throw new IllegalStateException("Not binary activity: missing header");
+        buffer.get(magic);
+        if(!Arrays.equals(magic, BinaryActivitySink.MAGIC)) throw new IllegalStateException("Not binary activity: bad magic");
+        int version = buffer.get() & 0xFF;
+        if(version != BinaryActivitySink.VERSION){
+            throw new IllegalStateException("Unsupported binary activity version " + version);
+        }
+        headerRead = true;
+    }
+
+    // Reads until at least count bytes are buffered or the input ends, growing the buffer for large records
+    private void fill(int count) throws IOException {
+        if(buffer.remaining() >= count || endOfInput) return;
+        if(buffer.capacity() < count){
+            buffer = ByteBuffer.allocate(Math.max(count, buffer.capacity() * 2)).put(buffer).flip();
+        }
+        buffer.compact();
+        try {
+            while(buffer.position() < count){
+                if(channel.read(buffer) < 0){
+                    endOfInput = true;
+                    break;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    private long getVarLong(){
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7){
+            if(!buffer.hasRemaining()) throw new IllegalStateException("Binary activity ends in the middle of a record");
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return value;
+        }
+        throw new IllegalStateException("Corrupt binary activity: varint too long");
+    }
+
+    private String getString(){
+        long length = getVarLong();
+        if(length == 0) return null;
+        if(length - 1 > buffer.remaining()) throw new IllegalStateException("Corrupt binary activity: string overruns its record");
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), (int) length - 1, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + (int) length - 1);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
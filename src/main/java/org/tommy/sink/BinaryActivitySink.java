@@ -0,0 +1,183 @@
+package org.tommy.sink;
+
+import org.tommy.GitHubEventType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Writes records in a compact, length-prefixed binary format, read back by {@link BinaryActivityReader}.
+ * <p>
+ * The output starts with the magic bytes {@code GHAR} and a version byte. Each record follows as a varint
+ * byte length and a body of, in order:
+ * <ul>
+ *   <li>user: string</li>
+ *   <li>type: one byte, the {@link GitHubEventType} ordinal + 1; or 0 followed by the type as a string</li>
+ *   <li>id: varint id + 1 for a numeric id; or 0 followed by the id as a string</li>
+ *   <li>repo, action, ref: strings</li>
+ *   <li>number: varint, 0 if none</li>
+ *   <li>created_at: varint epoch second + 1 for a {@code yyyy-MM-ddTHH:mm:ssZ} time since 1970; or 0 followed
+ *       by the time as a string</li>
+ * </ul>
+ * Varints are unsigned LEB128, and a string is a varint of its UTF-8 length + 1 (0 for null) followed by its
+ * bytes. The length prefix lets readers skip records, and fields appended in later versions, without
+ * decoding them. Type ordinals follow the declaration order of {@link GitHubEventType}, so new types may
+ * only be added at its end.
+ * <p>
+ * A typical event takes less than a third of its NDJSON size.
+ */
+public class BinaryActivitySink implements ActivitySink {
+
+    static final byte[] MAGIC = {'G', 'H', 'A', 'R'};
+    static final int VERSION = 1;
+
+    private final BufferedChannelWriter out;
+    // Bodies are encoded here first, since their length goes before them
+    private byte[] body = new byte[256];
+    private int length;
+    private boolean headerWritten;
+
+    /**
+     * @param out writer to write to; closed when the sink is closed
+     */
+    public BinaryActivitySink(BufferedChannelWriter out){
+        this.out = out;
+    }
+
+    @Override
+    public void write(ActivityRecord record) throws IOException {
+        writeHeader();
+        length = 0;
+        putString(record.user());
+        GitHubEventType type = record.eventType();
+        if(type != null){
+            putByte(type.ordinal() + 1);
+        } else {
+            putByte(0);
+            putString(record.type());
+        }
+        long id = parseId(record.id());
+        if(id >= 0){
+            putVarLong(id + 1);
+        } else {
+            putByte(0);
+            putString(record.id());
+        }
+        putString(record.repo());
+        putString(record.action());
+        putString(record.ref());
+        putVarLong(Math.max(0, record.number()));
+        long createdAt = parseUtcSeconds(record.createdAt());
+        if(createdAt >= 0){
+            putVarLong(createdAt + 1);
+        } else {
+            putByte(0);
+            putString(record.createdAt());
+        }
+        out.writeVarLong(length);
+        out.write(body, 0, length);
+    }
+
+    // Written with the first record, or on close for an empty output, so the output is always readable
+    private void writeHeader() throws IOException {
+        if(headerWritten) return;
+        out.write(MAGIC);
+        out.write(VERSION);
+        headerWritten = true;
+    }
+
+    private void ensure(int bytes){
+        if(body.length - length < bytes) body = Arrays.copyOf(body, Math.max(body.length * 2, length + bytes));
+    }
+
+    private void putByte(int value){
+        ensure(1);
+        body[length++] = (byte) value;
+    }
+
+    private void putVarLong(long value){
+        ensure(10);
+        while((value & ~0x7FL) != 0){
+            body[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        body[length++] = (byte) value;
+    }
+
+    // ASCII strings, nearly all of them, are copied in bulk without encoding them into a byte array first
+    @SuppressWarnings("deprecation")
+    private void putString(String value){
+        if(value == null){
+            putByte(0);
+            return;
+        }
+        int chars = value.length();
+        int i = 0;
+        while(i < chars && value.charAt(i) < 0x80) i++;
+        if(i == chars){
+            putVarLong(chars + 1L);
+            ensure(chars);
+            // Copies the low byte of each character, which for ASCII is its UTF-8 encoding
+            value.getBytes(0, chars, body, length);
+            length += chars;
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putVarLong(bytes.length + 1L);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, body, length, bytes.length);
+        length += bytes.length;
+    }
+
+    // Returns -1 unless id is decimal digits that read back the same, i.e. without leading zeros
+    static long parseId(String id){
+        if(id == null || id.isEmpty() || id.length() > 18 || id.length() > 1 && id.charAt(0) == '0') return -1;
+        long value = 0;
+        for(int i = 0; i < id.length(); i++){
+            char ch = id.charAt(i);
+            if(ch < '0' || ch > '9') return -1;
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    // Returns -1 unless text is a valid yyyy-MM-ddTHH:mm:ssZ time since 1970, the form GitHub uses and
+    // Instant#toString prints it back in
+    static long parseUtcSeconds(String text){
+        if(text == null || text.length() != 20 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != 'Z') return -1;
+        int year = digits(text, 0, 4), month = digits(text, 5, 2), day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2), minute = digits(text, 14, 2), second = digits(text, 17, 2);
+        if(year < 1970 || month < 1 || month > 12 || day < 1 || day > 28 && day > YearMonth.of(year, month).lengthOfMonth()
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return -1;
+        return LocalDate.of(year, month, day).toEpochDay() * 86_400 + hour * 3600 + minute * 60 + second;
+    }
+
+    // Returns -1 unless text[start, start + count) is all ASCII digits
+    private static int digits(String text, int start, int count){
+        int value = 0;
+        for(int i = start; i < start + count; i++){
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeader();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.tommy.sink;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered writer of bytes and text to a {@link WritableByteChannel}.
+ * <p>
+ * Everything is written straight into one reusable buffer, which goes to the channel only when it is full or
+ * flushed, so a record costs no system call and no intermediate byte array or encoder. Text is encoded as
+ * UTF-8, with a fast path for ASCII; unpaired surrogates are written as {@code '?'}, as
+ * {@link String#getBytes} does.
+ * <p>
+ * Not thread-safe.
+ */
+public final class BufferedChannelWriter implements Appendable, Flushable, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final byte[] buffer;
+    private final ByteBuffer view;
+    private int position;
+    private long bytesWritten;
+    // High surrogate of a character whose low surrogate may come with the next append
+    private char pendingHighSurrogate;
+
+    public BufferedChannelWriter(WritableByteChannel channel){
+        this(channel, DEFAULT_BUFFER_SIZE, true);
+    }
+
+    /**
+     * @param channel      channel to write to
+     * @param bufferSize   bytes buffered before writing to the channel, at least 32
+     * @param closeChannel whether {@link #close()} also closes the channel
+     */
+    public BufferedChannelWriter(WritableByteChannel channel, int bufferSize, boolean closeChannel){
+        if(bufferSize < 32) throw new IllegalArgumentException("bufferSize must be at least 32");
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.buffer = new byte[bufferSize];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Creates or truncates {@code file} and returns a writer to it.
+     *
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public static BufferedChannelWriter open(Path file){
+        try {
+            return new BufferedChannelWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open output file " + file, e);
+        }
+    }
+
+    /**
+     * Returns a writer to the process's standard output that bypasses {@link System#out}, which should be
+     * flushed first. Closing the writer flushes it but leaves standard output open.
+     */
+    public static BufferedChannelWriter standardOutput(){
+        return new BufferedChannelWriter(new FileOutputStream(FileDescriptor.out).getChannel(), DEFAULT_BUFFER_SIZE, false);
+    }
+
+    public void write(int b) throws IOException {
+        if(position == buffer.length) drain();
+        buffer[position++] = (byte) b;
+    }
+
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while(length > 0){
+            if(position == buffer.length) drain();
+            int count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Writes a non-negative value as an unsigned LEB128 varint: seven bits per byte, low bits first.
+     */
+    public void writeVarLong(long value) throws IOException {
+        if(buffer.length - position < 10) drain();
+        while((value & ~0x7FL) != 0){
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes {@code value} in decimal, without going through a String.
+     */
+    public void writeDecimal(long value) throws IOException {
+        if(value == Long.MIN_VALUE){
+            append("-9223372036854775808");
+            return;
+        }
+        if(buffer.length - position < 20) drain();
+        if(value < 0){
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for(long rest = value / 10; rest != 0; rest /= 10) digits++;
+        position += digits;
+        int i = position;
+        do {
+            buffer[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while(value != 0);
+    }
+
+    @Override
+    public BufferedChannelWriter append(CharSequence text) throws IOException {
+        if(text == null) text = "null";
+        return append(text, 0, text.length());
+    }
+
+    @Override
+    public BufferedChannelWriter append(CharSequence text, int start, int end) throws IOException {
+        if(text == null) text = "null";
+        int i = start;
+        while(i < end){
+            // Runs of ASCII are copied a buffer's worth at a time
+            if(pendingHighSurrogate == 0){
+                if(position == buffer.length) drain();
+                int limit = Math.min(end, i + buffer.length - position);
+                char ch;
+                while(i < limit && (ch = text.charAt(i)) < 0x80){
+                    buffer[position++] = (byte) ch;
+                    i++;
+                }
+                if(i == end) break;
+                if(i == limit) continue;
+            }
+            encode(text.charAt(i++));
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code text[start, end)}, which the caller has checked is all ASCII, copying it in bulk rather
+     * than encoding it a character at a time.
+     */
+    @SuppressWarnings("deprecation")
+    void appendAscii(String text, int start, int end) throws IOException {
+        while(start < end){
+            if(position == buffer.length) drain();
+            int count = Math.min(end - start, buffer.length - position);
+            // Copies the low byte of each character, which for ASCII is its UTF-8 encoding
+            text.getBytes(start, start + count, buffer, position);
+            position += count;
+            start += count;
+        }
+    }
+
+    @Override
+    public BufferedChannelWriter append(char ch) throws IOException {
+        if(ch < 0x80 && pendingHighSurrogate == 0){
+            if(position == buffer.length) drain();
+            buffer[position++] = (byte) ch;
+        } else {
+            encode(ch);
+        }
+        return this;
+    }
+
+    private void encode(char ch) throws IOException {
+        if(pendingHighSurrogate != 0){
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if(Character.isLowSurrogate(ch)){
+                writeCodePoint(Character.toCodePoint(high, ch));
+                return;
+            }
+            writeCodePoint('?');
+        }
+        if(Character.isHighSurrogate(ch)) pendingHighSurrogate = ch;
+        else writeCodePoint(Character.isLowSurrogate(ch) ? '?' : ch);
+    }
+
+    private void writeCodePoint(int codePoint) throws IOException {
+        if(buffer.length - position < 4) drain();
+        if(codePoint < 0x80){
+            buffer[position++] = (byte) codePoint;
+        } else if(codePoint < 0x800){
+            buffer[position++] = (byte) (0xC0 | codePoint >> 6);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+        } else if(codePoint < 0x10000){
+            buffer[position++] = (byte) (0xE0 | codePoint >> 12);
+            buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+        } else {
+            buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+        }
+    }
+
+    // Writes out the whole buffer, looping since a channel may take only part of it
+    private void drain() throws IOException {
+        view.clear().limit(position);
+        while(view.hasRemaining()) channel.write(view);
+        bytesWritten += position;
+        position = 0;
+    }
+
+    /**
+     * @return bytes written so far, including those still buffered
+     */
+    public long getBytesWritten(){
+        return bytesWritten + position;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel. A high surrogate whose low surrogate has not been appended yet
+     * stays buffered.
+     */
+    @Override
+    public void flush() throws IOException {
+        if(position > 0) drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if(pendingHighSurrogate != 0){
+                pendingHighSurrogate = 0;
+                writeCodePoint('?');
+            }
+            flush();
+        } finally {
+            if(closeChannel) channel.close();
+        }
+    }
+}
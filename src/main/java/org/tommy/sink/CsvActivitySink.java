@@ -0,0 +1,91 @@
+package org.tommy.sink;
+
+import java.io.IOException;
+
+/**
+ * Writes records as comma-separated values (RFC 4180): a header row, then one row per record with the
+ * columns {@value #HEADER}. Rows end with CRLF; values containing a comma, quote or line break are quoted,
+ * with quotes doubled. Missing values, including a number of 0, are written as empty fields.
+ */
+public class CsvActivitySink implements ActivitySink {
+
+    public static final String HEADER = "user,id,type,repo,action,ref,number,created_at";
+
+    private static final String LINE_END = "\r\n";
+
+    private final BufferedChannelWriter out;
+    private boolean headerWritten;
+
+    /**
+     * @param out writer to write to; closed when the sink is closed
+     */
+    public CsvActivitySink(BufferedChannelWriter out){
+        this.out = out;
+    }
+
+    @Override
+    public void write(ActivityRecord record) throws IOException {
+        writeHeader();
+        writeField(record.user());
+        out.append(',');
+        writeField(record.id());
+        out.append(',');
+        writeField(record.type());
+        out.append(',');
+        writeField(record.repo());
+        out.append(',');
+        writeField(record.action());
+        out.append(',');
+        writeField(record.ref());
+        out.append(',');
+        if(record.number() != 0) out.writeDecimal(record.number());
+        out.append(',');
+        writeField(record.createdAt());
+        out.append(LINE_END);
+    }
+
+    // Written with the first record, or on close for an empty output, so the file always has one
+    private void writeHeader() throws IOException {
+        if(headerWritten) return;
+        out.append(HEADER).append(LINE_END);
+        headerWritten = true;
+    }
+
+    // Values are nearly always ASCII without anything to quote, so they are checked first and then copied in bulk
+    private void writeField(String value) throws IOException {
+        if(value == null) return;
+        boolean ascii = true;
+        boolean quote = false;
+        for(int i = 0; i < value.length() && !quote; i++){
+            char ch = value.charAt(i);
+            ascii &= ch < 0x80;
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if(!quote){
+            if(ascii) out.appendAscii(value, 0, value.length());
+            else out.append(value);
+            return;
+        }
+        out.append('"');
+        int start = 0;
+        for(int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', i + 1)){
+            out.append(value, start, i + 1).append('"');
+            start = i + 1;
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeader();
+        } finally {
+            out.close();
+        }
+    }
+}
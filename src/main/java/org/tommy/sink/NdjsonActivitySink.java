@@ -0,0 +1,126 @@
+package org.tommy.sink;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes each record as one JSON object on a line of its own (newline-delimited JSON), e.g.
+ * <pre>{@code
+ * {"user":"octocat","id":"123","type":"IssuesEvent","repo":"octocat/app","action":"opened","ref":null,"number":7,"created_at":"2025-01-31T12:00:00Z"}
+ * }</pre>
+ * Missing values, including a number of 0, are written as {@code null}.
+ */
+public class NdjsonActivitySink implements ActivitySink {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // The fixed parts of a record, encoded once
+    private static final byte[] USER = ascii("{\"user\":");
+    private static final byte[] ID = ascii(",\"id\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] REPO = ascii(",\"repo\":");
+    private static final byte[] ACTION = ascii(",\"action\":");
+    private static final byte[] REF = ascii(",\"ref\":");
+    private static final byte[] NUMBER = ascii(",\"number\":");
+    private static final byte[] CREATED_AT = ascii(",\"created_at\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] END = ascii("}\n");
+
+    private final BufferedChannelWriter out;
+
+    /**
+     * @param out writer to write to; closed when the sink is closed
+     */
+    public NdjsonActivitySink(BufferedChannelWriter out){
+        this.out = out;
+    }
+
+    @Override
+    public void write(ActivityRecord record) throws IOException {
+        out.write(USER);
+        writeString(record.user());
+        out.write(ID);
+        writeString(record.id());
+        out.write(TYPE);
+        writeString(record.type());
+        out.write(REPO);
+        writeString(record.repo());
+        out.write(ACTION);
+        writeString(record.action());
+        out.write(REF);
+        writeString(record.ref());
+        out.write(NUMBER);
+        if(record.number() == 0) out.write(NULL);
+        else out.writeDecimal(record.number());
+        out.write(CREATED_AT);
+        writeString(record.createdAt());
+        out.write(END);
+    }
+
+    private static byte[] ascii(String text){
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Values are nearly always ASCII without anything to escape, so they are checked first and then copied in bulk
+    private void writeString(String value) throws IOException {
+        if(value == null){
+            out.write(NULL);
+            return;
+        }
+        out.write('"');
+        int i = 0;
+        while(i < value.length()){
+            char ch = value.charAt(i);
+            if(ch < 0x20 || ch >= 0x80 || ch == '"' || ch == '\\') break;
+            i++;
+        }
+        out.appendAscii(value, 0, i);
+        if(i == value.length()) out.write('"');
+        else appendEscaped(out, value, i);
+    }
+
+    /**
+     * Appends a value as a JSON string literal, escaped as in the records, or {@code null}.
+     *
+     * @param out   destination
+     * @param value value to append, or null
+     * @throws IOException if appending to {@code out} fails
+     */
+    public static void appendJsonString(Appendable out, String value) throws IOException {
+        if(value == null){
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        appendEscaped(out, value, 0);
+    }
+
+    // Appends value from first on, escaping quotes, backslashes and control characters, then the closing quote
+    private static void appendEscaped(Appendable out, String value, int first) throws IOException {
+        int start = first;
+        for(int i = first; i < value.length(); i++){
+            char ch = value.charAt(i);
+            if(ch >= 0x20 && ch != '"' && ch != '\\') continue;
+            out.append(value, start, i);
+            switch (ch){
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append("\\u00").append(HEX[ch >> 4]).append(HEX[ch & 0xF]);
+            }
+            start = i + 1;
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,45 @@
+package org.tommy.sink;
+
+import java.util.Locale;
+
+/**
+ * Machine-readable output formats, each with the {@link ActivitySink} writing it.
+ */
+public enum SinkFormat {
+    /** One JSON object per line, see {@link NdjsonActivitySink}. */
+    NDJSON,
+    /** Comma-separated values with a header row, see {@link CsvActivitySink}. */
+    CSV,
+    /** Length-prefixed binary records, see {@link BinaryActivitySink}. */
+    BINARY;
+
+    /**
+     * @return the lower-case name used on the command line, e.g. {@code "ndjson"}
+     */
+    public String label(){
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param label a format's {@link #label()}
+     * @return the format, or null if there is none with that label
+     */
+    public static SinkFormat fromLabel(String label){
+        for(SinkFormat format : values()){
+            if(format.label().equals(label)) return format;
+        }
+        return null;
+    }
+
+    /**
+     * @param out writer the sink writes to and closes when it is closed
+     * @return a sink writing this format to {@code out}
+     */
+    public ActivitySink newSink(BufferedChannelWriter out){
+        return switch (this){
+            case NDJSON -> new NdjsonActivitySink(out);
+            case CSV -> new CsvActivitySink(out);
+            case BINARY -> new BinaryActivitySink(out);
+        };
+    }
+}
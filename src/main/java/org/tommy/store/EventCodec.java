@@ -0,0 +1,194 @@
+package org.tommy.store;
+
+import org.tommy.GitHubEventType;
+import org.tommy.event.GitHubEvent;
+import org.tommy.event.GitHubEvent.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Binary encoding of a stored event: its id, creation time and actor, followed by the fields of its
+ * {@link GitHubEvent} record.
+ * <p>
+ * Integers are written as variable-length quantities (7 bits per byte, zig-zag for values that may be
+ * negative) and strings as their UTF-8 length plus one followed by the bytes, with 0 meaning null. A
+ * typical event takes well under 100 bytes, against a few kilobytes of JSON.
+ */
+final class EventCodec {
+
+    private static final GitHubEventType[] TYPES = GitHubEventType.values();
+
+    private EventCodec(){}
+
+    /**
+     * Growable output buffer for one encoded event.
+     */
+    static final class Writer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void reset(){
+            size = 0;
+        }
+
+        int size(){
+            return size;
+        }
+
+        byte[] bytes(){
+            return bytes;
+        }
+
+        private void ensure(int extra){
+            if(size + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+
+        void putByte(int value){
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void putVarLong(long value){
+            ensure(10);
+            while((value & ~0x7FL) != 0){
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void putSignedVarLong(long value){
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putBoolean(boolean value){
+            putByte(value ? 1 : 0);
+        }
+
+        void putString(String value){
+            if(value == null){
+                putByte(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+    }
+
+    static void encode(Writer out, long id, long createdAtSeconds, String login, GitHubEvent event){
+        out.putVarLong(id);
+        out.putSignedVarLong(createdAtSeconds);
+        out.putString(login);
+        out.putByte(event.type().ordinal());
+        switch (event){
+            case CommitCommentEventRecord e -> { out.putString(e.commitId()); out.putString(e.repo()); }
+            case ForkEventRecord e -> { out.putString(e.forkee()); out.putString(e.repo()); }
+            case MemberEventRecord e -> { out.putString(e.member()); out.putString(e.repo()); }
+            case PublicEventRecord e -> out.putString(e.repo());
+            case PullRequestReviewEventRecord e -> {
+                out.putString(e.state()); out.putSignedVarLong(e.number()); out.putString(e.repo());
+            }
+            case PullRequestReviewCommentEventRecord e -> {
+                out.putBoolean(e.edited()); out.putSignedVarLong(e.number()); out.putString(e.repo());
+            }
+            case PushEventRecord e -> { out.putString(e.repo()); out.putSignedVarLong(e.distinctSize()); }
+            case ReleaseEventRecord e -> { out.putString(e.action()); out.putString(e.release()); out.putString(e.repo()); }
+            case SponsorshipEventRecord e -> { out.putString(e.action()); out.putString(e.sponsorable()); }
+            case WatchEventRecord e -> out.putString(e.repo());
+            case IssueCommentEventRecord e -> {
+                out.putString(e.action()); out.putBoolean(e.pullRequest()); out.putSignedVarLong(e.number());
+                out.putString(e.repo());
+            }
+            case DeleteEventRecord e -> { out.putString(e.refType()); out.putString(e.ref()); out.putString(e.repo()); }
+            case CreateEventRecord e -> { out.putString(e.refType()); out.putString(e.ref()); out.putString(e.repo()); }
+            case IssuesEventRecord e -> {
+                out.putString(e.action()); out.putSignedVarLong(e.number()); out.putString(e.title()); out.putString(e.repo());
+            }
+            case GollumEventRecord e -> {
+                out.putString(e.repo());
+                out.putVarLong(e.pages().size());
+                for(WikiPage page : e.pages()){
+                    out.putString(page.action());
+                    out.putString(page.pageName());
+                }
+            }
+            case PullRequestEventRecord e -> {
+                out.putString(e.action()); out.putSignedVarLong(e.number()); out.putString(e.title()); out.putString(e.repo());
+            }
+        }
+    }
+
+    /**
+     * Decodes an event written by {@link #encode}. The buffer's position is advanced past it.
+     *
+     * @throws RuntimeException if the bytes are not a valid encoding
+     */
+    static EventStore.StoredEvent decode(ByteBuffer in){
+        long id = getVarLong(in);
+        long createdAtSeconds = getSignedVarLong(in);
+        String login = getString(in);
+        int ordinal = in.get();
+        if(ordinal < 0 || ordinal >= TYPES.length) throw new IllegalStateException("Unknown event type ordinal " + ordinal);
+        GitHubEvent event = switch (TYPES[ordinal]){
+            case COMMIT_COMMENT_EVENT -> new CommitCommentEventRecord(getString(in), getString(in));
+            case FORK_EVENT -> new ForkEventRecord(getString(in), getString(in));
+            case MEMBER_EVENT -> new MemberEventRecord(getString(in), getString(in));
+            case PUBLIC_EVENT -> new PublicEventRecord(getString(in));
+            case PULL_REQUEST_REVIEW_EVENT ->
+                    new PullRequestReviewEventRecord(getString(in), getSignedVarLong(in), getString(in));
+            case PULL_REQUEST_REVIEW_COMMENT_EVENT ->
+                    new PullRequestReviewCommentEventRecord(in.get() != 0, getSignedVarLong(in), getString(in));
+            case PUSH_EVENT -> new PushEventRecord(getString(in), getSignedVarLong(in));
+            case RELEASE_EVENT -> new ReleaseEventRecord(getString(in), getString(in), getString(in));
+            case SPONSOR_EVENT -> new SponsorshipEventRecord(getString(in), getString(in));
+            case WATCH_EVENT -> new WatchEventRecord(getString(in));
+            case ISSUE_COMMENT_EVENT ->
+                    new IssueCommentEventRecord(getString(in), in.get() != 0, getSignedVarLong(in), getString(in));
+            case DELETE_EVENT -> new DeleteEventRecord(getString(in), getString(in), getString(in));
+            case CREATE_EVENT -> new CreateEventRecord(getString(in), getString(in), getString(in));
+            case ISSUES_EVENT -> new IssuesEventRecord(getString(in), getSignedVarLong(in), getString(in), getString(in));
+            case GOLLUM_EVENT -> {
+                String repo = getString(in);
+                int count = (int) getVarLong(in);
+                List<WikiPage> pages = new ArrayList<>(Math.min(count, 64));
+                for(int i = 0; i < count; i++) pages.add(new WikiPage(getString(in), getString(in)));
+                yield new GollumEventRecord(repo, pages);
+            }
+            case PULL_REQUEST_EVENT ->
+                    new PullRequestEventRecord(getString(in), getSignedVarLong(in), getString(in), getString(in));
+        };
+        return new EventStore.StoredEvent(id, createdAtSeconds, login, event);
+    }
+
+    static long getVarLong(ByteBuffer in){
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7){
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed variable-length integer");
+    }
+
+    private static long getSignedVarLong(ByteBuffer in){
+        long value = getVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String getString(ByteBuffer in){
+        long length = getVarLong(in) - 1;
+        if(length < 0) return null;
+        if(length > in.remaining()) throw new IllegalStateException("String length " + length + " exceeds the record");
+        byte[] utf8 = new byte[(int) length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
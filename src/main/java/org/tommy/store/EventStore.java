@@ -0,0 +1,537 @@
+package org.tommy.store;
+
+import org.tommy.GitHubEventType;
+import org.tommy.event.GitHubEvent;
+import org.tommy.event.GitHubEventDecoder;
+import org.tommy.model.JsonPath;
+import org.tommy.model.JsonReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only local store of GitHub events, deduplicated by event id.
+ * <p>
+ * A store is a directory with two files:
+ * <ul>
+ *   <li>{@code events.log}, the source of truth: one record per event, each a length, a CRC32C of the
+ *   body, and the body in {@link EventCodec}'s compact binary form (the decoded {@link GitHubEvent}
+ *   plus id, creation time and actor login);</li>
+ *   <li>{@code events.idx}, fixed-width entries in log order holding each event's id, creation time,
+ *   record offset and size, and a hash of the lower-cased actor login.</li>
+ * </ul>
+ * Both files are memory-mapped for reading. Opening a store loads the ids and builds per-user lists of
+ * index entries from the index file; a query takes the user's entries, selects a {@code created_at}
+ * range from the index, and decodes only the matching records. Nothing is parsed as JSON again.
+ * <p>
+ * Appends are buffered and written log first, then index, so after a crash the index never points
+ * past intact log data it has checked. Opening a store recovers from a crash: index entries whose
+ * records are missing or fail their checksum are dropped, log records that made it to disk without
+ * their index entries are indexed again, and a torn record at the end of the log is truncated away.
+ * <p>
+ * Instances are safe to share between threads; a store directory is locked against use by other
+ * processes while it is open. The log is read through a single mapping, which limits it to 2 GB.
+ */
+public final class EventStore implements Closeable {
+
+    static final String LOG_FILE = "events.log";
+    static final String INDEX_FILE = "events.idx";
+
+    private static final byte[] LOG_MAGIC = "GHEVLOG1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INDEX_MAGIC = "GHEVIDX1".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 32;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // Index entry layout
+    private static final int ENTRY_ID = 0;
+    private static final int ENTRY_CREATED_AT = 8;
+    private static final int ENTRY_OFFSET = 16;
+    private static final int ENTRY_LOGIN_HASH = 24;
+    private static final int ENTRY_SIZE = 28;
+
+    private static final JsonPath ID = JsonPath.compile("id");
+    private static final JsonPath TYPE = JsonPath.compile("type");
+    private static final JsonPath ACTOR_LOGIN = JsonPath.compile("actor.login");
+    private static final JsonPath CREATED_AT = JsonPath.compile("created_at");
+
+    private final Path directory;
+    private final FileChannel log;
+    private final FileChannel index;
+    private final FileLock fileLock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final GitHubEventDecoder decoder = new GitHubEventDecoder();
+    private final EventCodec.Writer writer = new EventCodec.Writer();
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer logBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final LongHashSet ids = new LongHashSet();
+    private final Map<Integer, Postings> entriesByLogin = new HashMap<>();
+    private final Recovery recovery;
+    // End of the log and number of index entries, including what is still buffered
+    private long logSize;
+    private int entries;
+    private boolean closed;
+
+    /**
+     * A stored event.
+     *
+     * @param id               GitHub event id
+     * @param createdAtSeconds creation time in epoch seconds
+     * @param login            actor login
+     * @param event            the decoded event, ready for {@code GitHubEventActivityFormatter}
+     */
+    public record StoredEvent(long id, long createdAtSeconds, String login, GitHubEvent event) {
+
+        public Instant createdAt(){
+            return Instant.ofEpochSecond(createdAtSeconds);
+        }
+    }
+
+    /**
+     * What opening the store had to repair after an unclean shutdown.
+     *
+     * @param truncatedLogBytes   bytes of torn or corrupt records cut from the end of the log
+     * @param droppedIndexEntries index entries dropped because their records were missing or corrupt
+     * @param reindexedEvents     log records indexed again because their entries were missing
+     */
+    public record Recovery(long truncatedLogBytes, int droppedIndexEntries, int reindexedEvents) {
+
+        public boolean isClean(){
+            return truncatedLogBytes == 0 && droppedIndexEntries == 0 && reindexedEvents == 0;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Recovered event store: truncated %d log bytes, dropped %d index entries, reindexed %d events",
+                    truncatedLogBytes, droppedIndexEntries, reindexedEvents);
+        }
+    }
+
+    /**
+     * Opens the store in {@code directory}, creating it if needed and recovering from an unclean shutdown.
+     *
+     * @throws UncheckedIOException if the files cannot be opened, or the store is in use by another process
+     * @throws IllegalStateException if the directory holds files that are not an event store
+     */
+    public EventStore(Path directory){
+        this.directory = directory;
+        FileChannel log = null, index = null;
+        try {
+            Files.createDirectories(directory);
+            log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.fileLock = log.tryLock();
+            if(fileLock == null) throw new IOException("Event store is in use by another process");
+            this.log = log;
+            this.index = index;
+            this.recovery = recover();
+        } catch (IOException e) {
+            closeQuietly(log);
+            closeQuietly(index);
+            throw new UncheckedIOException("Could not open event store " + directory, e);
+        } catch (RuntimeException e) {
+            closeQuietly(log);
+            closeQuietly(index);
+            throw e;
+        }
+    }
+
+    public Recovery getRecovery(){
+        return recovery;
+    }
+
+    /**
+     * @return number of events in the store
+     */
+    public int size(){
+        lock.lock();
+        try {
+            return entries;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a parsed event unless an event with the same id is already stored. Events without a
+     * numeric id or a valid {@code created_at}, and events of types the formatter does not support,
+     * are not stored. The event reaches the files on {@link #flush()}, on a query, or once the write
+     * buffer fills up.
+     *
+     * @return true if the event was stored
+     * @throws UncheckedIOException if writing fails
+     */
+    public boolean append(JsonReader event){
+        long id = parseId(event.getValueForKey(ID));
+        if(id < 0) return false;
+        GitHubEventType type = GitHubEventType.fromEventType(event.getValueForKey(TYPE));
+        if(type == null) return false;
+        long createdAt = parseEpochSecond(event.getValueForKey(CREATED_AT));
+        if(createdAt == Long.MIN_VALUE) return false;
+        String login = event.getValueForKey(ACTOR_LOGIN);
+        lock.lock();
+        try {
+            ensureOpen();
+            if(ids.contains(id)) return false;
+            GitHubEvent decoded = decoder.decode(event);
+            writer.reset();
+            EventCodec.encode(writer, id, createdAt, login, decoded);
+            int size = writer.size();
+            if(size > MAX_RECORD_SIZE) return false;
+            crc.reset();
+            crc.update(writer.bytes(), 0, size);
+            if(logBuffer.remaining() < RECORD_HEADER_SIZE + size || indexBuffer.remaining() < INDEX_ENTRY_SIZE){
+                flushBuffers();
+            }
+            long offset = logSize;
+            if(logBuffer.remaining() < RECORD_HEADER_SIZE + size){
+                // Larger than the whole buffer: written straight through
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + size);
+                record.putInt(size).putInt((int) crc.getValue()).put(writer.bytes(), 0, size).flip();
+                writeFully(log, record, offset);
+            }else{
+                logBuffer.putInt(size).putInt((int) crc.getValue()).put(writer.bytes(), 0, size);
+            }
+            logSize += RECORD_HEADER_SIZE + size;
+            int loginHash = loginHash(login);
+            putIndexEntry(indexBuffer, id, createdAt, offset, loginHash, size);
+            addEntry(id, loginHash);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to event store " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a user's stored events created in {@code [from, to)}, newest first as the API lists them.
+     *
+     * @param login user login, matched case-insensitively
+     * @param from  earliest creation time to include, or null for no lower bound
+     * @param to    creation time to stop before, or null for no upper bound
+     * @throws UncheckedIOException if reading fails
+     */
+    public List<StoredEvent> query(String login, Instant from, Instant to){
+        long fromSeconds = from == null ? Long.MIN_VALUE : from.getEpochSecond();
+        long toSeconds = to == null ? Long.MAX_VALUE : to.getEpochSecond();
+        int[] candidates;
+        long mappedLogSize;
+        int mappedEntries;
+        lock.lock();
+        try {
+            ensureOpen();
+            flushBuffers();
+            Postings postings = entriesByLogin.get(loginHash(login));
+            if(postings == null) return List.of();
+            candidates = Arrays.copyOf(postings.entries, postings.size);
+            mappedLogSize = logSize;
+            mappedEntries = entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush event store " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+        // Written records never change, so they can be read without holding the lock
+        try {
+            MappedByteBuffer indexMap = index.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+                    (long) mappedEntries * INDEX_ENTRY_SIZE);
+            MappedByteBuffer logMap = mapLog(mappedLogSize);
+            List<long[]> matches = new ArrayList<>();
+            for(int entry : candidates){
+                long createdAt = indexMap.getLong(entry * INDEX_ENTRY_SIZE + ENTRY_CREATED_AT);
+                if(createdAt >= fromSeconds && createdAt < toSeconds) matches.add(new long[]{createdAt, entry});
+            }
+            // Newest first; events with the same timestamp keep log order reversed, as pages list them
+            matches.sort(Comparator.<long[]>comparingLong(match -> match[0]).thenComparingLong(match -> match[1]).reversed());
+            List<StoredEvent> events = new ArrayList<>(matches.size());
+            for(long[] match : matches){
+                int position = (int) match[1] * INDEX_ENTRY_SIZE;
+                long offset = indexMap.getLong(position + ENTRY_OFFSET);
+                int size = indexMap.getInt(position + ENTRY_SIZE);
+                StoredEvent event = EventCodec.decode(logMap.slice((int) offset + RECORD_HEADER_SIZE, size));
+                // The per-user lists are keyed by hash, so another user may share them
+                if(event.login() != null && event.login().equalsIgnoreCase(login)) events.add(event);
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read event store " + directory, e);
+        }
+    }
+
+    /**
+     * Writes buffered events to the files and forces them to disk.
+     *
+     * @throws UncheckedIOException if writing fails
+     */
+    public void flush(){
+        lock.lock();
+        try {
+            ensureOpen();
+            flushBuffers();
+            log.force(false);
+            index.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush event store " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the store. Closing an already closed store has no effect.
+     */
+    @Override
+    public void close(){
+        lock.lock();
+        try {
+            if(closed) return;
+            try {
+                flushBuffers();
+                log.force(false);
+                index.force(false);
+            } finally {
+                closed = true;
+                closeQuietly(log);
+                closeQuietly(index);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close event store " + directory, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Recovery recover() throws IOException {
+        boolean newLog = initHeader(log, LOG_MAGIC, LOG_FILE);
+        if(newLog) index.truncate(0);
+        initHeader(index, INDEX_MAGIC, INDEX_FILE);
+        long logFileSize = log.size();
+        int indexed = (int) ((index.size() - HEADER_SIZE) / INDEX_ENTRY_SIZE);
+
+        // Keep the index entries whose records are intact, checking from the end where a crash would have left damage
+        MappedByteBuffer indexMap = index.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) indexed * INDEX_ENTRY_SIZE);
+        int valid = indexed;
+        while(valid > 0 && !isIntactEntry(indexMap, valid - 1, logFileSize)) valid--;
+        for(int entry = 0; entry < valid; entry++){
+            int position = entry * INDEX_ENTRY_SIZE;
+            addEntry(indexMap.getLong(position + ENTRY_ID), indexMap.getInt(position + ENTRY_LOGIN_HASH));
+        }
+        long logEnd = HEADER_SIZE;
+        if(valid > 0){
+            int position = (valid - 1) * INDEX_ENTRY_SIZE;
+            logEnd = indexMap.getLong(position + ENTRY_OFFSET) + RECORD_HEADER_SIZE + indexMap.getInt(position + ENTRY_SIZE);
+        }
+        index.truncate(HEADER_SIZE + (long) valid * INDEX_ENTRY_SIZE);
+        entries = valid;
+
+        // Index the records written after the last intact entry, up to the first torn or corrupt one
+        int reindexed = 0;
+        MappedByteBuffer logMap = mapLog(logFileSize);
+        while(logEnd + RECORD_HEADER_SIZE <= logFileSize){
+            int size = logMap.getInt((int) logEnd);
+            if(size <= 0 || size > MAX_RECORD_SIZE || logEnd + RECORD_HEADER_SIZE + size > logFileSize) break;
+            ByteBuffer body = logMap.slice((int) logEnd + RECORD_HEADER_SIZE, size);
+            if(logMap.getInt((int) logEnd + 4) != checksum(body)) break;
+            StoredEvent event;
+            try {
+                event = EventCodec.decode(body);
+            } catch (RuntimeException e) {
+                break;
+            }
+            if(!ids.contains(event.id())){
+                if(indexBuffer.remaining() < INDEX_ENTRY_SIZE) flushIndexBuffer();
+                int loginHash = loginHash(event.login());
+                putIndexEntry(indexBuffer, event.id(), event.createdAtSeconds(), logEnd, loginHash, size);
+                addEntry(event.id(), loginHash);
+                reindexed++;
+            }
+            logEnd += RECORD_HEADER_SIZE + size;
+        }
+        flushIndexBuffer();
+        if(logEnd < logFileSize) log.truncate(logEnd);
+        logSize = logEnd;
+        Recovery recovery = new Recovery(logFileSize - logEnd, indexed - valid, reindexed);
+        if(!recovery.isClean()){
+            log.force(false);
+            index.force(false);
+        }
+        return recovery;
+    }
+
+    // Writes the magic header to an empty (or torn, shorter than a header) file and checks it otherwise;
+    // returns true if the file was (re)initialized
+    private static boolean initHeader(FileChannel channel, byte[] magic, String name) throws IOException {
+        if(channel.size() < HEADER_SIZE){
+            channel.truncate(0);
+            writeFully(channel, ByteBuffer.wrap(magic), 0);
+            return true;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining() && channel.read(header, header.position()) >= 0) {}
+        if(!Arrays.equals(header.array(), magic)){
+            throw new IllegalStateException("Not an event store file: " + name);
+        }
+        return false;
+    }
+
+    private boolean isIntactEntry(MappedByteBuffer indexMap, int entry, long logFileSize) throws IOException {
+        int position = entry * INDEX_ENTRY_SIZE;
+        long offset = indexMap.getLong(position + ENTRY_OFFSET);
+        int size = indexMap.getInt(position + ENTRY_SIZE);
+        if(offset < HEADER_SIZE || size <= 0 || size > MAX_RECORD_SIZE || offset + RECORD_HEADER_SIZE + size > logFileSize){
+            return false;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + size);
+        while(record.hasRemaining() && log.read(record, offset + record.position()) >= 0) {}
+        record.flip();
+        if(record.getInt() != size) return false;
+        int expected = record.getInt();
+        return expected == checksum(record.slice()) && EventCodec.getVarLong(record) == indexMap.getLong(position + ENTRY_ID);
+    }
+
+    private int checksum(ByteBuffer body){
+        crc.reset();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private MappedByteBuffer mapLog(long size) throws IOException {
+        if(size > Integer.MAX_VALUE) throw new IOException("Event store log is larger than 2 GB");
+        return log.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private void addEntry(long id, int loginHash){
+        ids.add(id);
+        entriesByLogin.computeIfAbsent(loginHash, hash -> new Postings()).add(entries++);
+    }
+
+    private static void putIndexEntry(ByteBuffer buffer, long id, long createdAt, long offset, int loginHash, int size){
+        buffer.putLong(id).putLong(createdAt).putLong(offset).putInt(loginHash).putInt(size);
+    }
+
+    // Log first, so that an index entry never reaches the file before its record
+    private void flushBuffers() throws IOException {
+        if(logBuffer.position() > 0){
+            logBuffer.flip();
+            writeFully(log, logBuffer, logSize - logBuffer.remaining());
+            logBuffer.clear();
+        }
+        flushIndexBuffer();
+    }
+
+    private void flushIndexBuffer() throws IOException {
+        if(indexBuffer.position() == 0) return;
+        indexBuffer.flip();
+        writeFully(index, indexBuffer, index.size());
+        indexBuffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    private void ensureOpen(){
+        if(closed) throw new IllegalStateException("Event store " + directory + " is closed");
+    }
+
+    private static int loginHash(String login){
+        return login == null ? 0 : login.toLowerCase(Locale.ROOT).hashCode();
+    }
+
+    // GitHub event ids are numeric strings; returns -1 for anything else
+    private static long parseId(Object id){
+        if(id instanceof Number number) return number.longValue();
+        if(!(id instanceof String text) || text.isEmpty() || text.length() > 18) return -1;
+        long value = 0;
+        for(int i = 0; i < text.length(); i++){
+            char ch = text.charAt(i);
+            if(ch < '0' || ch > '9') return -1;
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    // Returns Long.MIN_VALUE if createdAt is not an ISO-8601 instant
+    private static long parseEpochSecond(Object createdAt){
+        if(!(createdAt instanceof String text)) return Long.MIN_VALUE;
+        long fast = parseUtcSeconds(text);
+        if(fast != Long.MIN_VALUE) return fast;
+        try {
+            return Instant.parse(text).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Fast path for the yyyy-MM-ddTHH:mm:ssZ form GitHub uses, which Instant.parse takes several times longer on
+    private static long parseUtcSeconds(String text){
+        if(text.length() != 20 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != 'Z') return Long.MIN_VALUE;
+        int year = digits(text, 0, 4), month = digits(text, 5, 2), day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2), minute = digits(text, 14, 2), second = digits(text, 17, 2);
+        if(year < 0 || month < 1 || month > 12 || day < 1 || day > 28 && day > YearMonth.of(year, month).lengthOfMonth()
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return Long.MIN_VALUE;
+        return LocalDate.of(year, month, day).toEpochDay() * 86_400 + hour * 3600 + minute * 60 + second;
+    }
+
+    // Returns -1 unless text[start, start + count) is all ASCII digits
+    private static int digits(String text, int start, int count){
+        int value = 0;
+        for(int i = start; i < start + count; i++){
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void closeQuietly(Closeable closeable){
+        if(closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already failing or closing; the first error is the one worth reporting
+        }
+    }
+
+    /**
+     * Index entry numbers of one login hash, in log order.
+     */
+    private static final class Postings {
+        private int[] entries = new int[4];
+        private int size;
+
+        void add(int entry){
+            if(size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = entry;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.tommy.store;
+
+/**
+ * Open-addressing set of primitive longs, used to deduplicate event ids without boxing them.
+ * Slots hold 0 when empty, so 0 itself is tracked by a separate flag. Not thread-safe.
+ */
+final class LongHashSet {
+
+    private long[] slots = new long[1024];
+    private int size;
+    private boolean containsZero;
+
+    boolean contains(long value){
+        if(value == 0) return containsZero;
+        int mask = slots.length - 1;
+        for(int i = spread(value) & mask; ; i = (i + 1) & mask){
+            long slot = slots[i];
+            if(slot == value) return true;
+            if(slot == 0) return false;
+        }
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(long value){
+        if(value == 0){
+            if(containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = spread(value) & mask;
+        for(long slot; (slot = slots[i]) != 0; i = (i + 1) & mask){
+            if(slot == value) return false;
+        }
+        slots[i] = value;
+        if(++size * 2 > slots.length) resize();
+        return true;
+    }
+
+    int size(){
+        return size;
+    }
+
+    private void resize(){
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for(long value : old){
+            if(value == 0) continue;
+            int i = spread(value) & mask;
+            while(slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = value;
+        }
+    }
+
+    private static int spread(long value){
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,124 @@
+package org.tommy.test;
+
+import org.tommy.GitHubEventType;
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.aggregate.StringLongMap;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActivityAggregateTest {
+
+    private final JsonDataHandler dataHandler = new JsonDataHandler(true);
+
+    private JsonReader event(String type, String actor, String repo, int hour, String payload){
+        String json = "{\"type\":\"" + type + "\",\"actor\":{\"login\":\"" + actor + "\"},\"repo\":{\"name\":\"" + repo
+                + "\"},\"payload\":" + payload + ",\"created_at\":\"2025-01-31T" + (hour < 10 ? "0" : "") + hour + ":04:05Z\"}";
+        return dataHandler.streamJsonData(json).findFirst().orElseThrow();
+    }
+
+    private List<JsonReader> events(int count){
+        List<JsonReader> events = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            String repo = "owner" + (i % 7) + "/repo-" + (i % 13);
+            String actor = "user" + (i % 11);
+            events.add(switch (i % 5){
+                case 0 -> event("PushEvent", actor, repo, i % 24, "{\"distinct_size\":" + (i % 4) + "}");
+                case 1 -> event("PullRequestEvent", actor, repo, i % 24, "{\"action\":\"opened\",\"pull_request\":{}}");
+                case 2 -> event("PullRequestEvent", actor, repo, i % 24,
+                        "{\"action\":\"closed\",\"pull_request\":{\"merged\":" + (i % 2 == 0) + "}}");
+                case 3 -> event("WatchEvent", actor, repo, i % 24, "{\"action\":\"started\"}");
+                default -> event("DiscussionEvent", actor, repo, i % 24, "{}");
+            });
+        }
+        return events;
+    }
+
+    public void testCountsEvents(){
+        ActivityAggregate aggregate = new ActivityAggregate();
+        aggregate.add(event("PushEvent", "tommy", "tommy/a", 9, "{\"distinct_size\":3}"));
+        aggregate.add(event("PushEvent", "tommy", "tommy/a", 9, "{\"distinct_size\":2}"));
+        aggregate.add(event("PullRequestEvent", "tommy", "tommy/b", 23, "{\"action\":\"opened\",\"pull_request\":{}}"));
+        aggregate.add(event("PullRequestEvent", "tommy", "tommy/b", 23, "{\"action\":\"closed\",\"pull_request\":{\"merged\":true}}"));
+        aggregate.add(event("PullRequestEvent", "other", "tommy/b", 0, "{\"action\":\"closed\",\"pull_request\":{\"merged\":false}}"));
+        aggregate.add(event("DiscussionEvent", "other", "other/c", 0, "{}"));
+
+        if(aggregate.events() != 6 || aggregate.unsupportedTypes() != 1
+                || aggregate.events(GitHubEventType.PUSH_EVENT) != 2
+                || aggregate.events(GitHubEventType.PULL_REQUEST_EVENT) != 3
+                || aggregate.events(GitHubEventType.WATCH_EVENT) != 0){
+            throw new AssertionError("Unexpected type counts:\n" + aggregate);
+        }
+        if(aggregate.commitsPushed() != 5 || aggregate.pullRequestsOpened() != 1 || aggregate.pullRequestsMerged() != 1){
+            throw new AssertionError("Unexpected commit or pull request counts:\n" + aggregate);
+        }
+        if(aggregate.eventsInHour(9) != 2 || aggregate.eventsInHour(23) != 2 || aggregate.eventsInHour(0) != 2
+                || aggregate.eventsInRepo("tommy/b") != 3 || aggregate.eventsByActor("tommy") != 4
+                || aggregate.repos() != 3 || aggregate.actors() != 2){
+            throw new AssertionError("Unexpected hour, repository or actor counts:\n" + aggregate);
+        }
+        String report = aggregate.toString();
+        if(!report.contains("By type: PushEvent 2, PullRequestEvent 3") || !report.contains("00h 2, 09h 2, 23h 2")
+                || !report.contains("Top repositories (3 distinct): tommy/b 3, tommy/a 2, other/c 1")){
+            throw new AssertionError("Unexpected report:\n" + report);
+        }
+        System.out.println("testCountsEvents Passed");
+    }
+
+    public void testMergedPartialsMatchSingleAggregate(){
+        List<JsonReader> events = events(5000);
+        ActivityAggregate whole = new ActivityAggregate();
+        events.forEach(whole::add);
+
+        // Uneven partials, merged in a different order than the events were split
+        int[] bounds = {0, 7, 1200, 1201, 3900, 5000};
+        List<ActivityAggregate> partials = new ArrayList<>();
+        for(int p = 0; p + 1 < bounds.length; p++){
+            ActivityAggregate partial = new ActivityAggregate();
+            events.subList(bounds[p], bounds[p + 1]).forEach(partial::add);
+            partials.add(partial);
+        }
+        ActivityAggregate merged = new ActivityAggregate();
+        for(int p = partials.size() - 1; p >= 0; p--) merged.merge(partials.get(p));
+
+        if(!merged.toString().equals(whole.toString())){
+            throw new AssertionError("Merged partials differ:\n" + merged + "\nexpected:\n" + whole);
+        }
+        if(whole.events() != 5000 || whole.unsupportedTypes() != 1000 || whole.pullRequestsOpened() != 1000
+                || whole.pullRequestsMerged() != 500 || whole.repos() != 91 || whole.actors() != 11){
+            throw new AssertionError("Unexpected totals:\n" + whole);
+        }
+        System.out.println("testMergedPartialsMatchSingleAggregate Passed");
+    }
+
+    public void testStringLongMap(){
+        StringLongMap map = new StringLongMap(0);
+        for(int round = 1; round <= 3; round++){
+            for(int i = 0; i < 20_000; i++) map.add("repo-" + i, i % 100 == 0 ? 10 : 1);
+        }
+        if(map.size() != 20_000 || map.get("repo-0") != 30 || map.get("repo-1") != 3 || map.get("missing") != 0){
+            throw new AssertionError("Unexpected counts after growth: size " + map.size());
+        }
+        StringLongMap other = new StringLongMap();
+        other.add("repo-1", 100);
+        other.add("new", 1);
+        map.addAll(other);
+        List<StringLongMap.Entry> top = map.top(3);
+        if(!top.equals(List.of(new StringLongMap.Entry("repo-1", 103), new StringLongMap.Entry("repo-0", 30),
+                new StringLongMap.Entry("repo-100", 30)))){
+            throw new AssertionError("Unexpected top entries: " + top);
+        }
+        if(map.size() != 20_001 || !map.top(0).isEmpty() || new StringLongMap().top(5).size() != 0){
+            throw new AssertionError("Unexpected size or empty top");
+        }
+        System.out.println("testStringLongMap Passed");
+    }
+
+    public static void main(String[] args){
+        new ActivityAggregateTest().testCountsEvents();
+        new ActivityAggregateTest().testMergedPartialsMatchSingleAggregate();
+        new ActivityAggregateTest().testStringLongMap();
+    }
+}
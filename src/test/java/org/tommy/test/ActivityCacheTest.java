@@ -0,0 +1,167 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.ActivityCache;
+import org.tommy.ActivityService;
+import org.tommy.GItHubAPI;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ActivityCacheTest {
+
+    private static final String EVENTS = "[" + ("{\"id\":\"1\",\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"payload\":{\"action\":\"started\"}},").repeat(20) + "{\"id\":\"2\",\"type\":\"ForkEvent\","
+            + "\"repo\":{\"name\":\"tommy/app\"},\"payload\":{\"forkee\":{\"full_name\":\"tommy/fork\"}}}]";
+
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+
+    private HttpServer startUpstream() throws IOException {
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/users/", exchange -> {
+            upstreamRequests.incrementAndGet();
+            byte[] body = EVENTS.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        return upstream;
+    }
+
+    private static GItHubAPI stubApi(HttpServer upstream){
+        String template = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, null, null);
+    }
+
+    private static String write(ActivityService service, String userName) throws IOException {
+        StringBuilder out = new StringBuilder();
+        service.writeActivity(userName, out);
+        return out.toString();
+    }
+
+    public void testRepeatedLookupsAreServedFromCache() throws Exception {
+        HttpServer upstream = startUpstream();
+        try {
+            String expected = write(new ActivityService(stubApi(upstream)), "tommy");
+            for(ActivityCache.Contents contents : ActivityCache.Contents.values()){
+                upstreamRequests.set(0);
+                ActivityCache cache = new ActivityCache(Duration.ofMillis(300), ActivityCache.DEFAULT_MAX_BYTES, contents);
+                ActivityService service = new ActivityService(stubApi(upstream), null, cache);
+                List<JsonReader> events = new ArrayList<>();
+                if(!write(service, "tommy").equals(expected) || !write(service, "Tommy").equals(expected)
+                        || !service.getActivity("tommy").equals(expected.lines().toList())){
+                    throw new AssertionError("Expected cached activity to match the fetched activity for " + contents);
+                }
+                service.forEachEvent("tommy", events::add);
+                int expectedRequests = contents == ActivityCache.Contents.LINES ? 2 : 1;
+                if(upstreamRequests.get() != expectedRequests || events.size() != 21){
+                    throw new AssertionError("Expected " + expectedRequests + " upstream requests for " + contents
+                            + " but saw " + upstreamRequests.get() + ", " + cache.getStats());
+                }
+                Thread.sleep(400);
+                if(!write(service, "tommy").equals(expected) || upstreamRequests.get() != expectedRequests + 1
+                        || cache.getStats().expirations() != 1){
+                    throw new AssertionError("Expected an expired entry to be fetched again: " + cache.getStats());
+                }
+                System.out.println("testRepeatedLookupsAreServedFromCache Passed for " + contents + ": " + cache.getStats());
+            }
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    public void testSizeBoundedEvictionWithAdmission(){
+        List<JsonReader> events = new JsonDataHandler(true).streamJsonData(EVENTS).toList();
+        List<String> lines = List.of("starred tommy/app", "Forked tommy/fork -> tommy/app");
+
+        ActivityCache probe = new ActivityCache();
+        probe.put("probe", events, lines);
+        long entryBytes = probe.getStats().bytes();
+        long eventsBytes = events.stream().mapToLong(JsonReader::estimateSize).sum();
+        if(eventsBytes < EVENTS.length() || entryBytes < eventsBytes){
+            throw new AssertionError("Expected estimates to cover the source text: " + eventsBytes + ", " + entryBytes);
+        }
+
+        // Room for two entries
+        ActivityCache cache = new ActivityCache(Duration.ofMinutes(1), entryBytes * 5 / 2, ActivityCache.Contents.BOTH);
+        lookUp(cache, "popular", 5);
+        lookUp(cache, "regular", 3);
+        if(!cache.put("popular", events, lines) || !cache.put("regular", events, lines)){
+            throw new AssertionError("Expected both entries to fit");
+        }
+        lookUp(cache, "oneoff", 1);
+        if(cache.put("oneoff", events, lines) || cache.get("popular") == null || cache.get("regular") == null){
+            throw new AssertionError("Expected a one-off user not to displace frequent ones: " + cache.getStats());
+        }
+        // "popular" is now the least recently used entry, but "rising" has been looked up more often
+        lookUp(cache, "rising", 8);
+        if(!cache.put("rising", events, lines) || cache.get("regular") == null || cache.get("popular") != null){
+            throw new AssertionError("Expected the least recently used entry to be evicted: " + cache.getStats());
+        }
+        ActivityCache.CacheStats stats = cache.getStats();
+        if(stats.evictions() != 1 || stats.rejections() != 1 || stats.entries() != 2 || stats.bytes() > entryBytes * 5 / 2){
+            throw new AssertionError("Unexpected stats: " + stats);
+        }
+
+        ActivityCache tiny = new ActivityCache(Duration.ofMinutes(1), entryBytes / 2, ActivityCache.Contents.BOTH);
+        if(tiny.put("popular", events, lines) || tiny.getStats().rejections() != 1){
+            throw new AssertionError("Expected an entry larger than the cache to be rejected");
+        }
+        System.out.println("testSizeBoundedEvictionWithAdmission Passed: " + stats);
+    }
+
+    public void testRejectedReplacementKeepsTheEntry(){
+        List<String> lines = List.of("starred tommy/app", "Forked tommy/fork -> tommy/app");
+        ActivityCache probe = new ActivityCache();
+        probe.put("probe", null, lines);
+        long entryBytes = probe.getStats().bytes();
+
+        ActivityCache cache = new ActivityCache(Duration.ofMinutes(1), entryBytes * 4, ActivityCache.Contents.LINES);
+        cache.put("tommy", null, lines);
+        List<String> oversized = new ArrayList<>();
+        for(int i = 0; i < 100; i++) oversized.add("starred tommy/app-" + i);
+        if(cache.put("Tommy", null, oversized) || !lines.equals(cache.get("tommy").lines())){
+            throw new AssertionError("Expected the entry to survive an oversized replacement: " + cache.getStats());
+        }
+
+        // A frequent user's entry fills the rest, so a replacement that needs more room is not admitted either
+        lookUp(cache, "popular", 5);
+        List<String> popular = new ArrayList<>(lines);
+        popular.add("starred popular/app");
+        cache.put("popular", null, popular);
+        if(cache.put("tommy", null, List.of(lines.get(0), lines.get(1), "x".repeat((int) entryBytes * 2)))
+                || !lines.equals(cache.get("tommy").lines()) || cache.get("popular") == null){
+            throw new AssertionError("Expected the entry to survive a rejected replacement: " + cache.getStats());
+        }
+        // One that fits in the room of the previous entry replaces it
+        if(!cache.put("tommy", null, List.of(lines.get(1))) || !cache.get("tommy").lines().equals(List.of(lines.get(1)))){
+            throw new AssertionError("Expected a replacement of the same size to be stored: " + cache.getStats());
+        }
+        ActivityCache.CacheStats stats = cache.getStats();
+        if(stats.rejections() != 2 || stats.evictions() != 0 || stats.entries() != 2){
+            throw new AssertionError("Unexpected stats: " + stats);
+        }
+        System.out.println("testRejectedReplacementKeepsTheEntry Passed: " + stats);
+    }
+
+    private static void lookUp(ActivityCache cache, String userName, int times){
+        for(int i = 0; i < times; i++) cache.get(userName);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ActivityCacheTest().testRepeatedLookupsAreServedFromCache();
+        new ActivityCacheTest().testSizeBoundedEvictionWithAdmission();
+        new ActivityCacheTest().testRejectedReplacementKeepsTheEntry();
+    }
+}
@@ -0,0 +1,231 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.ActivityCache;
+import org.tommy.ActivityServer;
+import org.tommy.ActivityService;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ActivityServerTest {
+
+    private static final String EVENTS = "[{\"id\":\"2\",\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"created_at\":\"2025-01-02T00:00:00Z\"},{\"id\":\"1\",\"type\":\"ForkEvent\",\"repo\":{\"name\":\"tommy/\\\"quoted\\\"\"},"
+            + "\"payload\":{\"forkee\":{\"full_name\":\"tommy/fork\"}},\"created_at\":\"2025-01-01T00:00:00Z\"}]";
+
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    // Upstream answers for "tommy" are held back until this is released
+    private final CountDownLatch release = new CountDownLatch(1);
+    // Body served for "tommy"
+    private volatile String events = EVENTS;
+
+    // Stub of the events API: EVENTS for tommy, 404 for anyone else
+    private HttpServer startUpstream() throws IOException {
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/users/", exchange -> {
+            upstreamRequests.incrementAndGet();
+            boolean found = exchange.getRequestURI().getPath().equals("/users/tommy/events");
+            if(found){
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = (found ? events : "{\"message\":\"Not Found\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(found ? 200 : 404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        return upstream;
+    }
+
+    private static GItHubAPI stubApi(HttpServer upstream){
+        String template = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, null, null);
+    }
+
+    private static ActivityServer startServer(HttpServer upstream){
+        return startServer(new ActivityService(stubApi(upstream)));
+    }
+
+    private static ActivityServer startServer(ActivityService service){
+        ActivityServer server = new ActivityServer(service, new InetSocketAddress("127.0.0.1", 0));
+        server.start();
+        return server;
+    }
+
+    private static HttpResponse<String> get(HttpClient client, ActivityServer server, String path, String accept)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+        if(accept != null) request.header("Accept", accept);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    public void testConcurrentRequestsShareOneFetch() throws Exception {
+        HttpServer upstream = startUpstream();
+        try (ActivityServer server = startServer(upstream);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newHttpClient();
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for(int i = 0; i < 50; i++){
+                // Mixed case: GitHub usernames are case-insensitive, so these are all the same user
+                String path = i % 2 == 0 ? "/users/tommy/activity" : "/users/Tommy/activity";
+                responses.add(clients.submit(() -> get(client, server, path, null)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(server.getStats().coalescedRequests() < 49 && System.nanoTime() < deadline) Thread.sleep(5);
+            release.countDown();
+            String expected = "starred tommy/app\nForked tommy/fork -> tommy/\"quoted\"\n";
+            for(Future<HttpResponse<String>> response : responses){
+                HttpResponse<String> result = response.get(5, TimeUnit.SECONDS);
+                if(result.statusCode() != 200 || !result.body().equals(expected)){
+                    throw new AssertionError("Unexpected response " + result.statusCode() + ": " + result.body());
+                }
+            }
+            if(upstreamRequests.get() != 1 || server.getStats().upstreamFetches() != 1 || server.getStats().cacheHits() != 0){
+                throw new AssertionError("Expected one upstream fetch but saw " + upstreamRequests.get() + ", " + server.getStats());
+            }
+            System.out.println("testConcurrentRequestsShareOneFetch Passed: " + server.getStats());
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    public void testJsonAndErrors() throws Exception {
+        release.countDown();
+        HttpServer upstream = startUpstream();
+        try (ActivityServer server = startServer(upstream)) {
+            HttpClient client = HttpClient.newHttpClient();
+            String expectedJson = "{\"user\":\"tommy\",\"events\":["
+                    + "{\"id\":\"2\",\"type\":\"WatchEvent\",\"repo\":\"tommy/app\",\"created_at\":\"2025-01-02T00:00:00Z\",\"activity\":\"starred tommy/app\"},"
+                    + "{\"id\":\"1\",\"type\":\"ForkEvent\",\"repo\":\"tommy/\\\"quoted\\\"\",\"created_at\":\"2025-01-01T00:00:00Z\","
+                    + "\"activity\":\"Forked tommy/fork -> tommy/\\\"quoted\\\"\"}]}\n";
+            HttpResponse<String> json = get(client, server, "/users/tommy/activity?format=json", null);
+            HttpResponse<String> accepted = get(client, server, "/users/tommy/activity", "application/json");
+            if(json.statusCode() != 200 || !json.body().equals(expectedJson) || !accepted.body().equals(expectedJson)
+                    || !json.headers().firstValue("Content-Type").orElse("").equals("application/json")){
+                throw new AssertionError("Unexpected JSON response: " + json.body());
+            }
+
+            HttpResponse<String> invalid = get(client, server, "/users/-tommy/activity", null);
+            HttpResponse<String> missing = get(client, server, "/users/ghost/activity?format=json", null);
+            HttpResponse<String> unknownPath = get(client, server, "/users/tommy/repos", null);
+            HttpResponse<String> unknownFormat = get(client, server, "/users/tommy/activity?format=xml", null);
+            HttpResponse<String> post = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+                    + "/users/tommy/activity")).POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            if(invalid.statusCode() != 400 || unknownPath.statusCode() != 404 || unknownFormat.statusCode() != 400
+                    || post.statusCode() != 405){
+                throw new AssertionError("Unexpected statuses " + invalid.statusCode() + ", " + unknownPath.statusCode()
+                        + ", " + unknownFormat.statusCode() + ", " + post.statusCode());
+            }
+            if(missing.statusCode() != 404 || !missing.body().equals("{\"error\":\"User 'ghost' does not exist on GitHub.\"}\n")){
+                throw new AssertionError("Unexpected response for an unknown user: " + missing.body());
+            }
+            System.out.println("testJsonAndErrors Passed");
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    // Events of a few types whose payloads formatting reads, so that reading them builds nested lazy views
+    private static String manyEvents(int count){
+        StringBuilder json = new StringBuilder("[");
+        for(int id = count; id > 0; id--){
+            if(json.length() > 1) json.append(',');
+            json.append("{\"id\":\"").append(id).append("\",\"repo\":{\"name\":\"tommy/repo-").append(id % 7).append("\"},");
+            switch (id % 3) {
+                case 0 -> json.append("\"type\":\"PushEvent\",\"payload\":{\"ref\":\"refs/heads/b").append(id)
+                        .append("\",\"distinct_size\":").append(id % 5 + 1).append(",\"commits\":[{\"sha\":\"").append(id).append("\"}]}");
+                case 1 -> json.append("\"type\":\"ForkEvent\",\"payload\":{\"forkee\":{\"full_name\":\"fork/repo-")
+                        .append(id).append("\"}}");
+                default -> json.append("\"type\":\"WatchEvent\",\"payload\":{\"action\":\"started\"}");
+            }
+            json.append(",\"created_at\":\"2025-01-01T00:00:00Z\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    public void testConcurrentCacheHitsShareLazyEvents() throws Exception {
+        release.countDown();
+        events = manyEvents(300);
+        GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+        StringBuilder expectedText = new StringBuilder();
+        for(JsonReader event : new JsonDataHandler().streamJsonData(events).toList()){
+            expectedText.append(formatter.formatEvent(event)).append('\n');
+        }
+        String expected = expectedText.toString();
+
+        HttpServer upstream = startUpstream();
+        // Cached events stay lazy views; the warm-up reads none of their payloads, so the lookups below race to build them
+        ActivityService service = new ActivityService(stubApi(upstream), null,
+                new ActivityCache(Duration.ofMinutes(5), 64L << 20, ActivityCache.Contents.EVENTS));
+        service.forEachEvent("tommy", event -> {});
+        try (ActivityServer server = startServer(service);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService direct = Executors.newFixedThreadPool(8)) {
+            HttpClient client = HttpClient.newHttpClient();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for(int i = 0; i < 32; i++){
+                // Server lookups are single-flight, so direct lookups on platform threads run alongside them
+                results.add(clients.submit(() -> {
+                    start.await();
+                    HttpResponse<String> response = get(client, server, "/users/tommy/activity", null);
+                    return response.statusCode() == 200 ? response.body() : "status " + response.statusCode();
+                }));
+                results.add(direct.submit(() -> {
+                    start.await();
+                    StringBuilder text = new StringBuilder();
+                    service.forEachEvent("tommy", event -> text.append(formatter.formatEvent(event)).append('\n'));
+                    return text.toString();
+                }));
+            }
+            start.countDown();
+            for(Future<String> result : results){
+                String body = result.get(10, TimeUnit.SECONDS);
+                if(!body.equals(expected)){
+                    throw new AssertionError("Unexpected activity from a cache hit:\n" + body);
+                }
+            }
+            ActivityServer.ServerStats stats = server.getStats();
+            if(upstreamRequests.get() != 1 || stats.upstreamFetches() != 0
+                    || stats.cacheHits() + stats.coalescedRequests() != stats.requests()){
+                throw new AssertionError("Expected every lookup after the warm-up to hit the cache: " + upstreamRequests.get()
+                        + ", " + stats);
+            }
+            System.out.println("testConcurrentCacheHitsShareLazyEvents Passed: " + stats);
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ActivityServerTest().testConcurrentRequestsShareOneFetch();
+        new ActivityServerTest().testJsonAndErrors();
+        new ActivityServerTest().testConcurrentCacheHitsShareLazyEvents();
+    }
+}
@@ -0,0 +1,169 @@
+package org.tommy.test;
+
+import org.tommy.GitHubEventType;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+import org.tommy.sink.ActivityRecord;
+import org.tommy.sink.ActivitySink;
+import org.tommy.sink.BinaryActivityReader;
+import org.tommy.sink.BufferedChannelWriter;
+import org.tommy.sink.SinkFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActivitySinkTest {
+
+    private static final String EVENTS = "["
+            + "{\"id\":\"45000000001\",\"type\":\"IssuesEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"payload\":{\"action\":\"opened\",\"issue\":{\"number\":7}},\"created_at\":\"2025-01-31T12:00:00Z\"},"
+            + "{\"id\":\"45000000002\",\"type\":\"PushEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"payload\":{\"ref\":\"refs/heads/main\",\"size\":1},\"created_at\":\"2025-01-31T12:05:00Z\"},"
+            + "{\"id\":\"45000000003\",\"type\":\"PullRequestEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"payload\":{\"action\":\"closed\",\"number\":12,\"pull_request\":{\"number\":12}},"
+            + "\"created_at\":\"2025-01-31T12:10:00Z\"}]";
+
+    // Odd values each format has to carry: quotes, commas, line breaks, non-ASCII, unknown types and ids
+    private static final List<ActivityRecord> UNUSUAL = List.of(
+            new ActivityRecord("tommy", "1", "WatchEvent", "tommy/\"quoted\", repo", "started", null, 0,
+                    "1970-01-01T00:00:00Z"),
+            new ActivityRecord("tommy", "007", "DiscussionEvent", "tommy/ünïcode-🚀", "line\nbreak\ttab\u0001",
+                    "refs/tags/v1.0", Long.MAX_VALUE, "2025-01-31T12:00:00.5Z"),
+            new ActivityRecord("tommy", null, null, null, null, null, 0, null));
+
+    private static byte[] write(SinkFormat format, List<ActivityRecord> records, int bufferSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ActivitySink sink = format.newSink(new BufferedChannelWriter(Channels.newChannel(bytes), bufferSize, true))) {
+            for(ActivityRecord record : records) sink.write(record);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<ActivityRecord> parse(String events){
+        List<ActivityRecord> records = new ArrayList<>();
+        for(JsonReader event : new JsonDataHandler(true).streamJsonData(events).toList()){
+            records.add(ActivityRecord.of("tommy", event));
+        }
+        return records;
+    }
+
+    public void testRecordsFromParsedEvents(){
+        List<ActivityRecord> records = parse(EVENTS);
+        ActivityRecord issue = records.get(0);
+        if(!issue.equals(new ActivityRecord("tommy", "45000000001", "IssuesEvent", "tommy/app", "opened", null, 7,
+                "2025-01-31T12:00:00Z")) || issue.eventType() != GitHubEventType.ISSUES_EVENT){
+            throw new AssertionError("Unexpected issue record: " + issue);
+        }
+        if(!"refs/heads/main".equals(records.get(1).ref()) || records.get(1).number() != 0
+                || records.get(2).number() != 12){
+            throw new AssertionError("Unexpected records: " + records);
+        }
+        System.out.println("testRecordsFromParsedEvents Passed");
+    }
+
+    public void testNdjson() throws IOException {
+        String expected = "{\"user\":\"tommy\",\"id\":\"45000000001\",\"type\":\"IssuesEvent\",\"repo\":\"tommy/app\","
+                + "\"action\":\"opened\",\"ref\":null,\"number\":7,\"created_at\":\"2025-01-31T12:00:00Z\"}\n";
+        String output = new String(write(SinkFormat.NDJSON, parse(EVENTS), BufferedChannelWriter.DEFAULT_BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+        if(!output.startsWith(expected) || output.split("\n").length != 3){
+            throw new AssertionError("Unexpected NDJSON:\n" + output);
+        }
+        // A tiny buffer drains mid-value, including between the halves of a surrogate pair
+        String unusual = new String(write(SinkFormat.NDJSON, UNUSUAL, 32), StandardCharsets.UTF_8);
+        String expectedUnusual = "{\"user\":\"tommy\",\"id\":\"1\",\"type\":\"WatchEvent\",\"repo\":\"tommy/\\\"quoted\\\", repo\","
+                + "\"action\":\"started\",\"ref\":null,\"number\":null,\"created_at\":\"1970-01-01T00:00:00Z\"}\n"
+                + "{\"user\":\"tommy\",\"id\":\"007\",\"type\":\"DiscussionEvent\",\"repo\":\"tommy/ünïcode-🚀\","
+                + "\"action\":\"line\\nbreak\\ttab\\u0001\",\"ref\":\"refs/tags/v1.0\",\"number\":9223372036854775807,"
+                + "\"created_at\":\"2025-01-31T12:00:00.5Z\"}\n"
+                + "{\"user\":\"tommy\",\"id\":null,\"type\":null,\"repo\":null,\"action\":null,\"ref\":null,\"number\":null,"
+                + "\"created_at\":null}\n";
+        if(!unusual.equals(expectedUnusual)){
+            throw new AssertionError("Unexpected NDJSON:\n" + unusual);
+        }
+        System.out.println("testNdjson Passed");
+    }
+
+    public void testCsv() throws IOException {
+        String output = new String(write(SinkFormat.CSV, UNUSUAL, 32), StandardCharsets.UTF_8);
+        String expected = "user,id,type,repo,action,ref,number,created_at\r\n"
+                + "tommy,1,WatchEvent,\"tommy/\"\"quoted\"\", repo\",started,,,1970-01-01T00:00:00Z\r\n"
+                + "tommy,007,DiscussionEvent,tommy/ünïcode-🚀,\"line\nbreak\ttab\u0001\",refs/tags/v1.0,"
+                + "9223372036854775807,2025-01-31T12:00:00.5Z\r\n"
+                + "tommy,,,,,,,\r\n";
+        if(!output.equals(expected)){
+            throw new AssertionError("Unexpected CSV:\n" + output);
+        }
+        // An empty output still has its header
+        String empty = new String(write(SinkFormat.CSV, List.of(), 32), StandardCharsets.UTF_8);
+        if(!empty.equals("user,id,type,repo,action,ref,number,created_at\r\n")){
+            throw new AssertionError("Expected only the header: " + empty);
+        }
+        System.out.println("testCsv Passed");
+    }
+
+    public void testBinaryRoundTrip() throws IOException {
+        List<ActivityRecord> records = new ArrayList<>(parse(EVENTS));
+        records.addAll(UNUSUAL);
+        byte[] binary = write(SinkFormat.BINARY, records, 32);
+
+        List<ActivityRecord> read = new ArrayList<>();
+        try (BinaryActivityReader reader = new BinaryActivityReader(Channels.newChannel(new ByteArrayInputStream(binary)))) {
+            for(ActivityRecord record = reader.read(); record != null; record = reader.read()) read.add(record);
+        }
+        if(!read.equals(records)){
+            throw new AssertionError("Round trip changed the records:\n" + records + "\n" + read);
+        }
+
+        int ndjson = write(SinkFormat.NDJSON, parse(EVENTS), 32).length;
+        int compact = write(SinkFormat.BINARY, parse(EVENTS), 32).length;
+        if(compact * 2 > ndjson){
+            throw new AssertionError("Expected binary to take less than half of NDJSON: " + compact + " vs " + ndjson);
+        }
+
+        try (BinaryActivityReader reader = new BinaryActivityReader(Channels.newChannel(
+                new ByteArrayInputStream(binary, 0, binary.length - 3)))) {
+            while(reader.read() != null);
+            throw new AssertionError("Expected a truncated record to be rejected");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        System.out.println("testBinaryRoundTrip Passed: " + compact + " bytes vs " + ndjson + " as NDJSON");
+    }
+
+    public void testWriterEncodesUtf8() throws IOException {
+        String text = "ascii, ünïcode, 中文, 🚀 rocket, lone \uD800 surrogate, lone \uDC00 too";
+        for(int bufferSize : new int[]{32, 33, 1024}){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (BufferedChannelWriter writer = new BufferedChannelWriter(Channels.newChannel(bytes), bufferSize, true)) {
+                writer.append(text, 0, 20).append(text.substring(20));
+                for(int i = 0; i < text.length(); i++) writer.append(text.charAt(i));
+                writer.writeDecimal(-1234567890123L);
+                writer.writeDecimal(0);
+                writer.writeDecimal(Long.MIN_VALUE);
+                if(writer.getBytesWritten() != (text + text).getBytes(StandardCharsets.UTF_8).length + 35){
+                    throw new AssertionError("Unexpected byte count " + writer.getBytesWritten());
+                }
+            }
+            String expected = text + text + "-12345678901230-9223372036854775808";
+            if(!bytes.toString(StandardCharsets.UTF_8).equals(new String(expected.getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8))){
+                throw new AssertionError("Unexpected encoding with a buffer of " + bufferSize + ": " + bytes);
+            }
+        }
+        System.out.println("testWriterEncodesUtf8 Passed");
+    }
+
+    public static void main(String[] args) throws IOException {
+        new ActivitySinkTest().testRecordsFromParsedEvents();
+        new ActivitySinkTest().testNdjson();
+        new ActivitySinkTest().testCsv();
+        new ActivitySinkTest().testBinaryRoundTrip();
+        new ActivitySinkTest().testWriterEncodesUtf8();
+    }
+}
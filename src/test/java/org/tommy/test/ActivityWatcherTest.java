@@ -0,0 +1,202 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.ActivityWatcher;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ActivityWatcherTest {
+
+    private final JsonDataHandler dataHandler = new JsonDataHandler(true);
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+
+    // Event ids of "tommy", newest first
+    private final List<Long> ids = new ArrayList<>();
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    // Run once before the next request for a page other than the first, to shift the pages under the watcher
+    private volatile Runnable beforeNextPage;
+    // Answers the next request for a page other than the first with 500
+    private volatile boolean failNextPage;
+
+    private static String event(long id){
+        return "{\"id\":\"" + id + "\",\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/repo" + id
+                + "\"},\"created_at\":\"2025-01-01T00:00:00Z\"}";
+    }
+
+    private void addEvents(long fromId, long toId){
+        synchronized (ids) {
+            for(long id = fromId; id <= toId; id++) ids.add(0, id);
+        }
+    }
+
+    // Serves pages of the events with per-page ETags, 304 for a matching If-None-Match, and X-Poll-Interval: 60
+    private HttpServer startStubServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/users/tommy/events", exchange -> {
+            int perPage = 30, page = 1;
+            for(String parameter : exchange.getRequestURI().getQuery().split("&")){
+                String[] pair = parameter.split("=");
+                if(pair[0].equals("per_page")) perPage = Integer.parseInt(pair[1]);
+                if(pair[0].equals("page")) page = Integer.parseInt(pair[1]);
+            }
+            Runnable hook = beforeNextPage;
+            if(page > 1 && hook != null){
+                beforeNextPage = null;
+                hook.run();
+            }
+            if(page > 1 && failNextPage){
+                failNextPage = false;
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            StringBuilder body = new StringBuilder("[");
+            String etag;
+            synchronized (ids) {
+                for(int i = (page - 1) * perPage; i < Math.min(ids.size(), page * perPage); i++){
+                    if(body.length() > 1) body.append(',');
+                    body.append(event(ids.get(i)));
+                }
+                etag = "\"" + ids.get(0) + "-" + perPage + "-" + page + "\"";
+            }
+            exchange.getResponseHeaders().add("X-Poll-Interval", "60");
+            exchange.getResponseHeaders().add("ETag", etag);
+            if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))){
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            byte[] bytes = body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static GItHubAPI stubApi(HttpServer server){
+        String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, null, null);
+    }
+
+    // The block the watcher writes for the given new events, oldest first
+    private String expectedBlock(long fromId, long toId){
+        StringBuilder expected = new StringBuilder("== tommy ==").append(System.lineSeparator());
+        for(long id = fromId; id <= toId; id++){
+            expected.append(formatter.formatEvent(dataHandler.streamJsonData(event(id)).findFirst().orElseThrow()))
+                    .append(System.lineSeparator());
+        }
+        return expected.toString();
+    }
+
+    private static void check(boolean condition, String message, Object result){
+        if(!condition) throw new AssertionError(message + ": " + result);
+    }
+
+    public void testWritesOnlyNewEvents() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            StringBuilder out = new StringBuilder();
+            ActivityWatcher watcher = new ActivityWatcher(stubApi(server), out, 10, Duration.ZERO, null);
+            addEvents(1, 5);
+
+            ActivityWatcher.PollResult first = watcher.poll("tommy");
+            check(first.newEvents() == 5 && out.toString().equals(expectedBlock(1, 5)), "Unexpected first poll", first);
+            check(watcher.getHighWaterMark("tommy").id() == 5, "Unexpected mark", watcher.getHighWaterMark("tommy"));
+
+            out.setLength(0);
+            ActivityWatcher.PollResult unchanged = watcher.poll("tommy");
+            check(unchanged.notModified() && unchanged.parsedEvents() == 0 && out.isEmpty()
+                    && unchanged.pollInterval().equals(Duration.ofSeconds(60)), "Expected a 304 and no output", unchanged);
+
+            addEvents(6, 7);
+            ActivityWatcher.PollResult two = watcher.poll("tommy");
+            check(two.newEvents() == 2 && two.parsedEvents() == 3 && two.requests() == 1
+                    && out.toString().equals(expectedBlock(6, 7)), "Expected only the two new events", two);
+
+            // 25 new events take three pages of 10; a new event arriving meanwhile shifts pages 2 and 3 by one
+            out.setLength(0);
+            addEvents(8, 32);
+            beforeNextPage = () -> addEvents(33, 33);
+            ActivityWatcher.PollResult many = watcher.poll("tommy");
+            check(many.newEvents() == 25 && many.requests() == 3 && out.toString().equals(expectedBlock(8, 32)),
+                    "Expected the 25 new events once each, oldest first", many + "\n" + out);
+
+            out.setLength(0);
+            ActivityWatcher.PollResult late = watcher.poll("tommy");
+            check(late.newEvents() == 1 && out.toString().equals(expectedBlock(33, 33)), "Expected the late event", late);
+            System.out.println("testWritesOnlyNewEvents Passed: " + late);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testStopsParsingAtTheFirstSeenEvent() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            StringBuilder out = new StringBuilder();
+            ActivityWatcher watcher = new ActivityWatcher(stubApi(server), out, 100, Duration.ZERO, null);
+            addEvents(1, 100);
+            watcher.poll("tommy");
+            addEvents(101, 101);
+            out.setLength(0);
+            ActivityWatcher.PollResult result = watcher.poll("tommy");
+            check(result.newEvents() == 1 && result.parsedEvents() == 2 && out.toString().equals(expectedBlock(101, 101)),
+                    "Expected parsing to stop after the first seen event", result);
+            System.out.println("testStopsParsingAtTheFirstSeenEvent Passed: " + result);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testFailedLaterPageKeepsTheFirstPageUnseen() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            StringBuilder out = new StringBuilder();
+            ActivityWatcher watcher = new ActivityWatcher(stubApi(server), out, 10, Duration.ZERO, null);
+            addEvents(1, 5);
+            watcher.poll("tommy");
+
+            // 15 new events fill page 1, so page 2 is fetched too, and fails
+            out.setLength(0);
+            addEvents(6, 20);
+            failNextPage = true;
+            try {
+                watcher.poll("tommy");
+                throw new AssertionError("Expected the failed page to fail the poll");
+            } catch (RuntimeException expected) {
+                // Expected
+            }
+            check(out.isEmpty() && watcher.getHighWaterMark("tommy").id() == 5, "Expected nothing to be recorded",
+                    watcher.getHighWaterMark("tommy"));
+
+            // Page 1's ETag was not kept, so the retry gets the page again instead of a 304
+            ActivityWatcher.PollResult retry = watcher.poll("tommy");
+            check(!retry.notModified() && retry.newEvents() == 15 && out.toString().equals(expectedBlock(6, 20))
+                    && watcher.getHighWaterMark("tommy").id() == 20, "Expected the 15 new events on retry", retry);
+            System.out.println("testFailedLaterPageKeepsTheFirstPageUnseen Passed: " + retry);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new ActivityWatcherTest().testWritesOnlyNewEvents();
+        new ActivityWatcherTest().testStopsParsingAtTheFirstSeenEvent();
+        new ActivityWatcherTest().testFailedLaterPageKeepsTheFirstPageUnseen();
+    }
+}
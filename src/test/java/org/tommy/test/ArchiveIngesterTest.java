@@ -0,0 +1,207 @@
+package org.tommy.test;
+
+import org.tommy.ArchiveIngester;
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.GitHubEventType;
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.model.JsonDataHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+public class ArchiveIngesterTest {
+
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+    private final JsonDataHandler dataHandler = new JsonDataHandler();
+
+    private static String event(int id, String actor, String type, String payload) {
+        return "{\"id\":\"" + id + "\",\"type\":\"" + type + "\",\"actor\":{\"id\":" + id + ",\"login\":\"" + actor
+                + "\",\"display_login\":\"" + actor + "\"},\"repo\":{\"id\":1,\"name\":\"" + actor + "/repo-" + id
+                + "\"},\"payload\":" + payload + ",\"public\":true,\"created_at\":\"2025-01-01T00:00:00Z\"}";
+    }
+
+    // Writes a gzipped NDJSON file and collects the lines expected for "tommy" into expected
+    private Path writeArchive(Path directory, int file, int events, String lineEnd, StringBuilder expected)
+            throws IOException {
+        Path path = directory.resolve("2025-01-01-" + file + ".json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            for (int i = 0; i < events; i++) {
+                int id = file * 100_000 + i;
+                String line;
+                if (i % 50 == 7) {
+                    // The wanted user's events, with the login's case varying as it may in the archive
+                    line = event(id, i % 100 == 7 ? "tommy" : "Tommy", "PushEvent",
+                            "{\"distinct_size\":" + i + ",\"commits\":[{\"message\":\"" + "x".repeat(i) + "\"}]}");
+                    expected.append(formatter.formatEvent(dataHandler.streamJsonData(line).findFirst().orElseThrow()))
+                            .append(System.lineSeparator());
+                } else if (i % 50 == 8) {
+                    // Mentions the wanted login, but another user is the actor
+                    line = event(id, "user" + i, "MemberEvent", "{\"member\":{\"login\":\"tommy\"}}");
+                } else if (i % 50 == 9) {
+                    line = event(id, "tommy", "DiscussionEvent", "{}");
+                } else {
+                    line = event(id, "user" + i, "WatchEvent", "{\"action\":\"started\"}");
+                }
+                out.write((line + lineEnd).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return path;
+    }
+
+    public void testIngestMatchesActorInFileOrder() throws IOException {
+        Path directory = Files.createTempDirectory("gharchive");
+        StringBuilder expected = new StringBuilder();
+        List<Path> files = new ArrayList<>();
+        files.add(writeArchive(directory, 1, 1000, "\n", expected));
+        files.add(writeArchive(directory, 2, 500, "\r\n", expected));
+        files.add(writeArchive(directory, 3, 2000, "\n", expected));
+
+        // A buffer smaller than most lines forces lines across reads and buffer growth
+        for (int bufferSize : new int[]{64, ArchiveIngester.DEFAULT_BUFFER_SIZE}) {
+            StringBuilder out = new StringBuilder();
+            ActivityAggregate aggregate = new ActivityAggregate();
+            ArchiveIngester.ArchiveSummary summary = new ArchiveIngester(List.of("TOMMY"), 3, bufferSize)
+                    .ingest(files, out, aggregate);
+            if (!out.toString().equals(expected.toString())) {
+                throw new AssertionError("Unexpected activity with buffer size " + bufferSize + ":\n" + out);
+            }
+            if (summary.files() != 3 || summary.lines() != 3500 || summary.matched() != 70 || summary.skipped() != 70) {
+                throw new AssertionError("Unexpected summary: " + summary);
+            }
+            if(aggregate.events() != 140 || aggregate.unsupportedTypes() != 70
+                    || aggregate.events(GitHubEventType.PUSH_EVENT) != 70 || aggregate.actors() != 2){
+                throw new AssertionError("Unexpected aggregate:\n" + aggregate);
+            }
+        }
+        System.out.println("testIngestMatchesActorInFileOrder Passed");
+    }
+
+    public void testMalformedArchiveFails() throws IOException {
+        Path directory = Files.createTempDirectory("gharchive");
+        Path notGzip = directory.resolve("plain.json.gz");
+        Files.writeString(notGzip, event(1, "tommy", "WatchEvent", "{}"));
+        Path brokenLine = directory.resolve("broken.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(brokenLine))) {
+            out.write("{\"type\":\"WatchEvent\",\"actor\":{\"login\":\"tommy\"},\"repo\":{\n".getBytes(StandardCharsets.UTF_8));
+        }
+        for (Path file : List.of(notGzip, brokenLine)) {
+            boolean failed = false;
+            try {
+                new ArchiveIngester(List.of("tommy"), 1).ingest(List.of(file), new StringBuilder());
+            } catch (RuntimeException e) {
+                failed = e.getMessage().contains(file.toString());
+            }
+            if (!failed) {
+                throw new AssertionError("Expected a failure naming " + file);
+            }
+        }
+        System.out.println("testMalformedArchiveFails Passed");
+    }
+
+    public void testOutputIsWrittenInChunksAsFilesProgress() throws IOException {
+        Path directory = Files.createTempDirectory("gharchive");
+        StringBuilder expected = new StringBuilder();
+        List<Path> files = new ArrayList<>();
+        // Every event is the wanted user's, so each file formats to far more than one chunk
+        for (int file = 1; file <= 6; file++) {
+            Path path = directory.resolve("2025-01-01-" + file + ".json.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+                for (int i = 0; i < 5000; i++) {
+                    String line = event(file * 100_000 + i, "tommy", "WatchEvent", "{\"action\":\"started\"}");
+                    expected.append(formatter.formatEvent(dataHandler.streamJsonData(line).findFirst().orElseThrow()))
+                            .append(System.lineSeparator());
+                    out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            files.add(path);
+        }
+
+        // A slow destination keeps the workers waiting on their full queues
+        StringBuilder out = new StringBuilder();
+        List<Integer> appends = new ArrayList<>();
+        Appendable slow = new Appendable() {
+            @Override
+            public Appendable append(CharSequence csq) {
+                appends.add(csq.length());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                out.append(csq);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence csq, int start, int end) {
+                return append(csq.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return append(String.valueOf(c));
+            }
+        };
+        ArchiveIngester.ArchiveSummary summary = new ArchiveIngester(List.of("tommy"), 2).ingest(files, slow);
+        int largest = appends.stream().mapToInt(Integer::intValue).max().orElse(0);
+        if (!out.toString().equals(expected.toString()) || summary.matched() != 30_000) {
+            throw new AssertionError("Unexpected activity: " + summary);
+        }
+        // Each file's activity is more than 100 KB, and none of it arrives in one piece
+        if (appends.size() < 6 * 4 || largest > expected.length() / 6 / 4) {
+            throw new AssertionError("Expected bounded chunks, got " + appends.size() + ", the largest " + largest);
+        }
+        System.out.println("testOutputIsWrittenInChunksAsFilesProgress Passed: " + appends.size()
+                + " chunks, the largest " + largest + " characters");
+    }
+
+    public void testFailingFileDoesNotBlockLaterWorkers() throws Exception {
+        Path directory = Files.createTempDirectory("gharchive");
+        Path broken = directory.resolve("2025-01-01-1.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(broken))) {
+            out.write("{\"type\":\"WatchEvent\",\"actor\":{\"login\":\"tommy\"},\"repo\":{\n".getBytes(StandardCharsets.UTF_8));
+        }
+        // Enough of the wanted user's events to fill the second file's queue while the first one fails
+        Path large = directory.resolve("2025-01-01-2.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(large))) {
+            for (int i = 0; i < 20_000; i++) {
+                out.write((event(i, "tommy", "WatchEvent", "{\"action\":\"started\"}") + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> run = caller.submit(() -> new ArchiveIngester(List.of("tommy"), 2).ingest(List.of(broken, large),
+                    new StringBuilder()));
+            try {
+                run.get(10, TimeUnit.SECONDS);
+                throw new AssertionError("Expected the broken file to fail the run");
+            } catch (ExecutionException e) {
+                if (!e.getCause().getMessage().contains(broken.toString())) throw new AssertionError(e.getCause());
+            } catch (TimeoutException e) {
+                throw new AssertionError("Expected the run to fail instead of hanging");
+            }
+        } finally {
+            caller.shutdownNow();
+        }
+        System.out.println("testFailingFileDoesNotBlockLaterWorkers Passed");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ArchiveIngesterTest().testIngestMatchesActorInFileOrder();
+        new ArchiveIngesterTest().testMalformedArchiveFails();
+        new ArchiveIngesterTest().testOutputIsWrittenInChunksAsFilesProgress();
+        new ArchiveIngesterTest().testFailingFileDoesNotBlockLaterWorkers();
+    }
+}
@@ -0,0 +1,133 @@
+package org.tommy.test;
+
+import org.tommy.ActivityService;
+import org.tommy.BatchActivityRunner;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubEventType;
+import org.tommy.GitHubResponse;
+import org.tommy.aggregate.ActivityAggregate;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+import org.tommy.sink.BufferedChannelWriter;
+import org.tommy.sink.CsvActivitySink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class BatchActivityRunnerTest {
+
+    // Serves one WatchEvent per user (buffered or streamed) and fails for "missing-user", tracking peak concurrency
+    private static class StubGitHubAPI extends GItHubAPI {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String getGitHubEvents(String userName) {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(5);
+                if (userName.equals("missing-user")) {
+                    throw new RuntimeException("User '" + userName + "' does not exist on GitHub.");
+                }
+                return "[{\"type\":\"WatchEvent\",\"repo\":{\"name\":\"" + userName + "/repo\"}}]";
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public GitHubResponse.FetchStats streamGitHubEvents(String userName, Consumer<JsonReader> consumer) {
+            new JsonDataHandler().streamJsonData(getGitHubEvents(userName)).forEach(consumer);
+            return null;
+        }
+    }
+
+    public void testBatchIsolatesFailures() {
+        StubGitHubAPI api = new StubGitHubAPI();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 40; i++) users.add("user" + i);
+        users.add("missing-user");
+        users.add("-invalid-");
+
+        BatchActivityRunner runner = new BatchActivityRunner(new ActivityService(api), 4, out);
+        BatchActivityRunner.BatchSummary summary = runner.run(users);
+
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        if (summary.users() != 42 || summary.failed() != 2) {
+            throw new AssertionError("Unexpected summary: " + summary);
+        }
+        if (!output.contains("== user7 ==" + System.lineSeparator() + "starred user7/repo")) {
+            throw new AssertionError("Expected user7's activity grouped under its header");
+        }
+        if (!output.contains("== missing-user ==" + System.lineSeparator() + "Error: User 'missing-user' does not exist")) {
+            throw new AssertionError("Expected the failure to be reported in missing-user's block");
+        }
+        if (api.maxInFlight.get() > 4) {
+            throw new AssertionError("Concurrency limit exceeded: " + api.maxInFlight.get());
+        }
+        if (summary.p99Nanos() < summary.p50Nanos()) {
+            throw new AssertionError("Expected p99 >= p50");
+        }
+        System.out.println("testBatchIsolatesFailures Passed: " + summary);
+    }
+
+    public void testBatchMergesUserAggregates() {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) users.add("user" + i);
+        users.add("missing-user");
+        ActivityAggregate aggregate = new ActivityAggregate();
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+
+        new BatchActivityRunner(new ActivityService(new StubGitHubAPI()), 8, out, aggregate).run(users);
+
+        if (aggregate.events() != 20 || aggregate.events(GitHubEventType.WATCH_EVENT) != 20
+                || aggregate.repos() != 20 || aggregate.eventsInRepo("user7/repo") != 1) {
+            throw new AssertionError("Unexpected aggregate:" + System.lineSeparator() + aggregate);
+        }
+        System.out.println("testBatchMergesUserAggregates Passed");
+    }
+
+    public void testBatchWritesRecordsToSink() throws IOException {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) users.add("user" + i);
+        users.add("missing-user");
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+        BatchActivityRunner.BatchSummary summary;
+        try (CsvActivitySink sink = new CsvActivitySink(new BufferedChannelWriter(Channels.newChannel(records)))) {
+            summary = new BatchActivityRunner(new ActivityService(new StubGitHubAPI()), 8, sink,
+                    new PrintStream(errors, true, StandardCharsets.UTF_8), null).run(users);
+        }
+
+        List<String> rows = List.of(records.toString(StandardCharsets.UTF_8).split("\r\n"));
+        if (summary.failed() != 1 || rows.size() != 21 || !rows.get(0).equals(CsvActivitySink.HEADER)
+                || !rows.contains("user7,,WatchEvent,user7/repo,,,,")) {
+            throw new AssertionError("Unexpected records " + summary + ":" + System.lineSeparator() + rows);
+        }
+        // Failures stay out of the records
+        if (!errors.toString(StandardCharsets.UTF_8).startsWith("== missing-user ==" + System.lineSeparator()
+                + "Error: User 'missing-user' does not exist")) {
+            throw new AssertionError("Expected the failure on the error stream: " + errors);
+        }
+        System.out.println("testBatchWritesRecordsToSink Passed: " + summary);
+    }
+
+    public static void main(String[] args) throws IOException {
+        new BatchActivityRunnerTest().testBatchIsolatesFailures();
+        new BatchActivityRunnerTest().testBatchMergesUserAggregates();
+        new BatchActivityRunnerTest().testBatchWritesRecordsToSink();
+    }
+}
@@ -0,0 +1,141 @@
+package org.tommy.test;
+
+import org.tommy.ActivityService;
+import org.tommy.CommandLineOptions;
+import org.tommy.EventFilter;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubEventType;
+import org.tommy.GitHubResponse;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class EventFilterTest {
+
+    private static final String EVENTS = "["
+            + event("PushEvent", "tommy/app", "2025-01-31T12:00:00Z", "{\"ref\":\"refs/heads/main\",\"distinct_size\":1}") + ","
+            + event("PushEvent", "Tommy/Docs-Site", "2025-01-30T08:00:00Z", "{\"ref\":\"refs/heads/main\",\"distinct_size\":2}") + ","
+            + event("DiscussionEvent", "tommy/app", "2025-01-31T13:00:00Z", "{}") + ","
+            + event("WatchEvent", "other/lib", "2025-01-31T14:00:00Z", "{\"action\":\"started\"}") + ","
+            + event("PushEvent", "other/lib", "2025-01-31T15:30:00.250Z", "{\"ref\":\"refs/heads/dev\",\"distinct_size\":3}") + "]";
+
+    private static String event(String type, String repo, String createdAt, String payload){
+        return "{\"type\":\"" + type + "\",\"repo\":{\"name\":\"" + repo + "\"},\"payload\":" + payload
+                + ",\"created_at\":\"" + createdAt + "\"}";
+    }
+
+    // Serves EVENTS to every user, parsed lazily as the real client does
+    private static class StubGitHubAPI extends GItHubAPI {
+        @Override
+        public String getGitHubEvents(String userName) {
+            return EVENTS;
+        }
+
+        @Override
+        public GitHubResponse.FetchStats streamGitHubEvents(String userName, Consumer<JsonReader> consumer) {
+            new JsonDataHandler(true).streamJsonData(EVENTS).forEach(consumer);
+            return null;
+        }
+    }
+
+    private static List<EventFilter.Outcome> classify(EventFilter filter){
+        return new JsonDataHandler(true).streamJsonData(EVENTS).map(filter::check).toList();
+    }
+
+    private static void check(boolean condition, String message, Object actual){
+        if(!condition) throw new AssertionError(message + ": " + actual);
+    }
+
+    public void testCriteria(){
+        EventFilter.Outcome matched = EventFilter.Outcome.MATCHED;
+        EventFilter.Outcome filtered = EventFilter.Outcome.FILTERED;
+        EventFilter.Outcome unknown = EventFilter.Outcome.UNKNOWN_TYPE;
+
+        EventFilter all = new EventFilter();
+        List<EventFilter.Outcome> outcomes = classify(all);
+        check(all.isEmpty() && outcomes.equals(List.of(matched, matched, unknown, matched, matched)),
+                "Expected only the unknown type to be skipped", outcomes);
+        check(all.getCounts().equals(new EventFilter.Counts(4, 0, 1)), "Unexpected counts", all.getCounts());
+
+        EventFilter pushes = new EventFilter(List.of(GitHubEventType.PUSH_EVENT), null, null, null);
+        outcomes = classify(pushes);
+        check(outcomes.equals(List.of(matched, matched, filtered, filtered, matched)),
+                "Expected only pushes, with the unknown type filtered out", outcomes);
+
+        EventFilter repos = new EventFilter(null, List.of("TOMMY/*", "*/lib"), null, null);
+        outcomes = classify(repos);
+        check(outcomes.equals(List.of(matched, matched, unknown, matched, matched)),
+                "Expected patterns to ignore case", outcomes);
+        EventFilter middle = new EventFilter(null, List.of("t*/d*-*e", "*app*"), null, null);
+        outcomes = classify(middle);
+        check(outcomes.equals(List.of(matched, matched, unknown, filtered, filtered)),
+                "Expected inner wildcards to match in order", outcomes);
+
+        // A fractional bound rounds up, as created_at has whole seconds; other timestamp shapes are parsed
+        EventFilter window = new EventFilter(null, null, Instant.parse("2025-01-31T11:59:59.500Z"),
+                Instant.parse("2025-01-31T15:30:00.250Z"));
+        outcomes = classify(window);
+        check(outcomes.equals(List.of(matched, filtered, unknown, matched, filtered)),
+                "Expected the window to be [since, until)", outcomes);
+
+        EventFilter combined = new EventFilter(List.of(GitHubEventType.PUSH_EVENT), List.of("tommy/app"),
+                Instant.parse("2025-01-31T00:00:00Z"), null);
+        outcomes = classify(combined);
+        check(outcomes.equals(List.of(matched, filtered, filtered, filtered, filtered)),
+                "Expected every criterion to apply", outcomes);
+        check(combined.getCounts().toString().equals("Kept 1 events: 4 filtered out, 0 of unknown types skipped"),
+                "Unexpected report", combined.getCounts());
+
+        try {
+            new EventFilter(null, null, Instant.parse("2025-01-31T00:00:00Z"), Instant.parse("2025-01-31T00:00:00Z"));
+            throw new AssertionError("Expected an empty window to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        System.out.println("testCriteria Passed");
+    }
+
+    public void testServiceSkipsUnknownTypesInsteadOfFailing() throws IOException {
+        StringBuilder out = new StringBuilder();
+        ActivityService service = new ActivityService(new StubGitHubAPI());
+        service.writeActivity("tommy", out);
+        check(out.toString().lines().count() == 4 && service.getFilter().getCounts().unknownTypes() == 1,
+                "Expected the four known events", out);
+
+        ActivityService pushes = new ActivityService(new StubGitHubAPI(), null, null,
+                new EventFilter(List.of(GitHubEventType.PUSH_EVENT), List.of("*/lib"), null, null));
+        List<String> lines = pushes.getActivity("tommy");
+        check(lines.equals(List.of("Pushed 3 commits to other/lib")), "Expected the one push to other/lib", lines);
+        check(pushes.getFilter().getCounts().equals(new EventFilter.Counts(1, 4, 0)), "Unexpected counts",
+                pushes.getFilter().getCounts());
+        System.out.println("testServiceSkipsUnknownTypesInsteadOfFailing Passed");
+    }
+
+    public void testCommandLineFilter(){
+        CommandLineOptions options = CommandLineOptions.parse(new String[]{"--type", "PushEvent, IssuesEvent",
+                "--type", "WatchEvent", "--repo", "tommy/*", "--until", "2025-02-01T00:00:00Z", "tommy"});
+        check(options.getTypes().equals(List.of(GitHubEventType.PUSH_EVENT, GitHubEventType.ISSUES_EVENT,
+                GitHubEventType.WATCH_EVENT)) && options.getRepoPatterns().equals(List.of("tommy/*"))
+                && !options.isPaginated(), "Unexpected options", options.newEventFilter());
+        for(String[] args : new String[][]{{"--type", "PushEvents", "tommy"}, {"--repo", "", "tommy"},
+                {"--since", "2025-02-01T00:00:00Z", "--until", "2025-01-01T00:00:00Z", "tommy"}}){
+            try {
+                CommandLineOptions.parse(args);
+                throw new AssertionError("Expected " + List.of(args) + " to be rejected");
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+        System.out.println("testCommandLineFilter Passed");
+    }
+
+    public static void main(String[] args) throws IOException {
+        new EventFilterTest().testCriteria();
+        new EventFilterTest().testServiceSkipsUnknownTypesInsteadOfFailing();
+        new EventFilterTest().testCommandLineFilter();
+    }
+}
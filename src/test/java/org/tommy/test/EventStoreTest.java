@@ -0,0 +1,165 @@
+package org.tommy.test;
+
+import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.model.JsonDataHandler;
+import org.tommy.model.JsonReader;
+import org.tommy.store.EventStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventStoreTest {
+
+    private static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final JsonDataHandler dataHandler = new JsonDataHandler(true);
+    private final GitHubEventActivityFormatter formatter = new GitHubEventActivityFormatter();
+
+    private JsonReader event(String id, String actor, String type, Instant createdAt, String payload){
+        String json = "{\"id\":\"" + id + "\",\"type\":\"" + type + "\",\"actor\":{\"login\":\"" + actor
+                + "\"},\"repo\":{\"name\":\"" + actor + "/repo\"},\"payload\":" + payload
+                + ",\"created_at\":\"" + createdAt + "\"}";
+        return dataHandler.streamJsonData(json).findFirst().orElseThrow();
+    }
+
+    // Events 0..count-1, one minute apart; every third one is by "tommy"
+    private List<JsonReader> events(int count){
+        List<JsonReader> events = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            String actor = i % 3 == 0 ? "tommy" : "user" + (i % 5);
+            Instant createdAt = START.plusSeconds(60L * i);
+            String id = Long.toString(40_000_000_000L + i);
+            events.add(switch (i % 5){
+                case 0 -> event(id, actor, "PushEvent", createdAt, "{\"distinct_size\":" + i + "}");
+                case 1 -> event(id, actor, "PullRequestEvent", createdAt,
+                        "{\"action\":\"opened\",\"pull_request\":{\"number\":" + i + ",\"title\":\"Tömmy's \\\"fix\\\"\"}}");
+                case 2 -> event(id, actor, "GollumEvent", createdAt,
+                        "{\"pages\":[{\"action\":\"created\",\"page_name\":\"Home\"},{\"action\":\"edited\",\"page_name\":\"FAQ\"}]}");
+                case 3 -> event(id, actor, "CreateEvent", createdAt, "{\"ref_type\":\"repository\",\"ref\":null}");
+                default -> event(id, actor, "IssuesEvent", createdAt,
+                        "{\"action\":\"closed\",\"issue\":{\"number\":" + i + ",\"title\":\"Bug " + i + "\"}}");
+            });
+        }
+        return events;
+    }
+
+    // Formatted activity of the given events by "tommy" created in [from, to), newest first
+    private String expectedHistory(List<JsonReader> events, Instant from, Instant to){
+        StringBuilder expected = new StringBuilder();
+        for(int i = events.size() - 1; i >= 0; i--){
+            JsonReader event = events.get(i);
+            Instant createdAt = Instant.parse(event.getValueForKey("created_at"));
+            if(!"tommy".equals(event.getValueForKey("actor.login"))) continue;
+            if((from != null && createdAt.isBefore(from)) || (to != null && !createdAt.isBefore(to))) continue;
+            expected.append(formatter.formatEvent(event)).append('\n');
+        }
+        return expected.toString();
+    }
+
+    private String history(EventStore store, String login, Instant from, Instant to){
+        StringBuilder history = new StringBuilder();
+        for(EventStore.StoredEvent event : store.query(login, from, to)){
+            history.append(formatter.formatEvent(event.event())).append('\n');
+        }
+        return history.toString();
+    }
+
+    public void testAppendDeduplicatesAndQueries() throws IOException {
+        Path directory = Files.createTempDirectory("eventstore");
+        List<JsonReader> events = events(300);
+        Instant from = START.plusSeconds(60L * 100), to = START.plusSeconds(60L * 200);
+        try (EventStore store = new EventStore(directory)) {
+            for(JsonReader event : events){
+                if(!store.append(event)) throw new AssertionError("Expected a new event to be stored");
+            }
+            if(store.append(events.get(7)) || store.append(event("x1", "tommy", "WatchEvent", START, "{}"))
+                    || store.append(event("1", "tommy", "DiscussionEvent", START, "{}"))){
+                throw new AssertionError("Expected duplicates, non-numeric ids and unsupported types to be rejected");
+            }
+            if(store.size() != 300){
+                throw new AssertionError("Expected 300 stored events but found " + store.size());
+            }
+            if(!history(store, "TOMMY", null, null).equals(expectedHistory(events, null, null))
+                    || !history(store, "tommy", from, to).equals(expectedHistory(events, from, to))){
+                throw new AssertionError("Unexpected history:\n" + history(store, "tommy", from, to));
+            }
+            if(!store.query("nobody", null, null).isEmpty()){
+                throw new AssertionError("Expected no events for an unknown user");
+            }
+        }
+
+        try (EventStore store = new EventStore(directory)) {
+            if(!store.getRecovery().isClean() || store.size() != 300 || store.append(events.get(0))){
+                throw new AssertionError("Expected the reopened store to be intact: " + store.getRecovery());
+            }
+            if(!history(store, "tommy", from, to).equals(expectedHistory(events, from, to))){
+                throw new AssertionError("Unexpected history after reopening");
+            }
+        }
+        System.out.println("testAppendDeduplicatesAndQueries Passed");
+    }
+
+    public void testRecoversAfterCrash() throws IOException {
+        Path directory = Files.createTempDirectory("eventstore");
+        Path log = directory.resolve("events.log"), index = directory.resolve("events.idx");
+        List<JsonReader> events = events(50);
+        try (EventStore store = new EventStore(directory)) {
+            events.forEach(store::append);
+        }
+
+        // A torn record at the end of the log, and an index that lost its last entry and a half
+        long logSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(18).putInt(100).putInt(0).put(new byte[10]).flip());
+        }
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 48);
+        }
+        try (EventStore store = new EventStore(directory)) {
+            EventStore.Recovery recovery = store.getRecovery();
+            if(recovery.truncatedLogBytes() != 18 || recovery.droppedIndexEntries() != 0 || recovery.reindexedEvents() != 2
+                    || Files.size(log) != logSize || store.size() != 50){
+                throw new AssertionError("Unexpected recovery: " + recovery + ", size " + store.size());
+            }
+            if(!history(store, "tommy", null, null).equals(expectedHistory(events, null, null))){
+                throw new AssertionError("Unexpected history after recovery");
+            }
+        }
+
+        // A corrupt last record: its index entry and the record itself are dropped
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 3);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (last.get(0) ^ 0x55)}), channel.size() - 3);
+        }
+        try (EventStore store = new EventStore(directory)) {
+            EventStore.Recovery recovery = store.getRecovery();
+            if(recovery.droppedIndexEntries() != 1 || recovery.truncatedLogBytes() == 0 || store.size() != 49){
+                throw new AssertionError("Unexpected recovery from a corrupt record: " + recovery);
+            }
+            if(!store.append(events.get(49))) throw new AssertionError("Expected the lost event to be stored again");
+        }
+
+        // Without its index file, the store is indexed again from the log
+        Files.delete(index);
+        try (EventStore store = new EventStore(directory)) {
+            if(store.getRecovery().reindexedEvents() != 50 || store.size() != 50
+                    || !history(store, "tommy", null, null).equals(expectedHistory(events, null, null))){
+                throw new AssertionError("Unexpected rebuild: " + store.getRecovery());
+            }
+        }
+        System.out.println("testRecoversAfterCrash Passed");
+    }
+
+    public static void main(String[] args) throws IOException {
+        new EventStoreTest().testAppendDeduplicatesAndQueries();
+        new EventStoreTest().testRecoversAfterCrash();
+    }
+}
@@ -0,0 +1,256 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.ConditionalRequestCache;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+public class GItHubAPITest {
+
+    private static final String EVENTS = "[" + "{\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/app\"}},".repeat(50)
+            + "{\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/app\"}}]";
+
+    private static final String ETAG = "\"v1\"";
+
+    private final AtomicInteger fullResponses = new AtomicInteger();
+
+    // Serves EVENTS for /users/tommy/events with an ETag, gzip-compressed when the client asks for it,
+    // 304 when the client already has the ETag, and 404 for any other user
+    private HttpServer startStubServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/users/", exchange -> {
+            boolean found = exchange.getRequestURI().getPath().equals("/users/tommy/events");
+            if (found && ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            if (found) {
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                fullResponses.incrementAndGet();
+            }
+            byte[] body = (found ? EVENTS : "{\"message\":\"Not Found\"}").getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(found ? 200 : 404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static GItHubAPI stubApi(HttpServer server) {
+        return stubApi(server, null);
+    }
+
+    private static GItHubAPI stubApi(HttpServer server, ConditionalRequestCache cache) {
+        String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, cache);
+    }
+
+    public void testGzipResponseIsDecompressed() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            GItHubAPI api = stubApi(server);
+            GitHubResponse response = api.fetchGitHubEvents("tommy");
+            if (!EVENTS.equals(response.body())) {
+                throw new AssertionError("Expected the decompressed body to match the served events");
+            }
+            GitHubResponse.FetchStats stats = response.stats();
+            if (!stats.gzip() || stats.wireBytes() >= stats.bodyBytes() || stats.totalNanos() < stats.timeToHeadersNanos()) {
+                throw new AssertionError("Unexpected fetch stats: " + stats);
+            }
+            if (!EVENTS.equals(api.getGitHubEvents("tommy"))) {
+                throw new AssertionError("Expected the client to be reusable across requests");
+            }
+            System.out.println("testGzipResponseIsDecompressed Passed: " + stats);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testUnknownUser() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            String message = null;
+            try {
+                stubApi(server).getGitHubEvents("nobody");
+            } catch (RuntimeException e) {
+                message = e.getMessage();
+            }
+            if (!"User 'nobody' does not exist on GitHub.".equals(message)) {
+                throw new AssertionError("Unexpected error: " + message);
+            }
+            System.out.println("testUnknownUser Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testConditionalRequestServedFromCache() throws IOException {
+        HttpServer server = startStubServer();
+        Path directory = Files.createTempDirectory("etag-cache");
+        fullResponses.set(0);
+        try {
+            GItHubAPI api = stubApi(server, new ConditionalRequestCache(directory, ConditionalRequestCache.DEFAULT_MAX_BYTES));
+            GitHubResponse first = api.fetchGitHubEvents("tommy");
+            // A fresh cache instance over the same directory must still have the entry
+            GItHubAPI restarted = stubApi(server, new ConditionalRequestCache(directory, ConditionalRequestCache.DEFAULT_MAX_BYTES));
+            GitHubResponse second = restarted.fetchGitHubEvents("tommy");
+            if (first.notModified() || !second.notModified() || !EVENTS.equals(second.body()) || second.statusCode() != 200) {
+                throw new AssertionError("Expected the second fetch to be a 304 served from the cache");
+            }
+            if (fullResponses.get() != 1 || second.stats().bodyBytes() != 0) {
+                throw new AssertionError("Expected exactly one full response, got " + fullResponses.get());
+            }
+            System.out.println("testConditionalRequestServedFromCache Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testCacheEvictsLeastRecentlyUsed() throws IOException {
+        Path directory = Files.createTempDirectory("etag-cache");
+        ConditionalRequestCache cache = new ConditionalRequestCache(directory, 2500);
+        String body = "x".repeat(1000);
+        URI first = URI.create("https://example.com/1");
+        URI second = URI.create("https://example.com/2");
+        URI third = URI.create("https://example.com/3");
+        cache.store(first, new ConditionalRequestCache.Entry("\"1\"", null, body));
+        cache.store(second, new ConditionalRequestCache.Entry("\"2\"", null, body));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        }
+        // Reading the first entry makes the second one the least recently used
+        cache.lookup(first);
+        cache.store(third, new ConditionalRequestCache.Entry("\"3\"", null, body));
+        if (cache.lookup(second) != null || cache.lookup(first) == null || cache.lookup(third) == null
+                || cache.getTotalBytes() > 2500) {
+            throw new AssertionError("Expected only the second entry to be evicted, total " + cache.getTotalBytes());
+        }
+        System.out.println("testCacheEvictsLeastRecentlyUsed Passed");
+    }
+
+    public void testEventsAreStreamedAsTheyArrive() throws IOException {
+        CountDownLatch firstEventConsumed = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Sends the first event, then holds the rest of the body back until the client has consumed it
+        server.createContext("/users/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            try (GZIPOutputStream out = new GZIPOutputStream(exchange.getResponseBody(), true)) {
+                out.write("[{\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/\u00e9t\u00e9\"}},".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                overlapped.set(firstEventConsumed.await(5, TimeUnit.SECONDS));
+                out.write(EVENTS.substring(1).getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        try {
+            List<String> repos = new ArrayList<>();
+            GitHubResponse.FetchStats stats = stubApi(server).streamGitHubEvents("tommy", event -> {
+                repos.add(event.getValueForKey("repo.name"));
+                firstEventConsumed.countDown();
+            });
+            if (!overlapped.get() || repos.size() != 52 || !repos.get(0).equals("tommy/\u00e9t\u00e9") || !stats.gzip()) {
+                throw new AssertionError("Expected the first event before the rest of the body, got " + repos.size() + " events");
+            }
+            System.out.println("testEventsAreStreamedAsTheyArrive Passed: " + stats);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testStreamedEventsUseConditionalCache() throws IOException {
+        HttpServer server = startStubServer();
+        Path directory = Files.createTempDirectory("etag-cache");
+        fullResponses.set(0);
+        try {
+            GItHubAPI api = stubApi(server, new ConditionalRequestCache(directory, ConditionalRequestCache.DEFAULT_MAX_BYTES));
+            AtomicInteger events = new AtomicInteger();
+            api.streamGitHubEvents("tommy", event -> events.incrementAndGet());
+            api.streamGitHubEvents("tommy", event -> events.incrementAndGet());
+            if (events.get() != 102 || fullResponses.get() != 1) {
+                throw new AssertionError("Expected the second stream to be served from the cache, got " + events.get()
+                        + " events from " + fullResponses.get() + " full responses");
+            }
+            String message = null;
+            try {
+                api.streamGitHubEvents("nobody", event -> events.incrementAndGet());
+            } catch (RuntimeException e) {
+                message = e.getMessage();
+            }
+            if (!"User 'nobody' does not exist on GitHub.".equals(message)) {
+                throw new AssertionError("Unexpected error: " + message);
+            }
+            System.out.println("testStreamedEventsUseConditionalCache Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testCacheWriteFailureKeepsResponse() throws IOException {
+        HttpServer server = startStubServer();
+        Path directory = Files.createTempDirectory("etag-cache");
+        try {
+            ConditionalRequestCache cache = new ConditionalRequestCache(directory, ConditionalRequestCache.DEFAULT_MAX_BYTES);
+            // Entries can no longer be written once the directory is gone
+            Files.delete(directory);
+            GItHubAPI api = stubApi(server, cache);
+            GitHubResponse response = api.fetchGitHubEvents("tommy");
+            List<String> streamed = new ArrayList<>();
+            api.streamGitHubEvents("tommy", event -> streamed.add(event.getValueForKey("type")));
+            if (!EVENTS.equals(response.body()) || streamed.size() != 51 || cache.getWriteFailures() != 2
+                    || cache.getLastWriteFailure() == null || cache.getTotalBytes() != 0) {
+                throw new AssertionError("Expected both fetches to succeed and both cache writes to be counted, got "
+                        + cache.getWriteFailures() + " failures");
+            }
+            System.out.println("testCacheWriteFailureKeepsResponse Passed: " + cache.getLastWriteFailure().getMessage());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        GItHubAPITest test = new GItHubAPITest();
+        test.testGzipResponseIsDecompressed();
+        test.testUnknownUser();
+        test.testConditionalRequestServedFromCache();
+        test.testCacheEvictsLeastRecentlyUsed();
+        test.testEventsAreStreamedAsTheyArrive();
+        test.testStreamedEventsUseConditionalCache();
+        test.testCacheWriteFailureKeepsResponse();
+    }
+}
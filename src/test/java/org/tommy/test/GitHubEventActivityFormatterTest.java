@@ -1,11 +1,14 @@
 package org.tommy.test;
 
 import org.tommy.GitHubEventActivityFormatter;
+import org.tommy.event.GitHubEvent;
+import org.tommy.event.GitHubEvent.*;
 import org.tommy.model.JsonDataHandler;
 import org.tommy.model.JsonReader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
@@ -24,6 +27,78 @@ public class GitHubEventActivityFormatterTest {
             System.out.println(output);
         }
     }
+    public void testFormatEventTypes() {
+        String json = """
+                [
+                  {"type":"PushEvent","repo":{"name":"tommy/app"},"payload":{"distinct_size":3,"commits":[{"sha":"a"}]}},
+                  {"type":"IssueCommentEvent","repo":{"name":"tommy/app"},"payload":{"action":"created","issue":{"number":4,"pull_request":{}}}},
+                  {"type":"PullRequestEvent","repo":{"name":"tommy/app"},"payload":{"action":"opened","pull_request":{"number":9,"title":"Faster parser"}}},
+                  {"type":"PullRequestReviewCommentEvent","repo":{"name":"tommy/app"},"payload":{"changes":{},"pull_request":{"number":9}}},
+                  {"type":"CreateEvent","repo":{"name":"tommy/app"},"payload":{"ref":"dev","ref_type":"branch"}},
+                  {"type":"CreateEvent","repo":{"name":"tommy/app"},"payload":{"ref":null,"ref_type":"repository"}},
+                  {"type":"CommitCommentEvent","repo":{"name":"tommy/app"},"payload":{"comment":{"commit_id":"abcdef123456"}}},
+                  {"type":"GollumEvent","repo":{"name":"tommy/app"},"payload":{"pages":[{"action":"created","page_name":"Home"},{"action":"edited","page_name":"FAQ"}]}}
+                ]
+                """;
+        List<String> expected = List.of(
+                "Pushed 3 commits to tommy/app",
+                "created a comment on pull request #4 in tommy/app",
+                "opened pull request #9 'Faster parser' in tommy/app",
+                "Edited on PR 9 in tommy/app",
+                "Created branch DEV in tommy/app",
+                "Created repository tommy/app",
+                "Commented on commit abcdef in tommy/app",
+                "created wiki page \"Home\" in tommy/app\nedited wiki page \"FAQ\" in tommy/app");
+        List<String> outputs = formatter.formatEvents(dataHandler.streamJsonData(json).toList());
+        if(!outputs.equals(expected)){
+            throw new AssertionError("Unexpected output: " + outputs);
+        }
+        List<String> lazyOutputs = formatter.formatEvents(new JsonDataHandler(true).streamJsonData(json).toList());
+        if(!lazyOutputs.equals(expected)){
+            throw new AssertionError("Unexpected lazy output: " + lazyOutputs);
+        }
+        System.out.println("testFormatEventTypes Passed");
+    }
+
+    public void testAppendEvent() throws IOException {
+        List<GitHubEvent> events = List.of(
+                new PushEventRecord("tommy/app", 0),
+                new PushEventRecord("tommy/app", Long.MAX_VALUE),
+                new PullRequestEventRecord("closed", -12, null, "tommy/app"),
+                new PublicEventRecord(null),
+                new CreateEventRecord("tag", "v1.0-ßeta", "tommy/app"),
+                new CommitCommentEventRecord("abc", "tommy/app"),
+                new SponsorshipEventRecord("pending_tier_change", "tommy"),
+                new GollumEventRecord("tommy/app", List.of()));
+        List<String> expected = List.of(
+                "Pushed 0 commits to tommy/app",
+                String.format("Pushed %d commits to tommy/app", Long.MAX_VALUE),
+                "closed pull request #-12 'null' in tommy/app",
+                "Made NULL public",
+                String.format("Created tag %S in tommy/app", "v1.0-ßeta"),
+                "Commented on commit abc in tommy/app",
+                "requested a tier change for sponsorship to sponsorable tommy",
+                "");
+        StringWriter writer = new StringWriter();
+        for(int i = 0; i < events.size(); i++){
+            writer.getBuffer().setLength(0);
+            formatter.appendEvent(events.get(i), writer);
+            if(!writer.toString().equals(expected.get(i)) || !formatter.formatEvent(events.get(i)).equals(expected.get(i))){
+                throw new AssertionError("Unexpected output: " + writer + ", expected: " + expected.get(i));
+            }
+        }
+
+        String json = "[{\"type\":\"WatchEvent\",\"repo\":{\"name\":\"a/b\"}},"
+                + "{\"type\":\"ForkEvent\",\"repo\":{\"name\":\"a/b\"},\"payload\":{\"forkee\":{\"full_name\":\"c/b\"}}}]";
+        StringBuilder lines = new StringBuilder();
+        formatter.formatEvents(dataHandler.streamJsonData(json).toList(), lines);
+        String separator = System.lineSeparator();
+        if(!lines.toString().equals("starred a/b" + separator + "Forked c/b -> a/b" + separator)){
+            throw new AssertionError("Unexpected lines: " + lines);
+        }
+        System.out.println("testAppendEvent Passed");
+    }
+
     private String readFileFromResources(String fileName) throws IOException {
         try (InputStream is = getClass().getClassLoader().getResourceAsStream(fileName)) {
             if (is == null) {
@@ -37,5 +112,7 @@ public class GitHubEventActivityFormatterTest {
     public static void main(String[] args) throws IOException{
         GitHubEventActivityFormatterTest test = new GitHubEventActivityFormatterTest();
         test.testFromFile();
+        test.testFormatEventTypes();
+        test.testAppendEvent();
     }
 }
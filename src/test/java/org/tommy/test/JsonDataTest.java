@@ -1,11 +1,18 @@
 package org.tommy.test;
 
+import org.tommy.model.JsonPath;
 import org.tommy.model.JsonReader;
 import org.tommy.model.JsonDataHandler;
+import org.tommy.parser.JsonElementFramer;
+import org.tommy.parser.JsonParser;
+import org.tommy.parser.SymbolTable;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -99,6 +106,195 @@ public class JsonDataTest {
         }
     }
 
+    public void testStreamTopLevelArray() {
+        String json = "[{\"name\": \"Tommy\"}, {\"name\": \"Jerry\"}, {\"name\": \"Spike\"}]";
+        JsonDataHandler handler = new JsonDataHandler();
+
+        List<String> names = handler.streamJsonData(json)
+                .map(reader -> reader.<String>getValueForKey("name"))
+                .toList();
+        if(!names.equals(List.of("Tommy", "Jerry", "Spike"))){
+            throw new AssertionError("Unexpected names: " + names);
+        }
+        String first = handler.streamJsonData("[{\"name\": \"Tommy\"}, {\"name\": ")
+                .findFirst().orElseThrow().getValueForKey("name");
+        if(!"Tommy".equals(first)){
+            throw new AssertionError("Expected first element to be parsed before the malformed tail");
+        }
+        long single = handler.streamJsonData("{\"name\": \"Tommy\"}").count();
+        if(single != 1 || handler.streamJsonData("[]").count() != 0){
+            throw new AssertionError("Expected one reader for an object and none for an empty array");
+        }
+        System.out.println("testStreamTopLevelArray Passed");
+    }
+
+    public void testCompiledJsonPath() {
+        String json = "{\"payload\":{\"pages\":[{\"page_name\":\"Home\"}],\"number\":7}}";
+        JsonDataHandler handler = new JsonDataHandler();
+        JsonReader data = (JsonReader)handler.extractJsonData(json);
+
+        JsonPath pageName = JsonPath.compile("payload.pages[0].page_name");
+        if(pageName != JsonPath.compile("payload.pages[0].page_name")){
+            throw new AssertionError("Expected compiled paths to be cached");
+        }
+        if(!"Home".equals(data.getValueForKey(pageName))){
+            throw new AssertionError("Expected payload.pages[0].page_name to be Home");
+        }
+        if((long)data.getValueForKey(JsonPath.compile("payload.number")) != 7){
+            throw new AssertionError("Expected payload.number to be 7");
+        }
+        if(data.getValueForKey("payload.pages[3].page_name") != null
+                || data.getValueForKey("payload.number.value") != null
+                || data.getValueForKey("payload.missing[0]") != null){
+            throw new AssertionError("Expected invalid paths to resolve to null");
+        }
+        System.out.println("testCompiledJsonPath Passed");
+    }
+
+    public void testLazyJson() {
+        String json = "[{\"type\":\"PushEvent\",\"repo\":{\"name\":\"a/b\"},"
+                + "\"payload\":{\"distinct_size\":2,\"commits\":[{\"sha\":\"x\"},{\"message\":\"}]\\\"\"}],"
+                + "\"broken\":{\"never\": tru}}}]";
+        JsonDataHandler handler = new JsonDataHandler(true);
+        JsonReader data = handler.streamJsonData(json).findFirst().orElseThrow();
+
+        if(!"a/b".equals(data.getValueForKey("repo.name")) || (long)data.getValueForKey("payload.distinct_size") != 2){
+            throw new AssertionError("Expected lazy reads to match the eager parse");
+        }
+        if(!"}]\"".equals(data.getValueForKey("payload.commits[1].message"))){
+            throw new AssertionError("Expected skipped strings to keep their brackets and escapes");
+        }
+        Map<String, Object> payload = data.getValueForKey("payload");
+        if(payload.size() != 3 || !payload.containsKey("broken")){
+            throw new AssertionError("Expected payload to expose all of its keys");
+        }
+        boolean failed = false;
+        try {
+            data.getValueForKey("payload.broken.never");
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+        if(!failed){
+            throw new AssertionError("Expected a malformed subtree to fail once it is read");
+        }
+        System.out.println("testLazyJson Passed");
+    }
+
+    public void testElementFramer() {
+        String json = " [ {\"name\":\"T\u00f6mmy \u20ac\", \"tags\":[\"]\",\"}\\\"\"]},\n{\"name\":\"Jerry\"} ,{\"name\":\"\ud83d\ude00\"}]\n";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = List.of("T\u00f6mmy \u20ac", "Jerry", "\ud83d\ude00");
+        // Every chunk size, so chunk boundaries fall inside strings, escapes and multi-byte characters
+        for(int chunkSize = 1; chunkSize <= bytes.length; chunkSize++){
+            List<String> names = new ArrayList<>();
+            JsonElementFramer framer = new JsonDataHandler(chunkSize % 2 == 0)
+                    .newElementFramer(reader -> names.add(reader.getValueForKey("name")));
+            for(int offset = 0; offset < bytes.length; offset += chunkSize){
+                framer.feed(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+            }
+            framer.finish();
+            if(!names.equals(expected)){
+                throw new AssertionError("Unexpected names with chunk size " + chunkSize + ": " + names);
+            }
+        }
+        for(String valid: new String[]{"[]", "{\"name\":\"x\"}"}){
+            JsonElementFramer framer = new JsonDataHandler().newElementFramer(reader -> {});
+            framer.feed(ByteBuffer.wrap(valid.getBytes(StandardCharsets.UTF_8)));
+            framer.finish();
+        }
+        for(String malformed: new String[]{"", "[{}", "[{},]", "[1]", "[{}] x", "[{} {}]"}){
+            boolean failed = false;
+            try {
+                JsonElementFramer framer = new JsonDataHandler().newElementFramer(reader -> {});
+                framer.feed(ByteBuffer.wrap(malformed.getBytes(StandardCharsets.UTF_8)));
+                framer.finish();
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            if(!failed){
+                throw new AssertionError("Expected framing failure for: " + malformed);
+            }
+        }
+        System.out.println("testElementFramer Passed");
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testSymbolTable() {
+        String long40 = "x".repeat(40);
+        String json = "[{\"type\":\"PushEvent\",\"actor\":{\"login\":\"tommy\"},\"body\":\"" + long40 + "\",\"t\":\"\\u0041\"},"
+                + "{\"type\":\"PushEvent\",\"actor\":{\"login\":\"tommy\"},\"body\":\"" + long40 + "\",\"t\":\"\\u0041\"}]";
+        SymbolTable symbols = new SymbolTable(SymbolTable.DEFAULT_CAPACITY, 16);
+        List<Map<String, Object>> shared = (List<Map<String, Object>>) new JsonParser(false, symbols, true).parseJson(json);
+        List<Map<String, Object>> copied = (List<Map<String, Object>>) new JsonParser(false, null, false).parseJson(json);
+        if(!shared.equals(copied)){
+            throw new AssertionError("Expected the symbol table not to change parsed values");
+        }
+        Map<String, Object> first = shared.get(0), second = shared.get(1);
+        if(first.keySet().iterator().next() != second.keySet().iterator().next()
+                || first.get("type") != second.get("type")
+                || ((Map<String, Object>) first.get("actor")).get("login") != ((Map<String, Object>) second.get("actor")).get("login")){
+            throw new AssertionError("Expected keys and short values to be shared between events");
+        }
+        if(first.get("body") == second.get("body")){
+            throw new AssertionError("Expected values longer than the table's maximum length to be copied");
+        }
+        if(copied.get(0).keySet().iterator().next() == copied.get(1).keySet().iterator().next()){
+            throw new AssertionError("Expected every key to be copied without a symbol table");
+        }
+
+        // Keys only by default, in lazy mode too; the table stays within its capacity
+        List<JsonReader> lazy = new JsonDataHandler(true, symbols, false).streamJsonData(json).toList();
+        if(lazy.get(0).getValueForKey("actor.login") == lazy.get(1).getValueForKey("actor.login")){
+            throw new AssertionError("Expected values to be copied when only keys are interned");
+        }
+        SymbolTable small = new SymbolTable(64, 16);
+        for(int i = 0; i < 1000; i++){
+            new JsonParser(false, small, true).parseJson("{\"key" + i + "\":\"value" + i + "\"}");
+        }
+        if(small.size() > 64){
+            throw new AssertionError("Expected the symbol table to stay bounded, but it holds " + small.size());
+        }
+        System.out.println("testSymbolTable Passed");
+    }
+
+    public void testEscapedStrings() {
+        String json = "{\"title\":\"Fix \\\"quoted\\\" \\u00e9t\\u00E9\\n\",\"path\":\"a\\\\b\\/c\",\"nums\":[-1.5e2, 0, true, null]}";
+        JsonDataHandler handler = new JsonDataHandler();
+        JsonReader data = (JsonReader)handler.extractJsonData(json);
+
+        String title = data.getValueForKey("title");
+        if(!"Fix \"quoted\" été\n".equals(title)){
+            throw new AssertionError("Unexpected title: " + title);
+        }
+        String path = data.getValueForKey("path");
+        if(!"a\\b/c".equals(path)){
+            throw new AssertionError("Unexpected path: " + path);
+        }
+        if((double)data.getValueForKey("nums[0]") != -150.0){
+            throw new AssertionError("Expected nums[0] to be -150.0");
+        }
+        if(!Boolean.TRUE.equals(data.getValueForKey("nums[2]")) || data.getValueForKey("nums[3]") != null){
+            throw new AssertionError("Expected nums[2] to be true and nums[3] to be null");
+        }
+        System.out.println("testEscapedStrings Passed");
+    }
+
+    public void testMalformedJson() {
+        JsonDataHandler handler = new JsonDataHandler();
+        for(String json: new String[]{"{\"a\":1", "{\"a\" 1}", "[1,2", "{\"a\":\"x\\q\"}", "{\"a\":1} x"}){
+            boolean failed = false;
+            try {
+                handler.extractJsonData(json);
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            if(!failed){
+                throw new AssertionError("Expected parse failure for: " + json);
+            }
+        }
+        System.out.println("testMalformedJson Passed");
+    }
+
     public static void main(String[] args) throws InvocationTargetException, IllegalAccessException {
         JsonDataTest dataTest = new JsonDataTest();
 
@@ -0,0 +1,152 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.GItHubAPI;
+import org.tommy.PaginatedEventFetcher;
+import org.tommy.model.JsonReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class PaginatedEventFetcherTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch laterPagesRequested = new CountDownLatch(2);
+    // Whether pages 2 and 3 wait for each other, see startStubServer
+    private volatile boolean pagesWaitForEachOther = true;
+
+    // Serves 3 pages of 100 events with ids 1..300, newest first; pages 2 and 3 only answer once
+    // both have been requested, so a sequential client would time out
+    private HttpServer startStubServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        String base = "http://127.0.0.1:%d/users/tommy/events";
+        server.createContext("/users/tommy/events", exchange -> {
+            requests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            int page = Integer.parseInt(query.substring(query.indexOf("page=", query.indexOf("per_page=") + 9) + 5));
+            if (page > 1 && pagesWaitForEachOther) {
+                laterPagesRequested.countDown();
+                try {
+                    if (!laterPagesRequested.await(5, TimeUnit.SECONDS)) {
+                        exchange.sendResponseHeaders(500, -1);
+                        exchange.close();
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < 100; i++) {
+                int id = (page - 1) * 100 + i + 1;
+                if (i > 0) body.append(',');
+                body.append("{\"id\":\"").append(id).append("\",\"type\":\"WatchEvent\",\"repo\":{\"name\":\"r/")
+                        .append(id).append("\"},\"created_at\":\"")
+                        .append(Instant.parse("2025-01-01T00:00:00Z").minusSeconds(id * 60L)).append("\"}");
+            }
+            byte[] bytes = body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            String url = String.format(base, server.getAddress().getPort());
+            exchange.getResponseHeaders().add("Link", "<" + url + "?per_page=100&page=" + Math.min(page + 1, 3)
+                    + ">; rel=\"next\", <" + url + "?per_page=100&page=3>; rel=\"last\"");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static PaginatedEventFetcher fetcher(HttpServer server) {
+        String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/users/%s/events";
+        return new PaginatedEventFetcher(new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(10), template));
+    }
+
+    private static List<String> ids(Stream<JsonReader> events) {
+        try (events) {
+            return events.map(event -> event.<String>getValueForKey("id")).toList();
+        }
+    }
+
+    public void testPagesArePrefetchedAndMergedInOrder() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            List<String> ids = ids(fetcher(server).streamEvents("tommy", 3, 0, null));
+            if (ids.size() != 300 || !ids.get(0).equals("1") || !ids.get(150).equals("151") || !ids.get(299).equals("300")) {
+                throw new AssertionError("Expected events 1..300 in order, got " + ids.size());
+            }
+            System.out.println("testPagesArePrefetchedAndMergedInOrder Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testLimitAndCutoffStopEarly() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            List<String> limited = ids(fetcher(server).streamEvents("tommy", 3, 40, null));
+            if (limited.size() != 40 || requests.get() != 1) {
+                throw new AssertionError("Expected 40 events from a single request, got " + limited.size()
+                        + " events from " + requests.get() + " requests");
+            }
+            // Events are one minute apart, so a 30.5 minute cutoff keeps exactly 30 of them
+            Instant cutoff = Instant.parse("2025-01-01T00:00:00Z").minusSeconds(30 * 60 + 30);
+            List<String> recent = ids(fetcher(server).streamEvents("tommy", 1, 0, cutoff));
+            if (recent.size() != 30 || !recent.get(29).equals("30")) {
+                throw new AssertionError("Expected the 30 events after the cutoff, got " + recent.size());
+            }
+            System.out.println("testLimitAndCutoffStopEarly Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testCutoffStopsPageRequests() throws IOException {
+        pagesWaitForEachOther = false;
+        HttpServer server = startStubServer();
+        try {
+            // The cutoff falls on the first page: the other two are not requested
+            Instant cutoff = Instant.parse("2025-01-01T00:00:00Z").minusSeconds(30 * 60 + 30);
+            List<String> recent = ids(fetcher(server).streamEvents("tommy", 3, 0, cutoff));
+            if (recent.size() != 30 || requests.get() != 1) {
+                throw new AssertionError("Expected 30 events from one request, got " + recent.size() + " from "
+                        + requests.get() + " requests");
+            }
+            // The cutoff falls on the second page: the third one is not requested
+            requests.set(0);
+            cutoff = Instant.parse("2025-01-01T00:00:00Z").minusSeconds(150 * 60 + 30);
+            recent = ids(fetcher(server).streamEvents("tommy", 3, 0, cutoff));
+            if (recent.size() != 150 || !recent.get(149).equals("150") || requests.get() != 2) {
+                throw new AssertionError("Expected 150 events from two requests, got " + recent.size() + " from "
+                        + requests.get() + " requests");
+            }
+            // Before the oldest event, every page is needed
+            requests.set(0);
+            recent = ids(fetcher(server).streamEvents("tommy", 3, 0, Instant.parse("2024-01-01T00:00:00Z")));
+            if (recent.size() != 300 || requests.get() != 3) {
+                throw new AssertionError("Expected all 300 events from three requests, got " + recent.size());
+            }
+            System.out.println("testCutoffStopsPageRequests Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new PaginatedEventFetcherTest().testPagesArePrefetchedAndMergedInOrder();
+        new PaginatedEventFetcherTest().testLimitAndCutoffStopEarly();
+        new PaginatedEventFetcherTest().testCutoffStopsPageRequests();
+    }
+}
@@ -0,0 +1,181 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.tommy.ActivityServer;
+import org.tommy.ActivityService;
+import org.tommy.GItHubAPI;
+import org.tommy.RateLimitScheduler;
+import org.tommy.metrics.LatencyHistogram;
+import org.tommy.metrics.PipelineMetrics;
+import org.tommy.metrics.Stage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PipelineMetricsTest {
+
+    private static final String EVENTS = "[" + ("{\"id\":\"1\",\"type\":\"WatchEvent\",\"repo\":{\"name\":\"tommy/app\"},"
+            + "\"payload\":{\"action\":\"started\"}},").repeat(99) + "{\"id\":\"2\",\"type\":\"ForkEvent\","
+            + "\"repo\":{\"name\":\"tommy/app\"},\"payload\":{\"forkee\":{\"full_name\":\"tommy/fork\"}}}]";
+
+    private static HttpServer startUpstream() throws IOException {
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/users/", exchange -> {
+            byte[] body = EVENTS.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+        return upstream;
+    }
+
+    private static GItHubAPI stubApi(HttpServer upstream, PipelineMetrics metrics){
+        String template = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, null,
+                new RateLimitScheduler(), metrics);
+    }
+
+    public void testHistogramPercentiles(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long micros = 1; micros <= 1000; micros++) histogram.record(micros * 1000);
+        histogram.record(-5);
+        long p50 = histogram.percentile(0.5);
+        long p99 = histogram.percentile(0.99);
+        if(histogram.count() != 1001 || histogram.max() != 1_000_000 || histogram.percentile(0) != 0
+                || histogram.percentile(1) != 1_000_000){
+            throw new AssertionError("Unexpected count " + histogram.count() + " or max " + histogram.max());
+        }
+        // Log-linear buckets report the upper end of the bucket, at most 12.5% above the value
+        if(p50 < 500_000 || p50 > 500_000 * 1.125 || p99 < 990_000 || p99 > 1_000_000){
+            throw new AssertionError("Unexpected percentiles p50 " + p50 + ", p99 " + p99);
+        }
+        for(long value = 0; value < 64; value++){
+            LatencyHistogram exact = new LatencyHistogram();
+            exact.record(value);
+            if(exact.percentile(0.5) != value) throw new AssertionError("Expected small values to be exact: " + value);
+        }
+        System.out.println("testHistogramPercentiles Passed: p50 " + p50 + ", p99 " + p99);
+    }
+
+    public void testStagesOfAStreamedLookup() throws Exception {
+        HttpServer upstream = startUpstream();
+        try {
+            PipelineMetrics metrics = new PipelineMetrics();
+            ActivityService service = new ActivityService(stubApi(upstream, metrics));
+            StringBuilder out = new StringBuilder();
+            long start = System.nanoTime();
+            service.writeActivity("tommy", out);
+            long elapsed = System.nanoTime() - start;
+
+            PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+            if(snapshot.lookups() != 1 || snapshot.requests() != 1 || snapshot.events() != 100
+                    || snapshot.wireBytes() != EVENTS.length() || snapshot.bodyBytes() != EVENTS.length()){
+                throw new AssertionError("Unexpected counters: " + snapshot);
+            }
+            long stagesTotal = 0;
+            for(Stage stage : Stage.values()){
+                PipelineMetrics.StageStats stats = snapshot.stages().get(stage);
+                stagesTotal += stats.totalNanos();
+                // Lookups on platform threads have their allocation measured
+                if(stats.samples() != 1 || stats.totalNanos() <= 0 || stats.allocationSamples() != 1
+                        || stats.allocatedBytes() <= 0){
+                    throw new AssertionError("Expected one timed sample for " + stage + ": " + stats);
+                }
+            }
+            // Stages are disjoint, so together they cannot take longer than the lookup
+            if(stagesTotal > elapsed){
+                throw new AssertionError("Stages took " + stagesTotal + " ns of a " + elapsed + " ns lookup");
+            }
+            String json = snapshot.toJson();
+            if(!json.startsWith("{\"lookups\":1,\"requests\":1,\"events\":100,\"wire_bytes\":" + EVENTS.length())
+                    || !json.contains("\"fetch\":{\"samples\":1,") || !json.contains("\"format\":{\"samples\":1,")){
+                throw new AssertionError("Unexpected JSON: " + json);
+            }
+
+            // Nothing is timed outside a run
+            new ActivityService(stubApi(upstream, metrics)).streamActivity("tommy").toList();
+            if(metrics.snapshot().lookups() != 1 || metrics.snapshot().requests() != 2){
+                throw new AssertionError("Expected only the request of an untimed lookup to count: " + metrics.snapshot());
+            }
+            System.out.println("testStagesOfAStreamedLookup Passed:\n" + snapshot);
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    public void testStagesAreRecordedAsJfrEvents() throws Exception {
+        HttpServer upstream = startUpstream();
+        Path file = Files.createTempFile("pipeline", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.tommy.PipelineStage").withThreshold(Duration.ZERO);
+            recording.start();
+            // No metrics instance: the events alone are recorded
+            new ActivityService(stubApi(upstream, null)).writeActivity("tommy", new StringBuilder());
+            recording.stop();
+            recording.dump(file);
+
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for(Stage stage : Stage.values()) counts.put(stage.label(), 0);
+            for(RecordedEvent event : RecordingFile.readAllEvents(file)){
+                if(!event.getEventType().getName().equals("org.tommy.PipelineStage")) continue;
+                if(!"tommy".equals(event.getString("user"))){
+                    throw new AssertionError("Expected the user on every event: " + event);
+                }
+                counts.merge(event.getString("stage"), 1, Integer::sum);
+            }
+            // Parsing and formatting alternate at least once per event; lazy members read while formatting are parsing too
+            if(counts.get("fetch") < 1 || counts.get("format") < 100 || counts.get("parse") < counts.get("format")){
+                throw new AssertionError("Unexpected stage events: " + counts);
+            }
+            System.out.println("testStagesAreRecordedAsJfrEvents Passed: " + counts);
+        } finally {
+            upstream.stop(0);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public void testServerExposesStats() throws Exception {
+        HttpServer upstream = startUpstream();
+        PipelineMetrics metrics = new PipelineMetrics();
+        try (ActivityServer server = new ActivityServer(new ActivityService(stubApi(upstream, metrics)),
+                new InetSocketAddress("127.0.0.1", 0))) {
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + server.getPort();
+            client.send(HttpRequest.newBuilder(URI.create(base + "/users/tommy/activity")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(base + "/stats")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if(stats.statusCode() != 200 || !stats.body().startsWith("{\"lookups\":1,\"requests\":1,\"events\":100,")
+                    || !stats.headers().firstValue("Content-Type").orElse("").equals("application/json")){
+                throw new AssertionError("Unexpected stats response " + stats.statusCode() + ": " + stats.body());
+            }
+            System.out.println("testServerExposesStats Passed: " + stats.body().trim());
+        } finally {
+            upstream.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new PipelineMetricsTest().testHistogramPercentiles();
+        new PipelineMetricsTest().testStagesOfAStreamedLookup();
+        new PipelineMetricsTest().testStagesAreRecordedAsJfrEvents();
+        new PipelineMetricsTest().testServerExposesStats();
+    }
+}
@@ -0,0 +1,199 @@
+package org.tommy.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.tommy.GItHubAPI;
+import org.tommy.GitHubResponse;
+import org.tommy.RateLimitScheduler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateLimitSchedulerTest {
+
+    // A scripted stub reply: status code plus extra response headers as name/value pairs
+    private record Reply(int status, String... headers) {}
+
+    private final Deque<Reply> replies = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    // Answers with the scripted replies in order, then with 200 once they run out
+    private HttpServer startStubServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/users/", this::reply);
+        server.start();
+        return server;
+    }
+
+    private void reply(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Reply reply = replies.poll();
+        if (reply == null) reply = new Reply(200);
+        for (int i = 0; i + 1 < reply.headers().length; i += 2) {
+            exchange.getResponseHeaders().add(reply.headers()[i], reply.headers()[i + 1]);
+        }
+        byte[] body = (reply.status() == 200 ? "[]" : "{\"message\":\"stub\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(reply.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static GItHubAPI api(HttpServer server, RateLimitScheduler scheduler) {
+        String template = "http://127.0.0.1:" + server.getAddress().getPort() + "/users/%s/events";
+        return new GItHubAPI(HttpClient.newHttpClient(), Duration.ofSeconds(5), template, null, scheduler);
+    }
+
+    private static RateLimitScheduler scheduler(double requestsPerSecond, int burst) {
+        return new RateLimitScheduler(requestsPerSecond, burst, 4, Duration.ofMillis(20), Duration.ofMillis(200));
+    }
+
+    public void testServerErrorsAreRetried() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            replies.add(new Reply(503));
+            replies.add(new Reply(502));
+            String body = api(server, scheduler(100, 10)).getGitHubEvents("tommy");
+            if (!"[]".equals(body) || requests.get() != 3) {
+                throw new AssertionError("Expected success on the third attempt, requests: " + requests.get());
+            }
+            System.out.println("testServerErrorsAreRetried Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testRetryAfterIsHonoured() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            replies.add(new Reply(429, "Retry-After", "1"));
+            long start = System.nanoTime();
+            GitHubResponse response = api(server, scheduler(100, 10)).fetchGitHubEvents("tommy");
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (response.statusCode() != 200 || requests.get() != 2 || elapsedMillis < 950) {
+                throw new AssertionError("Expected one retry after ~1s, took " + elapsedMillis + " ms");
+            }
+            System.out.println("testRetryAfterIsHonoured Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testExhaustedQuotaFailsAfterRetries() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            long reset = System.currentTimeMillis() / 1000;
+            for (int i = 0; i < 4; i++) {
+                replies.add(new Reply(403, "X-RateLimit-Remaining", "0", "X-RateLimit-Reset", String.valueOf(reset)));
+            }
+            String message = null;
+            try {
+                api(server, new RateLimitScheduler(100, 10, 2, Duration.ofMillis(20), Duration.ofMillis(200)))
+                        .getGitHubEvents("tommy");
+            } catch (RuntimeException e) {
+                message = e.getMessage();
+            }
+            if (message == null || !message.startsWith("GitHub API rate limit exceeded") || requests.get() != 2) {
+                throw new AssertionError("Unexpected outcome: " + message + " after " + requests.get() + " requests");
+            }
+            System.out.println("testExhaustedQuotaFailsAfterRetries Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testRequestsArePacedByTokenBucket() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            GItHubAPI api = api(server, scheduler(20, 1));
+            long start = System.nanoTime();
+            for (int i = 0; i < 6; i++) api.getGitHubEvents("tommy");
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            // One request goes out immediately, the other five wait 50 ms each
+            if (elapsedMillis < 240) {
+                throw new AssertionError("Expected requests to be paced at 20/s, took " + elapsedMillis + " ms");
+            }
+            System.out.println("testRequestsArePacedByTokenBucket Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testRateAdaptsToRemainingQuota() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            RateLimitScheduler scheduler = scheduler(20, 1);
+            long reset = System.currentTimeMillis() / 1000 + 100;
+            replies.add(new Reply(200, "X-RateLimit-Remaining", "50", "X-RateLimit-Reset", String.valueOf(reset)));
+            api(server, scheduler).getGitHubEvents("tommy");
+            double rate = scheduler.getRequestsPerSecond();
+            if (rate < 0.4 || rate > 0.6) {
+                throw new AssertionError("Expected about 0.5 requests/s for 50 requests in 100 s, got " + rate);
+            }
+            System.out.println("testRateAdaptsToRemainingQuota Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testHourlyQuotaIsPacedWithoutAFloor() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            RateLimitScheduler scheduler = scheduler(20, 1);
+            long reset = System.currentTimeMillis() / 1000 + 3600;
+            replies.add(new Reply(200, "X-RateLimit-Remaining", "59", "X-RateLimit-Reset", String.valueOf(reset)));
+            api(server, scheduler).getGitHubEvents("tommy");
+            double rate = scheduler.getRequestsPerSecond();
+            // GitHub's unauthenticated quota is 60 requests an hour
+            if (rate > 60 / 3600.0) {
+                throw new AssertionError("Expected at most 60 requests/hour, got " + rate * 3600 + " requests/hour");
+            }
+            System.out.println("testHourlyQuotaIsPacedWithoutAFloor Passed: " + Math.round(rate * 3600) + " requests/hour");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testExhaustedQuotaWaitsForTheReset() throws IOException {
+        HttpServer server = startStubServer();
+        try {
+            RateLimitScheduler scheduler = scheduler(20, 2);
+            GItHubAPI api = api(server, scheduler);
+            long reset = System.currentTimeMillis() / 1000 + 3600;
+            replies.add(new Reply(200, "X-RateLimit-Remaining", "59", "X-RateLimit-Reset", String.valueOf(reset)));
+            // The last request of the window still succeeds, with the reset about a second away
+            replies.add(new Reply(200, "X-RateLimit-Remaining", "0", "X-RateLimit-Reset",
+                    String.valueOf(System.currentTimeMillis() / 1000)));
+            api.getGitHubEvents("tommy");
+            api.getGitHubEvents("tommy");
+            // Paced at the old window's one a minute, this request would wait a minute past the reset
+            long start = System.nanoTime();
+            api.getGitHubEvents("tommy");
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (requests.get() != 3 || elapsedMillis < 950 || elapsedMillis > 5000 || scheduler.getRequestsPerSecond() != 20) {
+                throw new AssertionError("Expected one wait for the reset at the full rate, took " + elapsedMillis
+                        + " ms at " + scheduler.getRequestsPerSecond() + " requests/s");
+            }
+            System.out.println("testExhaustedQuotaWaitsForTheReset Passed");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new RateLimitSchedulerTest().testServerErrorsAreRetried();
+        new RateLimitSchedulerTest().testRetryAfterIsHonoured();
+        new RateLimitSchedulerTest().testExhaustedQuotaFailsAfterRetries();
+        new RateLimitSchedulerTest().testRequestsArePacedByTokenBucket();
+        new RateLimitSchedulerTest().testRateAdaptsToRemainingQuota();
+        new RateLimitSchedulerTest().testHourlyQuotaIsPacedWithoutAFloor();
+        new RateLimitSchedulerTest().testExhaustedQuotaWaitsForTheReset();
+    }
+}
@@ -0,0 +1,132 @@
+package org.tommy.test;
+
+import org.tommy.GitHubUserNameValidator;
+import org.tommy.GitHubUserNameValidator.Violation;
+import org.tommy.UserNameIngester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserNameIngesterTest {
+
+    private static final String USERS_FILE = "octocat\r\n"
+            + "  tommy-pranay \n"
+            + "\n"
+            + "a--b\n"
+            + "OctoCat\n"
+            + "-leading\n"
+            + "under_score\n"
+            + "ünïcode\n"
+            + "x".repeat(40) + "\n"
+            + "torvalds\n"
+            + "TOMMY-PRANAY\n"
+            + "gvanrossum";
+
+    public void testValidatorRules(){
+        Map<String, Violation> cases = new LinkedHashMap<>();
+        cases.put("octocat", null);
+        cases.put("a-b-c", null);
+        cases.put("A1", null);
+        cases.put("x".repeat(39), null);
+        cases.put("", Violation.EMPTY);
+        cases.put("x".repeat(40), Violation.TOO_LONG);
+        cases.put("a_b", Violation.INVALID_CHARACTER);
+        cases.put("a b", Violation.INVALID_CHARACTER);
+        cases.put("ünïcode", Violation.INVALID_CHARACTER);
+        cases.put("-a", Violation.LEADING_OR_TRAILING_HYPHEN);
+        cases.put("a-", Violation.LEADING_OR_TRAILING_HYPHEN);
+        cases.put("-", Violation.LEADING_OR_TRAILING_HYPHEN);
+        // Consecutive hyphens used to be accepted unless they were the whole name
+        cases.put("a--b", Violation.CONSECUTIVE_HYPHENS);
+        cases.put("tommy---pranay", Violation.CONSECUTIVE_HYPHENS);
+        for(Map.Entry<String, Violation> entry : cases.entrySet()){
+            Violation violation = GitHubUserNameValidator.check(entry.getKey());
+            if(violation != entry.getValue() || GitHubUserNameValidator.isValidUserName(entry.getKey()) != (violation == null)){
+                throw new AssertionError("Expected " + entry.getValue() + " for '" + entry.getKey() + "' but got " + violation);
+            }
+        }
+        System.out.println("testValidatorRules Passed");
+    }
+
+    public void testReadsFileInChunks() throws IOException {
+        Path file = Files.createTempFile("users", ".txt");
+        try {
+            Files.writeString(file, USERS_FILE, StandardCharsets.UTF_8);
+            // Buffers smaller than the file make lines straddle reads
+            for(int bufferSize : new int[]{UserNameIngester.DEFAULT_BUFFER_SIZE, 48, 41}){
+                UserNameIngester ingester = new UserNameIngester(bufferSize);
+                ingester.add("octocat", "argument 1");
+                ingester.add("bad name", "argument 2");
+                ingester.read(file);
+
+                List<String> expected = List.of("octocat", "tommy-pranay", "torvalds", "gvanrossum");
+                UserNameIngester.Report report = ingester.getReport();
+                if(!ingester.getUserNames().equals(expected) || report.names() != 13 || report.accepted() != 4
+                        || report.duplicates() != 3 || report.rejected() != 6){
+                    throw new AssertionError("Unexpected ingestion with a buffer of " + bufferSize + ": "
+                            + ingester.getUserNames() + System.lineSeparator() + report);
+                }
+                List<String> rejections = report.rejections().stream().map(Object::toString).toList();
+                if(!rejections.contains("argument 2: 'bad name' contains a character other than a letter, digit or hyphen")
+                        || !rejections.contains(file + ":4: 'a--b' contains consecutive hyphens")
+                        || !rejections.contains(file + ":8: 'ünïcode' contains a character other than a letter, digit or hyphen")
+                        || report.byViolation().get(Violation.INVALID_CHARACTER) != 3
+                        || report.byViolation().get(Violation.TOO_LONG) != 1){
+                    throw new AssertionError("Unexpected rejections: " + report);
+                }
+            }
+            System.out.println("testReadsFileInChunks Passed");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public void testLinesLongerThanTheBufferAreSkipped() throws IOException {
+        Path file = Files.createTempFile("users", ".txt");
+        try {
+            Files.writeString(file, "first\n" + "y".repeat(200) + "\nsecond\n" + "z".repeat(100));
+            UserNameIngester ingester = new UserNameIngester(64);
+            ingester.read(file);
+            UserNameIngester.Report report = ingester.getReport();
+            if(!ingester.getUserNames().equals(List.of("first", "second")) || report.rejected() != 2
+                    || report.byViolation().get(Violation.TOO_LONG) != 2){
+                throw new AssertionError("Unexpected ingestion: " + ingester.getUserNames() + System.lineSeparator() + report);
+            }
+            System.out.println("testLinesLongerThanTheBufferAreSkipped Passed");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public void testDeduplicatesManyNamesIgnoringCase() throws IOException {
+        Path file = Files.createTempFile("users", ".txt");
+        try {
+            StringBuilder names = new StringBuilder();
+            for(int i = 0; i < 200_000; i++) names.append("user-").append(i).append('\n');
+            for(int i = 0; i < 200_000; i += 2) names.append("USER-").append(i).append('\n');
+            Files.writeString(file, names);
+            UserNameIngester ingester = new UserNameIngester();
+            ingester.read(file);
+            UserNameIngester.Report report = ingester.getReport();
+            if(report.accepted() != 200_000 || report.duplicates() != 100_000 || report.rejected() != 0
+                    || !ingester.getUserNames().get(199_999).equals("user-199999")){
+                throw new AssertionError("Unexpected ingestion: " + report);
+            }
+            System.out.println("testDeduplicatesManyNamesIgnoringCase Passed: " + report);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new UserNameIngesterTest().testValidatorRules();
+        new UserNameIngesterTest().testReadsFileInChunks();
+        new UserNameIngesterTest().testLinesLongerThanTheBufferAreSkipped();
+        new UserNameIngesterTest().testDeduplicatesManyNamesIgnoringCase();
+    }
+}